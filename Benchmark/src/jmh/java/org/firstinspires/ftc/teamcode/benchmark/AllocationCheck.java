@@ -0,0 +1,110 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import java.lang.management.ManagementFactory;
+
+import org.firstinspires.ftc.teamcode.RobotController;
+import org.firstinspires.ftc.teamcode.sim.SimRobot;
+
+/**
+ * Checks that a steady-state tick of each teleop stack of {@link ControllerBenchmark} allocates
+ * nothing.
+ * Each stack is run on a simulated robot with the driver holding the sticks, as in
+ * {@link ControllerBenchmark#teleopTick}, until the JIT has compiled it. The bytes the thread
+ * allocates inside {@link RobotController#update} are then counted over many more ticks with
+ * {@link com.sun.management.ThreadMXBean}; stepping the simulation between ticks is not counted.
+ * Run it from the benchmark jar with
+ *
+ * <pre>
+ * java -cp build/libs/Benchmark-jmh.jar org.firstinspires.ftc.teamcode.benchmark.AllocationCheck
+ * </pre>
+ *
+ * <p>or as part of {@code ./gradlew -p Benchmark check}. The process exits with status 1 if any
+ * stack allocates.
+ *
+ * <p>The BasekitBotOpMode stack is measured with {@link ControllerBenchmark.ShooterStandIn} in
+ * place of ShooterIntakeLayer, which needs a camera; the vision processing of that layer is not
+ * covered.
+ */
+public final class AllocationCheck {
+    /**
+     * The stacks checked, by the simple class names of their OpModes.
+     */
+    private static final String[] OP_MODES = { "DriveTeleopTest", "BasekitBotOpMode" };
+
+    /**
+     * The number of ticks run before measuring, enough for the JIT to compile the stack.
+     */
+    private static final int WARMUP_TICKS = 200_000;
+
+    /**
+     * The number of ticks measured.
+     */
+    private static final int MEASURED_TICKS = 100_000;
+
+    /**
+     * The bean reporting the bytes allocated by the current thread.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+    /**
+     * AllocationCheck is only run through {@link #main}; it should not be instantiated.
+     */
+    private AllocationCheck() { }
+
+    /**
+     * Runs the checks.
+     *
+     * @param args - unused.
+     */
+    public static void main(String[] args) {
+        boolean passed = true;
+        for (String opMode : OP_MODES) {
+            SimRobot robot = new SimRobot(ControllerBenchmark.SEED);
+            robot.addMecanumDrivetrain();
+            robot.getGamepad0().left_stick_y = -0.5f;
+            robot.getGamepad0().right_stick_x = 0.25f;
+            RobotController controller =
+                robot.createController(ControllerBenchmark.teleopLayers(opMode));
+            // Warming up through the measuring loop also gets the first reads of the counter,
+            // which allocate while linking, out of the way
+            measure(robot, controller, WARMUP_TICKS);
+            long allocated = measure(robot, controller, MEASURED_TICKS);
+            boolean stackPassed = allocated <= 0;
+            System.out.printf("%-20s %10d bytes over %d ticks (%.1f per tick)  %s%n", opMode,
+                allocated, MEASURED_TICKS, (double)allocated / MEASURED_TICKS,
+                stackPassed ? "ok" : "ALLOCATED");
+            passed &= stackPassed;
+        }
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs a stack for a number of ticks, counting the bytes allocated by its updates.
+     *
+     * @param robot - the simulated robot the stack drives.
+     * @param controller - the controller running the stack.
+     * @param ticks - the number of ticks to run.
+     * @return The bytes allocated inside {@link RobotController#update}, less the cost of reading
+     * the counter.
+     */
+    private static long measure(SimRobot robot, RobotController controller, int ticks) {
+        long thread = Thread.currentThread().getId();
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 1000; ++i) {
+            long before = THREADS.getThreadAllocatedBytes(thread);
+            overhead = Math.min(overhead, THREADS.getThreadAllocatedBytes(thread) - before);
+        }
+        long allocated = 0;
+        for (int i = 0; i < ticks; ++i) {
+            long before = THREADS.getThreadAllocatedBytes(thread);
+            controller.update();
+            allocated += THREADS.getThreadAllocatedBytes(thread) - before - overhead;
+            robot.step(ControllerBenchmark.TICK_DT);
+        }
+        return allocated;
+    }
+}
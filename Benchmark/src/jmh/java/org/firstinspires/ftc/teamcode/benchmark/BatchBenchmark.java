@@ -0,0 +1,190 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.firstinspires.ftc.teamcode.matrix.BatchMath;
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
+import org.firstinspires.ftc.teamcode.matrix.Pose2dBatch;
+import org.firstinspires.ftc.teamcode.matrix.Vec2;
+import org.firstinspires.ftc.teamcode.matrix.Vec2Batch;
+
+/**
+ * Compares bulk geometry done one {@link Vec2} or {@link Pose2d} object at a time against the
+ * same work done by {@link Vec2Batch} and {@link Pose2dBatch}.
+ * Each pair of benchmarks computes the same result, so their times are directly comparable.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchBenchmark {
+    /**
+     * The number of points or poses in each batch.
+     */
+    @Param({ "16", "256", "4096" })
+    private int count;
+
+    /**
+     * The points as separate objects.
+     */
+    private Vec2[] points;
+
+    /**
+     * The points as a batch.
+     */
+    private Vec2Batch pointBatch;
+
+    /**
+     * The poses as separate objects.
+     */
+    private Pose2d[] poses;
+
+    /**
+     * The poses as a batch.
+     */
+    private Pose2dBatch poseBatch;
+
+    /**
+     * The pose points are transformed by and poses are composed with.
+     */
+    private Pose2d pose;
+
+    /**
+     * The destination of point transforms.
+     */
+    private Vec2Batch pointScratch;
+
+    /**
+     * The destination of pose compositions.
+     */
+    private Pose2dBatch poseScratch;
+
+    /**
+     * The destination of per-point scalars.
+     */
+    private double[] values;
+
+    /**
+     * Generates points and poses scattered over the field.
+     */
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        points = new Vec2[count];
+        pointBatch = new Vec2Batch(count);
+        poses = new Pose2d[count];
+        poseBatch = new Pose2dBatch(count);
+        for (int i = 0; i < count; ++i) {
+            points[i] = new Vec2(random.nextDouble() * 3.6 - 1.8, random.nextDouble() * 3.6 - 1.8);
+            pointBatch.add(points[i]);
+            poses[i] = new Pose2d(
+                random.nextDouble() * 3.6 - 1.8,
+                random.nextDouble() * 3.6 - 1.8,
+                random.nextDouble() * 2 * Math.PI
+            );
+            poseBatch.add(poses[i]);
+        }
+        pose = new Pose2d(0.4, -0.3, 0.7);
+        pointScratch = new Vec2Batch(count);
+        poseScratch = new Pose2dBatch(count);
+        values = new double[count];
+    }
+
+    @Benchmark
+    public double minDistanceObjects() {
+        Vec2 target = pose.getTranslation();
+        double min = Double.POSITIVE_INFINITY;
+        for (Vec2 point : points) {
+            min = Math.min(min, point.add(target.mul(-1)).len());
+        }
+        return min;
+    }
+
+    @Benchmark
+    public double minDistanceBatch() {
+        pointBatch.distancesTo(pose.getX(), pose.getY(), values);
+        return BatchMath.min(values, count);
+    }
+
+    @Benchmark
+    public Vec2[] transformObjects() {
+        Vec2[] out = new Vec2[count];
+        for (int i = 0; i < count; ++i) {
+            out[i] = pose.transform(points[i]);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public Vec2Batch transformBatch() {
+        pointBatch.transform(pose, pointScratch);
+        return pointScratch;
+    }
+
+    @Benchmark
+    public int argMaxDotObjects() {
+        Vec2 direction = pose.getDirection();
+        int best = -1;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; ++i) {
+            double dot = points[i].dot(direction);
+            if (dot > max) {
+                max = dot;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    @Benchmark
+    public int argMaxDotBatch() {
+        pointBatch.dot(pose.getCos(), pose.getSin(), values);
+        return BatchMath.argMax(values, count);
+    }
+
+    @Benchmark
+    public Pose2d[] composeObjects() {
+        Pose2d[] out = new Pose2d[count];
+        for (int i = 0; i < count; ++i) {
+            out[i] = poses[i].mul(pose);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public Pose2dBatch composeBatch() {
+        poseBatch.postmul(pose, poseScratch);
+        return poseScratch;
+    }
+
+    @Benchmark
+    public Vec2[] landmarkObjects() {
+        Vec2 landmark = pose.getTranslation();
+        Vec2[] out = new Vec2[count];
+        for (int i = 0; i < count; ++i) {
+            out[i] = poses[i].inverseTransform(landmark);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public Vec2Batch landmarkBatch() {
+        poseBatch.inverseTransform(pose.getX(), pose.getY(), pointScratch);
+        return pointScratch;
+    }
+}
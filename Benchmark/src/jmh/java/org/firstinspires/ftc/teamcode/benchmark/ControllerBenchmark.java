@@ -0,0 +1,228 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.firstinspires.ftc.teamcode.RobotController;
+import org.firstinspires.ftc.teamcode.layer.Layer;
+import org.firstinspires.ftc.teamcode.layer.LayerSetupInfo;
+import org.firstinspires.ftc.teamcode.layer.MultiplexLayer;
+import org.firstinspires.ftc.teamcode.layer.WinLayer;
+import org.firstinspires.ftc.teamcode.layer.autonomous.FrontAuto;
+import org.firstinspires.ftc.teamcode.layer.autonomous.LeftBackAuto;
+import org.firstinspires.ftc.teamcode.layer.autonomous.RightBackAuto;
+import org.firstinspires.ftc.teamcode.layer.drive.MecanumDrive;
+import org.firstinspires.ftc.teamcode.layer.input.GamepadInputGenerator;
+import org.firstinspires.ftc.teamcode.layer.input.mapping.AutoShooterMapping;
+import org.firstinspires.ftc.teamcode.layer.input.mapping.JoystickHoloDriveMapping;
+import org.firstinspires.ftc.teamcode.layer.input.mapping.TeleopAgitatorMapping;
+import org.firstinspires.ftc.teamcode.sim.SimRobot;
+import org.firstinspires.ftc.teamcode.task.AutoShooterTask;
+import org.firstinspires.ftc.teamcode.task.TeleopAgitatorTask;
+import org.firstinspires.ftc.teamcode.task.Task;
+
+/**
+ * Benchmarks {@link RobotController} running the layer stack of each OpMode on a simulated robot.
+ * Teleop stacks are measured per tick with the driver holding the left stick forward and the right
+ * stick turning; autonomous stacks are measured per complete run. ShooterIntakeLayer needs a
+ * camera, so stacks containing it use {@link ShooterStandIn} in its place.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControllerBenchmark {
+    /**
+     * The simulated time between ticks in seconds, about one robot loop.
+     */
+    static final double TICK_DT = 0.01;
+
+    /**
+     * The most ticks an autonomous run may take before it is cut off.
+     */
+    private static final int MAX_AUTO_TICKS = 3000;
+
+    /**
+     * The seed of every simulated robot.
+     */
+    static final long SEED = 0;
+
+    /**
+     * Accepts the tasks ShooterIntakeLayer accepts and does nothing with them.
+     */
+    public static final class ShooterStandIn implements Layer {
+        @Override
+        public void setup(LayerSetupInfo setupInfo) { }
+
+        @Override
+        public boolean isTaskDone() {
+            return true;
+        }
+
+        @Override
+        public Iterator<Task> update(Iterable<Task> completed) {
+            return null;
+        }
+
+        @Override
+        public List<Class<? extends Task>> getAcceptedTasks() {
+            return Arrays.asList(AutoShooterTask.class, TeleopAgitatorTask.class);
+        }
+
+        @Override
+        public void acceptTask(Task task) { }
+    }
+
+    /**
+     * A simulated robot driven by a teleop stack.
+     */
+    @State(Scope.Thread)
+    public static class TeleopState {
+        /**
+         * The OpMode whose stack is run.
+         */
+        @Param({ "DriveTeleopTest", "BasekitBotOpMode" })
+        public String opMode;
+
+        /**
+         * The simulated robot.
+         */
+        private SimRobot robot;
+
+        /**
+         * The controller running the stack.
+         */
+        private RobotController controller;
+
+        /**
+         * Builds the robot and sets the stack up on it.
+         */
+        @Setup
+        public void setup() {
+            robot = new SimRobot(SEED);
+            robot.addMecanumDrivetrain();
+            robot.getGamepad0().left_stick_y = -0.5f;
+            robot.getGamepad0().right_stick_x = 0.25f;
+            controller = robot.createController(teleopLayers(opMode));
+        }
+    }
+
+    /**
+     * A simulated robot freshly set up with an autonomous stack.
+     */
+    @State(Scope.Thread)
+    public static class AutoState {
+        /**
+         * The OpMode whose stack is run.
+         */
+        @Param({ "FrontAutoOpMode", "LeftBackAutoOpMode", "RightBackAutoOpMode" })
+        public String opMode;
+
+        /**
+         * The simulated robot.
+         */
+        private SimRobot robot;
+
+        /**
+         * The controller running the stack.
+         */
+        private RobotController controller;
+
+        /**
+         * Builds a new robot and sets the stack up on it before every run.
+         */
+        @Setup(Level.Invocation)
+        public void setup() {
+            robot = new SimRobot(SEED);
+            robot.addMecanumDrivetrain();
+            controller = robot.createController(autoLayers(opMode));
+        }
+    }
+
+    /**
+     * Returns the layers of a teleop OpMode's stack.
+     *
+     * @param opMode - the simple class name of the OpMode.
+     * @return The stack's layers.
+     */
+    static List<Layer> teleopLayers(String opMode) {
+        switch (opMode) {
+            case "DriveTeleopTest":
+                return Arrays.asList(
+                    new MecanumDrive(),
+                    new JoystickHoloDriveMapping(),
+                    new GamepadInputGenerator()
+                );
+            case "BasekitBotOpMode":
+                return Arrays.asList(
+                    new MultiplexLayer(Arrays.asList(
+                        new MecanumDrive(),
+                        new ShooterStandIn()
+                    )),
+                    new MultiplexLayer(Arrays.asList(
+                        new JoystickHoloDriveMapping(),
+                        new AutoShooterMapping(),
+                        new TeleopAgitatorMapping()
+                    )),
+                    new GamepadInputGenerator()
+                );
+            default:
+                throw new IllegalArgumentException(String.format("Unknown OpMode %s", opMode));
+        }
+    }
+
+    /**
+     * Returns the layers of an autonomous OpMode's stack.
+     *
+     * @param opMode - the simple class name of the OpMode.
+     * @return The stack's layers.
+     */
+    private static List<Layer> autoLayers(String opMode) {
+        switch (opMode) {
+            case "FrontAutoOpMode":
+                return Arrays.asList(
+                    new MultiplexLayer(Arrays.asList(
+                        new MecanumDrive(),
+                        new ShooterStandIn()
+                    )),
+                    new FrontAuto(),
+                    new WinLayer()
+                );
+            case "LeftBackAutoOpMode":
+                return Arrays.asList(new MecanumDrive(), new LeftBackAuto(), new WinLayer());
+            case "RightBackAutoOpMode":
+                return Arrays.asList(new MecanumDrive(), new RightBackAuto(), new WinLayer());
+            default:
+                throw new IllegalArgumentException(String.format("Unknown OpMode %s", opMode));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean teleopTick(TeleopState state) {
+        boolean done = state.controller.update();
+        state.robot.step(TICK_DT);
+        return done;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int autoRun(AutoState state) {
+        return state.robot.run(state.controller, MAX_AUTO_TICKS, TICK_DT);
+    }
+}
@@ -0,0 +1,343 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.firstinspires.ftc.teamcode.localization.AbstractFinDiffLocalizationData;
+import org.firstinspires.ftc.teamcode.localization.ExtendedKalmanRobotLocalizer;
+import org.firstinspires.ftc.teamcode.localization.LocalizationData;
+import org.firstinspires.ftc.teamcode.localization.LocalizationSource;
+import org.firstinspires.ftc.teamcode.localization.NewtonRobotLocalizer;
+import org.firstinspires.ftc.teamcode.localization.ParticleRobotLocalizer;
+import org.firstinspires.ftc.teamcode.localization.SqFalloffLocalizationData;
+import org.firstinspires.ftc.teamcode.matrix.Mat2;
+import org.firstinspires.ftc.teamcode.matrix.Mat3;
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
+import org.firstinspires.ftc.teamcode.matrix.Vec2;
+
+/**
+ * Benchmarks {@link SqFalloffLocalizationData}'s probability derivatives and a full
+ * {@link NewtonRobotLocalizer} resolve over a number of sources.
+ * Sources report noisy guesses scattered around a common true pose, as a set of sensors would.
+ * The localizer solves for the peak of {@link SqFalloffLocalizationData} directly, so the same
+ * data are also resolved through wrappers the localizer does not recognize, which force its
+ * Newton climb with either analytic or finite-difference derivatives. The same data also feed an
+ * {@link ExtendedKalmanRobotLocalizer} and a {@link ParticleRobotLocalizer}, whose resolves are
+ * each one tick of their filters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LocalizationBenchmark {
+    /**
+     * The true transform of the robot that data are scattered around.
+     */
+    private static final Mat3 TRUTH =
+        Mat3.fromTransform(Mat2.fromAngle(0.7), new Vec2(0.4, -0.3));
+
+    /**
+     * A single datum to differentiate.
+     */
+    private LocalizationData data;
+
+    /**
+     * The position derivatives are evaluated at.
+     */
+    private Vec2 pos;
+
+    /**
+     * The rotation derivatives are evaluated at.
+     */
+    private double rot;
+
+    /**
+     * The destination of analytic derivatives.
+     */
+    private double[] derivatives;
+
+    /**
+     * Generates the datum.
+     */
+    @Setup
+    public void setup() {
+        data = noisyDatum(new Random(0));
+        pos = new Vec2(0.5, -0.2);
+        rot = 0.6;
+        derivatives = new double[LocalizationData.POSITION_DERIVATIVE_COUNT];
+    }
+
+    /**
+     * The number of particles the particle filter is held at, so that its ticks are comparable.
+     */
+    private static final int PARTICLE_COUNT = 2000;
+
+    /**
+     * A localizer with a parameterized number of sources.
+     */
+    @State(Scope.Thread)
+    public static class LocalizerState {
+        /**
+         * The number of sources registered with the localizer.
+         */
+        @Param({ "1", "4", "16" })
+        public int sourceCount;
+
+        /**
+         * The localizer under test, which finds the peak of the data directly.
+         */
+        private NewtonRobotLocalizer localizer;
+
+        /**
+         * A localizer given the same data behind a wrapper with analytic derivatives, which
+         * climbs to the peak with them.
+         */
+        private NewtonRobotLocalizer analyticLocalizer;
+
+        /**
+         * A localizer given the same data behind a wrapper without analytic derivatives, which
+         * climbs to the peak with the finite-difference derivatives LocalizationData defaults to.
+         */
+        private NewtonRobotLocalizer iterativeLocalizer;
+
+        /**
+         * A filter given the same data, ticked 50 times a second while odometry reports the robot
+         * standing still, so that the data stay consistent with its estimate.
+         */
+        private ExtendedKalmanRobotLocalizer kalmanLocalizer;
+
+        /**
+         * The time in nanoseconds reported to {@link #kalmanLocalizer}.
+         */
+        private long kalmanTime;
+
+        /**
+         * A particle filter given the same data on one thread, ticked like {@link #kalmanLocalizer}
+         * with its particle count fixed.
+         */
+        private ParticleRobotLocalizer particleLocalizer;
+
+        /**
+         * The time in nanoseconds reported to {@link #particleLocalizer}.
+         */
+        private long particleTime;
+
+        /**
+         * Registers the sources.
+         */
+        @Setup
+        public void setup() {
+            Random random = new Random(0);
+            localizer = new NewtonRobotLocalizer();
+            analyticLocalizer = new NewtonRobotLocalizer();
+            iterativeLocalizer = new NewtonRobotLocalizer();
+            // Each reading of the clock is a new tick
+            kalmanLocalizer = new ExtendedKalmanRobotLocalizer(() -> kalmanTime += 20000000);
+            kalmanLocalizer.setOdometry(() -> Pose2d.IDENTITY);
+            particleLocalizer = new ParticleRobotLocalizer(
+                PARTICLE_COUNT,
+                PARTICLE_COUNT,
+                1,
+                1,
+                () -> particleTime += 20000000,
+                new Random(0)
+            );
+            particleLocalizer.setOdometry(() -> Pose2d.IDENTITY);
+            for (int i = 0; i < sourceCount; ++i) {
+                LocalizationData datum = noisyDatum(random);
+                localizer.registerSource(constantSource(datum));
+                analyticLocalizer.registerSource(
+                    constantSource(new AnalyticOpaqueLocalizationData(datum))
+                );
+                iterativeLocalizer.registerSource(
+                    constantSource(new OpaqueLocalizationData(datum))
+                );
+                kalmanLocalizer.registerSource(constantSource(datum));
+                particleLocalizer.registerSource(constantSource(datum));
+            }
+        }
+    }
+
+    /**
+     * LocalizationData with the same probabilities as another datum, but whose type does not
+     * reveal how they are computed, and whose derivatives are the finite differences
+     * LocalizationData defaults to.
+     */
+    private static class OpaqueLocalizationData extends AbstractFinDiffLocalizationData {
+        /**
+         * The datum whose probabilities are returned.
+         */
+        final LocalizationData datum;
+
+        /**
+         * Constructs an OpaqueLocalizationData.
+         *
+         * @param datum - the datum whose probabilities to return.
+         */
+        OpaqueLocalizationData(LocalizationData datum) {
+            // The epsilon SqFalloffLocalizationData differentiates with
+            super(0.001);
+            this.datum = datum;
+        }
+
+        @Override
+        public double getPositionProbability(Vec2 pos) {
+            return datum.getPositionProbability(pos);
+        }
+
+        @Override
+        public double getRotationProbability(double rot) {
+            return datum.getRotationProbability(rot);
+        }
+    }
+
+    /**
+     * An {@link OpaqueLocalizationData} that passes through its datum's analytic derivatives.
+     */
+    private static final class AnalyticOpaqueLocalizationData extends OpaqueLocalizationData {
+        /**
+         * Constructs an AnalyticOpaqueLocalizationData.
+         *
+         * @param datum - the datum whose probabilities and derivatives to return.
+         */
+        AnalyticOpaqueLocalizationData(LocalizationData datum) {
+            super(datum);
+        }
+
+        @Override
+        public boolean hasAnalyticDerivatives() {
+            return datum.hasAnalyticDerivatives();
+        }
+
+        @Override
+        public void getPositionDerivatives(double x, double y, double[] out) {
+            datum.getPositionDerivatives(x, y, out);
+        }
+
+        @Override
+        public void getRotationDerivatives(double rot, double[] out) {
+            datum.getRotationDerivatives(rot, out);
+        }
+    }
+
+    /**
+     * Creates a source that always reports the same datum.
+     *
+     * @param datum - the datum to report.
+     * @return The source, which can localize both position and rotation.
+     */
+    private static LocalizationSource constantSource(LocalizationData datum) {
+        return new LocalizationSource() {
+            @Override
+            public boolean canLocalizePosition() {
+                return true;
+            }
+
+            @Override
+            public boolean canLocalizeRotation() {
+                return true;
+            }
+
+            @Override
+            public LocalizationData collectData() {
+                return datum;
+            }
+        };
+    }
+
+    /**
+     * Generates a datum guessing a transform near {@link #TRUTH}.
+     *
+     * @param random - the random number generator to draw noise from.
+     * @return The datum.
+     */
+    private static LocalizationData noisyDatum(Random random) {
+        Vec2 offset = new Vec2(random.nextGaussian() * 0.05, random.nextGaussian() * 0.05);
+        return new SqFalloffLocalizationData(
+            Mat3.fromTransform(
+                Mat2.fromAngle(TRUTH.getDirection().getAngle() + random.nextGaussian() * 0.05),
+                TRUTH.getTranslation().add(offset)
+            ),
+            1,
+            100,
+            100
+        );
+    }
+
+    @Benchmark
+    public double positionProbability() {
+        return data.getPositionProbability(pos);
+    }
+
+    @Benchmark
+    public double positionProbabilityDx() {
+        return data.getPositionProbabilityDx(pos, Collections.<Vec2>emptyList());
+    }
+
+    @Benchmark
+    public Vec2 positionProbabilityDxGradient() {
+        return data.getPositionProbabilityDxGradient(pos, Collections.<Vec2>emptyList());
+    }
+
+    @Benchmark
+    public double[] positionDerivatives() {
+        data.getPositionDerivatives(pos.getX(), pos.getY(), derivatives);
+        return derivatives;
+    }
+
+    @Benchmark
+    public double rotationProbabilityDx2() {
+        return data.getRotationProbabilityDx2(rot, Collections.<Double>emptyList());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Pose2d resolve(LocalizerState state) {
+        state.localizer.invalidateCache();
+        return state.localizer.resolvePose();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Pose2d resolveAnalytic(LocalizerState state) {
+        state.analyticLocalizer.invalidateCache();
+        return state.analyticLocalizer.resolvePose();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Pose2d resolveIterative(LocalizerState state) {
+        state.iterativeLocalizer.invalidateCache();
+        return state.iterativeLocalizer.resolvePose();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Pose2d resolveKalman(LocalizerState state) {
+        state.kalmanLocalizer.invalidateCache();
+        return state.kalmanLocalizer.resolvePose();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Pose2d resolveParticles(LocalizerState state) {
+        state.particleLocalizer.invalidateCache();
+        return state.particleLocalizer.resolvePose();
+    }
+}
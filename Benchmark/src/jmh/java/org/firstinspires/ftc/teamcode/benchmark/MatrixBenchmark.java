@@ -0,0 +1,221 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.firstinspires.ftc.teamcode.matrix.Mat2;
+import org.firstinspires.ftc.teamcode.matrix.Mat3;
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
+import org.firstinspires.ftc.teamcode.matrix.Vec2;
+import org.firstinspires.ftc.teamcode.matrix.Vec3;
+
+/**
+ * Benchmarks the operations of the matrix package that localization and pathfinding lean on.
+ * Operands are random rigid transforms, so inversions are well conditioned.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatrixBenchmark {
+    /**
+     * The left operand of binary operations.
+     */
+    private Mat3 a;
+
+    /**
+     * The right operand of binary operations.
+     */
+    private Mat3 b;
+
+    /**
+     * The pose equivalent of {@link #a}.
+     */
+    private Pose2d poseA;
+
+    /**
+     * The pose equivalent of {@link #b}.
+     */
+    private Pose2d poseB;
+
+    /**
+     * A rotation matrix.
+     */
+    private Mat2 rot;
+
+    /**
+     * A vector operand.
+     */
+    private Vec2 vec2;
+
+    /**
+     * A homogeneous vector operand.
+     */
+    private Vec3 vec3;
+
+    /**
+     * An angle in radians.
+     */
+    private double angle;
+
+    /**
+     * The scratch destination of "Into" benchmarks.
+     */
+    private Mat3 scratch;
+
+    /**
+     * Generates the operands.
+     */
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        a = randomTransform(random);
+        b = randomTransform(random);
+        rot = Mat2.fromAngle(random.nextDouble() * 2 * Math.PI);
+        vec2 = new Vec2(random.nextDouble(), random.nextDouble());
+        vec3 = new Vec3(random.nextDouble(), random.nextDouble(), 1);
+        angle = random.nextDouble() * 2 * Math.PI;
+        scratch = Mat3.identity();
+        poseA = Pose2d.fromMat3(a);
+        poseB = Pose2d.fromMat3(b);
+    }
+
+    /**
+     * Generates a transform with a random rotation and a translation within the field.
+     *
+     * @param random - the random number generator to draw from.
+     * @return The transform.
+     */
+    private static Mat3 randomTransform(Random random) {
+        return Mat3.fromTransform(
+            Mat2.fromAngle(random.nextDouble() * 2 * Math.PI),
+            new Vec2(random.nextDouble() * 3.6 - 1.8, random.nextDouble() * 3.6 - 1.8)
+        );
+    }
+
+    @Benchmark
+    public Mat3 mat3Mul() {
+        return a.mul(b);
+    }
+
+    @Benchmark
+    public Mat3 mat3MulInto() {
+        a.mulInto(b, scratch);
+        return scratch;
+    }
+
+    @Benchmark
+    public Mat3 mat3Inv() {
+        return a.inv();
+    }
+
+    @Benchmark
+    public Mat3 mat3InvInto() {
+        a.invInto(scratch);
+        return scratch;
+    }
+
+    @Benchmark
+    public Mat3 mat3Transpose() {
+        return a.transpose();
+    }
+
+    @Benchmark
+    public double mat3Det() {
+        return a.det();
+    }
+
+    @Benchmark
+    public Vec2 mat3MulVec2() {
+        return a.mul(vec2);
+    }
+
+    @Benchmark
+    public Vec3 mat3MulVec3() {
+        return a.mul(vec3);
+    }
+
+    @Benchmark
+    public Mat3 mat3FromTransform() {
+        return Mat3.fromTransform(rot, vec2);
+    }
+
+    @Benchmark
+    public double mat3DecomposeAngle() {
+        return a.getDirection().getAngle();
+    }
+
+    @Benchmark
+    public Pose2d poseMul() {
+        return poseA.mul(poseB);
+    }
+
+    @Benchmark
+    public Pose2d poseInv() {
+        return poseA.inv();
+    }
+
+    @Benchmark
+    public Pose2d poseRelativeTo() {
+        return poseB.relativeTo(poseA);
+    }
+
+    @Benchmark
+    public Mat3 mat3RelativeTo() {
+        return a.inv().mul(b);
+    }
+
+    @Benchmark
+    public Vec2 poseInverseTransform() {
+        return poseA.inverseTransform(vec2);
+    }
+
+    @Benchmark
+    public Vec2 mat3InverseTransform() {
+        Vec3 local = a.inv().mul(vec3);
+        return new Vec2(local.getX(), local.getY());
+    }
+
+    @Benchmark
+    public Mat2 mat2FromAngle() {
+        return Mat2.fromAngle(angle);
+    }
+
+    @Benchmark
+    public Mat2 mat2Inv() {
+        return rot.inv();
+    }
+
+    @Benchmark
+    public Vec2 mat2MulVec2() {
+        return rot.mul(vec2);
+    }
+
+    @Benchmark
+    public Vec2 vec2Add() {
+        return vec2.add(a.getTranslation());
+    }
+
+    @Benchmark
+    public double vec2Len() {
+        return vec2.len();
+    }
+
+    @Benchmark
+    public double vec2AngleWith() {
+        return vec2.angleWith(a.getDirection());
+    }
+}
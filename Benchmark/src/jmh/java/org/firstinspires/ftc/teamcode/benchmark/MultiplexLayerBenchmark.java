@@ -0,0 +1,219 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.firstinspires.ftc.teamcode.layer.Layer;
+import org.firstinspires.ftc.teamcode.layer.LayerSetupInfo;
+import org.firstinspires.ftc.teamcode.layer.MultiplexLayer;
+import org.firstinspires.ftc.teamcode.layer.TaskSink;
+import org.firstinspires.ftc.teamcode.task.Task;
+import org.firstinspires.ftc.teamcode.task.UnsupportedTaskException;
+
+/**
+ * Benchmarks one {@link MultiplexLayer} update over children that each emit a task every update,
+ * through both the sink and the legacy iterator interfaces, against {@link StreamMultiplexLayer},
+ * a copy of the stream based implementation it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MultiplexLayerBenchmark {
+    /**
+     * The task every child emits.
+     */
+    private static final Task TASK = new Task() { };
+
+    /**
+     * The number of children multiplexed.
+     */
+    @Param({ "2", "4", "8" })
+    public int childCount;
+
+    /**
+     * The layer under test.
+     */
+    private MultiplexLayer layer;
+
+    /**
+     * The stream based layer the layer under test is compared against.
+     */
+    private StreamMultiplexLayer baseline;
+
+    /**
+     * The sink that sink updates emit into.
+     */
+    private TaskSink sink;
+
+    /**
+     * A child that is never done and emits {@link #TASK} on every update.
+     */
+    private static final class Child implements Layer {
+        @Override
+        public void setup(LayerSetupInfo setupInfo) { }
+
+        @Override
+        public boolean isTaskDone() {
+            return false;
+        }
+
+        @Override
+        public Iterator<Task> update(Iterable<Task> completed) {
+            return Collections.singleton(TASK).iterator();
+        }
+
+        @Override
+        public List<Class<? extends Task>> getAcceptedTasks() {
+            return Collections.<Class<? extends Task>>singletonList(Task.class);
+        }
+
+        @Override
+        public void acceptTask(Task task) { }
+    }
+
+    /**
+     * MultiplexLayer as it was before its update stopped using streams, kept as a baseline.
+     * Copied unchanged apart from the name, the unused setup, and the accepted tasks the Layer
+     * interface has since gained.
+     */
+    private static final class StreamMultiplexLayer implements Layer {
+        /**
+         * The list of component layers.
+         */
+        private final List<Layer> layers;
+
+        /**
+         * Constructs a StreamMultiplexLayer.
+         *
+         * @param layers - the layers this StreamMultiplexLayer will contain.
+         */
+        StreamMultiplexLayer(List<Layer> layers) {
+            this.layers = layers;
+        }
+
+        @Override
+        public void setup(LayerSetupInfo setupInfo) { }
+
+        @Override
+        public Iterator<Task> update(Iterable<Task> completed) {
+            // Concatenates results of component layer update methods into a single stream, then
+            // creates an iterator from the stream
+            return layers.stream().flatMap(layer -> {
+                if (layer.isTaskDone()) {
+                    return Stream.of();
+                }
+                Iterator<Task> tasks = layer.update(completed);
+                if (tasks == null) {
+                    throw new NullPointerException(
+                        String.format(
+                            "Tasks from layer '%s' is null.",
+                            layer.getClass().getSimpleName()
+                        )
+                    );
+                }
+                List<Task> taskList = new ArrayList<>();
+                tasks.forEachRemaining(taskList::add);
+                if (taskList.contains(null)) {
+                    throw new NullPointerException(
+                        String.format(
+                            "Tasks from layer '%s' contains null.",
+                            layer.getClass().getSimpleName()
+                        )
+                    );
+                }
+
+                return StreamSupport.stream(
+                    Spliterators.spliteratorUnknownSize(
+                        taskList.iterator(),
+                        0
+                    ),
+                    false
+                );
+            }).iterator();
+        }
+
+        @Override
+        public boolean isTaskDone() {
+            return layers.stream().anyMatch(Layer::isTaskDone);
+        }
+
+        @Override
+        public List<Class<? extends Task>> getAcceptedTasks() {
+            return null;
+        }
+
+        @Override
+        public void acceptTask(Task task) {
+            boolean anyAccepted = layers.stream().map((layer) -> {
+                try {
+                    layer.acceptTask(task);
+                } catch (UnsupportedTaskException e) {
+                    return false;
+                }
+                return true;
+            }).reduce(false, (a, b) -> a || b); // Prevent short circuiting
+            if (!anyAccepted) {
+                throw new UnsupportedTaskException(this, task);
+            }
+        }
+    }
+
+    /**
+     * Builds the layers.
+     */
+    @Setup
+    public void setup() {
+        List<Layer> children = new ArrayList<>();
+        for (int i = 0; i < childCount; ++i) {
+            children.add(new Child());
+        }
+        layer = new MultiplexLayer(children);
+        baseline = new StreamMultiplexLayer(children);
+        sink = new TaskSink();
+    }
+
+    @Benchmark
+    public int sinkUpdate() {
+        sink.clear();
+        layer.update(Collections.<Task>emptyList(), sink);
+        return sink.size();
+    }
+
+    @Benchmark
+    public void iteratorUpdate(Blackhole blackhole) {
+        Iterator<Task> tasks = layer.update(Collections.<Task>emptyList());
+        while (tasks.hasNext()) {
+            blackhole.consume(tasks.next());
+        }
+    }
+
+    @Benchmark
+    public void streamUpdate(Blackhole blackhole) {
+        Iterator<Task> tasks = baseline.update(Collections.<Task>emptyList());
+        while (tasks.hasNext()) {
+            blackhole.consume(tasks.next());
+        }
+    }
+}
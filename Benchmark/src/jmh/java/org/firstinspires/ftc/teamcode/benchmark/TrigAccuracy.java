@@ -0,0 +1,187 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import org.firstinspires.ftc.teamcode.matrix.FastTrig;
+
+/**
+ * Checks the error of every function of {@link FastTrig} against {@link StrictMath}.
+ * Each function is evaluated on a dense sweep of its domain and at its special values, and the
+ * largest absolute error is printed next to the bound documented for it. Run it from the
+ * benchmark jar with
+ *
+ * <pre>
+ * java -cp build/libs/Benchmark-jmh.jar org.firstinspires.ftc.teamcode.benchmark.TrigAccuracy
+ * </pre>
+ *
+ * <p>or as part of {@code ./gradlew -p Benchmark check}. The process exits with status 1 if any
+ * error exceeds its bound or any special value differs, failing the build.
+ */
+public final class TrigAccuracy {
+    /**
+     * The number of points of each sweep.
+     */
+    private static final int SWEEP_POINTS = 20_000_000;
+
+    /**
+     * The largest angle magnitude the documented sine and cosine bound covers, in radians.
+     */
+    private static final double SIN_DOMAIN = 6000;
+
+    /**
+     * The documented bound of {@link FastTrig#sin} and {@link FastTrig#cos}.
+     */
+    private static final double SIN_BOUND = 2.3e-16;
+
+    /**
+     * The documented bound of {@link FastTrig#atan2}.
+     */
+    private static final double ATAN2_BOUND = 4.5e-16;
+
+    /**
+     * The documented bound of {@link FastTrig#acos}.
+     */
+    private static final double ACOS_BOUND = 8.9e-16;
+
+    /**
+     * TrigAccuracy is only run through {@link #main}; it should not be instantiated.
+     */
+    private TrigAccuracy() { }
+
+    /**
+     * Runs the checks.
+     *
+     * @param args - unused.
+     */
+    public static void main(String[] args) {
+        boolean passed = true;
+        double[] sinCos = new double[2];
+
+        // Small angles are swept finely, where the planner and localizers use them, and the rest
+        // of the domain coarsely
+        double sinError = 0;
+        double cosError = 0;
+        double sinCosMismatch = 0;
+        for (int range = 0; range < 2; ++range) {
+            double limit = range == 0 ? 4 * Math.PI : SIN_DOMAIN;
+            for (int i = 0; i <= SWEEP_POINTS; ++i) {
+                double angle = -limit + 2 * limit * i / SWEEP_POINTS;
+                double sin = FastTrig.sin(angle);
+                double cos = FastTrig.cos(angle);
+                sinError = Math.max(sinError, Math.abs(sin - StrictMath.sin(angle)));
+                cosError = Math.max(cosError, Math.abs(cos - StrictMath.cos(angle)));
+                FastTrig.sinCos(angle, sinCos);
+                sinCosMismatch = Math.max(
+                    sinCosMismatch,
+                    Math.max(Math.abs(sinCos[0] - sin), Math.abs(sinCos[1] - cos))
+                );
+            }
+        }
+        passed &= report("sin", sinError, SIN_BOUND);
+        passed &= report("cos", cosError, SIN_BOUND);
+        passed &= report("sinCos vs sin, cos", sinCosMismatch, 0);
+
+        // Directions all the way around, at magnitudes from tiny to huge
+        double atan2Error = 0;
+        for (int i = 0; i <= SWEEP_POINTS; ++i) {
+            double angle = -Math.PI + 2 * Math.PI * i / SWEEP_POINTS;
+            double scale = Math.pow(10, (i % 41) - 20);
+            double y = StrictMath.sin(angle) * scale;
+            double x = StrictMath.cos(angle) * scale;
+            atan2Error = Math.max(
+                atan2Error,
+                Math.abs(FastTrig.atan2(y, x) - StrictMath.atan2(y, x))
+            );
+        }
+        passed &= report("atan2", atan2Error, ATAN2_BOUND);
+
+        double acosError = 0;
+        for (int i = 0; i <= SWEEP_POINTS; ++i) {
+            double value = -1 + 2.0 * i / SWEEP_POINTS;
+            acosError = Math.max(
+                acosError,
+                Math.abs(FastTrig.acos(value) - StrictMath.acos(value))
+            );
+        }
+        // Every value within a few million representable steps of the ends, where acos is steepest
+        double nearEnd = 1;
+        for (int i = 0; i < SWEEP_POINTS / 4; ++i) {
+            acosError = Math.max(
+                acosError,
+                Math.abs(FastTrig.acos(nearEnd) - StrictMath.acos(nearEnd))
+            );
+            acosError = Math.max(
+                acosError,
+                Math.abs(FastTrig.acos(-nearEnd) - StrictMath.acos(-nearEnd))
+            );
+            nearEnd = Math.nextDown(nearEnd);
+        }
+        passed &= report("acos", acosError, ACOS_BOUND);
+
+        passed &= checkSpecial();
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Prints the error of a function.
+     *
+     * @param name - the name of the function.
+     * @param error - the largest absolute error found.
+     * @param bound - the largest error allowed.
+     * @return Whether the error is within the bound.
+     */
+    private static boolean report(String name, double error, double bound) {
+        boolean passed = error <= bound;
+        System.out.printf("%-20s max error %10.3g  bound %10.3g  %s%n", name, error, bound,
+            passed ? "ok" : "EXCEEDED");
+        return passed;
+    }
+
+    /**
+     * Checks the special values of every function against {@link Math}.
+     *
+     * @return Whether every special value matched, including the signs of zeros.
+     */
+    private static boolean checkSpecial() {
+        double[] specials = {
+            0.0, -0.0, 1, -1, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+        };
+        boolean passed = true;
+        for (double y : specials) {
+            for (double x : specials) {
+                passed &= same("atan2", FastTrig.atan2(y, x), Math.atan2(y, x));
+            }
+        }
+        double[] outside = { Double.NaN, Double.POSITIVE_INFINITY, 1.0000000000000002, -2 };
+        for (double value : outside) {
+            passed &= same("acos", FastTrig.acos(value), Math.acos(value));
+        }
+        passed &= same("acos", FastTrig.acos(1), 0.0);
+        passed &= same("acos", FastTrig.acos(-1), Math.PI);
+        for (double angle : new double[] { Double.NaN, Double.POSITIVE_INFINITY }) {
+            passed &= same("sin", FastTrig.sin(angle), Double.NaN);
+            passed &= same("cos", FastTrig.cos(angle), Double.NaN);
+        }
+        passed &= same("sin", FastTrig.sin(0.0), 0.0);
+        System.out.printf("%-20s %s%n", "special values", passed ? "ok" : "MISMATCHED");
+        return passed;
+    }
+
+    /**
+     * Compares a result with the expected one, printing them if they differ.
+     *
+     * @param name - the name of the function.
+     * @param actual - the result.
+     * @param expected - the expected result.
+     * @return Whether the results are the same value, with NaNs equal and zeros of different signs
+     * unequal.
+     */
+    private static boolean same(String name, double actual, double expected) {
+        boolean same = Double.compare(actual, expected) == 0;
+        if (!same) {
+            System.out.printf("  %s gave %s, expected %s%n", name, actual, expected);
+        }
+        return same;
+    }
+}
@@ -0,0 +1,154 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.firstinspires.ftc.teamcode.matrix.FastTrig;
+
+/**
+ * Compares the trigonometric functions of {@link Math} against those of {@link FastTrig}.
+ * Each pair of benchmarks computes the same functions of the same inputs, summing the results so
+ * that none are optimized away, so their times are directly comparable. Inputs are spread over the
+ * ranges the planner and localizers see: headings within a few turns of zero, vectors of any
+ * direction, and cosines anywhere in [-1, 1].
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TrigBenchmark {
+    /**
+     * The number of inputs each benchmark computes functions of.
+     */
+    private static final int COUNT = 1024;
+
+    /**
+     * Angles in radians.
+     */
+    private double[] angles;
+
+    /**
+     * The y components of vectors.
+     */
+    private double[] ys;
+
+    /**
+     * The x components of vectors.
+     */
+    private double[] xs;
+
+    /**
+     * Cosines of angles.
+     */
+    private double[] cosines;
+
+    /**
+     * The destination of each sine and cosine pair.
+     */
+    private double[] sinCos;
+
+    /**
+     * Generates the inputs.
+     */
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        angles = new double[COUNT];
+        ys = new double[COUNT];
+        xs = new double[COUNT];
+        cosines = new double[COUNT];
+        for (int i = 0; i < COUNT; ++i) {
+            angles[i] = (random.nextDouble() * 2 - 1) * 4 * Math.PI;
+            ys[i] = random.nextGaussian();
+            xs[i] = random.nextGaussian();
+            cosines[i] = random.nextDouble() * 2 - 1;
+        }
+        sinCos = new double[2];
+    }
+
+    @Benchmark
+    public double sinCosMath() {
+        double sum = 0;
+        for (double angle : angles) {
+            sum += Math.sin(angle) + Math.cos(angle);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double sinCosFast() {
+        double sum = 0;
+        for (double angle : angles) {
+            FastTrig.sinCos(angle, sinCos);
+            sum += sinCos[0] + sinCos[1];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double sinMath() {
+        double sum = 0;
+        for (double angle : angles) {
+            sum += Math.sin(angle);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double sinFast() {
+        double sum = 0;
+        for (double angle : angles) {
+            sum += FastTrig.sin(angle);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double atan2Math() {
+        double sum = 0;
+        for (int i = 0; i < COUNT; ++i) {
+            sum += Math.atan2(ys[i], xs[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double atan2Fast() {
+        double sum = 0;
+        for (int i = 0; i < COUNT; ++i) {
+            sum += FastTrig.atan2(ys[i], xs[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double acosMath() {
+        double sum = 0;
+        for (double cosine : cosines) {
+            sum += Math.acos(cosine);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double acosFast() {
+        double sum = 0;
+        for (double cosine : cosines) {
+            sum += FastTrig.acos(cosine);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,134 @@
+package org.firstinspires.ftc.teamcode.layer.pathfinding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
+import org.firstinspires.ftc.teamcode.matrix.Vec2;
+
+/**
+ * Compares the clearance queries of the trajectory planner answered by looping over
+ * {@link StaticObstacle}s against the same queries answered by a {@link DistanceField} of them.
+ * Lives in the pathfinding package to reach the obstacles, which are package-private. Each
+ * benchmark finds the least clearance over the same points, one of the planner's trajectories'
+ * worth of samples. The same obstacles grown by a robot footprint into a
+ * {@link ConfigurationSpace} are queried at poses through those points, to show that accounting
+ * for the footprint leaves the query a single lookup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DistanceFieldBenchmark {
+    /**
+     * The number of obstacles on the field.
+     */
+    @Param({ "1", "4", "16" })
+    public int obstacleCount;
+
+    /**
+     * The obstacles as separate objects.
+     */
+    private List<Obstacle> obstacles;
+
+    /**
+     * The obstacles rasterized into a field.
+     */
+    private DistanceField field;
+
+    /**
+     * The obstacles grown by an 18 inch square footprint.
+     */
+    private ConfigurationSpace space;
+
+    /**
+     * The points to find the clearance at.
+     */
+    private Vec2[] points;
+
+    /**
+     * The points with headings, to find the clearance of the footprint at.
+     */
+    private Pose2d[] poses;
+
+    /**
+     * Scatters obstacles and points over the field and rasterizes the obstacles.
+     */
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        obstacles = new ArrayList<>();
+        List<ConvexPolygon> polygons = new ArrayList<>();
+        for (int i = 0; i < obstacleCount; ++i) {
+            StaticObstacle obstacle = new StaticObstacle(
+                new Pose2d(
+                    random.nextDouble() * 3.6 - 1.8,
+                    random.nextDouble() * 3.6 - 1.8,
+                    random.nextDouble() * Math.PI
+                ),
+                new Vec2(0.1 + random.nextDouble() * 0.4, 0.1 + random.nextDouble() * 0.4)
+            );
+            obstacles.add(obstacle);
+            polygons.add(obstacle.toPolygon());
+        }
+        Vec2 min = new Vec2(-1.83, -1.83);
+        Vec2 max = new Vec2(1.83, 1.83);
+        field = new DistanceField(min, max, 0.02).withObstacles(obstacles);
+        ConvexPolygon footprint = ConvexPolygon.ofRectangle(
+            Pose2d.IDENTITY,
+            new Vec2(0.4572, 0.4572)
+        );
+        space = new ConfigurationSpace(min, max, 0.02, footprint, 16).withObstacles(polygons);
+        points = new Vec2[20];
+        poses = new Pose2d[points.length];
+        for (int i = 0; i < points.length; ++i) {
+            points[i] = new Vec2(random.nextDouble() * 3.6 - 1.8, random.nextDouble() * 3.6 - 1.8);
+            poses[i] = new Pose2d(points[i], random.nextDouble() * 2 * Math.PI);
+        }
+    }
+
+    @Benchmark
+    public double clearanceObstacles() {
+        double min = Double.POSITIVE_INFINITY;
+        for (Vec2 point : points) {
+            for (Obstacle obstacle : obstacles) {
+                min = Math.min(min, obstacle.getDistanceTo(point));
+            }
+        }
+        return min;
+    }
+
+    @Benchmark
+    public double clearanceField() {
+        double min = Double.POSITIVE_INFINITY;
+        for (Vec2 point : points) {
+            min = Math.min(min, field.getDistanceTo(point));
+        }
+        return min;
+    }
+
+    @Benchmark
+    public double clearanceConfigurationSpace() {
+        double min = Double.POSITIVE_INFINITY;
+        for (Pose2d pose : poses) {
+            min = Math.min(min, space.getDistanceTo(pose.getX(), pose.getY(), pose.getHeading()));
+        }
+        return min;
+    }
+}
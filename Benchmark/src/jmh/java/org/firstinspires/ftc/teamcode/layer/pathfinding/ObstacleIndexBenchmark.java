@@ -0,0 +1,165 @@
+package org.firstinspires.ftc.teamcode.layer.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.firstinspires.ftc.teamcode.layer.Layer;
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
+import org.firstinspires.ftc.teamcode.matrix.Vec2;
+import org.firstinspires.ftc.teamcode.sim.SimRobot;
+
+/**
+ * Compares the clearance queries of the trajectory planner answered by looping over
+ * {@link DynamicObstacle}s against the same queries answered by an {@link ObstacleIndex} of them.
+ * Lives in the pathfinding package to reach the obstacles, which are package-private. Each
+ * clearance benchmark finds the least clearance over the same points, one of the planner's
+ * trajectories' worth of samples. Moving one obstacle through
+ * {@link PathfindingLayer#moveDynamicObstacle}, which rebuilds only the cells it overlaps, is
+ * compared against indexing every obstacle again.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ObstacleIndexBenchmark {
+    /**
+     * The number of obstacles on the field.
+     */
+    @Param({ "4", "16", "64" })
+    public int obstacleCount;
+
+    /**
+     * The obstacles as separate objects.
+     */
+    private List<Obstacle> obstacles;
+
+    /**
+     * The obstacles in an index.
+     */
+    private ObstacleIndex index;
+
+    /**
+     * The points to find the clearance at.
+     */
+    private Vec2[] points;
+
+    /**
+     * A layer set up on a simulated robot, holding the obstacles as dynamic obstacles.
+     */
+    private PathfindingLayer layer;
+
+    /**
+     * The poses of the obstacles, in the order they were added to {@link #layer}.
+     */
+    private Pose2d[] poses;
+
+    /**
+     * The lengths of the obstacles, in the order they were added to {@link #layer}.
+     */
+    private double[] sizes;
+
+    /**
+     * The identifier of the obstacle the next move moves.
+     */
+    private int nextMoved;
+
+    /**
+     * How far the next move moves an obstacle in x, alternating so obstacles stay in place on
+     * average.
+     */
+    private double moveStep;
+
+    /**
+     * Scatters obstacles and points over the field and indexes the obstacles.
+     */
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        obstacles = new ArrayList<>();
+        poses = new Pose2d[obstacleCount];
+        sizes = new double[obstacleCount];
+        for (int i = 0; i < obstacleCount; ++i) {
+            poses[i] = new Pose2d(
+                random.nextDouble() * 3.6 - 1.8,
+                random.nextDouble() * 3.6 - 1.8,
+                random.nextDouble() * 2 * Math.PI
+            );
+            sizes[i] = 0.2 + random.nextDouble() * 0.3;
+            obstacles.add(new DynamicObstacle(poses[i], sizes[i]));
+        }
+        index = new ObstacleIndex(new Vec2(-1.83, -1.83), new Vec2(1.83, 1.83), 0.25);
+        for (Obstacle obstacle : obstacles) {
+            index = index.withObstacle(obstacle);
+        }
+        layer = new PathfindingLayer();
+        new SimRobot(0).createController(Collections.<Layer>singletonList(layer));
+        for (int i = 0; i < obstacleCount; ++i) {
+            layer.addDynamicObstacle(poses[i], sizes[i]);
+        }
+        nextMoved = 0;
+        moveStep = 0.05;
+        points = new Vec2[20];
+        for (int i = 0; i < points.length; ++i) {
+            points[i] = new Vec2(random.nextDouble() * 3.6 - 1.8, random.nextDouble() * 3.6 - 1.8);
+        }
+    }
+
+    @Benchmark
+    public double clearanceObstacles() {
+        double min = Double.POSITIVE_INFINITY;
+        for (Vec2 point : points) {
+            for (Obstacle obstacle : obstacles) {
+                min = Math.min(min, obstacle.getDistanceTo(point));
+            }
+        }
+        return min;
+    }
+
+    @Benchmark
+    public double clearanceIndex() {
+        double min = Double.POSITIVE_INFINITY;
+        for (Vec2 point : points) {
+            min = Math.min(min, index.getDistanceTo(point));
+        }
+        return min;
+    }
+
+    @Benchmark
+    public void moveObstacle() {
+        // A robot detected again a few centimeters from where it was last seen
+        Pose2d pose = poses[nextMoved];
+        poses[nextMoved] = new Pose2d(pose.getX() + moveStep, pose.getY(), pose.getHeading());
+        layer.moveDynamicObstacle(nextMoved, poses[nextMoved], sizes[nextMoved]);
+        if (++nextMoved == poses.length) {
+            nextMoved = 0;
+            moveStep = -moveStep;
+        }
+    }
+
+    @Benchmark
+    public ObstacleIndex rebuildIndex() {
+        ObstacleIndex rebuilt =
+            new ObstacleIndex(new Vec2(-1.83, -1.83), new Vec2(1.83, 1.83), 0.25);
+        for (Obstacle obstacle : obstacles) {
+            rebuilt = rebuilt.withObstacle(obstacle);
+        }
+        return rebuilt;
+    }
+}
@@ -0,0 +1,109 @@
+package org.firstinspires.ftc.teamcode.layer.pathfinding;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks one {@link TrajectoryPlanner#plan} over the scenarios of {@link PlanningScenarios},
+ * both run to completion and cut off by a time budget.
+ * Lives in the pathfinding package to reach the planner, which is package-private. An exhaustive
+ * plan searches the whole trajectory space and takes on the order of a minute, so each plan is
+ * measured once rather than averaged over a time window. {@link SearchAgreement} checks that the
+ * coarse to fine settings choose the same trajectories. A budgeted plan should take no longer than
+ * its budget plus the time to score one row of a slab.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PathfindingBenchmark {
+    /**
+     * The index of the scenario to plan.
+     */
+    @Param({ "0", "1", "2", "3", "4", "5", "6", "7" })
+    public int scenario;
+
+    /**
+     * The number of levels of the search; 1 searches exhaustively.
+     */
+    @Param({ "1", "3" })
+    public int searchLevels;
+
+    /**
+     * The number of candidates refined per coarse search level.
+     */
+    @Param({ "4" })
+    public int searchTopK;
+
+    /**
+     * The number of threads trajectories are scored on.
+     */
+    @Param({ "1", "4" })
+    public int searchThreads;
+
+    /**
+     * The time in seconds a budgeted plan may take.
+     */
+    @Param({ "0.01" })
+    public double planBudget;
+
+    /**
+     * The snapshot planned from.
+     */
+    private PlanningSnapshot snapshot;
+
+    /**
+     * The planner under test.
+     */
+    private TrajectoryPlanner planner;
+
+    /**
+     * The trajectory planned one interval before the snapshot, which budgeted plans start from.
+     */
+    private Trajectory seed;
+
+    /**
+     * Builds the scenario and planner.
+     */
+    @Setup
+    public void setup() {
+        snapshot = PlanningScenarios.create(scenario);
+        planner = new TrajectoryPlanner(searchLevels, searchTopK, searchThreads);
+        // Seeded from a quick search so setup does not take as long as an exhaustive plan
+        TrajectoryPlanner seedPlanner = new TrajectoryPlanner(3, 4);
+        seed = seedPlanner.plan(PlanningScenarios.createPrevious(scenario));
+        seedPlanner.shutdown();
+    }
+
+    /**
+     * Stops the planner's worker threads.
+     */
+    @TearDown
+    public void tearDown() {
+        planner.shutdown();
+    }
+
+    @Benchmark
+    public Trajectory plan() {
+        return planner.plan(snapshot);
+    }
+
+    @Benchmark
+    public Trajectory planBudgeted() {
+        return planner.plan(snapshot, seed, planBudget);
+    }
+}
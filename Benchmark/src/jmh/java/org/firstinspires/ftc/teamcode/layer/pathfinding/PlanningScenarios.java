@@ -0,0 +1,119 @@
+package org.firstinspires.ftc.teamcode.layer.pathfinding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
+import org.firstinspires.ftc.teamcode.matrix.Vec2;
+
+/**
+ * A fixed corpus of planning problems shared by the pathfinding benchmarks.
+ * The first two scenarios are a hand-placed robot and goal without and with a line of obstacles
+ * between them; the rest are drawn from a seeded generator, each with its own seed so adding
+ * scenarios does not change existing ones.
+ */
+final class PlanningScenarios {
+    /**
+     * The number of scenarios in the corpus.
+     */
+    static final int COUNT = 8;
+
+    /**
+     * PlanningScenarios is a utility class with only static methods; it should not be
+     * instantiated.
+     */
+    private PlanningScenarios() { }
+
+    /**
+     * Builds a scenario of the corpus.
+     *
+     * @param index - the index of the scenario, from 0 to {@link #COUNT} - 1.
+     * @return The snapshot to plan from.
+     * @throws IllegalArgumentException if the index is out of range.
+     */
+    static PlanningSnapshot create(int index) {
+        if (index < 0 || index >= COUNT) {
+            throw new IllegalArgumentException(String.format(
+                "Scenario %d is outside of corpus of size %d",
+                index,
+                COUNT
+            ));
+        }
+        if (index < 2) {
+            List<Obstacle> obstacles = new ArrayList<>();
+            for (int i = 0; i < (index == 0 ? 0 : 4); ++i) {
+                obstacles.add(new StaticObstacle(
+                    new Pose2d(1 + 0.5 * i, -1 + 0.4 * i, 0.3 * i),
+                    new Vec2(0.3, 0.3)
+                ));
+            }
+            return new PlanningSnapshot(
+                new Pose2d(2, 1, 0),
+                obstacles,
+                new Pose2d(0, 0, 0.1),
+                new Pose2d(0.3, 0.1, 0.2),
+                0
+            );
+        }
+        Random random = new Random(index);
+        Pose2d start = new Pose2d(
+            random.nextDouble() * 3 - 1.5,
+            random.nextDouble() * 3 - 1.5,
+            random.nextDouble() * 2 * Math.PI - Math.PI
+        );
+        Pose2d goal = new Pose2d(
+            random.nextDouble() * 3 - 1.5,
+            random.nextDouble() * 3 - 1.5,
+            random.nextDouble() * 2 * Math.PI - Math.PI
+        );
+        List<Obstacle> obstacles = new ArrayList<>();
+        int obstacleCount = 1 + random.nextInt(4);
+        for (int i = 0; i < obstacleCount; ++i) {
+            // Scatter obstacles around the segment from the start to the goal
+            double frac = random.nextDouble();
+            obstacles.add(new StaticObstacle(
+                new Pose2d(
+                    start.getX() + (goal.getX() - start.getX()) * frac + random.nextGaussian() * 0.3,
+                    start.getY() + (goal.getY() - start.getY()) * frac + random.nextGaussian() * 0.3,
+                    random.nextDouble() * Math.PI
+                ),
+                new Vec2(0.1 + random.nextDouble() * 0.4, 0.1 + random.nextDouble() * 0.4)
+            ));
+        }
+        Pose2d velocity = new Pose2d(
+            random.nextGaussian() * 0.3,
+            random.nextGaussian() * 0.3,
+            random.nextGaussian() * 0.3
+        );
+        return new PlanningSnapshot(goal, obstacles, start, velocity, 0);
+    }
+
+    /**
+     * Builds a scenario as it was one planning interval earlier, for seeding anytime plans with
+     * the trajectory that would have been planned then.
+     *
+     * @param index - the index of the scenario, from 0 to {@link #COUNT} - 1.
+     * @return The snapshot with the robot moved back along its field space velocity by
+     * {@link TrajectoryPlanner#CALCULATE_INTERVAL}.
+     * @throws IllegalArgumentException if the index is out of range.
+     */
+    static PlanningSnapshot createPrevious(int index) {
+        PlanningSnapshot snapshot = create(index);
+        Pose2d velocity = snapshot.getInitialVelocity();
+        double dt = TrajectoryPlanner.CALCULATE_INTERVAL;
+        Pose2d pose = snapshot.getInitialPose();
+        Pose2d previousPose = new Pose2d(
+            pose.getX() - velocity.getX() * dt,
+            pose.getY() - velocity.getY() * dt,
+            pose.getHeading() - velocity.getHeading() * dt
+        );
+        return new PlanningSnapshot(
+            snapshot.getGoal(),
+            snapshot.getObstacles(),
+            previousPose,
+            velocity,
+            0
+        );
+    }
+}
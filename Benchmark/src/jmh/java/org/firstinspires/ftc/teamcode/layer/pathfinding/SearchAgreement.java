@@ -0,0 +1,81 @@
+package org.firstinspires.ftc.teamcode.layer.pathfinding;
+
+/**
+ * Checks that the coarse to fine trajectory search chooses what the exhaustive search does.
+ * For every scenario of {@link PlanningScenarios}, plans once exhaustively and once coarse to fine,
+ * then prints both plans' times and parallel utilizations, the largest difference in any
+ * trajectory parameter, and the score the coarse to fine plan gives up relative to the exhaustive
+ * optimum. Run it from the benchmark jar with
+ *
+ * <pre>
+ * java -cp build/libs/Benchmark-jmh.jar \
+ *     org.firstinspires.ftc.teamcode.layer.pathfinding.SearchAgreement [levels] [topK] [threads]
+ * </pre>
+ *
+ * <p>Exhaustive plans take on the order of a minute each, so a full run takes several minutes.
+ */
+public final class SearchAgreement {
+    /**
+     * SearchAgreement is only run through {@link #main}; it should not be instantiated.
+     */
+    private SearchAgreement() { }
+
+    /**
+     * Runs the comparison.
+     *
+     * @param args - optionally the number of search levels, the number of candidates refined per
+     * level, and the number of threads both searches score on, defaulting to 3, 4, and 1.
+     */
+    public static void main(String[] args) {
+        int levels = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int topK = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        TrajectoryPlanner exhaustive = new TrajectoryPlanner(1, 1, threads);
+        TrajectoryPlanner coarseToFine = new TrajectoryPlanner(levels, topK, threads);
+        System.out.printf(
+            "%-8s %12s %8s %12s %8s %10s %12s%n",
+            "scenario",
+            "exhaust ms",
+            "util",
+            "c2f ms",
+            "util",
+            "max dparam",
+            "score loss"
+        );
+        for (int i = 0; i < PlanningScenarios.COUNT; ++i) {
+            PlanningSnapshot snapshot = PlanningScenarios.create(i);
+            long start = System.nanoTime();
+            Trajectory expected = exhaustive.plan(snapshot);
+            long exhaustiveTime = System.nanoTime() - start;
+            double exhaustiveUtilization = exhaustive.getLastParallelUtilization();
+            start = System.nanoTime();
+            Trajectory actual = coarseToFine.plan(snapshot);
+            long coarseToFineTime = System.nanoTime() - start;
+            double coarseToFineUtilization = coarseToFine.getLastParallelUtilization();
+
+            double expectedScore = exhaustive.score(snapshot, expected);
+            double actualScore = exhaustive.score(snapshot, actual);
+            // Equal scores include both being infinite, which would otherwise subtract to NaN
+            double loss = expectedScore == actualScore ? 0 : expectedScore - actualScore;
+            double paramDiff = Math.max(
+                Math.abs(expected.getAxial() - actual.getAxial()),
+                Math.max(
+                    Math.abs(expected.getLateral() - actual.getLateral()),
+                    Math.abs(expected.getYaw() - actual.getYaw())
+                )
+            );
+            System.out.printf(
+                "%-8d %12.1f %8.2f %12.1f %8.2f %10.3f %12.3g%n",
+                i,
+                exhaustiveTime / 1e6,
+                exhaustiveUtilization,
+                coarseToFineTime / 1e6,
+                coarseToFineUtilization,
+                paramDiff,
+                loss
+            );
+        }
+        exhaustive.shutdown();
+        coarseToFine.shutdown();
+    }
+}
@@ -0,0 +1,21 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * A source of monotonic timestamps.
+ * The {@link RobotController} schedules layer updates against a Clock so a simulation can run the
+ * layer stack on virtual time instead of wall time.
+ */
+public interface Clock {
+    /**
+     * The clock backed by {@link System#nanoTime}, used on the robot.
+     */
+    Clock SYSTEM = System::nanoTime;
+
+    /**
+     * Returns the current time.
+     *
+     * @return A monotonic timestamp in nanoseconds. Only differences between timestamps are
+     * meaningful.
+     */
+    long nanoTime();
+}
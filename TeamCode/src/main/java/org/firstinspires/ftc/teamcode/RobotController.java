@@ -2,17 +2,16 @@ package org.firstinspires.ftc.teamcode;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.stream.Collectors;
 
 import com.qualcomm.robotcore.hardware.Gamepad;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 
 import org.firstinspires.ftc.teamcode.layer.Layer;
 import org.firstinspires.ftc.teamcode.layer.LayerSetupInfo;
+import org.firstinspires.ftc.teamcode.layer.TaskSink;
 import org.firstinspires.ftc.teamcode.localization.RobotLocalizer;
+import org.firstinspires.ftc.teamcode.profiling.LayerProfiler;
 import org.firstinspires.ftc.teamcode.task.Task;
 import org.firstinspires.ftc.teamcode.task.UnsupportedTaskException;
 
@@ -36,11 +35,26 @@ import org.firstinspires.ftc.teamcode.task.UnsupportedTaskException;
  * Through creative Layer implementations such as
  * {@link org.firstinspires.ftc.teamcode.layer.MultiplexLayer}, this system enables complex logic to
  * be described modularly and with loose coupling.
+ *
+ * <p>Subtasks are passed between layers through a {@link TaskSink} owned by the controller and
+ * reused every tick. Layers implementing {@link org.firstinspires.ftc.teamcode.layer.SinkLayer}
+ * write into it directly; iterators returned by other layers are drained into it. A tick through a
+ * stack of sink layers therefore allocates nothing in the controller itself.
+ *
+ * <p>Every call the controller makes on a layer is timed and recorded in its
+ * {@link LayerProfiler}.
+ *
+ * <p>Layers may declare an {@link Layer#getUpdatePeriod update period} to run slower than the
+ * controller. Such a layer is only updated when its period has elapsed or it has accepted a new
+ * task since its last update. In between, the tasks it last emitted that the layer below has not
+ * accepted yet are offered to it, and the tasks the layer below completes are kept for the next
+ * update. Periods are measured on a fixed-rate schedule from the first update, and any deadlines
+ * missed because the controller was updated too slowly are counted as overruns in the layer's
+ * {@link LayerProfiler.LayerStats}.
  */
 public class RobotController {
     /**
      * The number of unconsumed tasks by a layer to report in the exception message.
-     * Prevents an infinite loop if a layer's update method returns an non-terminating iterator.
      */
     private static final int MAX_UNCONSUMED_REPORT_TASKS = 4;
 
@@ -50,21 +64,59 @@ public class RobotController {
     private ArrayList<Runnable> updateListeners;
 
     /**
-     * Listeners to fire during the first {@link #update} the layer stack finishes executing.
+     * Listeners to fire during the first {@link #update} the layer stack finishes executing, or
+     * when the controller is torn down early by {@link #teardown}.
      */
     private ArrayList<Runnable> teardownListeners;
 
     /**
-     * The current stack of layers and some metadata needed to execute them.
+     * The current stack of layers and some metadata needed to execute them, ordered from bottommost
+     * to topmost.
      */
-    private List<LayerInfo> layers;
+    private LayerInfo[] layers;
 
     /**
-     * Constructs a RobotController.
+     * The sink subtasks are written into before being offered to the layer below, reused every
+     * tick.
+     */
+    private final TaskSink taskSink;
+
+    /**
+     * The sink given to the bottommost layer, whose subtasks are thrown away.
+     */
+    private final TaskSink discardSink;
+
+    /**
+     * Records the latency of each call made on the layer stack.
+     */
+    private final LayerProfiler profiler;
+
+    /**
+     * The clock update periods are scheduled against.
+     */
+    private final Clock clock;
+
+    /**
+     * Constructs a RobotController running on the system clock.
      */
     public RobotController() {
+        this(Clock.SYSTEM);
+    }
+
+    /**
+     * Constructs a RobotController.
+     *
+     * @param clock - the clock to schedule layer update periods against. Call latencies are always
+     * profiled on the system clock.
+     */
+    public RobotController(Clock clock) {
+        this.clock = clock;
         updateListeners = new ArrayList<>();
+        teardownListeners = new ArrayList<>();
         layers = null;
+        taskSink = new TaskSink();
+        discardSink = new TaskSink(true);
+        profiler = new LayerProfiler();
     }
 
     /**
@@ -92,8 +144,8 @@ public class RobotController {
             gamepad1);
         this.layers = layerStack.stream().map(layer -> {
             layer.setup(setupInfo);
-            return new LayerInfo(layer);
-        }).collect(Collectors.toList());
+            return new LayerInfo(layer, profiler.register(layer));
+        }).toArray(LayerInfo[]::new);
     }
 
     /**
@@ -105,58 +157,38 @@ public class RobotController {
      * of tasks. When this happens, update listeners are notified and then unregistered.
      */
     public boolean update() {
-        // Call all update listeners
-        for (Runnable listener : updateListeners) {
-            listener.run();
+        // Call all update listeners. Indexed to avoid allocating an iterator every tick
+        for (int i = 0; i < updateListeners.size(); ++i) {
+            updateListeners.get(i).run();
         }
 
         // Do work on layers
         if (layers == null) {
             return true;
         }
-        LayerInfo layer = null;
-        ListIterator<LayerInfo> layerIter = layers.listIterator();
-        while (true) {
-            layer = layerIter.next();
-            if (!layer.isTaskDone()) {
-                //telem.addData("Highest updated layer", layer.getName());
-                //logger.update("Highest updated layer", layer.getName());
-                break;
-            }
-            if (!layerIter.hasNext()) {
+        long now = clock.nanoTime();
+        int idx = 0;
+        while (layers[idx].isTaskDone()) {
+            if (idx == layers.length - 1) {
                 // No tasks left in any layer, inform all listeners of completion
-                for (Runnable listener : teardownListeners) {
-                    listener.run();
-                }
-                updateListeners.clear();
-                layers = null;
+                teardown();
                 return true;
             }
+            ++idx;
         }
-        layerIter.previous(); // Throw away current layer
-        Iterator<Task> tasks;
-        while (true) {
-            if (!layerIter.hasPrevious()) {
-                // Discard bottommost layer's return value
-                layer.update(Collections.emptyList());
-                break;
-            }
-            LayerInfo oldLayer = layer;
-            layer = layerIter.previous();
-            tasks = oldLayer.update(layer.getLastTasks());
-            if (tasks == null) {
-                throw new NullPointerException(
-                    String.format(
-                        "Layer '%s' returned null from update.",
-                        oldLayer.getName()
-                    )
-                );
+        //telem.addData("Highest updated layer", layers[idx].getName());
+        //logger.update("Highest updated layer", layers[idx].getName());
+        for (; idx > 0; --idx) {
+            LayerInfo oldLayer = layers[idx];
+            LayerInfo layer = layers[idx - 1];
+            taskSink.clear();
+            oldLayer.update(layer, taskSink, now);
+            if (taskSink.isEmpty()) {
+                return false; // Nothing to do for now. TODO: hacky fix
             }
-            if (!tasks.hasNext()) {
-                break; // Nothing to do for now. TODO: hacky fix
-            }
-            while (tasks.hasNext() && layer.isTaskDone()) {
-                Task task = tasks.next();
+            int consumed = 0;
+            while (consumed < taskSink.size() && layer.isTaskDone()) {
+                Task task = taskSink.get(consumed++);
                 if (task == null) {
                     throw new NullPointerException(
                         String.format(
@@ -167,21 +199,41 @@ public class RobotController {
                 }
                 layer.acceptTask(task);
             }
-            if (tasks.hasNext()) {
+            oldLayer.recordAccepted(consumed);
+            if (consumed < taskSink.size()) {
                 String errMsg = "Layer '" + layer.getName() + "' did not consume all"
                     + " tasks from upper layer. Remaining tasks: ";
-                for (int i = 0; i < MAX_UNCONSUMED_REPORT_TASKS && tasks.hasNext(); ++i) {
-                    errMsg += tasks.next().getClass().getSimpleName() + (tasks.hasNext() ? ", " : "");
+                int reportEnd = Math.min(taskSink.size(), consumed + MAX_UNCONSUMED_REPORT_TASKS);
+                for (int i = consumed; i < reportEnd; ++i) {
+                    errMsg += taskSink.get(i).getClass().getSimpleName()
+                        + (i + 1 < taskSink.size() ? ", " : "");
                 }
-                if (tasks.hasNext()) {
+                if (reportEnd < taskSink.size()) {
                     errMsg += " (and more)";
                 }
                 throw new UnsupportedTaskException(errMsg);
             }
         }
+        // Discard bottommost layer's subtasks
+        layers[0].update(null, discardSink, now);
         return false;
     }
 
+    /**
+     * Stops executing the layer stack, whether or not it has finished.
+     * Teardown listeners are called in registration order, then every listener is unregistered, so
+     * that layers release their threads and hardware even when the opmode stops early. Later
+     * updates do nothing and report the stack finished. Calling this again has no effect.
+     */
+    public void teardown() {
+        layers = null;
+        for (Runnable listener : teardownListeners) {
+            listener.run();
+        }
+        teardownListeners.clear();
+        updateListeners.clear();
+    }
+
     /**
      * Registers a function to be called on every update.
      * Registers a function to be called on every update of the controller before layer work is
@@ -196,7 +248,7 @@ public class RobotController {
 
     /**
      * Registers a function to be called when the layer stack finishes executing.
-     * On the first update after the topmost layer runs out of tasks, the
+     * On the first update after the topmost layer runs out of tasks, or on {@link #teardown}, the
      * listeners are called in registration order, then unregistered.
      *
      * @param listener - the function to be registered as an update listener.
@@ -206,7 +258,25 @@ public class RobotController {
     }
 
     /**
-     * Thinly wraps a Layer while storing its last accepted task.
+     * Returns the clock layer update periods are scheduled against.
+     *
+     * @return The Clock this controller reads the time from.
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Returns the profiler recording call latencies of the layer stack.
+     *
+     * @return The LayerProfiler layers of this controller are profiled with.
+     */
+    public LayerProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Thinly wraps a Layer while storing its last accepted task and timing calls made on it.
      */
     private static class LayerInfo {
         /**
@@ -217,22 +287,70 @@ public class RobotController {
         /**
          * The last tasks the contained Layer accepted at once.
          */
-        private ArrayList<Task> lastTasks;
+        private TaskSink lastTasks;
 
         /**
          * Whether the previous accepted task satisfied the Layer's need for new tasks.
          */
         private boolean lastTaskSaturated;
 
+        /**
+         * Whether {@link #lastTasks} has been handed to the layer above since it was last cleared.
+         * Layers that never saturate would otherwise accumulate accepted tasks forever.
+         */
+        private boolean lastTasksReported;
+
+        /**
+         * The histograms calls on the contained Layer are timed into.
+         */
+        private final LayerProfiler.LayerStats stats;
+
+        /**
+         * The minimum time between updates of the contained Layer in nanoseconds, or 0 if it is
+         * updated whenever the controller needs its subtasks.
+         */
+        private final long periodNanos;
+
+        /**
+         * The timestamp in nanoseconds at which the contained Layer is next due for an update.
+         */
+        private long nextDueNanos;
+
+        /**
+         * Whether the contained Layer must be updated next time regardless of its period, because
+         * it has never been updated or has accepted a new task.
+         */
+        private boolean forceDue;
+
+        /**
+         * The tasks emitted by the contained Layer in its last update, those not yet accepted being
+         * offered again while it is not due. Only used if {@link #periodNanos} is nonzero.
+         */
+        private final TaskSink emitted;
+
+        /**
+         * The number of tasks in {@link #emitted} the layer below has accepted.
+         */
+        private int emittedAccepted;
+
         /**
          * Constructs a LayerInfo.
          *
          * @param layer - the Layer to contain.
+         * @param stats - the histograms to time calls on the layer into.
          */
-        LayerInfo(Layer layer) {
+        LayerInfo(Layer layer, LayerProfiler.LayerStats stats) {
             this.layer = layer;
-            lastTasks = new ArrayList<>();
+            this.stats = stats;
+            periodNanos = (long)Units.convert(layer.getUpdatePeriod(), Units.Time.SEC,
+                Units.Time.NANO);
+            nextDueNanos = 0;
+            forceDue = true;
+            emitted = new TaskSink();
+            emittedAccepted = 0;
+            lastTasks = new TaskSink();
             lastTaskSaturated = true;
+            lastTasksReported = false;
         }
 
         /**
@@ -250,18 +368,83 @@ public class RobotController {
          * @return whether the contained Layer is finished processing its last accepted task.
          */
         public boolean isTaskDone() {
-            return layer.isTaskDone();
+            long start = System.nanoTime();
+            boolean done = layer.isTaskDone();
+            stats.getIsTaskDone().record(System.nanoTime() - start);
+            return done;
+        }
+
+        /**
+         * Updates the contained Layer if it is due, writing its subtasks into a sink.
+         * If the layer is not due, the tasks it emitted in its last update that the layer below has
+         * not accepted are written instead, and the tasks the layer below completed are kept for
+         * the next update.
+         *
+         * @param below - the wrapper of the layer below, whose completed tasks are reported to
+         * the contained Layer, or null if it is the bottommost layer.
+         * @param sink - the sink to write the tasks for the layer below to accept into.
+         * @param now - the timestamp in nanoseconds of the current controller tick.
+         * @see TaskSink#collect
+         */
+        public void update(LayerInfo below, TaskSink sink, long now) {
+            if (periodNanos <= 0) {
+                collect(below, sink);
+                return;
+            }
+            if (!forceDue && now - nextDueNanos < 0) {
+                for (int i = emittedAccepted; i < emitted.size(); ++i) {
+                    sink.add(emitted.get(i));
+                }
+                return;
+            }
+            if (forceDue) {
+                forceDue = false;
+                nextDueNanos = now + periodNanos;
+            } else {
+                nextDueNanos += periodNanos;
+                if (now - nextDueNanos >= 0) {
+                    // Whole periods elapsed without an update; skip their deadlines
+                    long missed = (now - nextDueNanos) / periodNanos + 1;
+                    stats.recordOverruns(missed);
+                    nextDueNanos += missed * periodNanos;
+                }
+            }
+            int start = sink.size();
+            collect(below, sink);
+            emitted.clear();
+            emittedAccepted = 0;
+            for (int i = start; i < sink.size(); ++i) {
+                emitted.add(sink.get(i));
+            }
+        }
+
+        /**
+         * Records how many of the tasks last written by {@link #update} the layer below accepted,
+         * so that they are not offered to it again.
+         *
+         * @param count - the number of tasks accepted, counted from the first one written.
+         */
+        public void recordAccepted(int count) {
+            if (periodNanos > 0) {
+                emittedAccepted = Math.min(emittedAccepted + count, emitted.size());
+            }
         }
 
         /**
-         * Calls {@link Layer#update} on the contained Layer.
+         * Unconditionally updates the contained Layer, timing the call.
+         * Only here are the completed tasks of the layer below reported, so that tasks completed
+         * while the contained Layer was not due reach it on its next update.
          *
-         * @param completed - an iterable of the tasks emitted by this Layer that have been
-         * completed since the last call to this method.
-         * @return an iterator of the tasks for the layer below to accept.
+         * @param below - the wrapper of the layer below, or null if it is the bottommost layer.
+         * @param sink - the sink to write the tasks for the layer below to accept into.
          */
-        public Iterator<Task> update(Iterable<Task> completed) {
-            return layer.update(completed);
+        private void collect(LayerInfo below, TaskSink sink) {
+            Iterable<Task> completed = below == null
+                ? Collections.<Task>emptyList()
+                : below.getLastTasks();
+            long start = System.nanoTime();
+            sink.collect(layer, completed);
+            stats.getUpdate().record(System.nanoTime() - start);
         }
 
         /**
@@ -271,21 +454,27 @@ public class RobotController {
          * @param task - the task the contained layer should be offered.
          */
         public void acceptTask(Task task) {
-            if (lastTaskSaturated) {
+            if (lastTaskSaturated || lastTasksReported) {
                 lastTasks.clear();
+                lastTasksReported = false;
             }
             lastTasks.add(task);
+            long start = System.nanoTime();
             layer.acceptTask(task);
-            lastTaskSaturated = !layer.isTaskDone();
+            stats.getAcceptTask().record(System.nanoTime() - start);
+            forceDue = true;
+            lastTaskSaturated = !isTaskDone();
         }
 
         /**
          * Returns the layer's last accepted tasks.
          *
-         * @return an iterable of the tasks last accepted by the layer.
+         * @return an iterable of the tasks last accepted by the layer. The next accepted task starts
+         * a new batch.
          * @see #acceptTask
          */
         public Iterable<Task> getLastTasks() {
+            lastTasksReported = true;
             return lastTasks;
         }
     }
@@ -135,6 +135,10 @@ public final class Units {
          * Nanoseconds.
          */
         NANO(Math.pow(10, 9)),
+        /**
+         * Microseconds.
+         */
+        MICRO(Math.pow(10, 6)),
         /**
          * Milliseconds.
          */
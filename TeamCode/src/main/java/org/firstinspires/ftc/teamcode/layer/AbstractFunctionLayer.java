@@ -1,8 +1,5 @@
 package org.firstinspires.ftc.teamcode.layer;
 
-import java.util.Collections;
-import java.util.Iterator;
-
 import org.firstinspires.ftc.teamcode.task.Task;
 
 /**
@@ -11,7 +8,7 @@ import org.firstinspires.ftc.teamcode.task.Task;
  * Similar to {@link AbstractQueuedLayer}, but only generates one task instead
  * of a queue.
  */
-public abstract class AbstractFunctionLayer implements Layer {
+public abstract class AbstractFunctionLayer implements SinkLayer {
     /**
      * Whether {@link #subtask} has been emitted yet.
      */
@@ -37,7 +34,7 @@ public abstract class AbstractFunctionLayer implements Layer {
     }
 
     @Override
-    public final Iterator<Task> update(Iterable<Task> completed) {
+    public final void update(Iterable<Task> completed, TaskSink sink) {
         if (emittedSubtask) {
             throw new IllegalStateException(
                     String.format(
@@ -45,7 +42,7 @@ public abstract class AbstractFunctionLayer implements Layer {
                             getClass().getSimpleName()));
         }
         emittedSubtask = true;
-        return Collections.singleton(subtask).iterator();
+        sink.add(subtask);
     }
 
     @Override
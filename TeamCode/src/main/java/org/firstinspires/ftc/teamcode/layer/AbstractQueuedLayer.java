@@ -1,6 +1,5 @@
 package org.firstinspires.ftc.teamcode.layer;
 
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -10,7 +9,7 @@ import org.firstinspires.ftc.teamcode.task.Task;
  * A convenience base class for layers that can compute queues of subtasks ahead of time and require
  * no additional processing in their update method.
  */
-public abstract class AbstractQueuedLayer implements Layer {
+public abstract class AbstractQueuedLayer implements SinkLayer {
     /**
      * An iterator over the subtasks for the current accepted task.
      */
@@ -32,8 +31,8 @@ public abstract class AbstractQueuedLayer implements Layer {
     }
 
     @Override
-    public final Iterator<Task> update(Iterable<Task> completed) {
-        return Collections.singleton(subtaskIter.next()).iterator();
+    public final void update(Iterable<Task> completed, TaskSink sink) {
+        sink.add(subtaskIter.next());
     }
 
     /**
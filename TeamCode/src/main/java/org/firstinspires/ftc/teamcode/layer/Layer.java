@@ -1,6 +1,7 @@
 package org.firstinspires.ftc.teamcode.layer;
 
 import java.util.Iterator;
+import java.util.List;
 
 import org.firstinspires.ftc.teamcode.task.Task;
 import org.firstinspires.ftc.teamcode.task.UnsupportedTaskException;
@@ -37,7 +38,9 @@ public interface Layer {
     /**
      * Returns the next subordinate tasks produced from this layer's current task.
      * Calculates the next subordinate tasks that should be submitted to the below layer. If the
-     * returned iterator contains more than one task, all are offered to the lower layer.
+     * returned iterator contains more than one task, all are offered to the lower layer. Layers on
+     * the hot path should implement {@link SinkLayer} instead to avoid allocating an iterator on
+     * every update.
      *
      * @param completed - an iterable of tasks completed since the last call to update.
      * @return The next task that the lower layer should run. Must not be null unless this is the
@@ -56,4 +59,33 @@ public interface Layer {
      * should still return true.
      */
     void acceptTask(Task task);
+
+    /**
+     * Returns the minimum time between updates of this layer.
+     * Layers doing expensive work in update (such as planners or vision processing) may return a
+     * nonzero period so the {@link org.firstinspires.ftc.teamcode.RobotController} updates them
+     * less often than it updates the layers below them. In between, subtasks emitted in the
+     * layer's last update that the layer below has not accepted yet are offered to it, and tasks it
+     * completes are held until the layer is next updated. A layer is always updated after it
+     * accepts a new task.
+     *
+     * @return The update period in seconds, or 0 if the layer should be updated whenever its
+     * subtasks are needed.
+     */
+    default double getUpdatePeriod() {
+        return 0;
+    }
+
+    /**
+     * Returns the kinds of tasks this layer accepts.
+     * Containers such as {@link MultiplexLayer} use the declared classes to route each task only to
+     * the component layers that accept it, rather than offering it to every layer and catching
+     * {@link UnsupportedTaskException}s. Subclasses of a declared class are accepted as well.
+     *
+     * @return The task classes {@link #acceptTask} supports, or null if the layer does not declare
+     * them and must be offered every task.
+     */
+    default List<Class<? extends Task>> getAcceptedTasks() {
+        return null;
+    }
 }
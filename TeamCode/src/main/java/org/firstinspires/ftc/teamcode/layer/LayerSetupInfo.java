@@ -3,8 +3,10 @@ package org.firstinspires.ftc.teamcode.layer;
 import com.qualcomm.robotcore.hardware.Gamepad;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 
+import org.firstinspires.ftc.teamcode.Clock;
 import org.firstinspires.ftc.teamcode.RobotController;
 import org.firstinspires.ftc.teamcode.localization.RobotLocalizer;
+import org.firstinspires.ftc.teamcode.profiling.LayerProfiler;
 
 /**
  * Contains the information needed to initialize a layer.
@@ -87,6 +89,26 @@ public final class LayerSetupInfo {
         return robotLocalizer;
     }
 
+    /**
+     * Returns the clock the controller runs on.
+     * Layers measuring elapsed time should read it from here so they also work in simulation.
+     *
+     * @return The Clock of the RobotController setting up the layer.
+     */
+    public Clock getClock() {
+        return robotController.getClock();
+    }
+
+    /**
+     * Returns the LayerProfiler recording call latencies of the layer stack.
+     *
+     * @return The profiler of the RobotController setting up the layer. Layers may query their own
+     * or other layers' latency statistics through it.
+     */
+    public LayerProfiler getProfiler() {
+        return robotController.getProfiler();
+    }
+
     /**
      * Returns the Gamepad connected to the first slot, or null if no such gamepad is available or
      * connected.
@@ -1,12 +1,12 @@
 package org.firstinspires.ftc.teamcode.layer;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Spliterators;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
+import java.util.Map;
+
+import com.qualcomm.robotcore.util.RobotLog;
 
 import org.firstinspires.ftc.teamcode.task.Task;
 import org.firstinspires.ftc.teamcode.task.UnsupportedTaskException;
@@ -15,13 +15,40 @@ import org.firstinspires.ftc.teamcode.task.UnsupportedTaskException;
  * Acts on behalf on multiple component layers to handle multiple unrelated kinds of tasks from the
  * layers above.
  * Needed because the RobotController reads layers as a stack, not a tree.
+ *
+ * <p>Accepted tasks are routed through a table from task class to the component layers declaring
+ * that class in {@link Layer#getAcceptedTasks}, so offering a task costs one map lookup. Component
+ * layers that do not declare their accepted tasks are offered every task and may reject it by
+ * throwing an {@link UnsupportedTaskException}.
  */
-public final class MultiplexLayer implements Layer {
+public final class MultiplexLayer implements SinkLayer {
     /**
      * The list of component layers.
      */
     private final List<Layer> layers;
 
+    /**
+     * The component layers accepting each task class, in component order.
+     * Built from the declared classes at setup, and extended with subclasses of those as they are
+     * first seen.
+     */
+    private final Map<Class<?>, Layer[]> routes;
+
+    /**
+     * The buffer subtasks are gathered into when updated through the iterator contract.
+     */
+    private final TaskSink buffer;
+
+    /**
+     * The component layers that do not declare their accepted tasks.
+     */
+    private Layer[] undeclaredLayers;
+
+    /**
+     * A name listing the component layers, used when reporting problems.
+     */
+    private String name;
+
     /**
      * Constructs a MultiplexLayer.
      *
@@ -29,77 +56,188 @@ public final class MultiplexLayer implements Layer {
      */
     public MultiplexLayer(List<Layer> layers) {
         this.layers = layers;
+        routes = new IdentityHashMap<>();
+        undeclaredLayers = new Layer[0];
+        name = "MultiplexLayer";
+        buffer = new TaskSink();
     }
 
     @Override
     public void setup(LayerSetupInfo setupInfo) {
-        String name = "MultiplexLayer[" + layers.stream()
-            .map(Object::getClass)
-            .map(Class<?>::getSimpleName)
-            .collect(Collectors.joining()) + "]";
+        StringBuilder nameBuilder = new StringBuilder("MultiplexLayer[");
         for (Layer layer : layers) {
+            nameBuilder.append(layer.getClass().getSimpleName());
             layer.setup(setupInfo);
         }
+        name = nameBuilder.append(']').toString();
+
+        List<Layer> undeclared = new ArrayList<>();
+        routes.clear();
+        for (Layer layer : layers) {
+            List<Class<? extends Task>> accepted = layer.getAcceptedTasks();
+            if (accepted == null) {
+                RobotLog.ww(
+                    "MultiplexLayer",
+                    "%s: layer '%s' does not declare its accepted tasks; it will be offered every"
+                        + " task.",
+                    name,
+                    layer.getClass().getSimpleName()
+                );
+                undeclared.add(layer);
+                continue;
+            }
+            for (Class<? extends Task> taskClass : accepted) {
+                if (!routes.containsKey(taskClass)) {
+                    routes.put(taskClass, findAcceptingLayers(taskClass));
+                }
+            }
+        }
+        undeclaredLayers = undeclared.toArray(new Layer[0]);
     }
 
     @Override
     public Iterator<Task> update(Iterable<Task> completed) {
-        // Concatenates results of component layer update methods into a single stream, then creates
-        // an iterator from the stream
-        return layers.stream().flatMap(layer -> {
+        // Component output is gathered into a buffer reused across updates; callers drain the
+        // returned iterator before updating again, so only the iterator itself is allocated
+        buffer.clear();
+        update(completed, buffer);
+        return buffer.iterator();
+    }
+
+    @Override
+    public void update(Iterable<Task> completed, TaskSink sink) {
+        // Component layers append to the shared sink in order, so their output is concatenated
+        // without any intermediate collections
+        for (int i = 0; i < layers.size(); ++i) {
+            Layer layer = layers.get(i);
             if (layer.isTaskDone()) {
-                return Stream.of();
+                continue;
             }
-            Iterator<Task> tasks = layer.update(completed);
-            if (tasks == null) {
-                throw new NullPointerException(
-                    String.format(
-                        "Tasks from layer '%s' is null.",
-                        layer.getClass().getSimpleName()
-                    )
-                );
+            int start = sink.size();
+            sink.collect(layer, completed);
+            for (int j = start; j < sink.size(); ++j) {
+                if (sink.get(j) == null) {
+                    throw new NullPointerException(
+                        String.format(
+                            "Tasks from layer '%s' contains null.",
+                            layer.getClass().getSimpleName()
+                        )
+                    );
+                }
             }
-            // TODO: revert this after debugging; stuffing the tasks into an ArrayList defeats the
-            // purpose of returning an iterator
-            List<Task> taskList = new ArrayList<>();
-            tasks.forEachRemaining(taskList::add);
-            if (taskList.contains(null)) {
-                throw new NullPointerException(
-                    String.format(
-                        "Tasks from layer '%s' contains null.",
-                        layer.getClass().getSimpleName()
-                    )
-                );
-            }
-
-            return StreamSupport.stream(
-                Spliterators.spliteratorUnknownSize(
-                    taskList.iterator(), // layer.update(completed),
-                    0
-                ),
-                false
-            );
-        }).iterator();
+        }
     }
 
     @Override
     public boolean isTaskDone() {
-        return layers.stream().anyMatch(Layer::isTaskDone);
+        for (int i = 0; i < layers.size(); ++i) {
+            if (layers.get(i).isTaskDone()) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
     public void acceptTask(Task task) {
-        boolean anyAccepted = layers.stream().map((layer) -> {
+        Layer[] route = routes.get(task.getClass());
+        if (route == null) {
+            route = resolveRoute(task.getClass());
+        }
+        // Every accepting component layer is given the task; no short circuiting
+        for (int i = 0; i < route.length; ++i) {
+            route[i].acceptTask(task);
+        }
+        if (undeclaredLayers.length == 0) {
+            if (route.length == 0) {
+                throw new UnsupportedTaskException(this, task);
+            }
+            return;
+        }
+        boolean anyAccepted = route.length > 0;
+        for (int i = 0; i < undeclaredLayers.length; ++i) {
             try {
-                layer.acceptTask(task);
+                undeclaredLayers[i].acceptTask(task);
+                anyAccepted = true;
             } catch (UnsupportedTaskException e) {
-                return false;
+                // This component layer does not handle the task; try the others
             }
-            return true;
-        }).reduce(false, (a, b) -> a || b); // Prevent short circuiting
+        }
         if (!anyAccepted) {
-            // Should list component layers, not say MultiplexLayer
-            throw new UnsupportedTaskException(this, task);
+            throw new UnsupportedTaskException(
+                String.format(
+                    "No layer in '%s' supports task of type '%s'.",
+                    name,
+                    task.getClass().getSimpleName()
+                )
+            );
+        }
+    }
+
+    @Override
+    public List<Class<? extends Task>> getAcceptedTasks() {
+        List<Class<? extends Task>> accepted = new ArrayList<>();
+        for (Layer layer : layers) {
+            List<Class<? extends Task>> layerAccepted = layer.getAcceptedTasks();
+            if (layerAccepted == null) {
+                return null;
+            }
+            for (Class<? extends Task> taskClass : layerAccepted) {
+                if (!accepted.contains(taskClass)) {
+                    accepted.add(taskClass);
+                }
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Finds and caches the component layers accepting a task class not yet in the routing table.
+     * A class no component layer declares is reported once and routed to no declaring layers; tasks
+     * of that class are then only offered to layers without declarations, and rejected if there
+     * are none.
+     *
+     * @param taskClass - the class of the task being routed.
+     * @return The component layers declaring the class or one of its superclasses, in component
+     * order.
+     */
+    private Layer[] resolveRoute(Class<?> taskClass) {
+        Layer[] route = findAcceptingLayers(taskClass);
+        if (route.length == 0) {
+            RobotLog.ww(
+                "MultiplexLayer",
+                "%s: no layer declares task of type '%s'; %s.",
+                name,
+                taskClass.getSimpleName(),
+                undeclaredLayers.length == 0
+                    ? "these tasks will be rejected"
+                    : "offering it only to layers without declarations"
+            );
+        }
+        routes.put(taskClass, route);
+        return route;
+    }
+
+    /**
+     * Finds the component layers declaring a task class or one of its superclasses.
+     *
+     * @param taskClass - the class of the task being routed.
+     * @return The declaring component layers, in component order.
+     */
+    private Layer[] findAcceptingLayers(Class<?> taskClass) {
+        List<Layer> route = new ArrayList<>();
+        for (Layer layer : layers) {
+            List<Class<? extends Task>> accepted = layer.getAcceptedTasks();
+            if (accepted == null) {
+                continue;
+            }
+            for (Class<? extends Task> acceptedClass : accepted) {
+                if (acceptedClass.isAssignableFrom(taskClass)) {
+                    route.add(layer);
+                    break;
+                }
+            }
         }
+        return route.toArray(new Layer[0]);
     }
 }
@@ -1,5 +1,6 @@
 package org.firstinspires.ftc.teamcode.layer;
 
+import java.util.Collections;
 import java.util.Iterator;
 
 import com.qualcomm.robotcore.hardware.DcMotor;
@@ -95,6 +96,11 @@ public final class ShooterIntakeLayer implements Layer {
         return null;
     }
 
+    @Override
+    public List<Class<? extends Task>> getAcceptedTasks() {
+        return Collections.singletonList(AutoShooterTask.class);
+    }
+
     @Override
     public void acceptTask(Task task) {
         if (task instanceof AutoShooterTask) {
@@ -0,0 +1,37 @@
+package org.firstinspires.ftc.teamcode.layer;
+
+import java.util.Iterator;
+
+import org.firstinspires.ftc.teamcode.task.Task;
+
+/**
+ * A Layer that writes its subtasks into a {@link TaskSink} instead of returning an iterator.
+ * The {@link org.firstinspires.ftc.teamcode.RobotController} prefers this contract when a layer
+ * implements it, reusing one sink across every update so no per-tick garbage is produced by task
+ * delegation.
+ */
+public interface SinkLayer extends Layer {
+    /**
+     * Computes the next subordinate tasks produced from this layer's current task.
+     * Tasks are appended to the given sink in the order the lower layer should be offered them.
+     * Implementations must not clear the sink, as it may already hold tasks from sibling layers.
+     *
+     * @param completed - an iterable of tasks completed since the last call to update.
+     * @param sink - the sink to write the next subtasks into.
+     */
+    void update(Iterable<Task> completed, TaskSink sink);
+
+    /**
+     * Returns the next subordinate tasks through a newly allocated sink.
+     * Kept so sink layers may still be driven through the iterator contract.
+     *
+     * @param completed - an iterable of tasks completed since the last call to update.
+     * @return An iterator over the emitted subtasks.
+     */
+    @Override
+    default Iterator<Task> update(Iterable<Task> completed) {
+        TaskSink sink = new TaskSink();
+        update(completed, sink);
+        return sink.iterator();
+    }
+}
@@ -0,0 +1,168 @@
+package org.firstinspires.ftc.teamcode.layer;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.firstinspires.ftc.teamcode.task.Task;
+
+/**
+ * A reusable buffer that {@link SinkLayer}s write their subtasks into.
+ * Sinks are owned by the {@link org.firstinspires.ftc.teamcode.RobotController} and cleared
+ * between uses, so once the backing array has grown to fit the largest batch of subtasks, emitting
+ * tasks through a sink performs no allocation.
+ */
+public final class TaskSink implements Iterable<Task> {
+    /**
+     * The number of tasks the sink can hold before its backing array must grow.
+     */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * Whether tasks added to this sink are thrown away.
+     */
+    private final boolean discard;
+
+    /**
+     * The backing array holding added tasks. Only the first {@link #size} elements are meaningful.
+     */
+    private Task[] tasks;
+
+    /**
+     * The number of tasks currently held by the sink.
+     */
+    private int size;
+
+    /**
+     * Constructs a TaskSink that retains added tasks.
+     */
+    public TaskSink() {
+        this(false);
+    }
+
+    /**
+     * Constructs a TaskSink.
+     *
+     * @param discard - whether tasks added to the sink should be thrown away. A discarding sink is
+     * given to the bottommost layer, whose subtasks have no consumer; such a layer may also return
+     * null from {@link Layer#update}.
+     */
+    public TaskSink(boolean discard) {
+        this.discard = discard;
+        tasks = new Task[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Adds a task to the end of the sink.
+     *
+     * @param task - the task to add. Null tasks are stored as-is and reported by the consumer.
+     */
+    public void add(Task task) {
+        if (discard) {
+            return;
+        }
+        if (size == tasks.length) {
+            tasks = Arrays.copyOf(tasks, tasks.length * 2);
+        }
+        tasks[size++] = task;
+    }
+
+    /**
+     * Updates a layer and adds the subtasks it emits to the end of the sink.
+     * Layers implementing {@link SinkLayer} write directly into the sink; the iterators returned by
+     * other layers are drained into it.
+     *
+     * @param layer - the layer to update.
+     * @param completed - an iterable of tasks completed since the layer was last updated.
+     * @throws NullPointerException - the layer returned a null iterator and this sink does not
+     * discard tasks.
+     */
+    public void collect(Layer layer, Iterable<Task> completed) {
+        if (layer instanceof SinkLayer) {
+            ((SinkLayer)layer).update(completed, this);
+            return;
+        }
+        Iterator<Task> subtasks = layer.update(completed);
+        if (subtasks == null) {
+            if (discard) {
+                return;
+            }
+            throw new NullPointerException(
+                String.format(
+                    "Layer '%s' returned null from update.",
+                    layer.getClass().getSimpleName()
+                )
+            );
+        }
+        while (subtasks.hasNext()) {
+            add(subtasks.next());
+        }
+    }
+
+    /**
+     * Gets a task held by the sink.
+     *
+     * @param idx - the index of the task in order of addition.
+     * @return The task at the given index.
+     * @throws IndexOutOfBoundsException - the index is negative or not less than {@link #size}.
+     */
+    public Task get(int idx) {
+        if (idx < 0 || idx >= size) {
+            throw new IndexOutOfBoundsException("Bad task index " + idx);
+        }
+        return tasks[idx];
+    }
+
+    /**
+     * Returns the number of tasks held by the sink.
+     *
+     * @return The number of tasks added since the last call to {@link #clear}.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the sink holds no tasks.
+     *
+     * @return Whether no tasks have been added since the last call to {@link #clear}.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all tasks from the sink, retaining the backing array for reuse.
+     */
+    public void clear() {
+        Arrays.fill(tasks, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Returns an iterator over the held tasks.
+     * Allocates; prefer {@link #size} and {@link #get} on hot paths.
+     *
+     * @return An iterator over the tasks in order of addition.
+     */
+    @Override
+    public Iterator<Task> iterator() {
+        return new Iterator<Task>() {
+            private int idx = 0;
+
+            @Override
+            public boolean hasNext() {
+                return idx < size;
+            }
+
+            @Override
+            public Task next() {
+                if (idx >= size) {
+                    throw new NoSuchElementException();
+                }
+                return tasks[idx++];
+            }
+        };
+    }
+}
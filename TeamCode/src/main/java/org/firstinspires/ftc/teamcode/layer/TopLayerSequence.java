@@ -1,5 +1,6 @@
 package org.firstinspires.ftc.teamcode.layer;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -16,7 +17,7 @@ import org.firstinspires.ftc.teamcode.task.UnsupportedTaskException;
  * An OpMode whose layer stack contains one top-level layer ends when that layer is asked for
  * another subtask but it has none to supply.
  */
-public final class TopLayerSequence implements Layer {
+public final class TopLayerSequence implements SinkLayer {
     /**
      * The list of contained layers.
      */
@@ -68,6 +69,19 @@ public final class TopLayerSequence implements Layer {
         return subtasks;
     }
 
+    @Override
+    public void update(Iterable<Task> completed, TaskSink sink) {
+        sink.collect(layer, completed);
+        if (layer.isTaskDone() && layerIter.hasNext()) {
+            layer = layerIter.next();
+        }
+    }
+
+    @Override
+    public List<Class<? extends Task>> getAcceptedTasks() {
+        return Collections.emptyList();
+    }
+
     @Override
     public void acceptTask(Task task) {
         throw new UnsupportedTaskException(this, task);
@@ -2,6 +2,7 @@ package org.firstinspires.ftc.teamcode.layer;
 
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 
 import org.firstinspires.ftc.teamcode.task.Task;
 import org.firstinspires.ftc.teamcode.task.UnsupportedTaskException;
@@ -39,6 +40,11 @@ public final class WinLayer implements Layer {
         return Collections.singleton((Task)(new WinTask())).iterator();
     }
 
+    @Override
+    public List<Class<? extends Task>> getAcceptedTasks() {
+        return Collections.emptyList();
+    }
+
     @Override
     public void acceptTask(Task task) {
         throw new UnsupportedTaskException(this, task);
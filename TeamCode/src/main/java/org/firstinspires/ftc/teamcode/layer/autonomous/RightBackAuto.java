@@ -1,6 +1,8 @@
 package org.firstinspires.ftc.teamcode.layer.autonomous;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.firstinspires.ftc.teamcode.layer.AbstractQueuedLayer;
 import org.firstinspires.ftc.teamcode.layer.LayerSetupInfo;
@@ -28,6 +30,11 @@ public final class RightBackAuto extends AbstractQueuedLayer {
 	@Override
 	public void setup(LayerSetupInfo setupInfo) {}
 
+	@Override
+	public List<Class<? extends Task>> getAcceptedTasks() {
+		return Collections.singletonList(WinTask.class);
+	}
+
 	@Override
 	public void acceptTask(Task task) {
 		if (task instanceof WinTask) {
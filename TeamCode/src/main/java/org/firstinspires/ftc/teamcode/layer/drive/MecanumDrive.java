@@ -1,6 +1,8 @@
 package org.firstinspires.ftc.teamcode.layer.drive;
 
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
@@ -68,6 +70,18 @@ public final class MecanumDrive implements Layer {
      */
     private static final double AUTO_SPEED_FAC = 0.5;
 
+    /**
+     * Goal deltas of zero for every wheel, shared by all teleop tasks.
+     * Never modified.
+     */
+    private static final WheelProperty<Double> ZERO_DELTAS = WheelProperty.populate(_key -> 0.0);
+
+    /**
+     * Every wheel, in the order of {@link WheelProperty.WheelKey#values}, kept so that looping over
+     * the wheels does not copy the array.
+     */
+    private static final WheelProperty.WheelKey[] WHEEL_KEYS = WheelProperty.WheelKey.values();
+
     /**
      * The robot's wheels.
      */
@@ -120,28 +134,40 @@ public final class MecanumDrive implements Layer {
 
     @Override
     public Iterator<Task> update(Iterable<Task> completed) {
-        WheelProperty<Double> deltas = WheelProperty.populate((key) ->
-            wheels.get(key).getDistance() - wheelStartPos.get(key)
-        );
-        WheelProperty<Boolean> deltaSignsMatch = WheelProperty.populate((key) ->
-            (deltas.get(key) < 0) == (wheelGoalDeltas.get(key) < 0)
-        );
-        WheelProperty<Boolean> goalDeltaExceeded = WheelProperty.populate((key) ->
-            Math.abs(deltas.get(key)) >= Math.abs(wheelGoalDeltas.get(key))
-        );
-        WheelProperty<Boolean> wheelDone = WheelProperty.populate((key) ->
-            (deltaSignsMatch.get(key) && goalDeltaExceeded.get(key))
-            || wheelGoalDeltas.get(key) == 0
-        );
-
-        boolean isTeleopTask = wheelGoalDeltas.all((_key, goalDelta) -> goalDelta == 0);
-        currentTaskDone = wheelDone.all((_key, done) -> done);
+        // Loops over the wheels instead of mapping WheelProperties so that a tick allocates nothing
+        boolean isTeleopTask = true;
+        boolean allWheelsDone = true;
+        for (WheelProperty.WheelKey key : WHEEL_KEYS) {
+            double goalDelta = wheelGoalDeltas.get(key);
+            if (goalDelta == 0) {
+                continue;
+            }
+            isTeleopTask = false;
+            double delta = wheels.get(key).getDistance() - wheelStartPos.get(key);
+            boolean deltaSignsMatch = (delta < 0) == (goalDelta < 0);
+            boolean goalDeltaExceeded = Math.abs(delta) >= Math.abs(goalDelta);
+            allWheelsDone &= deltaSignsMatch && goalDeltaExceeded;
+        }
+        currentTaskDone = allWheelsDone;
         if (currentTaskDone && !isTeleopTask) {
-            wheels.forEach((_key, wheel) -> wheel.setVelocity(0));
+            for (WheelProperty.WheelKey key : WHEEL_KEYS) {
+                wheels.get(key).setVelocity(0);
+            }
         }
         return null;
     }
 
+    @Override
+    public List<Class<? extends Task>> getAcceptedTasks() {
+        return Arrays.asList(
+            AxialMovementTask.class,
+            TurnTask.class,
+            LinearMovementTask.class,
+            TankDriveTask.class,
+            HolonomicDriveTask.class
+        );
+    }
+
     @Override
     public void acceptTask(Task task) {
         boolean isAuto;
@@ -165,40 +191,74 @@ public final class MecanumDrive implements Layer {
         } else if (task instanceof TankDriveTask) {
             isAuto = false;
             TankDriveTask castedTask = (TankDriveTask)task;
-            normalizeVelocities(
-                new WheelProperty<>(
-                    castedTask.getLeft(),
-                    castedTask.getRight(),
-                    castedTask.getLeft(),
-                    castedTask.getRight()
-                ).map((key, velocity) -> velocity * SLIPPING_CONSTANT.get(key)),
-                false
-            ).forEach((key, velocity) -> wheels.get(key).setVelocity(velocity));
+            setTeleopVelocities(
+                castedTask.getLeft(),
+                castedTask.getRight(),
+                castedTask.getLeft(),
+                castedTask.getRight()
+            );
         } else if (task instanceof HolonomicDriveTask) {
             isAuto = false;
             HolonomicDriveTask castedTask = (HolonomicDriveTask)task;
-            normalizeVelocities(
-                calculateAlyDeltas(
-                    castedTask.getAxial(),
-                    castedTask.getLateral(),
-                    castedTask.getYaw()
-                ).map((key, velocity) -> velocity * SLIPPING_CONSTANT.get(key)),
-                false
-            ).forEach((key, velocity) -> wheels.get(key).setVelocity(velocity));
+            double axial = castedTask.getAxial();
+            double lateral = castedTask.getLateral();
+            double yaw = castedTask.getYaw();
+            // Mixed wheel by wheel rather than by calculateAlyDeltas to avoid boxing the deltas
+            setTeleopVelocities(
+                calculateAlyDelta(WheelProperty.WheelKey.LEFT_FRONT, axial, lateral, yaw),
+                calculateAlyDelta(WheelProperty.WheelKey.RIGHT_FRONT, axial, lateral, yaw),
+                calculateAlyDelta(WheelProperty.WheelKey.LEFT_BACK, axial, lateral, yaw),
+                calculateAlyDelta(WheelProperty.WheelKey.RIGHT_BACK, axial, lateral, yaw)
+            );
         } else {
             throw new UnsupportedTaskException(this, task);
         }
         currentTaskDone = false;
-        wheelStartPos = wheels.map((_key, wheel) -> wheel.getDistance());
         if (isAuto) {
+            wheelStartPos = wheels.map((_key, wheel) -> wheel.getDistance());
             normalizeVelocities(wheelGoalDeltas, true)
                 .forEach((key, velocity) -> wheels.get(key).setVelocity(velocity * AUTO_SPEED_FAC));
         } else {
-            // Say teleop tasks are instantly done in isTaskDone
-            wheelGoalDeltas = WheelProperty.populate((_key) -> 0.0);
+            // Say teleop tasks are instantly done in isTaskDone. Start positions are only read
+            // while a goal is set, so they are left alone rather than boxed anew every tick
+            wheelGoalDeltas = ZERO_DELTAS;
         }
     }
 
+    /**
+     * Drives the wheels at velocities given in arbitrary units for a teleop task.
+     * The velocities are corrected for slipping and scaled down so that none exceeds 1.0, as by
+     * {@link #normalizeVelocities} without scaling up. Teleop tasks arrive every tick, so this
+     * works on primitives rather than allocating WheelProperties.
+     *
+     * @param leftFront - the velocity of the left front wheel.
+     * @param rightFront - the velocity of the right front wheel.
+     * @param leftBack - the velocity of the left back wheel.
+     * @param rightBack - the velocity of the right back wheel.
+     */
+    private void setTeleopVelocities(
+        double leftFront,
+        double rightFront,
+        double leftBack,
+        double rightBack
+    ) {
+        leftFront *= SLIPPING_CONSTANT.leftFront;
+        rightFront *= SLIPPING_CONSTANT.rightFront;
+        leftBack *= SLIPPING_CONSTANT.leftBack;
+        rightBack *= SLIPPING_CONSTANT.rightBack;
+        double maxAbsVelocity = Math.max(
+            Math.max(
+                Math.max(Math.abs(leftFront), Math.abs(rightFront)),
+                Math.max(Math.abs(leftBack), Math.abs(rightBack))
+            ),
+            1.0
+        );
+        wheels.leftFront.setVelocity(leftFront / maxAbsVelocity);
+        wheels.rightFront.setVelocity(rightFront / maxAbsVelocity);
+        wheels.leftBack.setVelocity(leftBack / maxAbsVelocity);
+        wheels.rightBack.setVelocity(rightBack / maxAbsVelocity);
+    }
+
     /**
      * Calculates motor deltas from axial, lateral, and yaw given in arbitrary units.
      *
@@ -208,12 +268,29 @@ public final class MecanumDrive implements Layer {
      * @return motor deltas calculated for each wheel.
      */
     private WheelProperty<Double> calculateAlyDeltas(double axial, double lateral, double yaw) {
-        return new WheelProperty<>(
-            axial - lateral - yaw,
-            axial + lateral + yaw,
-            axial + lateral - yaw,
-            axial - lateral + yaw
-        );
+        return WheelProperty.populate(key -> calculateAlyDelta(key, axial, lateral, yaw));
+    }
+
+    /**
+     * Calculates one wheel's motor delta from axial, lateral, and yaw given in arbitrary units.
+     * The left front and right back wheels turn against lateral movement and the other diagonal
+     * with it, while left wheels turn against yaw and right wheels with it.
+     *
+     * @param key - the wheel to calculate the delta of.
+     * @param axial - axial value, positive forward
+     * @param lateral - lateral value, positive right
+     * @param yaw - yaw value, positive counterclockwise
+     * @return The motor delta of the wheel.
+     */
+    private static double calculateAlyDelta(
+        WheelProperty.WheelKey key,
+        double axial,
+        double lateral,
+        double yaw
+    ) {
+        double lateralDelta = key.getIsLeft() == key.getIsFront() ? -lateral : lateral;
+        double yawDelta = key.getIsLeft() ? -yaw : yaw;
+        return axial + lateralDelta + yawDelta;
     }
 
     /**
@@ -1,6 +1,8 @@
 package org.firstinspires.ftc.teamcode.layer.drive;
 
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 
 import com.qualcomm.robotcore.hardware.DcMotor;
 
@@ -140,6 +142,15 @@ public final class TwoWheelDrive implements Layer {
         return null;
     }
 
+    @Override
+    public List<Class<? extends Task>> getAcceptedTasks() {
+        return Arrays.asList(
+            AxialMovementTask.class,
+            TurnTask.class,
+            TankDriveTask.class
+        );
+    }
+
     @Override
     public void acceptTask(Task task) {
         if (task instanceof AxialMovementTask) {
@@ -1,5 +1,8 @@
 package org.firstinspires.ftc.teamcode.layer.input;
 
+import java.util.Collections;
+import java.util.List;
+
 import org.firstinspires.ftc.teamcode.layer.Layer;
 import org.firstinspires.ftc.teamcode.task.Task;
 import org.firstinspires.ftc.teamcode.task.UnsupportedTaskException;
@@ -17,6 +20,11 @@ public abstract class AbstractInputGenerator implements Layer {
         return false;
     }
 
+    @Override
+    public final List<Class<? extends Task>> getAcceptedTasks() {
+        return Collections.emptyList();
+    }
+
     @Override
     public final void acceptTask(Task task) {
         throw new UnsupportedTaskException(this, task);
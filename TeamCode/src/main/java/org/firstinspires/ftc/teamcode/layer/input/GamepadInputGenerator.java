@@ -1,18 +1,36 @@
 package org.firstinspires.ftc.teamcode.layer.input;
 
-import java.util.Collections;
-import java.util.Iterator;
-
 import com.qualcomm.robotcore.hardware.Gamepad;
 
 import org.firstinspires.ftc.teamcode.layer.LayerSetupInfo;
+import org.firstinspires.ftc.teamcode.layer.SinkLayer;
+import org.firstinspires.ftc.teamcode.layer.TaskSink;
 import org.firstinspires.ftc.teamcode.task.GamepadInputTask;
 import org.firstinspires.ftc.teamcode.task.Task;
 
 /**
  * Generates {@link GamepadInputTask}s from snapshots of the gamepad inputs.
+ * The generator owns two snapshots and alternates between them: each update overwrites the one not
+ * emitted last, so the previous snapshot is left intact while the next is captured and no objects
+ * are allocated per update. Every emitted snapshot carries the button edges and axis deltas since
+ * the snapshot emitted before it (see {@link GamepadInputTask.GamepadInput#pressed}).
+ *
+ * <p>In change-driven mode, nothing is emitted on updates where the input has not changed, so the
+ * mappings and layers below are only run when the driver does something. Layers that poll hardware
+ * from acceptTask and rely on receiving a task every loop should not be used with this mode.
  */
-public final class GamepadInputGenerator extends AbstractInputGenerator {
+public final class GamepadInputGenerator extends AbstractInputGenerator implements SinkLayer {
+    /**
+     * How far an axis must move from its last emitted value to count as a change in change-driven
+     * mode.
+     */
+    private static final float AXIS_DEADBAND = 0.02f;
+
+    /**
+     * Whether updates with unchanged input emit nothing.
+     */
+    private final boolean changeDriven;
+
     /**
      * The gamepad connected to the first port, or null if none is connected there.
      */
@@ -23,10 +41,40 @@ public final class GamepadInputGenerator extends AbstractInputGenerator {
      */
     private Gamepad gamepad1;
 
+    /**
+     * The pair of reusable snapshots updates alternate between.
+     */
+    private final GamepadInputTask[] snapshots;
+
+    /**
+     * The index in {@link #snapshots} of the snapshot the next update overwrites.
+     */
+    private int back;
+
+    /**
+     * Whether a snapshot has been emitted yet.
+     */
+    private boolean emittedAny;
+
+    /**
+     * Constructs a GamepadInputGenerator that emits a snapshot on every update.
+     */
+    public GamepadInputGenerator() {
+        this(false);
+    }
+
     /**
      * Constructs a GamepadInputGenerator.
+     *
+     * @param changeDriven - whether to skip emitting when the input has not changed since the last
+     * emitted snapshot.
      */
-    public GamepadInputGenerator() { }
+    public GamepadInputGenerator(boolean changeDriven) {
+        this.changeDriven = changeDriven;
+        snapshots = new GamepadInputTask[2];
+        back = 0;
+        emittedAny = false;
+    }
 
     @Override
     public void setup(LayerSetupInfo setupInfo) {
@@ -36,12 +84,20 @@ public final class GamepadInputGenerator extends AbstractInputGenerator {
             throw new IllegalArgumentException("At least one gamepad must be connected to the "
                 + "robot.");
         }
+        for (int i = 0; i < snapshots.length; ++i) {
+            snapshots[i] = new GamepadInputTask(
+                gamepad0 == null ? null : new GamepadInputTask.GamepadInput(),
+                gamepad1 == null ? null : new GamepadInputTask.GamepadInput()
+            );
+        }
     }
 
     @Override
-    public Iterator<Task> update(Iterable<Task> completed) {
-        return Collections.singleton((Task)(new GamepadInputTask(
-            gamepad0 == null ? null : new GamepadInputTask.GamepadInput(
+    public void update(Iterable<Task> completed, TaskSink sink) {
+        GamepadInputTask snapshot = snapshots[back];
+        GamepadInputTask previous = emittedAny ? snapshots[back ^ 1] : null;
+        if (gamepad0 != null) {
+            snapshot.gamepad0.set(
                 gamepad0.left_stick_x,
                 -gamepad0.left_stick_y,
                 gamepad0.left_bumper,
@@ -58,8 +114,11 @@ public final class GamepadInputGenerator extends AbstractInputGenerator {
                 gamepad0.b,
                 gamepad0.x,
                 gamepad0.y
-            ),
-            gamepad1 == null ? null : new GamepadInputTask.GamepadInput(
+            );
+            snapshot.gamepad0.compareWith(previous == null ? null : previous.gamepad0);
+        }
+        if (gamepad1 != null) {
+            snapshot.gamepad1.set(
                 -gamepad1.left_stick_x,
                 gamepad1.left_stick_y,
                 gamepad1.left_bumper,
@@ -76,7 +135,16 @@ public final class GamepadInputGenerator extends AbstractInputGenerator {
                 gamepad1.b,
                 gamepad1.x,
                 gamepad1.y
-            )
-        ))).iterator();
+            );
+            snapshot.gamepad1.compareWith(previous == null ? null : previous.gamepad1);
+        }
+        if (changeDriven && previous != null && !snapshot.isChanged(AXIS_DEADBAND)) {
+            // Keep the last emitted snapshot as the front so slow drift still accumulates into a
+            // change; this snapshot is overwritten next update
+            return;
+        }
+        back ^= 1;
+        emittedAny = true;
+        sink.add(snapshot);
     }
 }
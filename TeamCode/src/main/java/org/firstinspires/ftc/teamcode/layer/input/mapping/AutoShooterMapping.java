@@ -1,5 +1,8 @@
 package org.firstinspires.ftc.teamcode.layer.input.mapping;
 
+import java.util.Collections;
+import java.util.List;
+
 import org.firstinspires.ftc.teamcode.layer.AbstractFunctionLayer;
 import org.firstinspires.ftc.teamcode.layer.LayerSetupInfo;
 import org.firstinspires.ftc.teamcode.task.GamepadInputTask;
@@ -8,11 +11,24 @@ import org.firstinspires.ftc.teamcode.task.UnsupportedTaskException;
 import org.firstinspires.ftc.teamcode.task.AutoShooterTask;
 
 public final class AutoShooterMapping extends AbstractFunctionLayer {
-    public AutoShooterMapping() { }
+    /**
+     * The task emitted for every gamepad input, overwritten by each mapping so that none is
+     * allocated per tick.
+     */
+    private final AutoShooterTask shooterTask;
+
+    public AutoShooterMapping() {
+        shooterTask = new AutoShooterTask(false, false, false, false, false, false);
+    }
 
     @Override
     public void setup(LayerSetupInfo setupInfo) { }
 
+    @Override
+    public List<Class<? extends Task>> getAcceptedTasks() {
+        return Collections.singletonList(GamepadInputTask.class);
+    }
+
     @Override
     public Task map(Task task) {
         if (task instanceof GamepadInputTask) {
@@ -23,7 +39,8 @@ public final class AutoShooterMapping extends AbstractFunctionLayer {
             boolean eject = castedTask.gamepad0.buttons.a;
             boolean experimentalRed = castedTask.gamepad0.buttons.b;
             boolean experimentalBlue = castedTask.gamepad0.buttons.x;
-            return new AutoShooterTask(shoot, shooterEject, intake, eject, experimentalRed, experimentalBlue);
+            shooterTask.set(shoot, shooterEject, intake, eject, experimentalRed, experimentalBlue);
+            return shooterTask;
         } else {
             throw new UnsupportedTaskException(this, task);
         }
@@ -1,5 +1,8 @@
 package org.firstinspires.ftc.teamcode.layer.input.mapping;
 
+import java.util.Collections;
+import java.util.List;
+
 import org.firstinspires.ftc.teamcode.layer.AbstractFunctionLayer;
 import org.firstinspires.ftc.teamcode.layer.LayerSetupInfo;
 import org.firstinspires.ftc.teamcode.task.GamepadInputTask;
@@ -12,23 +15,37 @@ import org.firstinspires.ftc.teamcode.task.UnsupportedTaskException;
  * the robot) and the x axis of the right joystick to turn a robot using holonomic drive.
  */
 public final class JoystickHoloDriveMapping extends AbstractFunctionLayer {
+    /**
+     * The task emitted for every gamepad input, overwritten by each mapping so that none is
+     * allocated per tick.
+     */
+    private final HolonomicDriveTask driveTask;
+
     /**
      * Constructs a JoystickHoloDriveMapping.
      */
-    public JoystickHoloDriveMapping() { }
+    public JoystickHoloDriveMapping() {
+        driveTask = new HolonomicDriveTask(0, 0, 0);
+    }
 
     @Override
     public void setup(LayerSetupInfo setupInfo) { }
 
+    @Override
+    public List<Class<? extends Task>> getAcceptedTasks() {
+        return Collections.singletonList(GamepadInputTask.class);
+    }
+
     @Override
     public Task map(Task task) {
         if (task instanceof GamepadInputTask) {
             GamepadInputTask castedTask = (GamepadInputTask)task;
-            return new HolonomicDriveTask(
+            driveTask.set(
                 castedTask.gamepad0.joysticks.left.y,
                 castedTask.gamepad0.joysticks.left.x,
                 -castedTask.gamepad0.joysticks.right.x
             );
+            return driveTask;
         } else {
             throw new UnsupportedTaskException(this, task);
         }
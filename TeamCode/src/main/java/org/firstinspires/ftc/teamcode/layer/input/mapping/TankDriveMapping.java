@@ -1,5 +1,8 @@
 package org.firstinspires.ftc.teamcode.layer.input.mapping;
 
+import java.util.Collections;
+import java.util.List;
+
 import org.firstinspires.ftc.teamcode.layer.AbstractFunctionLayer;
 import org.firstinspires.ftc.teamcode.layer.LayerSetupInfo;
 import org.firstinspires.ftc.teamcode.task.GamepadInputTask;
@@ -20,6 +23,11 @@ public final class TankDriveMapping extends AbstractFunctionLayer {
     @Override
     public void setup(LayerSetupInfo setupInfo) { }
 
+    @Override
+    public List<Class<? extends Task>> getAcceptedTasks() {
+        return Collections.singletonList(GamepadInputTask.class);
+    }
+
     @Override
     public Task map(Task task) {
         if (task instanceof GamepadInputTask) {
@@ -1,5 +1,8 @@
 package org.firstinspires.ftc.teamcode.layer.input.mapping;
 
+import java.util.Collections;
+import java.util.List;
+
 import org.firstinspires.ftc.teamcode.layer.AbstractFunctionLayer;
 import org.firstinspires.ftc.teamcode.layer.LayerSetupInfo;
 import org.firstinspires.ftc.teamcode.task.GamepadInputTask;
@@ -8,16 +11,32 @@ import org.firstinspires.ftc.teamcode.task.UnsupportedTaskException;
 import org.firstinspires.ftc.teamcode.task.TeleopAgitatorTask;
 
 public final class TeleopAgitatorMapping extends AbstractFunctionLayer {
+    /**
+     * The task emitted while the agitator button is held, shared so that none is allocated per
+     * tick.
+     */
+    private static final TeleopAgitatorTask RUN_TASK = new TeleopAgitatorTask(true);
+
+    /**
+     * The task emitted while the agitator button is released.
+     */
+    private static final TeleopAgitatorTask STOP_TASK = new TeleopAgitatorTask(false);
+
     public TeleopAgitatorMapping() { }
 
     @Override
     public void setup(LayerSetupInfo setupInfo) { }
 
+    @Override
+    public List<Class<? extends Task>> getAcceptedTasks() {
+        return Collections.singletonList(GamepadInputTask.class);
+    }
+
     @Override
     public Task map(Task task) {
         if (task instanceof GamepadInputTask) {
             GamepadInputTask castedTask = (GamepadInputTask) task;
-            return new TeleopAgitatorTask(castedTask.gamepad0.dpad.left);
+            return castedTask.gamepad0.dpad.left ? RUN_TASK : STOP_TASK;
         } else {
             throw new UnsupportedTaskException(this, task);
         }
@@ -0,0 +1,157 @@
+package org.firstinspires.ftc.teamcode.layer.pathfinding;
+
+import org.firstinspires.ftc.teamcode.matrix.Vec2;
+
+/**
+ * An immutable axis-aligned field space box that an obstacle lies entirely within.
+ * Since no point of an obstacle is closer than its box, the distance from a point outside of the
+ * box to the box is a cheap lower bound on the distance to the obstacle.
+ */
+final class BoundingBox {
+    /**
+     * A box containing the whole plane, for obstacles that cannot be bounded.
+     */
+    static final BoundingBox UNBOUNDED = new BoundingBox(
+        Double.NEGATIVE_INFINITY,
+        Double.NEGATIVE_INFINITY,
+        Double.POSITIVE_INFINITY,
+        Double.POSITIVE_INFINITY
+    );
+
+    /**
+     * The least x coordinate in meters.
+     */
+    private final double minX;
+
+    /**
+     * The least y coordinate in meters.
+     */
+    private final double minY;
+
+    /**
+     * The greatest x coordinate in meters.
+     */
+    private final double maxX;
+
+    /**
+     * The greatest y coordinate in meters.
+     */
+    private final double maxY;
+
+    /**
+     * Constructs a BoundingBox.
+     *
+     * @param minX - the least x coordinate in meters.
+     * @param minY - the least y coordinate in meters.
+     * @param maxX - the greatest x coordinate in meters.
+     * @param maxY - the greatest y coordinate in meters.
+     * @throws IllegalArgumentException if a least coordinate is greater than the greatest one or
+     * any coordinate is NaN.
+     */
+    BoundingBox(double minX, double minY, double maxX, double maxY) {
+        if (!(minX <= maxX && minY <= maxY)) {
+            throw new IllegalArgumentException(String.format(
+                "Box from (%f, %f) to (%f, %f) is inverted",
+                minX,
+                minY,
+                maxX,
+                maxY
+            ));
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Constructs the smallest box containing two points.
+     *
+     * @param a - one point.
+     * @param b - the other point.
+     * @return The box with the two points at opposite corners.
+     */
+    static BoundingBox of(Vec2 a, Vec2 b) {
+        return new BoundingBox(
+            Math.min(a.getX(), b.getX()),
+            Math.min(a.getY(), b.getY()),
+            Math.max(a.getX(), b.getX()),
+            Math.max(a.getY(), b.getY())
+        );
+    }
+
+    /**
+     * Returns the least x coordinate.
+     *
+     * @return The least x coordinate in meters.
+     */
+    double getMinX() {
+        return minX;
+    }
+
+    /**
+     * Returns the least y coordinate.
+     *
+     * @return The least y coordinate in meters.
+     */
+    double getMinY() {
+        return minY;
+    }
+
+    /**
+     * Returns the greatest x coordinate.
+     *
+     * @return The greatest x coordinate in meters.
+     */
+    double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Returns the greatest y coordinate.
+     *
+     * @return The greatest y coordinate in meters.
+     */
+    double getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Returns whether the box is finite.
+     *
+     * @return Whether every coordinate of the box is finite.
+     */
+    boolean isBounded() {
+        return !Double.isInfinite(minX) && !Double.isInfinite(minY)
+            && !Double.isInfinite(maxX) && !Double.isInfinite(maxY);
+    }
+
+    /**
+     * Computes the distance from a point to the box.
+     *
+     * @param x - the field x coordinate of the point in meters.
+     * @param y - the field y coordinate of the point in meters.
+     * @return The distance in meters to the nearest point of the box, or zero if the point is
+     * inside it.
+     */
+    double getDistanceTo(double x, double y) {
+        double dx = Math.max(Math.max(minX - x, x - maxX), 0);
+        double dy = Math.max(Math.max(minY - y, y - maxY), 0);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Computes the smallest box containing this box and another.
+     *
+     * @param other - the other box.
+     * @return The union of the boxes.
+     */
+    BoundingBox union(BoundingBox other) {
+        return new BoundingBox(
+            Math.min(minX, other.minX),
+            Math.min(minY, other.minY),
+            Math.max(maxX, other.maxX),
+            Math.max(maxY, other.maxY)
+        );
+    }
+}
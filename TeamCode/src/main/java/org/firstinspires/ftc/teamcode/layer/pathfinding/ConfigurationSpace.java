@@ -0,0 +1,173 @@
+package org.firstinspires.ftc.teamcode.layer.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
+import org.firstinspires.ftc.teamcode.matrix.Vec2;
+
+/**
+ * Polygonal obstacles grown by the robot's footprint, so that the distance from the whole robot to
+ * them is found by looking up a single point.
+ * The robot at a pose overlaps an obstacle exactly when the pose's translation lies in the
+ * Minkowski sum of the obstacle and the reflection of the footprint turned to the pose's heading.
+ * Since that sum depends on the heading, headings are divided into equal buckets and each bucket
+ * has its own {@link DistanceField} of the obstacles grown by every turn of the footprint within
+ * the bucket. Growing happens once per obstacle as it is added, leaving the planner's clearance
+ * checks a grid lookup.
+ *
+ * <p>The turns of the footprint within a bucket are covered by the convex hull of a few samples of
+ * them, which can miss the footprint's corners by the sagitta of the arcs they sweep between
+ * samples. Distances are lowered by that amount, and by the most that interpolating the fields can
+ * overestimate them, so that they are never overestimated. A footprint that looks the same at every
+ * heading only needs one bucket, though a circular footprint is better served exactly by
+ * {@link InflatedObstacle}.
+ *
+ * <p>Like the fields it holds, a configuration space is immutable, so one can be shared with a
+ * planning thread.
+ */
+final class ConfigurationSpace implements Obstacle {
+    /**
+     * The greatest turn in radians between neighboring samples of the footprint within a bucket.
+     * Keeps the sagitta the samples miss by below a two hundredth of the footprint's radius.
+     */
+    private static final double SWEEP_STEP = Math.PI / 16;
+
+    /**
+     * The number of heading buckets per radian, the reciprocal of their width.
+     */
+    private final double bucketsPerRadian;
+
+    /**
+     * The reflection of the footprint swept through each bucket, which obstacles are grown by.
+     */
+    private final ConvexPolygon[] reflectedFootprints;
+
+    /**
+     * The distances to the grown obstacles for each bucket.
+     */
+    private final DistanceField[] fields;
+
+    /**
+     * How far in meters distances are lowered: the most the swept footprint of a bucket may fall
+     * short of the footprint's turns, plus the most the fields' interpolation may overestimate.
+     */
+    private final double margin;
+
+    /**
+     * Constructs a ConfigurationSpace without any obstacles.
+     *
+     * @param min - the field point of the grid's corner with the least coordinates, in meters.
+     * @param max - the field point of the opposite corner, in meters.
+     * @param spacing - the distance between neighboring grid points in meters.
+     * @param footprint - the outline of the robot in robot space, given in units of meters.
+     * @param headingBuckets - the number of equal parts to divide the full turn of headings into.
+     * @throws IllegalArgumentException if headingBuckets is less than 1, or the grid is invalid as
+     * described by {@link DistanceField#DistanceField}.
+     */
+    ConfigurationSpace(
+        Vec2 min,
+        Vec2 max,
+        double spacing,
+        ConvexPolygon footprint,
+        int headingBuckets
+    ) {
+        if (headingBuckets < 1) {
+            throw new IllegalArgumentException(String.format(
+                "Heading bucket count %d is less than 1",
+                headingBuckets
+            ));
+        }
+        double bucketWidth = 2 * Math.PI / headingBuckets;
+        bucketsPerRadian = 1 / bucketWidth;
+        int steps = (int)Math.ceil(bucketWidth / SWEEP_STEP);
+        double step = bucketWidth / steps;
+        reflectedFootprints = new ConvexPolygon[headingBuckets];
+        fields = new DistanceField[headingBuckets];
+        DistanceField empty = new DistanceField(min, max, spacing);
+        double sweepMargin = footprint.getRadius() * (1 - Math.cos(step / 2));
+        margin = sweepMargin + empty.getInterpolationMargin();
+        List<Vec2> sweep = new ArrayList<>((steps + 1) * footprint.getVertexCount());
+        for (int bucket = 0; bucket < headingBuckets; ++bucket) {
+            sweep.clear();
+            // Buckets are centered on their headings
+            double first = (bucket - 0.5) * bucketWidth;
+            for (int i = 0; i <= steps; ++i) {
+                Pose2d turn = new Pose2d(0, 0, first + i * step);
+                for (int vertex = 0; vertex < footprint.getVertexCount(); ++vertex) {
+                    sweep.add(turn.transform(footprint.getVertex(vertex)));
+                }
+            }
+            reflectedFootprints[bucket] = ConvexPolygon.hullOf(sweep).negate();
+            fields[bucket] = empty;
+        }
+    }
+
+    /**
+     * Constructs a ConfigurationSpace with the same footprint as another and the given fields.
+     *
+     * @param other - the configuration space whose footprint to use.
+     * @param fields - the distance fields of each bucket.
+     */
+    private ConfigurationSpace(ConfigurationSpace other, DistanceField[] fields) {
+        bucketsPerRadian = other.bucketsPerRadian;
+        reflectedFootprints = other.reflectedFootprints;
+        margin = other.margin;
+        this.fields = fields;
+    }
+
+    /**
+     * Returns a configuration space that also contains an obstacle.
+     *
+     * @param obstacle - the obstacle to add.
+     * @return A new configuration space whose distances are to the nearer of this configuration
+     * space's obstacles and the added one.
+     */
+    ConfigurationSpace withObstacle(ConvexPolygon obstacle) {
+        return withObstacles(Collections.singletonList(obstacle));
+    }
+
+    /**
+     * Returns a configuration space that also contains several obstacles.
+     *
+     * @param obstacles - the obstacles to add.
+     * @return A new configuration space whose distances are to the nearest of this configuration
+     * space's obstacles and the added ones.
+     * @throws IllegalArgumentException if the configuration space would still be empty.
+     */
+    ConfigurationSpace withObstacles(List<ConvexPolygon> obstacles) {
+        DistanceField[] newFields = new DistanceField[fields.length];
+        List<ConvexPolygon> grown = new ArrayList<>(obstacles.size());
+        for (int bucket = 0; bucket < fields.length; ++bucket) {
+            grown.clear();
+            for (ConvexPolygon obstacle : obstacles) {
+                grown.add(ConvexPolygon.minkowskiSum(obstacle, reflectedFootprints[bucket]));
+            }
+            newFields[bucket] = fields[bucket].withObstacles(grown);
+        }
+        return new ConfigurationSpace(this, newFields);
+    }
+
+    @Override
+    public double getDistanceTo(double x, double y, double heading) {
+        long turns = Math.round(heading * bucketsPerRadian);
+        int bucket = (int)Math.floorMod(turns, (long)fields.length);
+        return fields[bucket].getDistanceTo(x, y) - margin;
+    }
+
+    @Override
+    public double getDistanceTo(Vec2 point) {
+        // Without a heading the robot may be turned any way
+        double min = Double.POSITIVE_INFINITY;
+        for (DistanceField field : fields) {
+            min = Math.min(min, field.getDistanceTo(point.getX(), point.getY()));
+        }
+        return min - margin;
+    }
+
+    @Override
+    public BoundingBox getBounds() {
+        return BoundingBox.UNBOUNDED;
+    }
+}
@@ -0,0 +1,302 @@
+package org.firstinspires.ftc.teamcode.layer.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
+import org.firstinspires.ftc.teamcode.matrix.Vec2;
+
+/**
+ * An immutable convex polygon, used both as an obstacle and as the footprint of the robot.
+ * Polygons are built as the convex hull of a set of points, so a segment or a single point is also
+ * a valid, if degenerate, polygon.
+ */
+final class ConvexPolygon implements Obstacle {
+    /**
+     * The x coordinates of the vertices in counterclockwise order, in meters.
+     */
+    private final double[] xs;
+
+    /**
+     * The y coordinates of the vertices in counterclockwise order, in meters.
+     */
+    private final double[] ys;
+
+    /**
+     * The x components of the edges from each vertex to the next.
+     */
+    private final double[] edgeXs;
+
+    /**
+     * The y components of the edges from each vertex to the next.
+     */
+    private final double[] edgeYs;
+
+    /**
+     * The reciprocal of the squared length of each edge, or zero for edges of no length.
+     */
+    private final double[] inverseLengthSqs;
+
+    /**
+     * The x components of the outward unit normals of the edges.
+     */
+    private final double[] normalXs;
+
+    /**
+     * The y components of the outward unit normals of the edges.
+     */
+    private final double[] normalYs;
+
+    /**
+     * The box the polygon lies within.
+     */
+    private final BoundingBox bounds;
+
+    /**
+     * Constructs a ConvexPolygon from vertices already in counterclockwise order.
+     *
+     * @param xs - the x coordinates of the vertices.
+     * @param ys - the y coordinates of the vertices.
+     */
+    private ConvexPolygon(double[] xs, double[] ys) {
+        this.xs = xs;
+        this.ys = ys;
+        // Edges are precomputed since the distance to every edge is needed at every grid point
+        edgeXs = new double[xs.length];
+        edgeYs = new double[xs.length];
+        inverseLengthSqs = new double[xs.length];
+        normalXs = new double[xs.length];
+        normalYs = new double[xs.length];
+        for (int i = 0; i < xs.length; ++i) {
+            int next = i + 1 == xs.length ? 0 : i + 1;
+            edgeXs[i] = xs[next] - xs[i];
+            edgeYs[i] = ys[next] - ys[i];
+            double lengthSq = edgeXs[i] * edgeXs[i] + edgeYs[i] * edgeYs[i];
+            if (lengthSq > 0) {
+                inverseLengthSqs[i] = 1 / lengthSq;
+                double length = Math.sqrt(lengthSq);
+                // Outward is right of a counterclockwise edge
+                normalXs[i] = edgeYs[i] / length;
+                normalYs[i] = -edgeXs[i] / length;
+            }
+        }
+        double minX = xs[0];
+        double minY = ys[0];
+        double maxX = xs[0];
+        double maxY = ys[0];
+        for (int i = 1; i < xs.length; ++i) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        bounds = new BoundingBox(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Constructs the convex hull of a set of points.
+     *
+     * @param points - the points, in any order.
+     * @return The smallest convex polygon containing every point.
+     * @throws IllegalArgumentException if there are no points.
+     */
+    static ConvexPolygon hullOf(List<Vec2> points) {
+        if (points.isEmpty()) {
+            throw new IllegalArgumentException("Convex hull of no points is empty");
+        }
+        Vec2[] sorted = points.toArray(new Vec2[0]);
+        Arrays.sort(sorted, (a, b) -> a.getX() != b.getX()
+            ? Double.compare(a.getX(), b.getX())
+            : Double.compare(a.getY(), b.getY()));
+        // Monotone chain: the lower hull left to right, then the upper hull right to left
+        Vec2[] hull = new Vec2[2 * sorted.length];
+        int size = 0;
+        for (Vec2 point : sorted) {
+            while (size >= 2 && cross(hull[size - 2], hull[size - 1], point) <= 0) {
+                --size;
+            }
+            hull[size++] = point;
+        }
+        int lowerSize = size + 1;
+        for (int i = sorted.length - 2; i >= 0; --i) {
+            while (size >= lowerSize && cross(hull[size - 2], hull[size - 1], sorted[i]) <= 0) {
+                --size;
+            }
+            hull[size++] = sorted[i];
+        }
+        // The last point repeats the first, unless every point was the same
+        int count = Math.max(size - 1, 1);
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        for (int i = 0; i < count; ++i) {
+            xs[i] = hull[i].getX();
+            ys[i] = hull[i].getY();
+        }
+        return new ConvexPolygon(xs, ys);
+    }
+
+    /**
+     * Constructs a rectangle.
+     *
+     * @param pose - the pose of the center of the rectangle, given in units of meters.
+     * @param size - the width and height of the rectangle expressed as a 2D vector.
+     * @return The rectangle.
+     */
+    static ConvexPolygon ofRectangle(Pose2d pose, Vec2 size) {
+        double halfWidth = size.getX() / 2;
+        double halfHeight = size.getY() / 2;
+        List<Vec2> corners = new ArrayList<>(4);
+        corners.add(pose.transform(new Vec2(-halfWidth, -halfHeight)));
+        corners.add(pose.transform(new Vec2(halfWidth, -halfHeight)));
+        corners.add(pose.transform(new Vec2(halfWidth, halfHeight)));
+        corners.add(pose.transform(new Vec2(-halfWidth, halfHeight)));
+        return hullOf(corners);
+    }
+
+    /**
+     * Computes the Minkowski sum of two polygons, the set of sums of a point of each.
+     * Growing an obstacle by the reflection of the robot's footprint gives the robot positions at
+     * which the footprint overlaps the obstacle.
+     *
+     * @param a - one polygon.
+     * @param b - the other polygon.
+     * @return The polygon containing every sum of a point of a and a point of b.
+     */
+    static ConvexPolygon minkowskiSum(ConvexPolygon a, ConvexPolygon b) {
+        List<Vec2> sums = new ArrayList<>(a.xs.length * b.xs.length);
+        for (int i = 0; i < a.xs.length; ++i) {
+            for (int j = 0; j < b.xs.length; ++j) {
+                sums.add(new Vec2(a.xs[i] + b.xs[j], a.ys[i] + b.ys[j]));
+            }
+        }
+        return hullOf(sums);
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return The number of vertices of the polygon.
+     */
+    int getVertexCount() {
+        return xs.length;
+    }
+
+    /**
+     * Returns a vertex.
+     *
+     * @param index - the index of the vertex in counterclockwise order.
+     * @return The vertex in meters.
+     */
+    Vec2 getVertex(int index) {
+        return new Vec2(xs[index], ys[index]);
+    }
+
+    /**
+     * Computes the greatest distance of any vertex from the origin.
+     *
+     * @return The radius in meters of the smallest circle about the origin containing the polygon.
+     */
+    double getRadius() {
+        double max = 0;
+        for (int i = 0; i < xs.length; ++i) {
+            max = Math.max(max, Math.sqrt(xs[i] * xs[i] + ys[i] * ys[i]));
+        }
+        return max;
+    }
+
+    /**
+     * Transforms the polygon into another space.
+     *
+     * @param pose - the pose to transform by.
+     * @return The polygon with every vertex transformed by the pose.
+     */
+    ConvexPolygon transform(Pose2d pose) {
+        double[] newXs = new double[xs.length];
+        double[] newYs = new double[xs.length];
+        for (int i = 0; i < xs.length; ++i) {
+            newXs[i] = pose.getX() + pose.getCos() * xs[i] - pose.getSin() * ys[i];
+            newYs[i] = pose.getY() + pose.getSin() * xs[i] + pose.getCos() * ys[i];
+        }
+        return new ConvexPolygon(newXs, newYs);
+    }
+
+    /**
+     * Reflects the polygon through the origin.
+     *
+     * @return The polygon of the negations of this polygon's points.
+     */
+    ConvexPolygon negate() {
+        double[] newXs = new double[xs.length];
+        double[] newYs = new double[xs.length];
+        for (int i = 0; i < xs.length; ++i) {
+            newXs[i] = -xs[i];
+            newYs[i] = -ys[i];
+        }
+        // Reflecting through a point is a half turn, which keeps the vertices counterclockwise
+        return new ConvexPolygon(newXs, newYs);
+    }
+
+    @Override
+    public double getDistanceTo(Vec2 point) {
+        double px = point.getX();
+        double py = point.getY();
+        if (xs.length < 3) {
+            // Polygons with fewer than three vertices have no inside
+            double minSq = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < xs.length; ++i) {
+                minSq = Math.min(minSq, getEdgeDistanceSq(i, px, py));
+            }
+            return Math.sqrt(minSq);
+        }
+        // Inside, the nearest edge is the one whose line is nearest. Outside, the nearest point of
+        // the outline is on an edge the point is beyond the line of, so only those are measured.
+        double maxLineDistance = Double.NEGATIVE_INFINITY;
+        double minSq = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < xs.length; ++i) {
+            double lineDistance = (px - xs[i]) * normalXs[i] + (py - ys[i]) * normalYs[i];
+            maxLineDistance = Math.max(maxLineDistance, lineDistance);
+            if (lineDistance > 0) {
+                minSq = Math.min(minSq, getEdgeDistanceSq(i, px, py));
+            }
+        }
+        return maxLineDistance <= 0 ? maxLineDistance : Math.sqrt(minSq);
+    }
+
+    @Override
+    public BoundingBox getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Computes the squared distance from a point to an edge.
+     *
+     * @param edge - the index of the vertex the edge starts at.
+     * @param px - the x coordinate of the point in meters.
+     * @param py - the y coordinate of the point in meters.
+     * @return The squared distance in square meters to the nearest point of the edge.
+     */
+    private double getEdgeDistanceSq(int edge, double px, double py) {
+        double toX = px - xs[edge];
+        double toY = py - ys[edge];
+        double t = (toX * edgeXs[edge] + toY * edgeYs[edge]) * inverseLengthSqs[edge];
+        t = Math.max(0, Math.min(1, t));
+        double dx = toX - edgeXs[edge] * t;
+        double dy = toY - edgeYs[edge] * t;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Computes the cross product of the vectors from one point to two others.
+     *
+     * @param origin - the point both vectors start at.
+     * @param a - the end of the first vector.
+     * @param b - the end of the second vector.
+     * @return Positive if turning from a to b about the origin is counterclockwise, negative if
+     * clockwise, and zero if the points are collinear.
+     */
+    private static double cross(Vec2 origin, Vec2 a, Vec2 b) {
+        return (a.getX() - origin.getX()) * (b.getY() - origin.getY())
+            - (a.getY() - origin.getY()) * (b.getX() - origin.getX());
+    }
+}
@@ -0,0 +1,229 @@
+package org.firstinspires.ftc.teamcode.layer.pathfinding;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.firstinspires.ftc.teamcode.matrix.Vec2;
+
+/**
+ * A signed distance field sampled on a regular grid, standing in for the union of the obstacles
+ * rasterized into it.
+ * Distances between grid points are bilinearly interpolated, so a query costs the same however many
+ * obstacles the field holds. Interpolation is exact along straight edges but can overestimate
+ * distances near corners, by at most {@link #getInterpolationMargin}. Beyond the grid, a point is
+ * assumed to be closer to the obstacles than the nearest grid point by its distance from the grid,
+ * which adds no further overestimate.
+ *
+ * <p>Fields are immutable, so one can be shared with a planning thread. Adding an obstacle makes a
+ * new field from a copy of the grid, sampling only the new obstacle.
+ */
+final class DistanceField implements Obstacle {
+    /**
+     * The field x coordinate of the first column of grid points in meters.
+     */
+    private final double minX;
+
+    /**
+     * The field y coordinate of the first row of grid points in meters.
+     */
+    private final double minY;
+
+    /**
+     * The distance between neighboring grid points in meters.
+     */
+    private final double spacing;
+
+    /**
+     * The number of grid points along the x axis.
+     */
+    private final int columns;
+
+    /**
+     * The number of grid points along the y axis.
+     */
+    private final int rows;
+
+    /**
+     * The signed distance in meters at every grid point, row by row.
+     */
+    private final double[] distances;
+
+    /**
+     * Whether no obstacle has been added, in which case every distance is positive infinity.
+     */
+    private final boolean empty;
+
+    /**
+     * Constructs a DistanceField without any obstacles.
+     *
+     * @param min - the field point of the grid's corner with the least coordinates, in meters.
+     * @param max - the field point of the opposite corner, in meters. The grid is extended to the
+     * next whole number of spacings past it.
+     * @param spacing - the distance between neighboring grid points in meters.
+     * @throws IllegalArgumentException if the spacing is not positive or max is not greater than
+     * min along both axes.
+     */
+    DistanceField(Vec2 min, Vec2 max, double spacing) {
+        if (!(spacing > 0)) {
+            throw new IllegalArgumentException(String.format(
+                "Grid spacing %f m is not positive",
+                spacing
+            ));
+        }
+        if (!(max.getX() > min.getX() && max.getY() > min.getY())) {
+            throw new IllegalArgumentException(String.format(
+                "Grid corner (%f, %f) is not above and right of corner (%f, %f)",
+                max.getX(),
+                max.getY(),
+                min.getX(),
+                min.getY()
+            ));
+        }
+        minX = min.getX();
+        minY = min.getY();
+        this.spacing = spacing;
+        columns = (int)Math.ceil((max.getX() - minX) / spacing - 1e-9) + 1;
+        rows = (int)Math.ceil((max.getY() - minY) / spacing - 1e-9) + 1;
+        distances = new double[columns * rows];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        empty = true;
+    }
+
+    /**
+     * Constructs a DistanceField with the same grid as another and the given distances.
+     *
+     * @param other - the field whose grid to use.
+     * @param distances - the signed distances at the grid points, none of them infinite.
+     */
+    private DistanceField(DistanceField other, double[] distances) {
+        minX = other.minX;
+        minY = other.minY;
+        spacing = other.spacing;
+        columns = other.columns;
+        rows = other.rows;
+        this.distances = distances;
+        empty = false;
+    }
+
+    /**
+     * Returns a field that also contains an obstacle.
+     *
+     * @param obstacle - the obstacle to add.
+     * @return A new field over the same grid whose distances are to the nearer of this field's
+     * obstacles and the added one.
+     */
+    DistanceField withObstacle(Obstacle obstacle) {
+        return withObstacles(Collections.singletonList(obstacle));
+    }
+
+    /**
+     * Returns a field that also contains several obstacles.
+     * The grid is copied once no matter how many obstacles are added. Grid points outside a new
+     * obstacle's bounding box and already nearer to another obstacle than to the box are skipped
+     * without computing the distance to it.
+     *
+     * @param obstacles - the obstacles to add.
+     * @return A new field over the same grid whose distances are to the nearest of this field's
+     * obstacles and the added ones.
+     * @throws IllegalArgumentException if the field would still be empty, or an obstacle's distance
+     * is NaN or infinite at a grid point.
+     */
+    DistanceField withObstacles(Iterable<? extends Obstacle> obstacles) {
+        double[] newDistances = distances.clone();
+        for (Obstacle obstacle : obstacles) {
+            BoundingBox bounds = obstacle.getBounds();
+            for (int row = 0; row < rows; ++row) {
+                double y = minY + row * spacing;
+                for (int col = 0; col < columns; ++col) {
+                    int index = row * columns + col;
+                    double x = minX + col * spacing;
+                    double boxDistance = bounds.getDistanceTo(x, y);
+                    // Outside its box the obstacle is no nearer than the box, but inside the box
+                    // the point may be inside the obstacle, at a negative distance
+                    if (boxDistance > 0 && boxDistance >= newDistances[index]) {
+                        continue;
+                    }
+                    double distance = obstacle.getDistanceTo(new Vec2(x, y));
+                    if (Double.isNaN(distance) || Double.isInfinite(distance)) {
+                        throw new IllegalArgumentException(String.format(
+                            "Obstacle distance %f at grid point (%d, %d) is not finite",
+                            distance,
+                            col,
+                            row
+                        ));
+                    }
+                    // The union of obstacles is as far as the nearest of them
+                    if (distance < newDistances[index]) {
+                        newDistances[index] = distance;
+                    }
+                }
+            }
+        }
+        if (newDistances[0] == Double.POSITIVE_INFINITY) {
+            throw new IllegalArgumentException("No obstacles were added to the empty field");
+        }
+        return new DistanceField(this, newDistances);
+    }
+
+    @Override
+    public double getDistanceTo(Vec2 point) {
+        return getDistanceTo(point.getX(), point.getY());
+    }
+
+    @Override
+    public double getDistanceTo(double x, double y, double heading) {
+        return getDistanceTo(x, y);
+    }
+
+    @Override
+    public BoundingBox getBounds() {
+        // Obstacles beyond the grid, such as the field walls, extend indefinitely
+        return BoundingBox.UNBOUNDED;
+    }
+
+    /**
+     * Returns the most that an interpolated distance can exceed the true distance.
+     * Signed distances change no faster than the point moves, so each grid point of the cell around
+     * a point is at most as much farther from the obstacles as it is from the point. The weighted
+     * mean of those excesses is largest at the center of the cell, where it is half the diagonal.
+     *
+     * @return The bound in meters.
+     */
+    double getInterpolationMargin() {
+        return spacing * Math.sqrt(0.5);
+    }
+
+    /**
+     * Returns the interpolated signed distance to the field's obstacles.
+     *
+     * @param x - the field x coordinate of the point in meters.
+     * @param y - the field y coordinate of the point in meters.
+     * @return The signed distance in meters, or positive infinity if the field has no obstacles.
+     */
+    double getDistanceTo(double x, double y) {
+        if (empty) {
+            // Interpolating infinities would give NaN
+            return Double.POSITIVE_INFINITY;
+        }
+        double gridX = (x - minX) / spacing;
+        double gridY = (y - minY) / spacing;
+        double clampedX = Math.max(0, Math.min(columns - 1, gridX));
+        double clampedY = Math.max(0, Math.min(rows - 1, gridY));
+        int col = Math.min((int)clampedX, columns - 2);
+        int row = Math.min((int)clampedY, rows - 2);
+        double fracX = clampedX - col;
+        double fracY = clampedY - row;
+        int index = row * columns + col;
+        double bottom = distances[index] + (distances[index + 1] - distances[index]) * fracX;
+        double top = distances[index + columns]
+            + (distances[index + columns + 1] - distances[index + columns]) * fracX;
+        double distance = bottom + (top - bottom) * fracY;
+        if (clampedX != gridX || clampedY != gridY) {
+            // Signed distances change no faster than the point moves
+            double outsideX = (gridX - clampedX) * spacing;
+            double outsideY = (gridY - clampedY) * spacing;
+            distance -= Math.sqrt(outsideX * outsideX + outsideY * outsideY);
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,59 @@
+package org.firstinspires.ftc.teamcode.layer.pathfinding;
+
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
+import org.firstinspires.ftc.teamcode.matrix.Vec2;
+
+/**
+ * Represents an obstacle detected by a distance sensor.
+ * These obstacles are represented by line segments that are oriented to face the robot and have
+ * length dependent on the distance from the robot, both at the time of detection.
+ */
+final class DynamicObstacle implements Obstacle {
+    /**
+     * The pose of the center of the segment, given in units of meters.
+     */
+    private Pose2d pose;
+
+    /**
+     * The length of the segment in meters.
+     */
+    private double size;
+
+    /**
+     * The box the segment lies within.
+     */
+    private final BoundingBox bounds;
+
+    /**
+     * Constructs a DynamicObstacle.
+     *
+     * @param pose - the pose of the center of the segment, given in units of meters.
+     * @param size - the length of the segment in meters.
+     */
+    DynamicObstacle(Pose2d pose, double size) {
+        this.pose = pose;
+        this.size = size;
+        bounds = BoundingBox.of(
+            pose.transform(new Vec2(0, size / 2)),
+            pose.transform(new Vec2(0, -size / 2))
+        );
+    }
+
+    @Override
+    public double getDistanceTo(Vec2 point) {
+        Vec2 local = pose.inverseTransform(point);
+        double axialProj = Math.abs(local.getX());
+        double lateralProj = Math.abs(local.getY());
+        if (lateralProj < size / 2) {
+            return axialProj;
+        }
+        Vec2 ep1 = pose.transform(new Vec2(0, size / 2));
+        Vec2 ep2 = pose.transform(new Vec2(0, -size / 2));
+        return Math.min(ep1.add(point.mul(-1)).len(), ep2.add(point.mul(-1)).len());
+    }
+
+    @Override
+    public BoundingBox getBounds() {
+        return bounds;
+    }
+}
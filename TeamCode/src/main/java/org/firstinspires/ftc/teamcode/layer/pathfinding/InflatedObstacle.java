@@ -0,0 +1,66 @@
+package org.firstinspires.ftc.teamcode.layer.pathfinding;
+
+import org.firstinspires.ftc.teamcode.matrix.Vec2;
+
+/**
+ * An obstacle grown by a fixed radius.
+ * The distance from a circular robot to an obstacle is the distance from the robot's center less
+ * its radius, so growing by the radius accounts for a circular footprint exactly at any heading.
+ * Growing by the radius of the circle around any other footprint accounts for it conservatively.
+ */
+final class InflatedObstacle implements Obstacle {
+    /**
+     * The obstacle being grown.
+     */
+    private final Obstacle obstacle;
+
+    /**
+     * The distance in meters to grow the obstacle by.
+     */
+    private final double radius;
+
+    /**
+     * The box the grown obstacle lies within.
+     */
+    private final BoundingBox bounds;
+
+    /**
+     * Constructs an InflatedObstacle.
+     *
+     * @param obstacle - the obstacle to grow.
+     * @param radius - the distance in meters to grow the obstacle by.
+     * @throws IllegalArgumentException if the radius is negative or NaN.
+     */
+    InflatedObstacle(Obstacle obstacle, double radius) {
+        if (!(radius >= 0)) {
+            throw new IllegalArgumentException(String.format(
+                "Inflation radius %f m is negative",
+                radius
+            ));
+        }
+        this.obstacle = obstacle;
+        this.radius = radius;
+        BoundingBox inner = obstacle.getBounds();
+        bounds = new BoundingBox(
+            inner.getMinX() - radius,
+            inner.getMinY() - radius,
+            inner.getMaxX() + radius,
+            inner.getMaxY() + radius
+        );
+    }
+
+    @Override
+    public double getDistanceTo(Vec2 point) {
+        return obstacle.getDistanceTo(point) - radius;
+    }
+
+    @Override
+    public double getDistanceTo(double x, double y, double heading) {
+        return obstacle.getDistanceTo(x, y, heading) - radius;
+    }
+
+    @Override
+    public BoundingBox getBounds() {
+        return bounds;
+    }
+}
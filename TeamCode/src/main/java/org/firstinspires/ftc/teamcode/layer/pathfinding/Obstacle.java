@@ -0,0 +1,42 @@
+package org.firstinspires.ftc.teamcode.layer.pathfinding;
+
+import org.firstinspires.ftc.teamcode.matrix.Vec2;
+
+/**
+ * Represents an impassable obstacle on the field.
+ */
+interface Obstacle {
+    /**
+     * Returns the signed distance in to the given field space.
+     *
+     * @param point - the field point to calculate the distance to, given in units of meters.
+     * @return The signed distance to the closest surface of the obstacle in meters.
+     */
+    double getDistanceTo(Vec2 point);
+
+    /**
+     * Returns the signed distance from the robot's footprint at the given pose.
+     * Obstacles that do not account for the footprint treat the robot as a point at the pose's
+     * translation. The pose is given by its components so that the planner can query poses it
+     * has computed without building objects for them.
+     *
+     * @param x - the field x coordinate of the robot in meters.
+     * @param y - the field y coordinate of the robot in meters.
+     * @param heading - the heading of the robot in radians.
+     * @return The signed distance in meters between the obstacle and the robot at the pose.
+     */
+    default double getDistanceTo(double x, double y, double heading) {
+        return getDistanceTo(new Vec2(x, y));
+    }
+
+    /**
+     * Returns a box the obstacle lies entirely within.
+     * Lets obstacles far from a point be skipped without computing their exact distance, since the
+     * distance to an obstacle from a point outside of its box is never less than the distance to
+     * the box.
+     *
+     * @return The field space bounding box of the obstacle, or {@link BoundingBox#UNBOUNDED} if it
+     * has no finite bounds.
+     */
+    BoundingBox getBounds();
+}
@@ -0,0 +1,453 @@
+package org.firstinspires.ftc.teamcode.layer.pathfinding;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.firstinspires.ftc.teamcode.matrix.Vec2;
+
+/**
+ * A uniform grid of cells over the field, each listing the obstacles whose bounding boxes overlap
+ * it, standing in for the union of its obstacles.
+ * Distance queries visit cells in rings outward from the point and stop once no unvisited cell can
+ * hold a nearer obstacle. Within each cell, obstacles whose boxes are outside of the point and no
+ * nearer than the best distance found so far are skipped without computing their exact distance. Obstacles reaching
+ * beyond the grid are listed in the cells at its edge, and unbounded obstacles are always checked.
+ * Indexes of only a few obstacles are searched by checking every obstacle's box instead.
+ *
+ * <p>Indexes are immutable, so one can be shared with a planning thread. Adding, removing, or
+ * moving an obstacle makes a new index that shares every cell the obstacle does not overlap.
+ */
+final class ObstacleIndex implements Obstacle {
+    /**
+     * An empty list of obstacles, shared by every empty cell.
+     */
+    private static final Obstacle[] NONE = new Obstacle[0];
+
+    /**
+     * The most obstacles for which distance queries check every obstacle's box instead of walking
+     * the grid. Below about this many, the empty cells a search walks through cost more than the
+     * boxes it skips.
+     */
+    private static final int LINEAR_SEARCH_LIMIT = 16;
+
+    /**
+     * The field x coordinate of the left edge of the grid in meters.
+     */
+    private final double minX;
+
+    /**
+     * The field y coordinate of the bottom edge of the grid in meters.
+     */
+    private final double minY;
+
+    /**
+     * The width and height of each cell in meters.
+     */
+    private final double cellSize;
+
+    /**
+     * The number of cells along the x axis.
+     */
+    private final int columns;
+
+    /**
+     * The number of cells along the y axis.
+     */
+    private final int rows;
+
+    /**
+     * The bounded obstacles overlapping each cell, row by row.
+     */
+    private final Obstacle[][] cells;
+
+    /**
+     * The obstacles without finite bounding boxes.
+     */
+    private final Obstacle[] unbounded;
+
+    /**
+     * Every obstacle in the index, in the order added.
+     */
+    private final Obstacle[] obstacles;
+
+    /**
+     * The union of the bounding boxes of every obstacle.
+     */
+    private final BoundingBox bounds;
+
+    /**
+     * Constructs an empty ObstacleIndex.
+     *
+     * @param min - the field point of the grid's corner with the least coordinates, in meters.
+     * @param max - the field point of the opposite corner, in meters. The grid is extended to the
+     * next whole number of cells past it.
+     * @param cellSize - the width and height of each cell in meters.
+     * @throws IllegalArgumentException if the cell size is not positive or max is not greater than
+     * min along both axes.
+     */
+    ObstacleIndex(Vec2 min, Vec2 max, double cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException(String.format(
+                "Cell size %f m is not positive",
+                cellSize
+            ));
+        }
+        if (!(max.getX() > min.getX() && max.getY() > min.getY())) {
+            throw new IllegalArgumentException(String.format(
+                "Grid corner (%f, %f) is not above and right of corner (%f, %f)",
+                max.getX(),
+                max.getY(),
+                min.getX(),
+                min.getY()
+            ));
+        }
+        minX = min.getX();
+        minY = min.getY();
+        this.cellSize = cellSize;
+        columns = (int)Math.ceil((max.getX() - minX) / cellSize - 1e-9);
+        rows = (int)Math.ceil((max.getY() - minY) / cellSize - 1e-9);
+        cells = new Obstacle[columns * rows][];
+        Arrays.fill(cells, NONE);
+        unbounded = NONE;
+        obstacles = NONE;
+        bounds = BoundingBox.UNBOUNDED;
+    }
+
+    /**
+     * Constructs an ObstacleIndex with the same grid as another and the given contents.
+     *
+     * @param other - the index whose grid to use.
+     * @param cells - the bounded obstacles overlapping each cell.
+     * @param unbounded - the obstacles without finite bounding boxes.
+     * @param obstacles - every obstacle in the index.
+     */
+    private ObstacleIndex(
+        ObstacleIndex other,
+        Obstacle[][] cells,
+        Obstacle[] unbounded,
+        Obstacle[] obstacles
+    ) {
+        minX = other.minX;
+        minY = other.minY;
+        cellSize = other.cellSize;
+        columns = other.columns;
+        rows = other.rows;
+        this.cells = cells;
+        this.unbounded = unbounded;
+        this.obstacles = obstacles;
+        if (obstacles.length == 0) {
+            bounds = BoundingBox.UNBOUNDED;
+        } else {
+            BoundingBox union = obstacles[0].getBounds();
+            for (int i = 1; i < obstacles.length; ++i) {
+                union = union.union(obstacles[i].getBounds());
+            }
+            bounds = union;
+        }
+    }
+
+    /**
+     * Returns the number of obstacles in the index.
+     *
+     * @return The number of obstacles.
+     */
+    int size() {
+        return obstacles.length;
+    }
+
+    /**
+     * Returns an index that also contains an obstacle.
+     *
+     * @param obstacle - the obstacle to add.
+     * @return A new index with the obstacle added to the cells its bounding box overlaps.
+     */
+    ObstacleIndex withObstacle(Obstacle obstacle) {
+        Obstacle[] newObstacles = append(obstacles, obstacle);
+        BoundingBox box = obstacle.getBounds();
+        if (!box.isBounded()) {
+            return new ObstacleIndex(this, cells, append(unbounded, obstacle), newObstacles);
+        }
+        Obstacle[][] newCells = cells.clone();
+        for (int row = getRow(box.getMinY()); row <= getRow(box.getMaxY()); ++row) {
+            for (int col = getColumn(box.getMinX()); col <= getColumn(box.getMaxX()); ++col) {
+                int index = row * columns + col;
+                newCells[index] = append(cells[index], obstacle);
+            }
+        }
+        return new ObstacleIndex(this, newCells, unbounded, newObstacles);
+    }
+
+    /**
+     * Returns an index without an obstacle.
+     *
+     * @param obstacle - the obstacle to remove, compared by identity.
+     * @return A new index with the obstacle removed from the cells its bounding box overlaps.
+     * @throws IllegalArgumentException if the obstacle is not in the index.
+     */
+    ObstacleIndex withoutObstacle(Obstacle obstacle) {
+        if (indexOf(obstacles, obstacle) == -1) {
+            throw new IllegalArgumentException("Obstacle is not in the index");
+        }
+        Obstacle[] newObstacles = remove(obstacles, obstacle);
+        BoundingBox box = obstacle.getBounds();
+        if (!box.isBounded()) {
+            return new ObstacleIndex(this, cells, remove(unbounded, obstacle), newObstacles);
+        }
+        Obstacle[][] newCells = cells.clone();
+        for (int row = getRow(box.getMinY()); row <= getRow(box.getMaxY()); ++row) {
+            for (int col = getColumn(box.getMinX()); col <= getColumn(box.getMaxX()); ++col) {
+                int index = row * columns + col;
+                newCells[index] = remove(cells[index], obstacle);
+            }
+        }
+        return new ObstacleIndex(this, newCells, unbounded, newObstacles);
+    }
+
+    /**
+     * Returns an index in which one obstacle has been replaced by another, such as a detection of
+     * the same robot at its new position.
+     * Only the cells overlapped by either obstacle's bounding box are rebuilt.
+     *
+     * @param from - the obstacle to remove, compared by identity.
+     * @param to - the obstacle to add in its place.
+     * @return A new index with the replacement made.
+     * @throws IllegalArgumentException if the obstacle to remove is not in the index.
+     */
+    ObstacleIndex withMovedObstacle(Obstacle from, Obstacle to) {
+        return withoutObstacle(from).withObstacle(to);
+    }
+
+    @Override
+    public double getDistanceTo(Vec2 point) {
+        return findNearest(point, null);
+    }
+
+    /**
+     * Finds the obstacle nearest to a point.
+     *
+     * @param point - the field point in meters.
+     * @return The obstacle with the least signed distance to the point, or null if the index is
+     * empty. Ties go to the obstacle found first.
+     */
+    Obstacle getNearestObstacle(Vec2 point) {
+        Obstacle[] nearest = new Obstacle[1];
+        findNearest(point, nearest);
+        return nearest[0];
+    }
+
+    /**
+     * Finds the obstacles within a distance of a point.
+     *
+     * @param point - the field point in meters.
+     * @param radius - the greatest signed distance in meters an obstacle may be from the point.
+     * @param out - the list the obstacles found are appended to, each only once.
+     */
+    void getObstaclesWithin(Vec2 point, double radius, List<Obstacle> out) {
+        for (Obstacle obstacle : unbounded) {
+            if (obstacle.getDistanceTo(point) <= radius) {
+                out.add(obstacle);
+            }
+        }
+        double x = point.getX();
+        double y = point.getY();
+        // A negative radius only finds obstacles the point is inside of, which overlap its cell and
+        // are at no distance from their boxes
+        double reach = Math.max(radius, 0);
+        int firstCol = getColumn(x - reach);
+        int firstRow = getRow(y - reach);
+        for (int row = firstRow; row <= getRow(y + reach); ++row) {
+            for (int col = firstCol; col <= getColumn(x + reach); ++col) {
+                for (Obstacle obstacle : cells[row * columns + col]) {
+                    BoundingBox box = obstacle.getBounds();
+                    // An obstacle overlapping several searched cells is only checked in the first
+                    if (col != Math.max(getColumn(box.getMinX()), firstCol)
+                        || row != Math.max(getRow(box.getMinY()), firstRow)
+                        || box.getDistanceTo(x, y) > reach) {
+                        continue;
+                    }
+                    if (obstacle.getDistanceTo(point) <= radius) {
+                        out.add(obstacle);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public BoundingBox getBounds() {
+        // Unbounded when empty, which still never exceeds the infinite distance to no obstacles
+        return bounds;
+    }
+
+    /**
+     * Searches outward from a point for the nearest obstacle.
+     *
+     * @param point - the field point in meters.
+     * @param nearest - a one element array to store the nearest obstacle in, or null if only the
+     * distance is needed.
+     * @return The least signed distance in meters to any obstacle, or positive infinity if the
+     * index is empty.
+     */
+    private double findNearest(Vec2 point, Obstacle[] nearest) {
+        double x = point.getX();
+        double y = point.getY();
+        double best = Double.POSITIVE_INFINITY;
+        for (Obstacle obstacle : unbounded) {
+            best = offer(obstacle, point, best, nearest);
+        }
+        double gridX = (x - minX) / cellSize;
+        double gridY = (y - minY) / cellSize;
+        // Rings only bound the distance to unvisited cells from inside the grid
+        if (obstacles.length <= LINEAR_SEARCH_LIMIT
+            || !(gridX >= 0 && gridX < columns && gridY >= 0 && gridY < rows)) {
+            for (Obstacle obstacle : obstacles) {
+                best = offer(obstacle, point, best, nearest);
+            }
+            return best;
+        }
+        int col = (int)gridX;
+        int row = (int)gridY;
+        int maxRing = Math.max(
+            Math.max(col, columns - 1 - col),
+            Math.max(row, rows - 1 - row)
+        );
+        for (int ring = 0; ring <= maxRing; ++ring) {
+            if (ring > 0 && best <= getRingClearance(gridX, gridY, col, row, ring)) {
+                break;
+            }
+            int bottom = row - ring;
+            int top = row + ring;
+            for (int r = Math.max(bottom, 0); r <= Math.min(top, rows - 1); ++r) {
+                // Only the first and last rows of the ring span it; the rest touch its sides
+                int step = r == bottom || r == top ? 1 : 2 * ring;
+                for (int c = col - ring; c <= col + ring; c += step) {
+                    if (c < 0 || c >= columns) {
+                        continue;
+                    }
+                    for (Obstacle obstacle : cells[r * columns + c]) {
+                        best = offer(obstacle, point, best, nearest);
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Computes how far a point inside the grid is from every cell at least some number of rings
+     * out from its own.
+     *
+     * @param gridX - the x coordinate of the point in cells from the left edge of the grid.
+     * @param gridY - the y coordinate of the point in cells from the bottom edge of the grid.
+     * @param col - the column of the cell containing the point.
+     * @param row - the row of the cell containing the point.
+     * @param ring - the ring, at least 1.
+     * @return A lower bound in meters on the distance from the point to any obstacle only listed in
+     * cells of that ring or beyond.
+     */
+    private double getRingClearance(double gridX, double gridY, int col, int row, int ring) {
+        // Sides of the visited block at the edge of the grid have nothing beyond them, since
+        // obstacles beyond the grid are listed in the cells at its edge
+        double left = col - ring + 1 <= 0 ? Double.POSITIVE_INFINITY : gridX - (col - ring + 1);
+        double right = col + ring >= columns ? Double.POSITIVE_INFINITY : col + ring - gridX;
+        double below = row - ring + 1 <= 0 ? Double.POSITIVE_INFINITY : gridY - (row - ring + 1);
+        double above = row + ring >= rows ? Double.POSITIVE_INFINITY : row + ring - gridY;
+        return Math.min(Math.min(left, right), Math.min(below, above)) * cellSize;
+    }
+
+    /**
+     * Computes the distance to an obstacle unless its bounding box rules out beating the best
+     * distance.
+     *
+     * @param obstacle - the obstacle.
+     * @param point - the field point in meters.
+     * @param best - the least distance found so far in meters.
+     * @param nearest - a one element array holding the nearest obstacle so far, or null.
+     * @return The lesser of the best distance and the distance to the obstacle.
+     */
+    private static double offer(Obstacle obstacle, Vec2 point, double best, Obstacle[] nearest) {
+        double boxDistance = obstacle.getBounds().getDistanceTo(point.getX(), point.getY());
+        // Inside the box the point may be inside the obstacle, at a negative distance
+        if (boxDistance > 0 && boxDistance >= best) {
+            return best;
+        }
+        double distance = obstacle.getDistanceTo(point);
+        if (distance < best) {
+            if (nearest != null) {
+                nearest[0] = obstacle;
+            }
+            return distance;
+        }
+        return best;
+    }
+
+    /**
+     * Returns the column of the grid containing an x coordinate.
+     *
+     * @param x - the field x coordinate in meters.
+     * @return The column, clamped to the grid.
+     */
+    private int getColumn(double x) {
+        return (int)Math.max(0, Math.min(columns - 1, Math.floor((x - minX) / cellSize)));
+    }
+
+    /**
+     * Returns the row of the grid containing a y coordinate.
+     *
+     * @param y - the field y coordinate in meters.
+     * @return The row, clamped to the grid.
+     */
+    private int getRow(double y) {
+        return (int)Math.max(0, Math.min(rows - 1, Math.floor((y - minY) / cellSize)));
+    }
+
+    /**
+     * Copies a list of obstacles with another obstacle added to the end.
+     *
+     * @param list - the list to copy.
+     * @param obstacle - the obstacle to add.
+     * @return The new list.
+     */
+    private static Obstacle[] append(Obstacle[] list, Obstacle obstacle) {
+        Obstacle[] result = Arrays.copyOf(list, list.length + 1);
+        result[list.length] = obstacle;
+        return result;
+    }
+
+    /**
+     * Copies a list of obstacles without an obstacle.
+     *
+     * @param list - the list to copy.
+     * @param obstacle - the obstacle to remove, compared by identity.
+     * @return The new list, or the same list if the obstacle is not in it.
+     */
+    private static Obstacle[] remove(Obstacle[] list, Obstacle obstacle) {
+        int index = indexOf(list, obstacle);
+        if (index == -1) {
+            return list;
+        }
+        if (list.length == 1) {
+            return NONE;
+        }
+        Obstacle[] result = new Obstacle[list.length - 1];
+        System.arraycopy(list, 0, result, 0, index);
+        System.arraycopy(list, index + 1, result, index, list.length - index - 1);
+        return result;
+    }
+
+    /**
+     * Finds an obstacle in a list.
+     *
+     * @param list - the list to search.
+     * @param obstacle - the obstacle to find, compared by identity.
+     * @return The index of the obstacle, or -1 if it is not in the list.
+     */
+    private static int indexOf(Obstacle[] list, Obstacle obstacle) {
+        for (int i = 0; i < list.length; ++i) {
+            if (list[i] == obstacle) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -5,12 +5,13 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
+import org.firstinspires.ftc.teamcode.Clock;
 import org.firstinspires.ftc.teamcode.Units;
 import org.firstinspires.ftc.teamcode.layer.Layer;
 import org.firstinspires.ftc.teamcode.layer.LayerSetupInfo;
 import org.firstinspires.ftc.teamcode.localization.RobotLocalizer;
-import org.firstinspires.ftc.teamcode.matrix.Mat2;
-import org.firstinspires.ftc.teamcode.matrix.Mat3;
+import org.firstinspires.ftc.teamcode.matrix.FastTrig;
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
 import org.firstinspires.ftc.teamcode.matrix.Vec2;
 import org.firstinspires.ftc.teamcode.task.HolonomicDriveTask;
 import org.firstinspires.ftc.teamcode.task.MoveToFieldTask;
@@ -18,89 +19,160 @@ import org.firstinspires.ftc.teamcode.task.Task;
 
 /**
  * Computes holonomic drive powers to pathfind around obstacles to a goal transform.
+ * By default trajectories are planned synchronously inside {@link #update}, which stalls the
+ * control loop while the search runs. In asynchronous mode planning instead happens on a
+ * background {@link PlanningWorker} and update always emits a drive task from the latest
+ * completed plan without waiting. Either way each plan may be given a time budget, after which
+ * the best trajectory found so far is used; such plans start searching from the previous
+ * trajectory, which usually remains close to the best one. If background planning throws, the
+ * next update rethrows the failure rather than following the last plan indefinitely. Planning
+ * threads are started at setup and stopped when the controller tears down, which includes the
+ * opmode being stopped early.
+ *
+ * <p>Static obstacles, starting with the field walls, are grown by the robot's footprint and
+ * rasterized into a {@link ConfigurationSpace} so that the planner's clearance checks cost the same
+ * however many of them there are, and account for the whole robot at its planned heading. Field
+ * coordinates are taken to have their origin at the center of the field. Other obstacles, such
+ * as detected robots, are kept in an {@link ObstacleIndex} so that clearance checks only compute
+ * the distance to those near the robot. Since they move, they are grown by the radius of the
+ * circle around the footprint instead, which is never less than the footprint needs. Field
+ * elements are registered with {@link #addStaticObstacle} once the layer is set up; only the
+ * field walls are known to it otherwise. Detected obstacles are registered with
+ * {@link #addDynamicObstacle} and updated with {@link #moveDynamicObstacle}.
  */
 public final class PathfindingLayer implements Layer {
     /**
-     * The distance in meters and offset in radians the robot's transform may be from the goal
-     * before the robot is considered arrived.
+     * The distance in meters and offset in radians the robot's pose may be from the goal before
+     * the robot is considered arrived.
      */
     private static final double GOAL_COMPLETE_EPSILON = 0.01;
 
     /**
-     * The trajectory parameter increment to use between trajectories when numerically maximizing.
+     * Half the width of the square field inside the walls, in meters.
      */
-    private static final double TRAJECTORY_SEARCH_INCREMENT = 0.01;
+    private static final double FIELD_HALF_WIDTH =
+        Units.convert(72, Units.Distance.IN, Units.Distance.M);
 
     /**
-     * The coefficient of the target angle term in the objective function.
+     * The thickness of the field walls in meters.
+     * Only matters to points the robot should never reach anyway.
      */
-    private static final double TARGET_ANGLE_COEFF = 0.5;
+    private static final double WALL_THICKNESS = 0.1;
 
     /**
-     * The coefficient of the clearance term in the objective function.
+     * The distance between neighboring points of the field distance map in meters.
      */
-    private static final double CLEARANCE_COEFF = 1.2;
+    private static final double FIELD_MAP_SPACING = 0.02;
 
     /**
-     * The coefficient of the speed term in the objective function.
+     * The number of equal parts the full turn of headings is divided into for the field map.
+     * Each part costs a copy of the map.
      */
-    private static final double SPEED_COEFF = 0.5;
+    private static final int FIELD_MAP_HEADING_BUCKETS = 16;
 
     /**
-     * How often to recalculate the optimal trajectory in seconds.
+     * The outline of the robot in robot space, in meters.
+     * The largest square the game rules allow a robot to start in.
      */
-    private static final double CALCULATE_INTERVAL = 0.25;
+    private static final ConvexPolygon ROBOT_FOOTPRINT = ConvexPolygon.ofRectangle(
+        Pose2d.IDENTITY,
+        new Vec2(
+            Units.convert(18, Units.Distance.IN, Units.Distance.M),
+            Units.convert(18, Units.Distance.IN, Units.Distance.M)
+        )
+    );
 
     /**
-     * A constant in the smoothing function used on the target angle term of the objective function.
-     * $\frac{c}{k}$ = maximum score of target angle term.
+     * The width and height of the cells of the obstacle index in meters.
+     * About the size of a robot, the most common dynamic obstacle.
      */
-    private static final double TARGET_ANGLE_SMOOTHING_C = 1000;
+    private static final double OBSTACLE_INDEX_CELL_SIZE = 0.25;
 
     /**
-     * A constant in the smoothing function used on the target angle term of the objective function.
-     * Controls speed of decay as target angle moves away from 0.
-     *
-     * @see #TARGET_ANGLE_SMOOTHING_C
+     * The goal field pose the robot should pathfind to.
      */
-    private static final double TARGET_ANGLE_SMOOTHING_K = 1;
+    private Pose2d goal;
 
     /**
-     * The fraction of a trajectory that should be between successive points checked for the
-     * clearance term.
+     * The signed distance from the robot to the walls and every other static obstacle.
      */
-    private static final double CLEARANCE_STEP = 0.05;
+    private ConfigurationSpace fieldMap;
 
     /**
-     * The goal field transform the robot should pathfind to.
+     * The obstacles other than those in {@link #fieldMap} to consider in the clearance objective
+     * function term and dynamic window culling.
      */
-    private Mat3 goal;
+    private ObstacleIndex obstacles;
 
     /**
-     * The list of obstacles to consider in the clearance objective function term and dynamic window
-     * culling.
+     * The obstacles added with {@link #addDynamicObstacle}, indexed by the identifiers returned,
+     * so that they can be found in {@link #obstacles} when they move.
      */
-    private List<Obstacle> obstacles;
+    private final List<DynamicObstacle> dynamicObstacles;
 
     /**
      * The current trajectory the robot should take.
+     * Only used in synchronous mode.
      */
     private Trajectory currentTrajectory;
 
     /**
-     * The timestamp in nanoseconds the current trajectory was calculated.
+     * Whether trajectories are planned on a background thread instead of inside {@link #update}.
+     */
+    private final boolean async;
+
+    /**
+     * The number of levels of the coarse to fine trajectory search.
+     */
+    private final int searchLevels;
+
+    /**
+     * The number of best candidates of each coarse search level searched further.
+     */
+    private final int searchTopK;
+
+    /**
+     * The number of threads to score trajectories on.
+     */
+    private final int searchThreads;
+
+    /**
+     * How the planner computes the trigonometry of scoring trajectories.
      */
-    private long lastCalcTime;
+    private FastTrig.Mode trigMode;
 
     /**
-     * The field transform of the robot before the current trajectory was applied.
+     * The planner trajectories are searched with, created at setup, or null before setup.
+     * In asynchronous mode it is used only by the worker thread, other than to read its metrics.
      */
-    private Mat3 initialTransform;
+    private TrajectoryPlanner planner;
 
     /**
-     * The robot space velocity of the robot before the current trajectory was applied.
+     * The time in seconds each plan may take, or {@link Double#POSITIVE_INFINITY} if unbounded.
      */
-    private Mat3 initialVelocity;
+    private final double planBudget;
+
+    /**
+     * The background planner used in asynchronous mode, created at setup, or null in synchronous
+     * mode or before setup.
+     */
+    private PlanningWorker worker;
+
+    /**
+     * Whether the goal changed since the last snapshot was submitted to the worker.
+     */
+    private boolean goalChanged;
+
+    /**
+     * The timestamp in nanoseconds of the most recently taken snapshot.
+     * In synchronous mode this is the snapshot {@link #currentTrajectory} was planned from.
+     */
+    private long lastSnapshotTime;
+
+    /**
+     * The clock snapshot times are read from.
+     */
+    private Clock clock;
 
     /**
      * The localizer used to determine the robot's current field-space transform.
@@ -108,438 +180,363 @@ public final class PathfindingLayer implements Layer {
     private RobotLocalizer localizer;
 
     /**
-     * Constructs a PathfindingLayer.
+     * Constructs a PathfindingLayer that plans synchronously.
      */
-    public PathfindingLayer() { }
+    public PathfindingLayer() {
+        this(false);
+    }
+
+    /**
+     * Constructs a PathfindingLayer that searches trajectories exhaustively.
+     *
+     * @param async - whether to plan trajectories on a background thread instead of inside
+     * {@link #update}.
+     */
+    public PathfindingLayer(boolean async) {
+        this(async, 1, 1);
+    }
+
+    /**
+     * Constructs a PathfindingLayer that scores trajectories on the planning thread.
+     *
+     * @param async - whether to plan trajectories on a background thread instead of inside
+     * {@link #update}.
+     * @param searchLevels - the number of levels of the coarse to fine trajectory search, each
+     * five times finer than the last, or 1 to search exhaustively at full resolution.
+     * @param searchTopK - the number of best candidates of each coarse search level whose
+     * neighborhoods are searched at the next finer level.
+     * @throws IllegalArgumentException if searchLevels or searchTopK is less than 1.
+     */
+    public PathfindingLayer(boolean async, int searchLevels, int searchTopK) {
+        this(async, searchLevels, searchTopK, 1);
+    }
+
+    /**
+     * Constructs a PathfindingLayer.
+     *
+     * @param async - whether to plan trajectories on a background thread instead of inside
+     * {@link #update}.
+     * @param searchLevels - the number of levels of the coarse to fine trajectory search, each
+     * five times finer than the last, or 1 to search exhaustively at full resolution.
+     * @param searchTopK - the number of best candidates of each coarse search level whose
+     * neighborhoods are searched at the next finer level.
+     * @param searchThreads - the number of threads to score trajectories on, or 1 to score them on
+     * the planning thread itself.
+     * @throws IllegalArgumentException if searchLevels, searchTopK, or searchThreads is less than
+     * 1.
+     */
+    public PathfindingLayer(boolean async, int searchLevels, int searchTopK, int searchThreads) {
+        this(async, searchLevels, searchTopK, searchThreads, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Constructs a PathfindingLayer.
+     *
+     * @param async - whether to plan trajectories on a background thread instead of inside
+     * {@link #update}.
+     * @param searchLevels - the number of levels of the coarse to fine trajectory search, each
+     * five times finer than the last, or 1 to search exhaustively at full resolution.
+     * @param searchTopK - the number of best candidates of each coarse search level whose
+     * neighborhoods are searched at the next finer level.
+     * @param searchThreads - the number of threads to score trajectories on, or 1 to score them on
+     * the planning thread itself.
+     * @param planBudget - the time in seconds each plan may take before the best trajectory found
+     * so far is used, or {@link Double#POSITIVE_INFINITY} to always finish the search.
+     * @throws IllegalArgumentException if searchLevels, searchTopK, or searchThreads is less than
+     * 1, or planBudget is not positive.
+     */
+    public PathfindingLayer(
+        boolean async,
+        int searchLevels,
+        int searchTopK,
+        int searchThreads,
+        double planBudget
+    ) {
+        if (!(planBudget > 0)) {
+            throw new IllegalArgumentException(String.format(
+                "Planning budget %f s is not positive",
+                planBudget
+            ));
+        }
+        TrajectoryPlanner.checkSearchArguments(searchLevels, searchTopK, searchThreads);
+        this.async = async;
+        this.searchLevels = searchLevels;
+        this.searchTopK = searchTopK;
+        this.searchThreads = searchThreads;
+        this.planBudget = planBudget;
+        trigMode = FastTrig.Mode.EXACT;
+        dynamicObstacles = new ArrayList<>();
+    }
 
     @Override
     public void setup(LayerSetupInfo setupInfo) {
-        obstacles = new ArrayList<>();
+        Vec2 fieldMin = new Vec2(-FIELD_HALF_WIDTH, -FIELD_HALF_WIDTH);
+        Vec2 fieldMax = new Vec2(FIELD_HALF_WIDTH, FIELD_HALF_WIDTH);
+        fieldMap = new ConfigurationSpace(
+            fieldMin,
+            fieldMax,
+            FIELD_MAP_SPACING,
+            ROBOT_FOOTPRINT,
+            FIELD_MAP_HEADING_BUCKETS
+        ).withObstacles(createWalls());
+        obstacles = new ObstacleIndex(fieldMin, fieldMax, OBSTACLE_INDEX_CELL_SIZE);
+        dynamicObstacles.clear();
         localizer = setupInfo.getLocalizer();
+        clock = setupInfo.getClock();
+        // A planner from an earlier setup may still hold threads if its controller never tore down
+        stopPlanning();
+        currentTrajectory = null;
+        planner = new TrajectoryPlanner(searchLevels, searchTopK, searchThreads);
+        planner.setTrigMode(trigMode);
+        if (async) {
+            worker = new PlanningWorker(planner, planBudget);
+            worker.start();
+        }
+        setupInfo.addTeardownListener(this::stopPlanning);
     }
 
     @Override
     public boolean isTaskDone() {
-        Mat3 delta = getTransform().inv().mul(goal);
-        return delta.getTranslation().len() < GOAL_COMPLETE_EPSILON
-            && delta.getDirection().getAngle() < GOAL_COMPLETE_EPSILON;
+        Pose2d delta = goal.relativeTo(getPose());
+        return Math.hypot(delta.getX(), delta.getY()) < GOAL_COMPLETE_EPSILON
+            && Math.abs(Math.atan2(delta.getSin(), delta.getCos())) < GOAL_COMPLETE_EPSILON;
+    }
+
+    @Override
+    public double getUpdatePeriod() {
+        // In asynchronous mode update is cheap and should pick up new plans as soon as they land
+        return async ? 0 : TrajectoryPlanner.CALCULATE_INTERVAL;
     }
 
     @Override
     public Iterator<Task> update(Iterable<Task> completed) {
-        long nowNano = System.nanoTime();
-        if (nowNano - lastCalcTime > (long)Units.convert(CALCULATE_INTERVAL, Units.Time.SEC,
-            Units.Time.NANO)) {
-            calculatePath();
-            lastCalcTime = nowNano;
+        Trajectory trajectory;
+        if (!async) {
+            // Only bounded plans need a head start from the previous trajectory
+            Trajectory seed = planBudget == Double.POSITIVE_INFINITY ? null : currentTrajectory;
+            currentTrajectory = planner.plan(takeSnapshot(), seed, planBudget);
+            trajectory = currentTrajectory;
+        } else {
+            worker.checkFailure();
+            if (goalChanged || worker.isIdle()) {
+                worker.submit(takeSnapshot());
+                goalChanged = false;
+            }
+            PlanningWorker.Plan plan = worker.getLatest();
+            // Hold still until the first plan completes
+            trajectory = plan == null ? new Trajectory(0, 0, 0) : plan.getTrajectory();
         }
         return Collections.singleton((Task)(new HolonomicDriveTask(
-            currentTrajectory.getAxial(),
-            -currentTrajectory.getLateral(),
-            currentTrajectory.getYaw()
+            trajectory.getAxial(),
+            -trajectory.getLateral(),
+            trajectory.getYaw()
         ))).iterator();
     }
 
+    @Override
+    public List<Class<? extends Task>> getAcceptedTasks() {
+        return Collections.singletonList(MoveToFieldTask.class);
+    }
+
     @Override
     public void acceptTask(Task task) {
         if (task instanceof MoveToFieldTask) {
             MoveToFieldTask castedTask = (MoveToFieldTask)task;
-            goal = castedTask.getGoalTransform();
-            lastCalcTime = System.nanoTime() - (long)Units.convert(CALCULATE_INTERVAL,
-                Units.Time.SEC, Units.Time.NANO);
+            goal = castedTask.getGoalPose();
+            goalChanged = true;
         }
     }
 
     /**
-     * Computes a comparable score for a trajectory considering three factors.
-     * This is the objective function the dynamic window approach optimizes.
-     *
-     * @param t - the trajectory to evaluate.
-     * @return A comparable score for the trajectory.
-     */
-    private double evaluateTrajectory(Trajectory t) {
-        double weightedTargetAngle = evaluateTargetAngle(t) * TARGET_ANGLE_COEFF;
-        double weightedClearance = evaluateClearence(t) * CLEARANCE_COEFF;
-        double weightedSpeed = evaluateSpeed(t) * SPEED_COEFF;
-        return weightedTargetAngle + weightedClearance + weightedSpeed;
-    }
-
-    /**
-     * Computes a comparable score for a trajectory on the grounds of final angle to target.
+     * Returns how stale the trajectory being followed is.
      *
-     * @param t - the trajectory to evaluate.
-     * @return A comparable score for the trajectory which is higher the more directly the robot
-     * would face the goal at the end of the evaluated trajectory.
-     */
-    private double evaluateTargetAngle(Trajectory t) {
-        Mat3 finalTransform = getTrajectoryTransform(t, 1);
-        Vec2 finalDirection = finalTransform.getDirection();
-        Vec2 finalDelta = finalTransform.getTranslation().mul(-1).add(goal.getTranslation());
-        double angle = finalDirection.angleWith(finalDelta);
-        return TARGET_ANGLE_SMOOTHING_C / (angle + TARGET_ANGLE_SMOOTHING_K);
-    }
-
-    /**
-     * Computes a comparable score for a trajectory on the grounds of minimum clearance to
-     * obstacles.
-     *
-     * @param t - the trajectory to evaluate.
-     * @return A comparable score for the trajectory which is higher the greater the minimum
-     * clearance the robot has to any obstacle at any point during the evaluated trajectory.
-     */
-    private double evaluateClearence(Trajectory t) {
-        double minClearence = Double.POSITIVE_INFINITY;
-        for (double frac = 0; frac < 1; frac += CLEARANCE_STEP) {
-            Vec2 translation = getTrajectoryTransform(t, frac).getTranslation();
-            for (Obstacle obstacle : obstacles) {
-                double clearanceToObstacle = obstacle.getDistanceTo(translation);
-                if (minClearence > clearanceToObstacle) {
-                    minClearence = clearanceToObstacle;
-                }
+     * @return The time in seconds since the robot state the current trajectory was planned from was
+     * sampled, or {@link Double#POSITIVE_INFINITY} if no trajectory has been planned yet.
+     */
+    public double getPlanAge() {
+        long snapshotTime;
+        if (!async) {
+            if (currentTrajectory == null) {
+                return Double.POSITIVE_INFINITY;
+            }
+            snapshotTime = lastSnapshotTime;
+        } else {
+            PlanningWorker.Plan plan = worker == null ? null : worker.getLatest();
+            if (plan == null) {
+                return Double.POSITIVE_INFINITY;
             }
+            snapshotTime = plan.getSnapshotTime();
         }
-        return minClearence;
+        return Units.convert(clock.nanoTime() - snapshotTime, Units.Time.NANO, Units.Time.SEC);
     }
 
     /**
-     * Computes a comparable score for a trajectory on the grounds of final speed of the robot.
+     * Returns whether the trajectory being followed came from a search that finished.
      *
-     * @param t - the trajectory to evaluate.
-     * @return A comparable score for the trajectory which is higher the greater the robot's
-     * translational velocity at the end of the evaluated trajectory..
+     * @return Whether the search the current trajectory was planned by finished within the
+     * planning budget, or false if no trajectory has been planned yet. A search that was cut short
+     * yielded the best trajectory it had scored by the deadline.
      */
-    private double evaluateSpeed(Trajectory t) {
-        return getTrajectoryVelocity(t, 1).getTranslation().len();
-    }
-
-    /**
-     * Maximizes the objective function inside the dynamic window, setting
-     * {@link #currentTrajectory} to the result.
-     * Searches for the trajectory with the highest score from the objective function within a small
-     * rectangular region. Trajectories outside the dynamic window are culled before calling the
-     * objective function.
-     */
-    private void calculatePath() {
-        // Keeps track of the best-scored trajectory and the score it had.
-        Trajectory bestTrajectory = null;
-        double bestScore = Double.NEGATIVE_INFINITY;
-
-        // Represents bounds of the search space.
-        Trajectory maxBounds = new Trajectory(1, 1, 1);
-        Trajectory minBounds = new Trajectory(-1, -1, -1);
-
-        // Veeeeeeery slow search loop.
-        for (double a = minBounds.getAxial(); a < maxBounds.getAxial(); a += TRAJECTORY_SEARCH_INCREMENT) {
-            for (double l = minBounds.getLateral(); l < maxBounds.getLateral(); l += TRAJECTORY_SEARCH_INCREMENT) {
-                for (double y = minBounds.getYaw(); y < maxBounds.getYaw(); y += TRAJECTORY_SEARCH_INCREMENT) {
-                    Trajectory t = new Trajectory(a, l, y);
-                    if (!checkDynamicWindow(t)) {
-                        continue;
-                    }
-                    double score = evaluateTrajectory(t);
-                    if (score > bestScore) {
-                        bestScore = score;
-                        bestTrajectory = t;
-                    }
-                }
-            }
-        }
-        if (bestScore == Double.NEGATIVE_INFINITY) {
-            // Dynamic window was empty of trajectories (all valid ones interesct obstacles)
-            // Spin until the dynamic window isn't empty
-            bestTrajectory = new Trajectory(0, 0, 1);
+    public boolean isPlanComplete() {
+        if (!async) {
+            return currentTrajectory != null && planner.isLastPlanComplete();
         }
-        currentTrajectory = bestTrajectory;
+        PlanningWorker.Plan plan = worker == null ? null : worker.getLatest();
+        return plan != null && plan.isComplete();
     }
 
     /**
-     * Checks if a trajectory is within the dynamic window.
-     * During optimization, trajectories not within the dynamic window may be culled from the
-     * search.
+     * Returns how busy the threads scoring trajectories were during the last plan.
+     * This measures utilization rather than speedup over a single thread.
      *
-     * @param t - the trajectory to check.
-     * @return Whether the checked trajectory is achievable by the robot and the trajectory would
-     * not cause the robot to crash into an obstacle.
-     */
-    private boolean checkDynamicWindow(Trajectory t) {
-        for (double frac = 0; frac < 1; frac += CLEARANCE_STEP) {
-            Vec2 translation = getTrajectoryTransform(t, frac).getTranslation();
-            for (Obstacle obstacle : obstacles) {
-                double clearanceToObstacle = obstacle.getDistanceTo(translation);
-                if (clearanceToObstacle < 0) {
-                    return false;
-                }
-            }
-        }
-        return Math.abs(t.getAxial()) + Math.abs(t.getLateral()) + Math.abs(t.getYaw()) < 1;
+     * @return The total time spent scoring trajectories across all threads divided by the elapsed
+     * time of the most recently completed plan, or NaN if no plan has completed yet. This is about
+     * 1 when scoring on a single thread.
+     */
+    public double getPlanParallelUtilization() {
+        return planner == null ? Double.NaN : planner.getLastParallelUtilization();
     }
 
     /**
-     * Adds an obstacle to the internal list of obstacles.
+     * Sets how the planner computes the trigonometry of scoring trajectories.
+     * Takes effect from the next plan, which in asynchronous mode may already be in progress.
      *
-     * @param obstacle - the obstacle to add.
-     */
-    private void addObstacle(Obstacle obstacle) {
-        obstacles.add(obstacle);
+     * @param mode - {@link FastTrig.Mode#EXACT}, the default, to compute it with {@link Math}, or
+     * {@link FastTrig.Mode#FAST} to compute it with the faster {@link FastTrig}, which may rarely
+     * change which of two nearly equal trajectories is chosen.
+     */
+    public void setTrigMode(FastTrig.Mode mode) {
+        trigMode = mode;
+        if (planner != null) {
+            planner.setTrigMode(mode);
+        }
     }
 
     /**
-     * Gets the predicted robot transform after applying the given set of accelerations (trajectory)
-     * over the given fraction of the time interval.
-     *
-     * <p>To derive this hairy bit of math, first express the velocity over the course of the
-     * trajectory in terms of the initial velocity, trajectory taken (expressed as a vector
-     * \(\vec{z}=\langle z_a,z_l,z_\theta\rangle\) where the components represent constant axial,
-     * lateral, and rotational accelerations), and duration spent on the trajectory:
-     * \[\vec{v}(\vec{z} ,t_f) = \vec{v}(0, 0) + t_f\vec{z}\]
-     * Adding the initial angle and integrating the \(\theta\) component with respect to \(t\) gives:
-     * \[\theta(\vec{z}, t_f) = \theta(0,0) + v_\theta(0, 0) t_f + \frac{z_\theta t_f^2}{2}\]
-     * which is reminiscient of a motion equation with constant acceleration. This result is
-     * directly used to find the rotation component of the transform.
-     *
-     * <p>The constant axial and lateral accelerations \(z_a\) and \(z_l\) are easily converted to
-     * accelerations along the field axes, though they vary with \(\theta\):
-     * \[z_x = z_a\cos(\theta) - z_l\sin(\theta)\]
-     * \[z_y = z_a\sin(\theta) + z_l\cos(\theta)\]
-     * Now the field space coordinates of the robot may be found given using the initial position,
-     * velocity, and integrating the corrosponding field axis accelerations:
-     * \[x(\vec{z},t_f)=x(0,0)+\int_0^{t_f}\left(v_x(0,0)+\int_0^{t_f}z_xdt\right)dt\]
-     * which, after substituting above values (\(\theta(\vec{z}, t)\) left unsubstituted for brevity)
-     * and evaluating the definite integrals, yields:
-     * \[x(\vec{z},t_f)=x(0,0)+v_x(0,0)t_f+t_f\frac{z_a(\sin(\theta(\vec{z},t_f))-\sin(\theta(0,0)))
-     * +z_l(\cos(\theta(\vec{z},t_f))-\cos(\theta(0,0)))}{\sqrt{v_\theta^2(0,0)-2z_\theta\theta(0,0)
-     * }}\]
-     * \(y(\vec{z},t_f)\) is similarly found:
-     * \[y(\vec{z},t_f)=y(0,0)+v_y(0,0)t_f+t_f\frac{-z_a(\cos(\theta(\vec{z},t_f))-\cos(\theta(0,0))
-     * )+z_l(\sin(\theta(\vec{z},t_f))-\sin(\theta(0,0)))}{\sqrt{v_\theta^2(0,0)-2z_\theta\theta(0,0
-     * )}}\]
-     * These values are combined with the earlier result from \(\theta(\vec{z}, t_f)\) to produce
-     * the returned transformation.
-     *
-     * @param t - the trajectory to simulate applying.
-     * @param frac - the fraction of the trajectory along which the robot is to have traveled.
-     * @return The predicted transform of the robot.
-     */
-    private Mat3 getTrajectoryTransform(Trajectory t, double frac) {
-        double za = t.getAxial();
-        double zl = t.getLateral();
-        double zth = t.getYaw();
-        double tf = frac * CALCULATE_INTERVAL;
-        double x0 = initialTransform.getTranslation().getX();
-        double vx0 = initialVelocity.getTranslation().getX();
-        double y0 = initialTransform.getTranslation().getY();
-        double vy0 = initialVelocity.getTranslation().getY();
-        double vth0 = initialVelocity.getDirection().getAngle();
-        double th0 = initialTransform.getDirection().getAngle();
-
-        double x = x0 + vx0 * tf
-            + tf * (
-                za * (Math.sin(th0 + vth0 * tf + zth * tf * tf / 2) - Math.sin(th0))
-                + zl * (Math.cos(th0 + vth0 * tf + zth * tf * tf / 2) - Math.cos(th0)))
-            / Math.sqrt(vth0 * vth0 - 2 * zth * th0);
-        double y = y0 + vy0 * tf
-            + tf * (
-                -za * (Math.cos(th0 + vth0 * tf + zth * tf * tf / 2) - Math.cos(th0))
-                + zl * (Math.sin(th0 + vth0 * tf + zth * tf * tf / 2) - Math.sin(th0)))
-            / Math.sqrt(vth0 * vth0 - 2 * zth * th0);
-        double th = th0 + vth0 * tf + zth * tf * tf / 2;
-
-        return Mat3.fromTransform(Mat2.fromAngle(th), new Vec2(x, y));
+     * Stops the planner's threads, if it has been set up.
+     * Called when the controller tears down, including when the opmode is stopped early. In
+     * asynchronous mode the worker shuts the planner down itself once any plan in progress
+     * finishes. Metrics of the last plan stay readable afterward.
+     */
+    private void stopPlanning() {
+        if (worker != null) {
+            worker.stop();
+        } else if (planner != null) {
+            planner.shutdown();
+        }
     }
 
     /**
-     * Gets the predicted field space robot translation and rotational velocity after applying the
-     * given set of accelerations (trajectory) over the given fraction of the time interval.
+     * Copies the state needed to plan a trajectory.
+     * Must be called from the control loop thread.
      *
-     * @param t - the trajectory to simulate applying.
-     * @param frac - the fraction of the trajectory along which the robot is to have traveled.
-     * @return The predicted velocities of the robot, encoded as a transformation matrix where the
-     * translation component is the translational velocity and the rotation component is the
-     * rotational velocity.
-     */
-    private Mat3 getTrajectoryVelocity(Trajectory t, double frac) {
-        double tf = frac * CALCULATE_INTERVAL;
-        return Mat3.fromTransform(
-            Mat2.fromAngle(t.getYaw() * tf + initialVelocity.getDirection().getAngle()),
-            new Vec2(t.getAxial(), t.getLateral()).mul(tf).add(initialVelocity.getTranslation())
-        );
+     * @return A snapshot of the goal, obstacles, and robot pose and velocity.
+     */
+    private PlanningSnapshot takeSnapshot() {
+        lastSnapshotTime = clock.nanoTime();
+        List<Obstacle> allObstacles = new ArrayList<>(2);
+        allObstacles.add(fieldMap);
+        allObstacles.add(new InflatedObstacle(obstacles, ROBOT_FOOTPRINT.getRadius()));
+        return new PlanningSnapshot(goal, allObstacles, getPose(), getVelocity(), lastSnapshotTime);
     }
 
     /**
-     * Gets the current field transform of the robot.
+     * Adds a rectangular obstacle whose pose and size are known, such as a field element.
+     * The obstacle is grown by the robot's footprint at each heading and rasterized into the field
+     * map, which takes tens of milliseconds, so field elements are best added once, after the layer
+     * is set up and before it is first updated. The map is replaced rather than changed, so
+     * snapshots already taken are unaffected. Must be called from the control loop thread.
      *
-     * @return The robot's current field space transform.
+     * @param pose - the field space pose of the center of the rectangle, in meters.
+     * @param size - the width and height of the rectangle in meters.
+     * @throws IllegalStateException if the layer has not been set up.
      */
-    private Mat3 getTransform() {
-        return localizer.resolveTransform();
+    public void addStaticObstacle(Pose2d pose, Vec2 size) {
+        if (fieldMap == null) {
+            throw new IllegalStateException("Obstacles may only be added after setup");
+        }
+        fieldMap = fieldMap.withObstacle(new StaticObstacle(pose, size).toPolygon());
     }
 
     /**
-     * Gets the current field space velocity of the robot.
+     * Adds an obstacle detected by a distance sensor, such as another robot.
+     * The obstacle is a segment facing the sensor, added to the obstacle index by replacing the
+     * index rather than changing it, so snapshots already taken are unaffected. Must be called from
+     * the control loop thread.
      *
-     * @return The robot's current field space velocity encoded as a transformation matrix.
-     */
-    private Mat3 getVelocity() {
-        // TODO: implement
-        return new Mat3(
-            1, 0, 0,
-            0, 1, 0,
-            0, 0, 1
-        );
+     * @param pose - the field space pose of the center of the segment, in meters, facing along the
+     * line from the sensor.
+     * @param size - the length of the segment in meters.
+     * @return An identifier to move the obstacle with {@link #moveDynamicObstacle}.
+     * @throws IllegalStateException if the layer has not been set up.
+     */
+    public int addDynamicObstacle(Pose2d pose, double size) {
+        if (obstacles == null) {
+            throw new IllegalStateException("Obstacles may only be added after setup");
+        }
+        DynamicObstacle obstacle = new DynamicObstacle(pose, size);
+        obstacles = obstacles.withObstacle(obstacle);
+        dynamicObstacles.add(obstacle);
+        return dynamicObstacles.size() - 1;
     }
 
     /**
-     * A set of accelerations that the robot can take.
-     * Alternately, a 3D point in the search space of trajectories.
-     */
-    private static class Trajectory {
-        /**
-         * The axial acceleration to apply to the robot.
-         * Positive values indicate forward acceleration.
-         */
-        private double axial;
-
-        /**
-         * The lateral acceleration to apply to the robot.
-         * Positive values indicate leftward acceleration.
-         */
-        private double lateral;
-
-        /**
-         * The rotational acceleration to apply to the robot.
-         * Positive value indicate counterclockwise acceleration.
-         */
-        private double yaw;
-
-        /**
-         * Constructs a Trajectory.
-         *
-         * @param axial - the axial acceleration to apply to the robot.
-         * @param lateral - the lateral acceleration to apply to the robot.
-         * @param yaw - the rotational acceleration to apply to the robot.
-         */
-        Trajectory(double axial, double lateral, double yaw) {
-            this.axial = axial;
-            this.lateral = lateral;
-            this.yaw = yaw;
-        }
-
-        /**
-         * The axial acceleration to apply to the robot.
-         *
-         * @return The axial acceleration specified by this trajectory.
-         */
-        public double getAxial() {
-            return axial;
-        }
-
-        /**
-         * The lateral acceleration to apply to the robot.
-         *
-         * @return The lateral acceleration specified by this trajectory.
-         */
-        public double getLateral() {
-            return lateral;
-        }
-
-        /**
-         * The rotational acceleration to apply to the robot.
-         *
-         * @return The rotational acceleration specified by this trajectory.
-         */
-        public double getYaw() {
-            return yaw;
+     * Moves an obstacle added with {@link #addDynamicObstacle}, such as a robot detected again at
+     * a new position.
+     * Only the cells of the obstacle index the old or new obstacle overlaps are rebuilt. Must be
+     * called from the control loop thread.
+     *
+     * @param id - the identifier returned when the obstacle was added.
+     * @param pose - the new field space pose of the center of the segment, in meters.
+     * @param size - the new length of the segment in meters.
+     * @throws IllegalArgumentException if no obstacle was added with the identifier.
+     */
+    public void moveDynamicObstacle(int id, Pose2d pose, double size) {
+        if (id < 0 || id >= dynamicObstacles.size()) {
+            throw new IllegalArgumentException(String.format(
+                "No dynamic obstacle was added with identifier %d",
+                id
+            ));
         }
+        DynamicObstacle moved = new DynamicObstacle(pose, size);
+        obstacles = obstacles.withMovedObstacle(dynamicObstacles.get(id), moved);
+        dynamicObstacles.set(id, moved);
     }
 
     /**
-     * Represents an impassable obstacle on the field.
-     */
-    private interface Obstacle {
-        /**
-         * Returns the signed distance in to the given field space.
-         *
-         * @param point - the field point to calculate the distance to, given in units of meters.
-         * @return The signed distance to the closest surface of the obstacle in meters.
-         */
-        double getDistanceTo(Vec2 point);
+     * Creates obstacles for the field walls.
+     *
+     * @return One obstacle just outside each side of the field.
+     */
+    private static List<ConvexPolygon> createWalls() {
+        double offset = FIELD_HALF_WIDTH + WALL_THICKNESS / 2;
+        double length = 2 * (FIELD_HALF_WIDTH + WALL_THICKNESS);
+        Vec2 sideSize = new Vec2(WALL_THICKNESS, length);
+        Vec2 endSize = new Vec2(length, WALL_THICKNESS);
+        List<ConvexPolygon> walls = new ArrayList<>(4);
+        walls.add(ConvexPolygon.ofRectangle(new Pose2d(offset, 0, 0), sideSize));
+        walls.add(ConvexPolygon.ofRectangle(new Pose2d(-offset, 0, 0), sideSize));
+        walls.add(ConvexPolygon.ofRectangle(new Pose2d(0, offset, 0), endSize));
+        walls.add(ConvexPolygon.ofRectangle(new Pose2d(0, -offset, 0), endSize));
+        return walls;
     }
 
     /**
-     * Represents an obstacle detected by a distance sensor.
-     * These obstacles are represented by line segments that are oriented to face the robot and have
-     * length dependent on the distance from the robot, both at the time of detection.
-     */
-    private static final class DynamicObstacle implements Obstacle {
-        /**
-         * The transform of the center of the segment, given in units of meters.
-         */
-        private Mat3 transform;
-
-        /**
-         * The length of the segment in meters.
-         */
-        private double size;
-
-        /**
-         * Constructs a DynamicObstacle.
-         *
-         * @param transform - the transform of the center of the segment, given in units of meters.
-         * @param size - the length of the segment in meters.
-         */
-        DynamicObstacle(Mat3 transform, double size) {
-            this.transform = transform;
-            this.size = size;
-        }
-
-        @Override
-        public double getDistanceTo(Vec2 point) {
-            Vec2 delta = transform.getTranslation().add(point.mul(-1));
-            double axialProj = transform.getDirection().proj(delta).len();
-            double lateralProj = transform.getDirection().getPerpendicular().proj(delta).len();
-            if (lateralProj < size / 2) {
-                return axialProj;
-            }
-            Vec2 ep1 = transform.mul(new Vec2(0, size / 2));
-            Vec2 ep2 = transform.mul(new Vec2(0, -size / 2));
-            return Math.min(ep1.add(point.mul(-1)).len(), ep2.add(point.mul(-1)).len());
-        }
+     * Gets the current field pose of the robot.
+     *
+     * @return The robot's current field space pose.
+     */
+    private Pose2d getPose() {
+        return localizer.resolvePose();
     }
 
     /**
-     * Represents a rectangular obstacle whose transform and size is definitely known.
-     * The robot is prepopulated with these obstacles to represent impassible parts of the field.
-     */
-    private static class StaticObstacle implements Obstacle {
-        /**
-         * The transform of the center of the segment, given in units of meters.
-         */
-        private Mat3 transform;
-
-        /**
-         * The width and height of the rectangle contained in the x and y components of a 2D vector.
-         */
-        private Vec2 size;
-
-        /**
-         * Constructs a DynamicObstacle.
-         *
-         * @param transform - the transform of the center of the segment, given in units of meters.
-         * @param size - the width and height of the rectangle expressed as a 2D vector.
-         */
-        StaticObstacle(Mat3 transform, Vec2 size) {
-            this.transform = transform;
-            this.size = size;
-        }
-
-        @Override
-        public double getDistanceTo(Vec2 point) {
-            Vec2 p = transform.inv().mul(point);
-            double m1 = size.getY() / size.getX();
-            double m2 = -m1;
-            boolean useHeight = Math.signum(p.getY() - m1) == Math.signum(p.getY() - m2);
-            double dim = useHeight ? size.getY() : size.getX();
-            return p.len() - dim / (2 * Math.cos(p.getAngle()));
-        }
+     * Gets the current field space velocity of the robot.
+     *
+     * @return The robot's current field space velocity encoded as a pose whose translation is the
+     * translational velocity and whose heading is the rotational velocity.
+     */
+    private Pose2d getVelocity() {
+        return localizer.resolveVelocity();
     }
 }
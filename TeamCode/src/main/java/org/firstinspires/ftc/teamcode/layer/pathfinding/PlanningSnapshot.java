@@ -0,0 +1,108 @@
+package org.firstinspires.ftc.teamcode.layer.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
+
+/**
+ * An immutable copy of the robot and field state a trajectory is planned from.
+ * Snapshots let planning run on another thread while the control loop keeps changing the live
+ * state.
+ */
+final class PlanningSnapshot {
+    /**
+     * The goal field pose the robot should pathfind to.
+     */
+    private final Pose2d goal;
+
+    /**
+     * The obstacles to avoid.
+     */
+    private final List<Obstacle> obstacles;
+
+    /**
+     * The field pose of the robot when the snapshot was taken.
+     */
+    private final Pose2d initialPose;
+
+    /**
+     * The field space velocity of the robot when the snapshot was taken.
+     */
+    private final Pose2d initialVelocity;
+
+    /**
+     * The timestamp in nanoseconds the snapshot was taken.
+     */
+    private final long time;
+
+    /**
+     * Constructs a PlanningSnapshot, copying the obstacle list.
+     *
+     * @param goal - the goal field pose.
+     * @param obstacles - the obstacles to avoid. Later changes to the list are not reflected in the
+     * snapshot.
+     * @param initialPose - the current field pose of the robot.
+     * @param initialVelocity - the current field space velocity of the robot.
+     * @param time - the timestamp in nanoseconds the state was sampled.
+     */
+    PlanningSnapshot(
+        Pose2d goal,
+        List<Obstacle> obstacles,
+        Pose2d initialPose,
+        Pose2d initialVelocity,
+        long time
+    ) {
+        this.goal = goal;
+        this.obstacles = Collections.unmodifiableList(new ArrayList<>(obstacles));
+        this.initialPose = initialPose;
+        this.initialVelocity = initialVelocity;
+        this.time = time;
+    }
+
+    /**
+     * Returns the goal pose.
+     *
+     * @return The goal field pose the robot should pathfind to.
+     */
+    Pose2d getGoal() {
+        return goal;
+    }
+
+    /**
+     * Returns the obstacles.
+     *
+     * @return An unmodifiable list of the obstacles to avoid.
+     */
+    List<Obstacle> getObstacles() {
+        return obstacles;
+    }
+
+    /**
+     * Returns the robot's pose.
+     *
+     * @return The field pose of the robot when the snapshot was taken.
+     */
+    Pose2d getInitialPose() {
+        return initialPose;
+    }
+
+    /**
+     * Returns the robot's velocity.
+     *
+     * @return The field space velocity of the robot when the snapshot was taken.
+     */
+    Pose2d getInitialVelocity() {
+        return initialVelocity;
+    }
+
+    /**
+     * Returns when the snapshot was taken.
+     *
+     * @return The timestamp in nanoseconds the state was sampled.
+     */
+    long getTime() {
+        return time;
+    }
+}
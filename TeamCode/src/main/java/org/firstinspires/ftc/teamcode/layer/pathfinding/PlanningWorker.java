@@ -0,0 +1,236 @@
+package org.firstinspires.ftc.teamcode.layer.pathfinding;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a {@link TrajectoryPlanner} on a dedicated background thread.
+ * Planning requests are handed over as {@link PlanningSnapshot}s through a single-slot mailbox in
+ * which newer snapshots replace unplanned older ones. Results are double buffered: the worker
+ * computes the back plan privately, then publishes it as the front plan with a single volatile
+ * write. Neither submitting nor reading ever blocks the control loop.
+ *
+ * <p>If planning throws, the worker records the failure and exits rather than leaving the last plan
+ * to be followed forever; the control thread learns of it through {@link #checkFailure}.
+ */
+final class PlanningWorker implements Runnable {
+    /**
+     * The planner used exclusively by the worker thread.
+     */
+    private final TrajectoryPlanner planner;
+
+    /**
+     * The time in seconds each plan may take, or {@link Double#POSITIVE_INFINITY} if unbounded.
+     */
+    private final double budget;
+
+    /**
+     * The next snapshot to plan from, or null if none is waiting.
+     */
+    private final AtomicReference<PlanningSnapshot> pending;
+
+    /**
+     * The most recently completed plan, or null if none has completed yet.
+     */
+    private volatile Plan front;
+
+    /**
+     * Whether the worker thread is currently planning.
+     */
+    private volatile boolean planning;
+
+    /**
+     * What planning threw, or null if it has not failed.
+     */
+    private volatile Throwable failure;
+
+    /**
+     * Whether the worker thread should keep running.
+     */
+    private volatile boolean running;
+
+    /**
+     * The worker thread, or null if not started.
+     */
+    private Thread thread;
+
+    /**
+     * Constructs a PlanningWorker. The worker thread is not started until {@link #start} is called.
+     *
+     * @param planner - the planner to plan with, which must not be used by any other thread.
+     * @param budget - the time in seconds each plan may take before the best trajectory found so
+     * far is published, or {@link Double#POSITIVE_INFINITY} to always finish the search. Bounded
+     * plans start searching from the previously published trajectory.
+     */
+    PlanningWorker(TrajectoryPlanner planner, double budget) {
+        this.planner = planner;
+        this.budget = budget;
+        pending = new AtomicReference<>();
+        front = null;
+        failure = null;
+        planning = false;
+        running = false;
+        thread = null;
+    }
+
+    /**
+     * Starts the worker thread.
+     * The thread is a daemon with slightly below normal priority so it yields to the control loop.
+     */
+    void start() {
+        running = true;
+        thread = new Thread(this, "PathfindingLayer planner");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.start();
+    }
+
+    /**
+     * Asks the worker thread to exit after finishing any plan in progress.
+     * The planner is shut down as the thread exits.
+     */
+    void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Hands a snapshot to the worker to plan from, replacing any snapshot not yet started.
+     *
+     * @param snapshot - the state to plan from.
+     */
+    void submit(PlanningSnapshot snapshot) {
+        pending.set(snapshot);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Returns whether the worker has nothing to do.
+     *
+     * @return Whether the worker is neither planning nor holding a snapshot to plan from.
+     */
+    boolean isIdle() {
+        // The mailbox is read before the flag. The worker raises the flag before taking a
+        // snapshot, so one taken between the two reads is still seen as being planned
+        return pending.get() == null && !planning;
+    }
+
+    /**
+     * Rethrows a failure of the worker thread on the calling thread.
+     *
+     * @throws IllegalStateException - planning threw on the worker thread, which has exited. The
+     * exception thrown there is the cause.
+     */
+    void checkFailure() {
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new IllegalStateException(
+                String.format("Background planning failed: %s", cause),
+                cause
+            );
+        }
+    }
+
+    /**
+     * Returns the most recently completed plan.
+     *
+     * @return The front plan, or null if no plan has completed yet.
+     */
+    Plan getLatest() {
+        return front;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            // Marked busy before emptying the mailbox so isIdle never reports idle while a taken
+            // snapshot is still being planned
+            planning = true;
+            PlanningSnapshot snapshot = pending.getAndSet(null);
+            if (snapshot == null) {
+                planning = false;
+                LockSupport.park(this);
+                continue;
+            }
+            Plan previous = front;
+            Trajectory seed = previous == null || budget == Double.POSITIVE_INFINITY
+                ? null
+                : previous.getTrajectory();
+            try {
+                Trajectory back = planner.plan(snapshot, seed, budget);
+                front = new Plan(back, snapshot.getTime(), planner.isLastPlanComplete());
+            } catch (RuntimeException | Error e) {
+                // The planner may be left inconsistent, so stop planning and let the control
+                // thread rethrow the failure instead of following the last plan forever
+                failure = e;
+                running = false;
+            } finally {
+                planning = false;
+            }
+        }
+        planner.shutdown();
+    }
+
+    /**
+     * A completed trajectory, the time of the snapshot it was planned from, and whether its search
+     * finished before the deadline.
+     */
+    static final class Plan {
+        /**
+         * The planned trajectory.
+         */
+        private final Trajectory trajectory;
+
+        /**
+         * The timestamp in nanoseconds of the snapshot the trajectory was planned from.
+         */
+        private final long snapshotTime;
+
+        /**
+         * Whether the search finished before the deadline.
+         */
+        private final boolean complete;
+
+        /**
+         * Constructs a Plan.
+         *
+         * @param trajectory - the planned trajectory.
+         * @param snapshotTime - the timestamp in nanoseconds of the snapshot planned from.
+         * @param complete - whether the search finished before the deadline.
+         */
+        Plan(Trajectory trajectory, long snapshotTime, boolean complete) {
+            this.trajectory = trajectory;
+            this.snapshotTime = snapshotTime;
+            this.complete = complete;
+        }
+
+        /**
+         * Returns the planned trajectory.
+         *
+         * @return The trajectory chosen by the planner.
+         */
+        Trajectory getTrajectory() {
+            return trajectory;
+        }
+
+        /**
+         * Returns when the state planned from was sampled.
+         *
+         * @return The timestamp in nanoseconds of the snapshot the trajectory was planned from.
+         */
+        long getSnapshotTime() {
+            return snapshotTime;
+        }
+
+        /**
+         * Returns whether the search finished.
+         *
+         * @return Whether the search finished before the deadline rather than being cut short.
+         */
+        boolean isComplete() {
+            return complete;
+        }
+    }
+}
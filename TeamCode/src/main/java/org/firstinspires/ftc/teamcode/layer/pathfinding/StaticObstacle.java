@@ -0,0 +1,72 @@
+package org.firstinspires.ftc.teamcode.layer.pathfinding;
+
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
+import org.firstinspires.ftc.teamcode.matrix.Vec2;
+
+/**
+ * Represents a rectangular obstacle whose transform and size is definitely known.
+ * The robot is prepopulated with these obstacles to represent impassible parts of the field.
+ */
+final class StaticObstacle implements Obstacle {
+    /**
+     * The pose of the center of the rectangle, given in units of meters.
+     */
+    private Pose2d pose;
+
+    /**
+     * The width and height of the rectangle contained in the x and y components of a 2D vector.
+     */
+    private Vec2 size;
+
+    /**
+     * The box the rotated rectangle lies within.
+     */
+    private final BoundingBox bounds;
+
+    /**
+     * Constructs a StaticObstacle.
+     *
+     * @param pose - the pose of the center of the rectangle, given in units of meters.
+     * @param size - the width and height of the rectangle expressed as a 2D vector.
+     */
+    StaticObstacle(Pose2d pose, Vec2 size) {
+        this.pose = pose;
+        this.size = size;
+        // Half extents of the rectangle's corners along the field axes
+        double halfX = (Math.abs(pose.getCos()) * size.getX()
+            + Math.abs(pose.getSin()) * size.getY()) / 2;
+        double halfY = (Math.abs(pose.getSin()) * size.getX()
+            + Math.abs(pose.getCos()) * size.getY()) / 2;
+        bounds = new BoundingBox(
+            pose.getX() - halfX,
+            pose.getY() - halfY,
+            pose.getX() + halfX,
+            pose.getY() + halfY
+        );
+    }
+
+    /**
+     * Converts the obstacle to a polygon with the same outline.
+     *
+     * @return The rectangle of the obstacle as a polygon.
+     */
+    ConvexPolygon toPolygon() {
+        return ConvexPolygon.ofRectangle(pose, size);
+    }
+
+    @Override
+    public double getDistanceTo(Vec2 point) {
+        Vec2 p = pose.inverseTransform(point);
+        // Distances past each pair of edges; positive along an axis the point is outside of
+        double dx = Math.abs(p.getX()) - size.getX() / 2;
+        double dy = Math.abs(p.getY()) - size.getY() / 2;
+        double outsideX = Math.max(dx, 0);
+        double outsideY = Math.max(dy, 0);
+        return Math.sqrt(outsideX * outsideX + outsideY * outsideY) + Math.min(Math.max(dx, dy), 0);
+    }
+
+    @Override
+    public BoundingBox getBounds() {
+        return bounds;
+    }
+}
@@ -0,0 +1,65 @@
+package org.firstinspires.ftc.teamcode.layer.pathfinding;
+
+/**
+ * A set of accelerations that the robot can take.
+ * Alternately, a 3D point in the search space of trajectories.
+ */
+final class Trajectory {
+    /**
+     * The axial acceleration to apply to the robot.
+     * Positive values indicate forward acceleration.
+     */
+    private double axial;
+
+    /**
+     * The lateral acceleration to apply to the robot.
+     * Positive values indicate leftward acceleration.
+     */
+    private double lateral;
+
+    /**
+     * The rotational acceleration to apply to the robot.
+     * Positive value indicate counterclockwise acceleration.
+     */
+    private double yaw;
+
+    /**
+     * Constructs a Trajectory.
+     *
+     * @param axial - the axial acceleration to apply to the robot.
+     * @param lateral - the lateral acceleration to apply to the robot.
+     * @param yaw - the rotational acceleration to apply to the robot.
+     */
+    Trajectory(double axial, double lateral, double yaw) {
+        this.axial = axial;
+        this.lateral = lateral;
+        this.yaw = yaw;
+    }
+
+    /**
+     * The axial acceleration to apply to the robot.
+     *
+     * @return The axial acceleration specified by this trajectory.
+     */
+    public double getAxial() {
+        return axial;
+    }
+
+    /**
+     * The lateral acceleration to apply to the robot.
+     *
+     * @return The lateral acceleration specified by this trajectory.
+     */
+    public double getLateral() {
+        return lateral;
+    }
+
+    /**
+     * The rotational acceleration to apply to the robot.
+     *
+     * @return The rotational acceleration specified by this trajectory.
+     */
+    public double getYaw() {
+        return yaw;
+    }
+}
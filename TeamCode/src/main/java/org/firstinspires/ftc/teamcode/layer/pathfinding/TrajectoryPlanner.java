@@ -0,0 +1,1128 @@
+package org.firstinspires.ftc.teamcode.layer.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.firstinspires.ftc.teamcode.Units;
+import org.firstinspires.ftc.teamcode.matrix.FastTrig;
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
+
+/**
+ * Finds the best trajectory toward a goal using the dynamic window approach.
+ * A planner holds no state between calls to {@link #plan} other than scratch fields, so a single
+ * instance may be reused but must only be used by one thread at a time.
+ *
+ * <p>With a single search level the whole trajectory space is searched exhaustively at
+ * {@link #TRAJECTORY_SEARCH_INCREMENT}. With more levels the search is coarse to fine: the space is
+ * first scored on a lattice {@link #SEARCH_REFINEMENT_FACTOR} times coarser per extra level, then
+ * the neighborhoods of the best few candidates are searched again at each finer increment until the
+ * full resolution is reached. This visits a tiny fraction of the trajectories at the risk of
+ * missing a narrow optimum that falls between the candidates of the coarser lattices.
+ *
+ * <p>Either search can score trajectories on a pool of worker threads. The trajectory space is cut
+ * into slabs of constant axial acceleration which are scored independently, then the per-slab
+ * results are reduced in slab order with ties going to the earlier slab, so the chosen trajectory
+ * is the same regardless of the number of threads.
+ *
+ * <p>A plan may be given a time budget and a seed, usually the previously planned trajectory. The
+ * full resolution lattice is first climbed from the seed, then the configured search runs with the
+ * slabs nearest the seed scored first. Once the budget runs out no more trajectories are scored and
+ * the best one scored so far is returned, so the cost of a plan is bounded by the budget plus the
+ * time to score one row of a slab.
+ */
+final class TrajectoryPlanner {
+    /**
+     * The trajectory parameter increment to use between trajectories when numerically maximizing.
+     * This is the increment of the finest search level.
+     */
+    private static final double TRAJECTORY_SEARCH_INCREMENT = 0.01;
+
+    /**
+     * How many times finer each level of a coarse to fine search is than the level before it.
+     */
+    static final int SEARCH_REFINEMENT_FACTOR = 5;
+
+    /**
+     * The coefficient of the target angle term in the objective function.
+     */
+    private static final double TARGET_ANGLE_COEFF = 0.5;
+
+    /**
+     * The coefficient of the clearance term in the objective function.
+     */
+    private static final double CLEARANCE_COEFF = 1.2;
+
+    /**
+     * The coefficient of the speed term in the objective function.
+     */
+    private static final double SPEED_COEFF = 0.5;
+
+    /**
+     * How often to recalculate the optimal trajectory in seconds.
+     * Also the duration over which a trajectory's accelerations are simulated.
+     */
+    static final double CALCULATE_INTERVAL = 0.25;
+
+    /**
+     * A constant in the smoothing function used on the target angle term of the objective function.
+     * $\frac{c}{k}$ = maximum score of target angle term.
+     */
+    private static final double TARGET_ANGLE_SMOOTHING_C = 1000;
+
+    /**
+     * A constant in the smoothing function used on the target angle term of the objective function.
+     * Controls speed of decay as target angle moves away from 0.
+     *
+     * @see #TARGET_ANGLE_SMOOTHING_C
+     */
+    private static final double TARGET_ANGLE_SMOOTHING_K = 1;
+
+    /**
+     * The fraction of a trajectory that should be between successive points checked for the
+     * clearance term.
+     */
+    private static final double CLEARANCE_STEP = 0.05;
+
+    /**
+     * The times in seconds into a trajectory at which the robot's pose is checked for clearance,
+     * {@link #CLEARANCE_STEP} of the trajectory apart.
+     */
+    private static final double[] SAMPLE_TIMES = getSampleTimes();
+
+    /**
+     * The number of levels of the search; 1 searches exhaustively.
+     */
+    private final int searchLevels;
+
+    /**
+     * The number of best candidates of each coarse level whose neighborhoods are refined.
+     */
+    private final int searchTopK;
+
+    /**
+     * The pool slabs are scored on, or null to score them on the calling thread.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The most threads that can score slabs at the same time.
+     */
+    private final int maxParallelism;
+
+    /**
+     * The total time in nanoseconds spent scoring slabs during the last plan, summed over threads.
+     */
+    private final AtomicLong workTime;
+
+    /**
+     * The ratio of the time spent scoring slabs to the elapsed time of the last plan.
+     */
+    private volatile double lastParallelUtilization;
+
+    /**
+     * Whether the last plan finished its search before its deadline.
+     */
+    private volatile boolean lastPlanComplete;
+
+    /**
+     * How the trigonometry of scoring trajectories is computed by plans started from now on.
+     */
+    private volatile FastTrig.Mode trigMode = FastTrig.Mode.EXACT;
+
+    /**
+     * How the trigonometry of scoring trajectories is computed by the plan in progress.
+     * Latched from {@link #trigMode} when the plan starts so that every trajectory of a plan is
+     * scored the same way.
+     */
+    private FastTrig.Mode trig;
+
+    /**
+     * Whether the plan in progress has a deadline.
+     */
+    private boolean bounded;
+
+    /**
+     * The {@link System#nanoTime} at which the plan in progress must stop scoring trajectories.
+     * Only meaningful if {@link #bounded}.
+     */
+    private long deadline;
+
+    /**
+     * Whether the plan in progress has passed its deadline.
+     * Set by whichever thread first notices.
+     */
+    private volatile boolean expired;
+
+    /**
+     * The goal field pose of the snapshot being planned from.
+     */
+    private Pose2d goal;
+
+    /**
+     * The obstacles of the snapshot being planned from.
+     */
+    private List<Obstacle> obstacles;
+
+    /**
+     * The field pose of the robot before the planned trajectory is applied.
+     */
+    private Pose2d initialPose;
+
+    /**
+     * The field space velocity of the robot before the planned trajectory is applied.
+     */
+    private Pose2d initialVelocity;
+
+    /**
+     * The sine of the robot's heading before the planned trajectory is applied.
+     */
+    private double initialSin;
+
+    /**
+     * The cosine of the robot's heading before the planned trajectory is applied.
+     */
+    private double initialCos;
+
+    /**
+     * Constructs a TrajectoryPlanner that searches exhaustively.
+     */
+    TrajectoryPlanner() {
+        this(1, 1, 1);
+    }
+
+    /**
+     * Constructs a TrajectoryPlanner that plans on the calling thread.
+     *
+     * @param searchLevels - the number of levels of the coarse to fine search, or 1 to search
+     * exhaustively at full resolution.
+     * @param searchTopK - the number of best candidates of each coarse level whose neighborhoods
+     * are searched at the next finer level. Ignored when searching exhaustively.
+     * @throws IllegalArgumentException if either argument is less than 1.
+     */
+    TrajectoryPlanner(int searchLevels, int searchTopK) {
+        this(searchLevels, searchTopK, 1);
+    }
+
+    /**
+     * Constructs a TrajectoryPlanner.
+     *
+     * @param searchLevels - the number of levels of the coarse to fine search, or 1 to search
+     * exhaustively at full resolution.
+     * @param searchTopK - the number of best candidates of each coarse level whose neighborhoods
+     * are searched at the next finer level. Ignored when searching exhaustively.
+     * @param threads - the number of threads to score trajectories on. With 1, trajectories are
+     * scored on the thread calling {@link #plan} and no pool is created.
+     * @throws IllegalArgumentException if any argument is less than 1.
+     */
+    TrajectoryPlanner(int searchLevels, int searchTopK, int threads) {
+        checkSearchArguments(searchLevels, searchTopK, threads);
+        this.searchLevels = searchLevels;
+        this.searchTopK = searchTopK;
+        pool = threads == 1 ? null : new ForkJoinPool(threads);
+        maxParallelism = Math.min(threads, Runtime.getRuntime().availableProcessors());
+        workTime = new AtomicLong();
+        lastParallelUtilization = Double.NaN;
+        lastPlanComplete = false;
+    }
+
+    /**
+     * Checks the arguments of a planner before one is constructed.
+     *
+     * @param searchLevels - the number of levels of the coarse to fine search.
+     * @param searchTopK - the number of best candidates of each coarse level searched further.
+     * @param threads - the number of threads to score trajectories on.
+     * @throws IllegalArgumentException if any argument is less than 1.
+     */
+    static void checkSearchArguments(int searchLevels, int searchTopK, int threads) {
+        if (searchLevels < 1) {
+            throw new IllegalArgumentException(String.format(
+                "Search level count %d is less than 1",
+                searchLevels
+            ));
+        }
+        if (searchTopK < 1) {
+            throw new IllegalArgumentException(String.format(
+                "Search candidate count %d is less than 1",
+                searchTopK
+            ));
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException(String.format(
+                "Thread count %d is less than 1",
+                threads
+            ));
+        }
+    }
+
+    /**
+     * Stops the planner's worker threads, if it has any.
+     * The planner must not be used afterward.
+     */
+    void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns how busy the scoring threads were during the last plan.
+     * This is utilization, not speedup: scoring that is slower per trajectory on several threads,
+     * for instance because they contend for memory, still counts fully. A speedup over one thread
+     * can only be found by timing a single-threaded plan of the same snapshot.
+     * Safe to call from any thread.
+     *
+     * @return The total time spent scoring trajectories across all threads divided by the elapsed
+     * time of the last plan, or NaN if nothing has been planned yet. This is about 1 when planning
+     * on a single thread. Slabs are timed by the wall clock, which keeps running while a thread
+     * waits for a core, so the ratio is capped at the lesser of the thread and processor counts.
+     */
+    double getLastParallelUtilization() {
+        return lastParallelUtilization;
+    }
+
+    /**
+     * Returns whether the last plan searched everything it set out to.
+     * Safe to call from any thread.
+     *
+     * @return Whether the last plan finished before its deadline, or false if nothing has been
+     * planned yet. A plan that was cut short returned the best trajectory scored before the
+     * deadline.
+     */
+    boolean isLastPlanComplete() {
+        return lastPlanComplete;
+    }
+
+    /**
+     * Sets how the trigonometry of scoring trajectories is computed.
+     * Safe to call from any thread; takes effect from the next plan.
+     *
+     * @param mode - {@link FastTrig.Mode#EXACT} to compute it with {@link Math}, or
+     * {@link FastTrig.Mode#FAST} to compute it with {@link FastTrig}, which is faster and differs
+     * by at most a few units in the last place.
+     */
+    void setTrigMode(FastTrig.Mode mode) {
+        trigMode = mode;
+    }
+
+    /**
+     * Computes a comparable score for a trajectory considering three factors.
+     * This is the objective function the dynamic window approach optimizes. Trajectories are
+     * passed as their parameters so that scoring one allocates nothing.
+     *
+     * @param axial - the trajectory's axial acceleration.
+     * @param lateral - the trajectory's lateral acceleration.
+     * @param rollout - the rollout of the trajectory, filled in by {@link #checkDynamicWindow}.
+     * @return A comparable score for the trajectory.
+     */
+    private double evaluateTrajectory(double axial, double lateral, Rollout rollout) {
+        double weightedTargetAngle = evaluateTargetAngle(rollout) * TARGET_ANGLE_COEFF;
+        double weightedClearance = evaluateClearence(rollout) * CLEARANCE_COEFF;
+        double weightedSpeed = evaluateSpeed(axial, lateral) * SPEED_COEFF;
+        return weightedTargetAngle + weightedClearance + weightedSpeed;
+    }
+
+    /**
+     * Computes a comparable score for a trajectory on the grounds of final angle to target.
+     *
+     * @param rollout - the rollout of the trajectory to evaluate.
+     * @return A comparable score for the trajectory which is higher the more directly the robot
+     * would face the goal at the end of the evaluated trajectory.
+     */
+    private double evaluateTargetAngle(Rollout rollout) {
+        int end = SAMPLE_TIMES.length;
+        double deltaX = goal.getX() - rollout.xs[end];
+        double deltaY = goal.getY() - rollout.ys[end];
+        // The angle between the final heading and the direction to the goal
+        double dot = rollout.finalCos * deltaX + rollout.finalSin * deltaY;
+        double directionLengthSq = rollout.finalCos * rollout.finalCos
+            + rollout.finalSin * rollout.finalSin;
+        double angle = trig.acos(
+            dot / Math.sqrt(directionLengthSq * (deltaX * deltaX + deltaY * deltaY))
+        );
+        return TARGET_ANGLE_SMOOTHING_C / (angle + TARGET_ANGLE_SMOOTHING_K);
+    }
+
+    /**
+     * Computes a comparable score for a trajectory on the grounds of minimum clearance to
+     * obstacles.
+     *
+     * @param rollout - the rollout of the trajectory to evaluate.
+     * @return A comparable score for the trajectory which is higher the greater the minimum
+     * clearance the robot has to any obstacle at any point during the evaluated trajectory.
+     */
+    private double evaluateClearence(Rollout rollout) {
+        // Found while checking the trajectory against the dynamic window
+        return rollout.minClearance;
+    }
+
+    /**
+     * Computes a comparable score for a trajectory on the grounds of final speed of the robot.
+     * The trajectory's robot space accelerations are rotated into field space by the initial
+     * heading before being added to the field space initial velocity.
+     *
+     * @param axial - the trajectory's axial acceleration.
+     * @param lateral - the trajectory's lateral acceleration.
+     * @return A comparable score for the trajectory which is higher the greater the robot's
+     * translational velocity at the end of the evaluated trajectory.
+     */
+    private double evaluateSpeed(double axial, double lateral) {
+        double ax = axial * initialCos - lateral * initialSin;
+        double ay = axial * initialSin + lateral * initialCos;
+        double vx = ax * CALCULATE_INTERVAL + initialVelocity.getX();
+        double vy = ay * CALCULATE_INTERVAL + initialVelocity.getY();
+        return Math.sqrt(vx * vx + vy * vy);
+    }
+
+    /**
+     * Maximizes the objective function inside the dynamic window.
+     * Searches for the trajectory with the highest score from the objective function within a small
+     * rectangular region. Trajectories outside the dynamic window are culled before calling the
+     * objective function.
+     *
+     * @param snapshot - the robot and field state to plan from.
+     * @return The best-scoring trajectory.
+     */
+    Trajectory plan(PlanningSnapshot snapshot) {
+        return plan(snapshot, null, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Maximizes the objective function inside the dynamic window within a time budget.
+     * Trajectories are scored best first: the lattice around the seed is climbed, then the
+     * configured search runs with the slabs nearest the seed first. A plan that completes scores
+     * at least as well as {@link #plan(PlanningSnapshot)} would.
+     *
+     * @param snapshot - the robot and field state to plan from.
+     * @param seed - the trajectory to start searching from, usually the previously planned one, or
+     * null to search in lattice order.
+     * @param budget - the time in seconds after which no more trajectories are scored, or
+     * {@link Double#POSITIVE_INFINITY} to always finish the search.
+     * @return The best trajectory scored before the deadline.
+     * @throws IllegalArgumentException if the budget is not positive.
+     */
+    Trajectory plan(PlanningSnapshot snapshot, Trajectory seed, double budget) {
+        if (!(budget > 0)) {
+            throw new IllegalArgumentException(String.format(
+                "Planning budget %f s is not positive",
+                budget
+            ));
+        }
+        setSnapshot(snapshot);
+
+        long start = System.nanoTime();
+        bounded = budget != Double.POSITIVE_INFINITY;
+        deadline = bounded
+            ? start + (long)Units.convert(budget, Units.Time.SEC, Units.Time.NANO)
+            : 0;
+        expired = false;
+        workTime.set(0);
+        CandidateList best = new CandidateList(1);
+        if (seed != null) {
+            climb(seed, best);
+        }
+        if (searchLevels == 1) {
+            searchExhaustive(seed, best);
+        } else {
+            searchCoarseToFine(seed, best);
+        }
+        long elapsed = System.nanoTime() - start;
+        lastParallelUtilization = elapsed == 0
+            ? 1
+            : Math.min((double)workTime.get() / elapsed, maxParallelism);
+        lastPlanComplete = !expired;
+        if (best.size() == 0) {
+            // Dynamic window was empty of trajectories (all valid ones interesct obstacles)
+            // Spin until the dynamic window isn't empty
+            return new Trajectory(0, 0, 1);
+        }
+        return best.get(0);
+    }
+
+    /**
+     * Scores a single trajectory with the objective function.
+     * Lets the trajectories chosen by different search settings be compared on equal terms.
+     *
+     * @param snapshot - the robot and field state the trajectory is taken from.
+     * @param t - the trajectory to score.
+     * @return The trajectory's score, or negative infinity if it is outside the dynamic window.
+     */
+    double score(PlanningSnapshot snapshot, Trajectory t) {
+        setSnapshot(snapshot);
+        Rollout rollout = new Rollout();
+        return checkDynamicWindow(t.getAxial(), t.getLateral(), t.getYaw(), rollout)
+            ? evaluateTrajectory(t.getAxial(), t.getLateral(), rollout)
+            : Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Copies the state to plan from into the planner's scratch fields.
+     *
+     * @param snapshot - the robot and field state to plan from.
+     */
+    private void setSnapshot(PlanningSnapshot snapshot) {
+        goal = snapshot.getGoal();
+        obstacles = snapshot.getObstacles();
+        initialPose = snapshot.getInitialPose();
+        initialVelocity = snapshot.getInitialVelocity();
+        trig = trigMode;
+        initialSin = trig.sin(initialPose.getHeading());
+        initialCos = trig.cos(initialPose.getHeading());
+    }
+
+    /**
+     * Climbs the full resolution lattice from a seed, repeatedly moving to the best of the 26
+     * surrounding lattice points while that improves the score.
+     * Between successive plans the optimum usually drifts only slightly, so this quickly finds a
+     * good trajectory before the rest of the search space is visited.
+     *
+     * @param seed - the trajectory to climb from; it is moved to the nearest lattice point.
+     * @param best - the best trajectory scored so far, which every point climbed to is offered to.
+     */
+    private void climb(Trajectory seed, CandidateList best) {
+        long start = System.nanoTime();
+        double increment = TRAJECTORY_SEARCH_INCREMENT;
+        int steps = getLatticeSteps(increment);
+        int a = getLatticeIndex(seed.getAxial(), increment, steps);
+        int l = getLatticeIndex(seed.getLateral(), increment, steps);
+        int y = getLatticeIndex(seed.getYaw(), increment, steps);
+        Rollout rollout = new Rollout();
+        // A seed outside of the dynamic window is still climbed from, toward any neighbor inside it
+        double currentScore = Double.NEGATIVE_INFINITY;
+        double seedAxial = -1 + a * increment;
+        double seedLateral = -1 + l * increment;
+        double seedYaw = -1 + y * increment;
+        if (checkDynamicWindow(seedAxial, seedLateral, seedYaw, rollout)) {
+            currentScore = evaluateTrajectory(seedAxial, seedLateral, rollout);
+            best.offer(seedAxial, seedLateral, seedYaw, currentScore, 0);
+        }
+        while (!isExpired()) {
+            int bestA = a;
+            int bestL = l;
+            int bestY = y;
+            double bestScore = currentScore;
+            for (int i = Math.max(a - 1, 0); i <= Math.min(a + 1, steps - 1); ++i) {
+                for (int j = Math.max(l - 1, 0); j <= Math.min(l + 1, steps - 1); ++j) {
+                    for (int k = Math.max(y - 1, 0); k <= Math.min(y + 1, steps - 1); ++k) {
+                        double axial = -1 + i * increment;
+                        double lateral = -1 + j * increment;
+                        double yaw = -1 + k * increment;
+                        if ((i != a || j != l || k != y)
+                            && checkDynamicWindow(axial, lateral, yaw, rollout)) {
+                            double score = evaluateTrajectory(axial, lateral, rollout);
+                            if (score > bestScore) {
+                                bestA = i;
+                                bestL = j;
+                                bestY = k;
+                                bestScore = score;
+                            }
+                        }
+                    }
+                }
+            }
+            if (bestA == a && bestL == l && bestY == y) {
+                // Local maximum
+                break;
+            }
+            a = bestA;
+            l = bestL;
+            y = bestY;
+            currentScore = bestScore;
+            best.offer(-1 + a * increment, -1 + l * increment, -1 + y * increment, currentScore, 0);
+        }
+        workTime.addAndGet(System.nanoTime() - start);
+    }
+
+    /**
+     * Scores every trajectory in the search space at full resolution.
+     * Each slab keeps only its own best trajectory, so no memory proportional to the search space
+     * is needed. Slabs are scored outward from the seed's, but reduced in lattice order so the
+     * result does not depend on the seed unless the search is cut short.
+     *
+     * @param seed - the trajectory whose slab is scored first, or null to score slabs in order.
+     * @param best - the best trajectory scored so far, which the best of every slab is offered to.
+     */
+    private void searchExhaustive(Trajectory seed, CandidateList best) {
+        double increment = TRAJECTORY_SEARCH_INCREMENT;
+        int steps = getLatticeSteps(increment);
+        int[] order = getSearchOrder(
+            seed == null ? 0 : getLatticeIndex(seed.getAxial(), increment, steps),
+            steps
+        );
+        List<Callable<CandidateList>> slabs = new ArrayList<>(steps);
+        for (int i : order) {
+            double a = -1 + i * increment;
+            slabs.add(() -> {
+                long start = System.nanoTime();
+                CandidateList slabBest = new CandidateList(1);
+                Rollout rollout = new Rollout();
+                for (int j = 0; j < steps && !isExpired(); ++j) {
+                    for (int k = 0; k < steps; ++k) {
+                        double lateral = -1 + j * increment;
+                        double yaw = -1 + k * increment;
+                        if (checkDynamicWindow(a, lateral, yaw, rollout)) {
+                            // No tolerance, so only a strictly better score replaces the best
+                            double score = evaluateTrajectory(a, lateral, rollout);
+                            slabBest.offer(a, lateral, yaw, score, 0);
+                        }
+                    }
+                }
+                workTime.addAndGet(System.nanoTime() - start);
+                return slabBest;
+            });
+        }
+        List<CandidateList> results = runAll(slabs);
+        CandidateList[] slabBests = new CandidateList[steps];
+        for (int n = 0; n < steps; ++n) {
+            slabBests[order[n]] = results.get(n);
+        }
+        for (CandidateList slabBest : slabBests) {
+            if (slabBest.size() > 0) {
+                best.offer(slabBest, 0, 0);
+            }
+        }
+    }
+
+    /**
+     * Scores a coarse lattice of the search space, then repeatedly rescores the neighborhoods of
+     * the best candidates at finer increments.
+     * Lattice points are computed from integer indices rather than accumulated so that every level
+     * lands on the full resolution grid. Each level's scores are computed in bulk, then offered to
+     * the candidate list in lattice order on the calling thread, since which candidates survive
+     * depends on the order they are offered in. If the deadline passes partway through a level,
+     * its best is only kept if it beats the best of the coarser level.
+     *
+     * @param seed - the trajectory whose slab of the coarsest lattice is scored first, or null to
+     * score slabs in order.
+     * @param best - the best trajectory scored so far, which the search's result is offered to.
+     */
+    private void searchCoarseToFine(Trajectory seed, CandidateList best) {
+        double increment = TRAJECTORY_SEARCH_INCREMENT
+            * Math.pow(SEARCH_REFINEMENT_FACTOR, searchLevels - 1);
+        int steps = getLatticeSteps(increment);
+        Trajectory[] origins = new Trajectory[] { new Trajectory(-1, -1, -1) };
+        int first = seed == null ? 0 : getLatticeIndex(seed.getAxial(), increment, steps);
+        CandidateList candidates = offerCubes(origins, 0, steps, first, increment);
+        for (int level = 1; level < searchLevels && candidates.size() > 0; ++level) {
+            if (isExpired()) {
+                break;
+            }
+            increment /= SEARCH_REFINEMENT_FACTOR;
+            origins = new Trajectory[candidates.size()];
+            for (int c = 0; c < origins.length; ++c) {
+                origins[c] = candidates.get(c);
+            }
+            // The optimum near a candidate lies within one coarse increment of it
+            int radius = SEARCH_REFINEMENT_FACTOR;
+            CandidateList refined = offerCubes(origins, radius, 2 * radius + 1, radius, increment);
+            if (expired
+                && (refined.size() == 0 || !(refined.getScore(0) > candidates.getScore(0)))) {
+                // Cut short before rescoring the coarser level's best
+                break;
+            }
+            candidates = refined;
+        }
+        if (candidates.size() > 0) {
+            best.offer(candidates, 0, 0);
+        }
+    }
+
+    /**
+     * Scores cubic blocks of lattice points and collects the best into a candidate list.
+     * The point at indices (i, j, k) of a cube has each parameter offset from the cube's origin by
+     * the index minus the given offset, times the increment. Cubes are scored in the order given,
+     * and the slabs of each cube outward from a given index.
+     *
+     * @param origins - the origin of each cube.
+     * @param offset - the index of each cube at which its origin lies along every axis.
+     * @param size - the number of lattice points along each axis of every cube.
+     * @param first - the index of the slab of each cube to score first.
+     * @param increment - the lattice increment. Candidates are kept more than one increment apart
+     * so that they spread over several peaks of the objective function rather than crowding onto
+     * neighboring lattice points of the same one.
+     * @return The best points of all the cubes.
+     */
+    private CandidateList offerCubes(
+        Trajectory[] origins,
+        int offset,
+        int size,
+        int first,
+        double increment
+    ) {
+        int slabSize = size * size;
+        int[] order = getSearchOrder(first, size);
+        List<Callable<double[]>> slabs = new ArrayList<>(origins.length * size);
+        for (Trajectory origin : origins) {
+            for (int i : order) {
+                double a = origin.getAxial() + (i - offset) * increment;
+                slabs.add(() -> {
+                    long start = System.nanoTime();
+                    // NaN marks trajectories outside of the dynamic window or left unscored at the
+                    // deadline, which are skipped
+                    double[] scores = new double[slabSize];
+                    Arrays.fill(scores, Double.NaN);
+                    Rollout rollout = new Rollout();
+                    for (int j = 0; j < size && !isExpired(); ++j) {
+                        double lateral = origin.getLateral() + (j - offset) * increment;
+                        for (int k = 0; k < size; ++k) {
+                            double yaw = origin.getYaw() + (k - offset) * increment;
+                            if (checkDynamicWindow(a, lateral, yaw, rollout)) {
+                                scores[j * size + k] = evaluateTrajectory(a, lateral, rollout);
+                            }
+                        }
+                    }
+                    workTime.addAndGet(System.nanoTime() - start);
+                    return scores;
+                });
+            }
+        }
+        List<double[]> results = runAll(slabs);
+        double[][] slabScores = new double[results.size()][];
+        for (int n = 0; n < results.size(); ++n) {
+            slabScores[n / size * size + order[n % size]] = results.get(n);
+        }
+        CandidateList candidates = new CandidateList(searchTopK);
+        for (int c = 0; c < origins.length; ++c) {
+            Trajectory origin = origins[c];
+            for (int i = 0; i < size; ++i) {
+                double[] scores = slabScores[c * size + i];
+                for (int j = 0; j < size; ++j) {
+                    for (int k = 0; k < size; ++k) {
+                        double score = scores[j * size + k];
+                        if (Double.isNaN(score)) {
+                            continue;
+                        }
+                        candidates.offer(
+                            origin.getAxial() + (i - offset) * increment,
+                            origin.getLateral() + (j - offset) * increment,
+                            origin.getYaw() + (k - offset) * increment,
+                            score,
+                            increment * 1.5
+                        );
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Checks whether the plan in progress has passed its deadline.
+     * Safe to call from the pool's threads.
+     *
+     * @return Whether no more trajectories should be scored.
+     */
+    private boolean isExpired() {
+        if (!expired && bounded && System.nanoTime() - deadline >= 0) {
+            expired = true;
+        }
+        return expired;
+    }
+
+    /**
+     * Runs tasks on the pool, or in order on the calling thread if there is no pool.
+     *
+     * @param tasks - the tasks to run.
+     * @return The results of the tasks in the order the tasks were given.
+     * @throws IllegalStateException if the calling thread is interrupted while waiting.
+     */
+    private <T> List<T> runAll(List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            if (pool == null) {
+                for (Callable<T> task : tasks) {
+                    results.add(task.call());
+                }
+            } else {
+                for (Future<T> future : pool.invokeAll(tasks)) {
+                    results.add(future.get());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while planning", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Scoring trajectories failed", e.getCause());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            // Scoring tasks throw no checked exceptions; Callable merely declares them
+            throw new IllegalStateException("Scoring trajectories failed", e);
+        }
+        return results;
+    }
+
+    /**
+     * Returns the number of lattice points along each axis of the whole search space.
+     *
+     * @param increment - the lattice increment.
+     * @return The number of points from -1 inclusive to 1 exclusive.
+     */
+    private static int getLatticeSteps(double increment) {
+        return (int)Math.ceil(2 / increment - 1e-9);
+    }
+
+    /**
+     * Returns the index of the lattice point nearest to a trajectory parameter.
+     *
+     * @param value - the trajectory parameter.
+     * @param increment - the lattice increment.
+     * @param steps - the number of lattice points along the axis.
+     * @return The index of the nearest lattice point, clamped to the lattice.
+     */
+    private static int getLatticeIndex(double value, double increment, int steps) {
+        return Math.max(0, Math.min(steps - 1, (int)Math.round((value + 1) / increment)));
+    }
+
+    /**
+     * Orders the indices along one axis outward from a starting index.
+     * Indices equally far from the start are ordered lower first, so starting from 0 gives the
+     * natural order.
+     *
+     * @param first - the index to start from.
+     * @param size - the number of indices.
+     * @return Every index from 0 to size - 1, nearest to the start first.
+     */
+    private static int[] getSearchOrder(int first, int size) {
+        int[] order = new int[size];
+        order[0] = first;
+        int n = 1;
+        for (int distance = 1; n < size; ++distance) {
+            if (first - distance >= 0) {
+                order[n++] = first - distance;
+            }
+            if (first + distance < size) {
+                order[n++] = first + distance;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Computes the times into a trajectory at which its clearance is checked.
+     *
+     * @return The times in seconds, starting at 0 and {@link #CLEARANCE_STEP} of
+     * {@link #CALCULATE_INTERVAL} apart, before the end of the trajectory.
+     */
+    private static double[] getSampleTimes() {
+        // Fractions are accumulated so that the samples match those of a loop over the trajectory
+        int count = 0;
+        for (double frac = 0; frac < 1; frac += CLEARANCE_STEP) {
+            ++count;
+        }
+        double[] times = new double[count];
+        int i = 0;
+        for (double frac = 0; frac < 1; frac += CLEARANCE_STEP) {
+            times[i++] = frac * CALCULATE_INTERVAL;
+        }
+        return times;
+    }
+
+    /**
+     * Checks if a trajectory is within the dynamic window.
+     * During optimization, trajectories not within the dynamic window may be culled from the
+     * search. The cheap speed limit is checked first so that the rollout is only computed for
+     * trajectories the robot can achieve. The rollout is left filled in for
+     * {@link #evaluateTrajectory}, along with the least clearance along it.
+     *
+     * @param axial - the trajectory's axial acceleration.
+     * @param lateral - the trajectory's lateral acceleration.
+     * @param yaw - the trajectory's rotational acceleration.
+     * @param rollout - the rollout to compute the trajectory's poses into.
+     * @return Whether the checked trajectory is achievable by the robot and the trajectory would
+     * not cause the robot to crash into an obstacle.
+     */
+    private boolean checkDynamicWindow(double axial, double lateral, double yaw, Rollout rollout) {
+        if (!(Math.abs(axial) + Math.abs(lateral) + Math.abs(yaw) < 1)) {
+            return false;
+        }
+        rollOut(axial, lateral, yaw, rollout);
+        double minClearence = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < SAMPLE_TIMES.length; ++i) {
+            double x = rollout.xs[i];
+            double y = rollout.ys[i];
+            double heading = rollout.headings[i];
+            // Indexed to avoid allocating an iterator for every sample
+            for (int j = 0; j < obstacles.size(); ++j) {
+                double clearanceToObstacle = obstacles.get(j).getDistanceTo(x, y, heading);
+                if (clearanceToObstacle < 0) {
+                    return false;
+                }
+                if (minClearence > clearanceToObstacle) {
+                    minClearence = clearanceToObstacle;
+                }
+            }
+        }
+        rollout.minClearance = minClearence;
+        return true;
+    }
+
+    /**
+     * Computes the predicted robot pose after applying the given set of accelerations (trajectory)
+     * at every sample time and at the end of the time interval.
+     *
+     * <p>The trajectory is a vector \(\vec{z}=\langle z_a,z_l,z_\theta\rangle\) of constant axial,
+     * lateral, and rotational accelerations. Integrating the rotational one twice gives the
+     * heading exactly:
+     * \[\theta(t) = \theta_0 + v_\theta t + \frac{z_\theta t^2}{2}\]
+     * The axial and lateral accelerations are along the robot's axes, so along the field axes
+     * they turn with the robot:
+     * \[z_x(t) = z_a\cos(\theta(t)) - z_l\sin(\theta(t))\]
+     * \[z_y(t) = z_a\sin(\theta(t)) + z_l\cos(\theta(t))\]
+     * Integrating these twice has no closed form while the robot's rotation accelerates, so the
+     * field space velocity and position are integrated from one sample time to the next, taking
+     * the field acceleration to vary linearly in between:
+     * \[v(t + h) = v(t) + h\frac{z(t) + z(t + h)}{2}\]
+     * \[p(t + h) = p(t) + h v(t) + h^2\frac{2z(t) + z(t + h)}{6}\]
+     * The headings are only ever used through their sines and cosines, so the result does not
+     * depend on the start heading other than by rotating with it. The sine and cosine of each
+     * sample's heading are the only trigonometry needed.
+     *
+     * @param za - the trajectory's axial acceleration.
+     * @param zl - the trajectory's lateral acceleration.
+     * @param zth - the trajectory's rotational acceleration.
+     * @param rollout - the rollout to write the poses to.
+     */
+    private void rollOut(double za, double zl, double zth, Rollout rollout) {
+        double vth0 = initialVelocity.getHeading();
+        double th0 = initialPose.getHeading();
+        double x = initialPose.getX();
+        double y = initialPose.getY();
+        double vx = initialVelocity.getX();
+        double vy = initialVelocity.getY();
+        double lastTime = 0;
+        double lastAx = za * initialCos - zl * initialSin;
+        double lastAy = za * initialSin + zl * initialCos;
+
+        for (int i = 0; i <= SAMPLE_TIMES.length; ++i) {
+            double tf = i < SAMPLE_TIMES.length ? SAMPLE_TIMES[i] : CALCULATE_INTERVAL;
+            double th = th0 + vth0 * tf + zth * tf * tf / 2;
+            trig.sinCos(th, rollout.sinCos);
+            double sin = rollout.sinCos[0];
+            double cos = rollout.sinCos[1];
+            double ax = za * cos - zl * sin;
+            double ay = za * sin + zl * cos;
+            double h = tf - lastTime;
+            x += h * vx + h * h * (2 * lastAx + ax) / 6;
+            y += h * vy + h * h * (2 * lastAy + ay) / 6;
+            vx += h * (lastAx + ax) / 2;
+            vy += h * (lastAy + ay) / 2;
+            lastTime = tf;
+            lastAx = ax;
+            lastAy = ay;
+            rollout.xs[i] = x;
+            rollout.ys[i] = y;
+            rollout.headings[i] = th;
+            rollout.finalSin = sin;
+            rollout.finalCos = cos;
+        }
+    }
+
+    /**
+     * The poses a trajectory passes through, computed once by {@link #checkDynamicWindow} and
+     * shared by every term of the objective function.
+     * Each thread scoring trajectories has its own, which is overwritten for every trajectory so
+     * that scoring allocates nothing per trajectory.
+     */
+    private static final class Rollout {
+        /**
+         * The field x coordinate of the robot in meters at each sample time, then at the end of
+         * the trajectory.
+         */
+        private final double[] xs;
+
+        /**
+         * The field y coordinate of the robot in meters at each sample time, then at the end of
+         * the trajectory.
+         */
+        private final double[] ys;
+
+        /**
+         * The heading of the robot in radians at each sample time, then at the end of the
+         * trajectory.
+         */
+        private final double[] headings;
+
+        /**
+         * Scratch space for the sine and cosine of each sample's heading.
+         */
+        private final double[] sinCos = new double[2];
+
+        /**
+         * The sine of the heading at the end of the trajectory.
+         */
+        private double finalSin;
+
+        /**
+         * The cosine of the heading at the end of the trajectory.
+         */
+        private double finalCos;
+
+        /**
+         * The least clearance in meters to any obstacle at any sample time.
+         */
+        private double minClearance;
+
+        /**
+         * Constructs a Rollout with room for every sample time and the end of the trajectory.
+         */
+        Rollout() {
+            xs = new double[SAMPLE_TIMES.length + 1];
+            ys = new double[SAMPLE_TIMES.length + 1];
+            headings = new double[SAMPLE_TIMES.length + 1];
+        }
+    }
+
+    /**
+     * The best few trajectories scored at one level of a coarse to fine search, ordered from best
+     * to worst.
+     * Trajectories are held as their parameters so that offering one allocates nothing; a
+     * Trajectory is only built for a candidate that is asked for.
+     */
+    private static final class CandidateList {
+        /**
+         * The axial accelerations of the candidate trajectories, best first.
+         */
+        private final double[] axials;
+
+        /**
+         * The lateral accelerations of the candidate trajectories.
+         */
+        private final double[] laterals;
+
+        /**
+         * The rotational accelerations of the candidate trajectories.
+         */
+        private final double[] yaws;
+
+        /**
+         * The scores of the candidate trajectories.
+         */
+        private final double[] scores;
+
+        /**
+         * The number of candidates held.
+         */
+        private int size;
+
+        /**
+         * Constructs an empty CandidateList.
+         *
+         * @param capacity - the number of candidates to keep.
+         */
+        CandidateList(int capacity) {
+            axials = new double[capacity];
+            laterals = new double[capacity];
+            yaws = new double[capacity];
+            scores = new double[capacity];
+            size = 0;
+        }
+
+        /**
+         * Returns the number of candidates held.
+         *
+         * @return The number of candidates, at most the capacity.
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Returns a candidate.
+         *
+         * @param index - the rank of the candidate, where 0 is the best.
+         * @return A new Trajectory with the candidate's parameters.
+         */
+        Trajectory get(int index) {
+            return new Trajectory(axials[index], laterals[index], yaws[index]);
+        }
+
+        /**
+         * Returns a candidate's score.
+         *
+         * @param index - the rank of the candidate, where 0 is the best.
+         * @return The candidate's score.
+         */
+        double getScore(int index) {
+            return scores[index];
+        }
+
+        /**
+         * Offers a candidate of another list, as {@link #offer(double, double, double, double,
+         * double)} does.
+         *
+         * @param other - the list holding the candidate.
+         * @param index - the rank of the candidate in that list.
+         * @param tolerance - how close in every parameter a held trajectory must be to the new one
+         * to be suppressed.
+         */
+        void offer(CandidateList other, int index, double tolerance) {
+            offer(
+                other.axials[index],
+                other.laterals[index],
+                other.yaws[index],
+                other.scores[index],
+                tolerance
+            );
+        }
+
+        /**
+         * Adds a trajectory if it scores better than the worst candidate or the list is not full.
+         * Held trajectories close to the new one are suppressed: if any scores at least as well the
+         * new one is not added, and otherwise they are replaced by it. This keeps candidates
+         * spread out and keeps the overlapping neighborhoods of two coarser candidates from adding
+         * the same trajectory twice. Ties keep the earlier trajectory, and NaN scores are never
+         * added.
+         *
+         * @param axial - the trajectory's axial acceleration.
+         * @param lateral - the trajectory's lateral acceleration.
+         * @param yaw - the trajectory's rotational acceleration.
+         * @param score - the trajectory's score.
+         * @param tolerance - how close in every parameter a held trajectory must be to the new one
+         * to be suppressed.
+         */
+        void offer(double axial, double lateral, double yaw, double score, double tolerance) {
+            if (Double.isNaN(score) || size == scores.length && !(score > scores[size - 1])) {
+                return;
+            }
+            for (int i = 0; i < size; ++i) {
+                if (Math.abs(axials[i] - axial) < tolerance
+                    && Math.abs(laterals[i] - lateral) < tolerance
+                    && Math.abs(yaws[i] - yaw) < tolerance
+                    && !(score > scores[i])) {
+                    return;
+                }
+            }
+            int kept = 0;
+            for (int i = 0; i < size; ++i) {
+                if (Math.abs(axials[i] - axial) >= tolerance
+                    || Math.abs(laterals[i] - lateral) >= tolerance
+                    || Math.abs(yaws[i] - yaw) >= tolerance) {
+                    axials[kept] = axials[i];
+                    laterals[kept] = laterals[i];
+                    yaws[kept] = yaws[i];
+                    scores[kept] = scores[i];
+                    ++kept;
+                }
+            }
+            size = kept;
+            int index = size == scores.length ? size - 1 : size++;
+            while (index > 0 && score > scores[index - 1]) {
+                axials[index] = axials[index - 1];
+                laterals[index] = laterals[index - 1];
+                yaws[index] = yaws[index - 1];
+                scores[index] = scores[index - 1];
+                --index;
+            }
+            axials[index] = axial;
+            laterals[index] = lateral;
+            yaws[index] = yaw;
+            scores[index] = score;
+        }
+    }
+}
@@ -29,12 +29,16 @@ public abstract class AbstractFinDiffLocalizationData implements LocalizationDat
         double ignoreRootFactor = ignoreRoots.stream().map((b) -> {
             double product;
             Vec2 negativeCenter = pos.mul(-1);
-            Vec2 epsilonVec = new Vec2(epsilon, epsilon);
             do {
                 Vec2 diff = negativeCenter.add(b);
                 double factor = 1.0 / (diff.dot(diff) + 1.0) - 1.0;
                 product = 1.0 / factor;
-                negativeCenter = negativeCenter.add(epsilonVec);
+                // Step by at least an ulp, or far from the origin the step would round away and
+                // this would never terminate
+                negativeCenter = negativeCenter.add(new Vec2(
+                    Math.max(epsilon, Math.ulp(negativeCenter.getX())),
+                    Math.max(epsilon, Math.ulp(negativeCenter.getY()))
+                ));
             } while (!Double.isFinite(product));
             return product;
         }).reduce(1.0, (a, b) -> a * b);
@@ -71,7 +75,7 @@ public abstract class AbstractFinDiffLocalizationData implements LocalizationDat
             double x = rot;
             do {
                 product = a / (x - b);
-                x += epsilon;
+                x += Math.max(epsilon, Math.ulp(x));
             } while (!Double.isFinite(product));
             return product;
         });
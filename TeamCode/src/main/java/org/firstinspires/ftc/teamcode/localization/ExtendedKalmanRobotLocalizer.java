@@ -0,0 +1,786 @@
+package org.firstinspires.ftc.teamcode.localization;
+
+import java.util.ArrayList;
+
+import org.firstinspires.ftc.teamcode.Clock;
+import org.firstinspires.ftc.teamcode.Units;
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
+import org.firstinspires.ftc.teamcode.matrix.Vec2;
+
+/**
+ * Tracks the robot's pose and velocity over time with an extended Kalman filter.
+ * Unlike {@link NewtonRobotLocalizer}, which searches the whole field for the most probable pose
+ * every time it resolves, this keeps a Gaussian estimate of the state between resolutions. Each
+ * resolution after {@link #invalidateCache} is one tick of the filter:
+ * <ol>
+ * <li>The estimate is predicted forward to the current time, by the displacement reported by
+ * the {@link OdometrySource} if one is set and by the estimated velocity otherwise.</li>
+ * <li>Each registered source's datum is approximated by a Gaussian centered on its peak nearest
+ * the prediction, and folded into the estimate unless it is too improbable given the estimate.
+ * </li>
+ * </ol>
+ * A tick costs a fixed number of operations on 6 by 6 and smaller matrices, held in preallocated
+ * arrays, plus a short climb to each datum's peak. Nothing is allocated but the returned poses
+ * and whatever the sources allocate.
+ *
+ * <p>The Gaussian fitted to a datum is its Laplace approximation: its mean is the peak of the
+ * datum's probability and its covariance is the negated inverse Hessian of the log of the
+ * probability there. Scaling a datum's probability does not change its log's derivatives, so only
+ * the shape of a datum matters here, not its accuracy; a datum that is certain of the robot's
+ * position has a narrow peak. Data with analytic derivatives are fitted with those; others are
+ * fitted with their approximate derivatives, which may allocate.
+ *
+ * <p>Measurements whose squared Mahalanobis distance from the prediction exceeds the 99.9th
+ * percentile of the chi-squared distribution are rejected as outliers and counted by
+ * {@link #getRejectedCount}. If the robot is moved while the filter is not watching, every
+ * measurement may be rejected from then on; {@link #setPose} reinitializes the filter.
+ */
+public final class ExtendedKalmanRobotLocalizer implements RobotLocalizer {
+    /**
+     * The number of variables in the state: position, heading, and their rates of change.
+     */
+    private static final int STATE_SIZE = 6;
+
+    /**
+     * The index of the field x coordinate in the state.
+     */
+    private static final int X = 0;
+
+    /**
+     * The index of the field y coordinate in the state.
+     */
+    private static final int Y = 1;
+
+    /**
+     * The index of the heading in the state.
+     */
+    private static final int HEADING = 2;
+
+    /**
+     * The index of the field x velocity in the state.
+     */
+    private static final int VX = 3;
+
+    /**
+     * The index of the field y velocity in the state.
+     */
+    private static final int VY = 4;
+
+    /**
+     * The index of the angular velocity in the state.
+     */
+    private static final int OMEGA = 5;
+
+    /**
+     * The variance in square meters of each coordinate of the position before anything is known.
+     * The square of the field's half width, so that the whole field is within a standard
+     * deviation.
+     */
+    private static final double UNKNOWN_POSITION_VARIANCE =
+        Math.pow(Units.convert(72, Units.Distance.IN, Units.Distance.M), 2);
+
+    /**
+     * The variance in square radians of the heading before anything is known.
+     */
+    private static final double UNKNOWN_HEADING_VARIANCE = Math.PI * Math.PI;
+
+    /**
+     * The variance in square meters of each coordinate of a position given to {@link #setPose}.
+     */
+    private static final double KNOWN_POSITION_VARIANCE = 1e-4;
+
+    /**
+     * The variance in square radians of a heading given to {@link #setPose}.
+     */
+    private static final double KNOWN_HEADING_VARIANCE = 1e-4;
+
+    /**
+     * The variance of each component of the velocity before anything is known, in square meters
+     * or radians per second squared. The robot starts at rest.
+     */
+    private static final double INITIAL_VELOCITY_VARIANCE = 1e-2;
+
+    /**
+     * The variance in square meters that odometry adds to each coordinate of the position per
+     * meter traveled.
+     * Wheels slip by a few percent of the distance they roll.
+     */
+    private static final double ODOMETRY_TRANSLATION_VARIANCE_PER_METER = 2.5e-3;
+
+    /**
+     * The variance in square radians that odometry adds to the heading per radian turned.
+     */
+    private static final double ODOMETRY_HEADING_VARIANCE_PER_RADIAN = 2.5e-3;
+
+    /**
+     * The variance that odometry adds to each component of the pose per tick regardless of
+     * motion, in square meters or radians.
+     * Keeps the covariance from collapsing while the robot is still.
+     */
+    private static final double ODOMETRY_MIN_VARIANCE = 1e-8;
+
+    /**
+     * The spectral density of the unknown translational acceleration assumed when there is no
+     * odometry, in square meters per second cubed.
+     */
+    private static final double TRANSLATION_ACCELERATION_DENSITY = 4;
+
+    /**
+     * The spectral density of the unknown angular acceleration assumed when there is no
+     * odometry, in square radians per second cubed.
+     */
+    private static final double ANGULAR_ACCELERATION_DENSITY = 16;
+
+    /**
+     * The squared Mahalanobis distance beyond which a position measurement is rejected.
+     * The 99.9th percentile of the chi-squared distribution with two degrees of freedom.
+     */
+    private static final double POSITION_GATE = 13.82;
+
+    /**
+     * The squared Mahalanobis distance beyond which a rotation measurement is rejected.
+     * The 99.9th percentile of the chi-squared distribution with one degree of freedom.
+     */
+    private static final double ROTATION_GATE = 10.83;
+
+    /**
+     * The most steps taken while climbing from the prediction to the peak of a datum.
+     * Climbs usually start near the peak, where Newton's method arrives within a few steps, but
+     * this is enough to cross the field or turn all the way around from a poor prediction.
+     */
+    private static final int MAX_PEAK_STEPS = 20;
+
+    /**
+     * The most times a step toward the peak of a datum is halved while looking for one that
+     * increases its probability.
+     */
+    private static final int MAX_STEP_HALVINGS = 20;
+
+    /**
+     * The length in meters of a step up the slope of a datum's position probability where it is
+     * too far from a peak for Newton's method, and the most a Newton step may move.
+     */
+    private static final double MAX_POSITION_STEP = 1;
+
+    /**
+     * The length in radians of a step up the slope of a datum's rotation probability where it is
+     * too far from a peak for Newton's method, and the most a Newton step may turn.
+     */
+    private static final double MAX_ROTATION_STEP = 1;
+
+    /**
+     * The length of a step toward the peak of a datum below which the peak is considered found,
+     * in meters or radians.
+     */
+    private static final double PEAK_TOLERANCE = 1e-6;
+
+    /**
+     * The clock ticks are timed by.
+     */
+    private final Clock clock;
+
+    /**
+     * The list of sources of localization data to collect data from.
+     */
+    private final ArrayList<LocalizationSource> sources;
+
+    /**
+     * The source of the robot's motion between ticks, or null to assume constant velocity.
+     */
+    private OdometrySource odometry;
+
+    /**
+     * The estimated state: field position in meters, heading in radians, and their rates of
+     * change per second, indexed by {@link #X}, {@link #Y}, {@link #HEADING}, {@link #VX},
+     * {@link #VY}, and {@link #OMEGA}.
+     */
+    private final double[] state;
+
+    /**
+     * The covariance of the estimated state as a row-major 6 by 6 matrix.
+     */
+    private final double[] covariance;
+
+    /**
+     * Scratch space for the Jacobian of the prediction, row-major.
+     */
+    private final double[] jacobian;
+
+    /**
+     * Scratch space for products of 6 by 6 matrices.
+     */
+    private final double[] product;
+
+    /**
+     * Scratch space for the rows of the covariance that a measurement observes.
+     */
+    private final double[] observedRows;
+
+    /**
+     * Scratch space for the Kalman gain as a row-major 6 by 2 matrix, or 6 by 1 for rotation.
+     */
+    private final double[] gain;
+
+    /**
+     * The peak of the datum being fitted: its x and y coordinates, or its rotation.
+     */
+    private final double[] measurement;
+
+    /**
+     * The covariance of the datum being fitted, as a row-major 2 by 2 matrix, or 1 by 1 for
+     * rotation.
+     */
+    private final double[] measurementCovariance;
+
+    /**
+     * Scratch space for a datum's probability and its derivatives at the current point of a climb.
+     */
+    private double[] derivatives;
+
+    /**
+     * Scratch space for a datum's probability and its derivatives at a trial point of a climb.
+     */
+    private double[] trialDerivatives;
+
+    /**
+     * The time in nanoseconds of the last tick, or of construction if there has been none.
+     */
+    private long lastTime;
+
+    /**
+     * Whether the state is current, meaning no tick is needed until {@link #invalidateCache}.
+     */
+    private boolean ticked;
+
+    /**
+     * The estimated pose as of the last tick, or null if it has not been built yet.
+     */
+    private Pose2d cachedPose;
+
+    /**
+     * The estimated velocity as of the last tick, or null if it has not been built yet.
+     */
+    private Pose2d cachedVelocity;
+
+    /**
+     * The number of measurements rejected as outliers.
+     */
+    private int rejectedCount;
+
+    /**
+     * Constructs an ExtendedKalmanRobotLocalizer timed by the given clock.
+     * The robot starts at rest somewhere on the field, with an unknown pose.
+     *
+     * @param clock the clock to time ticks by.
+     */
+    public ExtendedKalmanRobotLocalizer(Clock clock) {
+        this.clock = clock;
+        sources = new ArrayList<>();
+        state = new double[STATE_SIZE];
+        covariance = new double[STATE_SIZE * STATE_SIZE];
+        jacobian = new double[STATE_SIZE * STATE_SIZE];
+        product = new double[STATE_SIZE * STATE_SIZE];
+        observedRows = new double[2 * STATE_SIZE];
+        gain = new double[2 * STATE_SIZE];
+        measurement = new double[2];
+        measurementCovariance = new double[4];
+        derivatives = new double[LocalizationData.POSITION_DERIVATIVE_COUNT];
+        trialDerivatives = new double[LocalizationData.POSITION_DERIVATIVE_COUNT];
+        lastTime = clock.nanoTime();
+        reset(0, 0, 0, UNKNOWN_POSITION_VARIANCE, UNKNOWN_HEADING_VARIANCE);
+    }
+
+    /**
+     * Constructs an ExtendedKalmanRobotLocalizer timed by the system clock.
+     */
+    public ExtendedKalmanRobotLocalizer() {
+        this(Clock.SYSTEM);
+    }
+
+    /**
+     * Sets the source of the robot's motion between ticks.
+     *
+     * @param odometry the odometry to predict with, or null to predict by assuming the
+     * velocity is constant between ticks.
+     */
+    public void setOdometry(OdometrySource odometry) {
+        this.odometry = odometry;
+    }
+
+    /**
+     * Reinitializes the filter with a known pose, such as the robot's starting pose.
+     * The robot is assumed to be at rest. Takes effect immediately, without waiting for
+     * {@link #invalidateCache}.
+     *
+     * @param pose the field space pose of the robot.
+     */
+    public void setPose(Pose2d pose) {
+        reset(
+            pose.getX(),
+            pose.getY(),
+            pose.getHeading(),
+            KNOWN_POSITION_VARIANCE,
+            KNOWN_HEADING_VARIANCE
+        );
+        cachedPose = null;
+        cachedVelocity = null;
+    }
+
+    /**
+     * Gets the number of measurements rejected as outliers.
+     *
+     * @return The number of measurements rejected since construction.
+     */
+    public int getRejectedCount() {
+        return rejectedCount;
+    }
+
+    @Override
+    public void invalidateCache() {
+        ticked = false;
+    }
+
+    @Override
+    public void registerSource(LocalizationSource source) {
+        sources.add(source);
+    }
+
+    @Override
+    public Pose2d resolvePose() {
+        tickIfNeeded();
+        if (cachedPose == null) {
+            cachedPose = new Pose2d(state[X], state[Y], state[HEADING]);
+        }
+        return cachedPose;
+    }
+
+    @Override
+    public Vec2 resolvePosition() {
+        return resolvePose().getTranslation();
+    }
+
+    @Override
+    public double resolveRotation() {
+        return resolvePose().getHeading();
+    }
+
+    @Override
+    public Pose2d resolveVelocity() {
+        tickIfNeeded();
+        if (cachedVelocity == null) {
+            cachedVelocity = new Pose2d(state[VX], state[VY], state[OMEGA]);
+        }
+        return cachedVelocity;
+    }
+
+    /**
+     * Sets the state to a pose at rest with the given uncertainty.
+     *
+     * @param x the field x coordinate in meters.
+     * @param y the field y coordinate in meters.
+     * @param heading the heading in radians.
+     * @param positionVariance the variance of each coordinate in square meters.
+     * @param headingVariance the variance of the heading in square radians.
+     */
+    private void reset(
+        double x,
+        double y,
+        double heading,
+        double positionVariance,
+        double headingVariance
+    ) {
+        state[X] = x;
+        state[Y] = y;
+        state[HEADING] = Math.IEEEremainder(heading, 2 * Math.PI);
+        state[VX] = 0;
+        state[VY] = 0;
+        state[OMEGA] = 0;
+        for (int i = 0; i < covariance.length; ++i) {
+            covariance[i] = 0;
+        }
+        covariance[X * STATE_SIZE + X] = positionVariance;
+        covariance[Y * STATE_SIZE + Y] = positionVariance;
+        covariance[HEADING * STATE_SIZE + HEADING] = headingVariance;
+        covariance[VX * STATE_SIZE + VX] = INITIAL_VELOCITY_VARIANCE;
+        covariance[VY * STATE_SIZE + VY] = INITIAL_VELOCITY_VARIANCE;
+        covariance[OMEGA * STATE_SIZE + OMEGA] = INITIAL_VELOCITY_VARIANCE;
+    }
+
+    /**
+     * Runs a tick of the filter if none has run since {@link #invalidateCache} was called.
+     */
+    private void tickIfNeeded() {
+        if (ticked) {
+            return;
+        }
+        ticked = true;
+        long now = clock.nanoTime();
+        double dt = (now - lastTime) * 1e-9;
+        lastTime = now;
+        if (odometry != null) {
+            predictByOdometry(odometry.collectDisplacement(), dt);
+        } else {
+            predictByVelocity(dt);
+        }
+        for (int i = 0; i < sources.size(); ++i) {
+            LocalizationSource source = sources.get(i);
+            boolean position = source.canLocalizePosition();
+            boolean rotation = source.canLocalizeRotation();
+            if (!position && !rotation) {
+                continue;
+            }
+            LocalizationData data = source.collectData();
+            if (position && fitPosition(data)) {
+                correctPosition();
+            }
+            if (rotation && fitRotation(data)) {
+                correctRotation();
+            }
+        }
+        cachedPose = null;
+        cachedVelocity = null;
+    }
+
+    /**
+     * Predicts the state after the robot moves by a displacement measured by odometry.
+     * The velocity becomes the displacement over the time it took, so it is as noisy as the
+     * odometry itself.
+     *
+     * @param displacement the displacement in the robot's frame at the last tick.
+     * @param dt the time in seconds since the last tick.
+     */
+    private void predictByOdometry(Pose2d displacement, double dt) {
+        double cos = Math.cos(state[HEADING]);
+        double sin = Math.sin(state[HEADING]);
+        double dx = displacement.getX() * cos - displacement.getY() * sin;
+        double dy = displacement.getX() * sin + displacement.getY() * cos;
+        double turn = displacement.getHeading();
+
+        setIdentity(jacobian);
+        // The displacement turns with the heading it is applied at
+        jacobian[X * STATE_SIZE + HEADING] = -dy;
+        jacobian[Y * STATE_SIZE + HEADING] = dx;
+        boolean timed = dt > 0;
+        if (timed) {
+            // The velocity is replaced, depending on the old state only through the heading
+            for (int i = VX; i < STATE_SIZE; ++i) {
+                jacobian[i * STATE_SIZE + i] = 0;
+            }
+            jacobian[VX * STATE_SIZE + HEADING] = -dy / dt;
+            jacobian[VY * STATE_SIZE + HEADING] = dx / dt;
+        }
+
+        state[X] += dx;
+        state[Y] += dy;
+        state[HEADING] = Math.IEEEremainder(state[HEADING] + turn, 2 * Math.PI);
+        if (timed) {
+            state[VX] = dx / dt;
+            state[VY] = dy / dt;
+            state[OMEGA] = turn / dt;
+        }
+        propagateCovariance();
+
+        // Translation noise is the same in every direction, so it needs no rotation into the
+        // field frame. The velocity shares the pose's noise, scaled by 1 / dt
+        double translationVariance = ODOMETRY_MIN_VARIANCE + ODOMETRY_TRANSLATION_VARIANCE_PER_METER
+            * Math.hypot(displacement.getX(), displacement.getY());
+        double headingVariance = ODOMETRY_MIN_VARIANCE
+            + ODOMETRY_HEADING_VARIANCE_PER_RADIAN * Math.abs(turn);
+        for (int i = X; i <= HEADING; ++i) {
+            double variance = i == HEADING ? headingVariance : translationVariance;
+            covariance[i * STATE_SIZE + i] += variance;
+            if (timed) {
+                int v = i + VX;
+                covariance[i * STATE_SIZE + v] += variance / dt;
+                covariance[v * STATE_SIZE + i] += variance / dt;
+                covariance[v * STATE_SIZE + v] += variance / (dt * dt);
+            }
+        }
+    }
+
+    /**
+     * Predicts the state after the robot moves at its estimated velocity, with random
+     * acceleration.
+     *
+     * @param dt the time in seconds since the last tick.
+     */
+    private void predictByVelocity(double dt) {
+        if (!(dt > 0)) {
+            return;
+        }
+        setIdentity(jacobian);
+        for (int i = X; i <= HEADING; ++i) {
+            jacobian[i * STATE_SIZE + i + VX] = dt;
+            state[i] += state[i + VX] * dt;
+        }
+        state[HEADING] = Math.IEEEremainder(state[HEADING], 2 * Math.PI);
+        propagateCovariance();
+
+        // Noise of a velocity driven by white acceleration over the interval
+        for (int i = X; i <= HEADING; ++i) {
+            double density = i == HEADING
+                ? ANGULAR_ACCELERATION_DENSITY
+                : TRANSLATION_ACCELERATION_DENSITY;
+            int v = i + VX;
+            covariance[i * STATE_SIZE + i] += density * dt * dt * dt / 3;
+            covariance[i * STATE_SIZE + v] += density * dt * dt / 2;
+            covariance[v * STATE_SIZE + i] += density * dt * dt / 2;
+            covariance[v * STATE_SIZE + v] += density * dt;
+        }
+    }
+
+    /**
+     * Replaces the covariance P with F P F^T, where F is {@link #jacobian}.
+     */
+    private void propagateCovariance() {
+        for (int i = 0; i < STATE_SIZE; ++i) {
+            for (int j = 0; j < STATE_SIZE; ++j) {
+                double sum = 0;
+                for (int k = 0; k < STATE_SIZE; ++k) {
+                    sum += jacobian[i * STATE_SIZE + k] * covariance[k * STATE_SIZE + j];
+                }
+                product[i * STATE_SIZE + j] = sum;
+            }
+        }
+        for (int i = 0; i < STATE_SIZE; ++i) {
+            for (int j = 0; j < STATE_SIZE; ++j) {
+                double sum = 0;
+                for (int k = 0; k < STATE_SIZE; ++k) {
+                    sum += product[i * STATE_SIZE + k] * jacobian[j * STATE_SIZE + k];
+                }
+                covariance[i * STATE_SIZE + j] = sum;
+            }
+        }
+    }
+
+    /**
+     * Fits a Gaussian to a datum's position probability by climbing from the predicted position
+     * to the datum's nearest peak.
+     * The climb is Newton's method on the log of the probability where it is concave, and a step
+     * up its slope elsewhere, halving steps until the probability increases.
+     *
+     * @param data the datum to fit.
+     * @return Whether a peak was found, in which case its position and covariance are written to
+     * {@link #measurement} and {@link #measurementCovariance}.
+     */
+    private boolean fitPosition(LocalizationData data) {
+        double x = state[X];
+        double y = state[Y];
+        data.getPositionDerivatives(x, y, derivatives);
+        for (int step = 0; step < MAX_PEAK_STEPS; ++step) {
+            double p = derivatives[0];
+            if (!(p > 0)) {
+                return false;
+            }
+            double gx = derivatives[1] / p;
+            double gy = derivatives[2] / p;
+            double hxx = derivatives[3] / p - gx * gx;
+            double hxy = derivatives[4] / p - gx * gy;
+            double hyy = derivatives[5] / p - gy * gy;
+            double det = hxx * hyy - hxy * hxy;
+            double deltaX;
+            double deltaY;
+            if (hxx < 0 && det > 0) {
+                deltaX = -(hyy * gx - hxy * gy) / det;
+                deltaY = -(hxx * gy - hxy * gx) / det;
+            } else {
+                deltaX = gx;
+                deltaY = gy;
+            }
+            double length = Math.hypot(deltaX, deltaY);
+            if (!(length > PEAK_TOLERANCE) || !Double.isFinite(length)) {
+                break;
+            }
+            if (length > MAX_POSITION_STEP || !(hxx < 0 && det > 0)) {
+                deltaX *= MAX_POSITION_STEP / length;
+                deltaY *= MAX_POSITION_STEP / length;
+            }
+            boolean improved = false;
+            for (int k = 0; k < MAX_STEP_HALVINGS && !improved; ++k) {
+                data.getPositionDerivatives(x + deltaX, y + deltaY, trialDerivatives);
+                if (trialDerivatives[0] > p) {
+                    improved = true;
+                } else {
+                    deltaX /= 2;
+                    deltaY /= 2;
+                }
+            }
+            if (!improved) {
+                break;
+            }
+            x += deltaX;
+            y += deltaY;
+            double[] swap = derivatives;
+            derivatives = trialDerivatives;
+            trialDerivatives = swap;
+        }
+
+        double p = derivatives[0];
+        if (!(p > 0)) {
+            return false;
+        }
+        double gx = derivatives[1] / p;
+        double gy = derivatives[2] / p;
+        double hxx = derivatives[3] / p - gx * gx;
+        double hxy = derivatives[4] / p - gx * gy;
+        double hyy = derivatives[5] / p - gy * gy;
+        double det = hxx * hyy - hxy * hxy;
+        if (!(hxx < 0 && det > 0)) {
+            // Not at a peak, so there is no Gaussian to fit
+            return false;
+        }
+        measurement[0] = x;
+        measurement[1] = y;
+        measurementCovariance[0] = -hyy / det;
+        measurementCovariance[1] = hxy / det;
+        measurementCovariance[2] = hxy / det;
+        measurementCovariance[3] = -hxx / det;
+        return true;
+    }
+
+    /**
+     * Fits a Gaussian to a datum's rotation probability by climbing from the predicted heading to
+     * the datum's nearest peak, in the same way as {@link #fitPosition}.
+     *
+     * @param data the datum to fit.
+     * @return Whether a peak was found, in which case its rotation and variance are written to
+     * {@link #measurement} and {@link #measurementCovariance}.
+     */
+    private boolean fitRotation(LocalizationData data) {
+        double rot = state[HEADING];
+        data.getRotationDerivatives(rot, derivatives);
+        for (int step = 0; step < MAX_PEAK_STEPS; ++step) {
+            double p = derivatives[0];
+            if (!(p > 0)) {
+                return false;
+            }
+            double g = derivatives[1] / p;
+            double h = derivatives[2] / p - g * g;
+            double delta = h < 0 ? -g / h : Math.copySign(MAX_ROTATION_STEP, g);
+            if (!(Math.abs(delta) > PEAK_TOLERANCE) || !Double.isFinite(delta)) {
+                break;
+            }
+            if (Math.abs(delta) > MAX_ROTATION_STEP) {
+                delta = Math.copySign(MAX_ROTATION_STEP, delta);
+            }
+            boolean improved = false;
+            for (int k = 0; k < MAX_STEP_HALVINGS && !improved; ++k) {
+                data.getRotationDerivatives(rot + delta, trialDerivatives);
+                if (trialDerivatives[0] > p) {
+                    improved = true;
+                } else {
+                    delta /= 2;
+                }
+            }
+            if (!improved) {
+                break;
+            }
+            rot += delta;
+            double[] swap = derivatives;
+            derivatives = trialDerivatives;
+            trialDerivatives = swap;
+        }
+
+        double p = derivatives[0];
+        if (!(p > 0)) {
+            return false;
+        }
+        double g = derivatives[1] / p;
+        double h = derivatives[2] / p - g * g;
+        if (!(h < 0)) {
+            return false;
+        }
+        measurement[0] = rot;
+        measurementCovariance[0] = -1 / h;
+        return true;
+    }
+
+    /**
+     * Folds the position in {@link #measurement} into the estimate unless it is an outlier.
+     */
+    private void correctPosition() {
+        double nuX = measurement[0] - state[X];
+        double nuY = measurement[1] - state[Y];
+        double sxx = covariance[X * STATE_SIZE + X] + measurementCovariance[0];
+        double sxy = covariance[X * STATE_SIZE + Y] + measurementCovariance[1];
+        double syy = covariance[Y * STATE_SIZE + Y] + measurementCovariance[3];
+        double det = sxx * syy - sxy * sxy;
+        if (!(det > 0)) {
+            ++rejectedCount;
+            return;
+        }
+        double ixx = syy / det;
+        double ixy = -sxy / det;
+        double iyy = sxx / det;
+        double distanceSq = nuX * (ixx * nuX + ixy * nuY) + nuY * (ixy * nuX + iyy * nuY);
+        if (!(distanceSq <= POSITION_GATE)) {
+            ++rejectedCount;
+            return;
+        }
+        // K = P H^T S^-1, where P H^T is the x and y columns of P
+        for (int i = 0; i < STATE_SIZE; ++i) {
+            double pX = covariance[i * STATE_SIZE + X];
+            double pY = covariance[i * STATE_SIZE + Y];
+            gain[2 * i] = pX * ixx + pY * ixy;
+            gain[2 * i + 1] = pX * ixy + pY * iyy;
+        }
+        System.arraycopy(covariance, X * STATE_SIZE, observedRows, 0, 2 * STATE_SIZE);
+        for (int i = 0; i < STATE_SIZE; ++i) {
+            state[i] += gain[2 * i] * nuX + gain[2 * i + 1] * nuY;
+            for (int j = 0; j < STATE_SIZE; ++j) {
+                covariance[i * STATE_SIZE + j] -= gain[2 * i] * observedRows[j]
+                    + gain[2 * i + 1] * observedRows[STATE_SIZE + j];
+            }
+        }
+        finishCorrection();
+    }
+
+    /**
+     * Folds the rotation in {@link #measurement} into the estimate unless it is an outlier.
+     */
+    private void correctRotation() {
+        double nu = Math.IEEEremainder(measurement[0] - state[HEADING], 2 * Math.PI);
+        double s = covariance[HEADING * STATE_SIZE + HEADING] + measurementCovariance[0];
+        if (!(s > 0 && nu * nu / s <= ROTATION_GATE)) {
+            ++rejectedCount;
+            return;
+        }
+        for (int i = 0; i < STATE_SIZE; ++i) {
+            gain[i] = covariance[i * STATE_SIZE + HEADING] / s;
+        }
+        System.arraycopy(covariance, HEADING * STATE_SIZE, observedRows, 0, STATE_SIZE);
+        for (int i = 0; i < STATE_SIZE; ++i) {
+            state[i] += gain[i] * nu;
+            for (int j = 0; j < STATE_SIZE; ++j) {
+                covariance[i * STATE_SIZE + j] -= gain[i] * observedRows[j];
+            }
+        }
+        finishCorrection();
+    }
+
+    /**
+     * Wraps the heading and restores the symmetry of the covariance lost to rounding after a
+     * correction.
+     */
+    private void finishCorrection() {
+        state[HEADING] = Math.IEEEremainder(state[HEADING], 2 * Math.PI);
+        for (int i = 0; i < STATE_SIZE; ++i) {
+            for (int j = i + 1; j < STATE_SIZE; ++j) {
+                double mean = (covariance[i * STATE_SIZE + j] + covariance[j * STATE_SIZE + i]) / 2;
+                covariance[i * STATE_SIZE + j] = mean;
+                covariance[j * STATE_SIZE + i] = mean;
+            }
+        }
+    }
+
+    /**
+     * Sets a square matrix to the identity.
+     *
+     * @param matrix the row-major 6 by 6 matrix to set.
+     */
+    private static void setIdentity(double[] matrix) {
+        for (int i = 0; i < matrix.length; ++i) {
+            matrix[i] = i % (STATE_SIZE + 1) == 0 ? 1 : 0;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.firstinspires.ftc.teamcode.localization;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.firstinspires.ftc.teamcode.matrix.Vec2;
@@ -8,6 +9,16 @@ import org.firstinspires.ftc.teamcode.matrix.Vec2;
  * Data suggesting the robot's position and/or rotation collected from a {@link LocalizationSource}.
  */
 public interface LocalizationData {
+    /**
+     * The number of values written by {@link #getPositionDerivatives}.
+     */
+    int POSITION_DERIVATIVE_COUNT = 6;
+
+    /**
+     * The number of values written by {@link #getRotationDerivatives}.
+     */
+    int ROTATION_DERIVATIVE_COUNT = 3;
+
     /**
      * Gets the relative probability of the robot being located at the given field position.
      *
@@ -111,4 +122,61 @@ public interface LocalizationData {
      * @return The second derivative of the probability at the given field orientation.
      */
     double getRotationProbabilityDx2(double rot, List<Double> ignoreRoots);
+
+    /**
+     * Gets whether this datum computes its probabilities' derivatives exactly.
+     *
+     * @return Whether {@link #getPositionDerivatives} and {@link #getRotationDerivatives} are
+     * implemented exactly. Data that only approximate their derivatives return false.
+     */
+    default boolean hasAnalyticDerivatives() {
+        return false;
+    }
+
+    /**
+     * Computes {@link #getPositionProbability} and its first and second partial derivatives
+     * together at the given field position.
+     * Data with analytic derivatives compute them exactly, sharing their common terms, and
+     * allocate nothing. By default they are assembled from {@link #getPositionProbabilityDx},
+     * {@link #getPositionProbabilityDxGradient}, and the like without ignoring any roots, as
+     * {@link AbstractFinDiffLocalizationData} approximates them, which may allocate.
+     *
+     * @param x the field x coordinate to compute the derivatives at.
+     * @param y the field y coordinate to compute the derivatives at.
+     * @param out an array of at least {@link #POSITION_DERIVATIVE_COUNT} elements, whose first
+     * elements are set to the probability, its partial derivatives wrt x and y, and its second
+     * partial derivatives wrt x twice, x then y, and y twice, in that order.
+     */
+    default void getPositionDerivatives(double x, double y, double[] out) {
+        List<Vec2> noRoots = Collections.emptyList();
+        Vec2 pos = new Vec2(x, y);
+        Vec2 dxGradient = getPositionProbabilityDxGradient(pos, noRoots);
+        Vec2 dyGradient = getPositionProbabilityDyGradient(pos, noRoots);
+        out[0] = getPositionProbability(pos);
+        out[1] = getPositionProbabilityDx(pos, noRoots);
+        out[2] = getPositionProbabilityDy(pos, noRoots);
+        out[3] = dxGradient.getX();
+        // Approximations of the mixed partial in either order may differ; average them so the
+        // Hessian stays symmetric
+        out[4] = (dxGradient.getY() + dyGradient.getX()) / 2;
+        out[5] = dyGradient.getY();
+    }
+
+    /**
+     * Computes {@link #getRotationProbability} and its first and second derivatives together at
+     * the given field orientation.
+     * Data with analytic derivatives compute them exactly. By default they are assembled from
+     * {@link #getRotationProbabilityDx} and {@link #getRotationProbabilityDx2} without ignoring any
+     * roots.
+     *
+     * @param rot the field orientation to compute the derivatives at in radians.
+     * @param out an array of at least {@link #ROTATION_DERIVATIVE_COUNT} elements, whose first
+     * elements are set to the probability and its first and second derivatives, in that order.
+     */
+    default void getRotationDerivatives(double rot, double[] out) {
+        List<Double> noRoots = Collections.emptyList();
+        out[0] = getRotationProbability(rot);
+        out[1] = getRotationProbabilityDx(rot, noRoots);
+        out[2] = getRotationProbabilityDx2(rot, noRoots);
+    }
 }
@@ -0,0 +1,88 @@
+package org.firstinspires.ftc.teamcode.localization;
+
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
+import org.firstinspires.ftc.teamcode.mechanism.Wheel;
+
+/**
+ * Odometry from the encoders of four mecanum drive wheels.
+ * Wheels are assumed not to slip, so the robot's motion is the least squares solution of the
+ * mecanum forward kinematics: with wheel travel \(d_{lf}, d_{rf}, d_{lb}, d_{rb}\) and \(k\) the
+ * sum of the half track width and half wheelbase,
+ * \[d_x = \frac{d_{lf} + d_{rf} + d_{lb} + d_{rb}}{4}\]
+ * \[d_y = \frac{-d_{lf} + d_{rf} + d_{lb} - d_{rb}}{4}\]
+ * \[d_\theta = \frac{-d_{lf} + d_{rf} - d_{lb} + d_{rb}}{4k}\]
+ * where \(x\) is forward, \(y\) is left, and \(\theta\) is counterclockwise. Wheels slip when
+ * accelerating hard or pushed, so this drifts and is best combined with absolute sources by a
+ * localizer such as {@link ExtendedKalmanRobotLocalizer}.
+ */
+public final class MecanumOdometry implements OdometrySource {
+    /**
+     * The left front wheel, followed by the right front, left back, and right back wheels.
+     */
+    private final Wheel[] wheels;
+
+    /**
+     * The sum of half the track width and half the wheelbase in meters.
+     */
+    private final double spanRadius;
+
+    /**
+     * The distance in meters each wheel had traveled when the displacement was last collected.
+     */
+    private final double[] lastDistances;
+
+    /**
+     * Constructs a MecanumOdometry.
+     * The wheels' motors must have their directions set so that positive distances drive the
+     * robot forward.
+     *
+     * @param leftFront the left front wheel, whose radius is in meters.
+     * @param rightFront the right front wheel, whose radius is in meters.
+     * @param leftBack the left back wheel, whose radius is in meters.
+     * @param rightBack the right back wheel, whose radius is in meters.
+     * @param spanRadius the sum of half the track width and half the wheelbase in meters.
+     */
+    public MecanumOdometry(
+        Wheel leftFront,
+        Wheel rightFront,
+        Wheel leftBack,
+        Wheel rightBack,
+        double spanRadius
+    ) {
+        wheels = new Wheel[] {leftFront, rightFront, leftBack, rightBack};
+        this.spanRadius = spanRadius;
+        lastDistances = new double[wheels.length];
+        for (int i = 0; i < wheels.length; ++i) {
+            lastDistances[i] = wheels[i].getDistance();
+        }
+    }
+
+    @Override
+    public Pose2d collectDisplacement() {
+        double lf = advance(0);
+        double rf = advance(1);
+        double lb = advance(2);
+        double rb = advance(3);
+        double axial = (lf + rf + lb + rb) / 4;
+        double lateral = (-lf + rf + lb - rb) / 4;
+        double turn = (-lf + rf - lb + rb) / (4 * spanRadius);
+        // The robot turned steadily while it moved, so on average it moved along the heading
+        // halfway through the turn
+        double cos = Math.cos(turn / 2);
+        double sin = Math.sin(turn / 2);
+        return new Pose2d(axial * cos - lateral * sin, axial * sin + lateral * cos, turn);
+    }
+
+    /**
+     * Reads a wheel's distance and replaces its last reading.
+     *
+     * @param index the index of the wheel in {@link #wheels}.
+     * @return The distance in meters the wheel traveled since its last reading.
+     */
+    private double advance(int index) {
+        double distance = wheels[index].getDistance();
+        double delta = distance - lastDistances[index];
+        lastDistances[index] = distance;
+        return delta;
+    }
+}
@@ -1,14 +1,14 @@
 package org.firstinspires.ftc.teamcode.localization;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-import org.firstinspires.ftc.teamcode.matrix.Mat2;
-import org.firstinspires.ftc.teamcode.matrix.Mat3;
+import org.firstinspires.ftc.teamcode.Units;
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
 import org.firstinspires.ftc.teamcode.matrix.Vec2;
 
 /**
@@ -16,30 +16,48 @@ import org.firstinspires.ftc.teamcode.matrix.Vec2;
  * highest probability.
  * This implementation allows position and rotation to be resolved independently, while only
  * consulting sources relevant to the required attribute.
+ *
+ * <p>Data that are all {@link SqFalloffLocalizationData} skip the search: the peak of their sum is
+ * found directly by {@link SqFalloffLocalizationData#findMostProbablePosition} and
+ * {@link SqFalloffLocalizationData#findMostProbableRotation}, which evaluate each datum's falloff
+ * directly instead of through thousands of finite-difference probability evaluations. Other data
+ * are climbed with Newton's method using {@link LocalizationData#getPositionDerivatives} and
+ * {@link LocalizationData#getRotationDerivatives}, which are exact for data with analytic
+ * derivatives and finite differences otherwise.
  */
 public final class NewtonRobotLocalizer implements RobotLocalizer {
     /**
-     * The number of steps to take when finding a root of the probability sum derivative.
-     * The greater this number, the greater the likelihood that each identified "root" is actually
-     * near an extremum of the probability sum.
+     * The most steps each climb takes toward a peak of the probability sum.
      */
     private static final int MAX_NEWTON_STEPS = 40;
 
     /**
-     * The number of roots of the probability sum derivative that will be found during maximization.
-     * The greater this number, the greater the number of local extrema that may be filtered out.
+     * The length in meters or radians of the first step tried along the gradient where the
+     * probability sum is not concave and a Newton step would head away from a peak.
+     * About the spread of a datum, so that a climb starting in a datum's tail reaches its slope in
+     * a few steps; the step is halved as needed to increase the sum.
      */
-    private static final int MAX_NEWTON_ROOTS = 10;
+    private static final double GRADIENT_STEP_SIZE = 1;
 
     /**
-     * The size of the random disturbance that is added to the working root when it reaches an
-     * extremum or saddle point.
-     * The intended effect of this is to nudge the root off of saddle points. While this could also
-     * "nudge" the working root away from a true extremum, this does not affect the result because
-     * the root with minimum error is used from each root search instead of the final value of the
-     * working root.
+     * The distance in meters between neighboring points of the 3 by 3 grid that climbs start
+     * from.
+     * Two thirds of the field's half width, so that every point of the field is within a meter
+     * of a start.
      */
-    private static final double NEWTON_DISTURBANCE_SIZE = 1;
+    private static final double ANALYTIC_START_SPACING =
+        2.0 / 3 * Units.convert(72, Units.Distance.IN, Units.Distance.M);
+
+    /**
+     * The number of rotations climbs start from in each half turn.
+     */
+    private static final int ROTATION_STARTS_PER_HALF_TURN = 4;
+
+    /**
+     * The most times a step is halved while looking for one that increases the probability sum.
+     * Past this the step is too small to matter and the climb has reached a peak.
+     */
+    private static final int MAX_STEP_HALVINGS = 40;
 
     /**
      * The list of sources of localization data to collect data from.
@@ -87,9 +105,9 @@ public final class NewtonRobotLocalizer implements RobotLocalizer {
     }
 
     @Override
-    public Mat3 resolveTransform() {
+    public Pose2d resolvePose() {
         resolve(cachedPos == null, cachedRot == null);
-        return Mat3.fromTransform(Mat2.fromAngle(cachedRot), cachedPos);
+        return new Pose2d(cachedPos, cachedRot);
     }
 
     @Override
@@ -107,7 +125,8 @@ public final class NewtonRobotLocalizer implements RobotLocalizer {
     /**
      * Resolves the robot's position, rotation, or both.
      * The requested values are stored in {@link #cachedPos} and {@link #cachedRot} as
-     * appropriate.
+     * appropriate. When every relevant datum is a {@link SqFalloffLocalizationData}, the peak of
+     * their sum is found directly; otherwise it is climbed to with Newton's method.
      *
      * @param pos whether the resolve the robot's position.
      * @param rot whether the resolve the robot's rotation.
@@ -118,100 +137,234 @@ public final class NewtonRobotLocalizer implements RobotLocalizer {
                 .stream()
                 .filter(LocalizationSource::canLocalizePosition)
                 .collect(Collectors.toList());
-            List<Vec2> roots = new ArrayList<>();
-            for (int i = 0; i < MAX_NEWTON_ROOTS; ++i) {
-                Vec2 xy = new Vec2(0, 0);
-                Vec2 xyMinErr = xy;
-                double minErr = Double.POSITIVE_INFINITY;
-                for (int j = 0; j < MAX_NEWTON_STEPS + 1; ++j) {
-                    Vec2 curXy = xy;
-                    double err = posSources
-                        .stream()
-                        .mapToDouble(src
-                            -> getData(src).getPositionProbabilityDx(curXy, roots)
-                            + getData(src).getPositionProbabilityDy(curXy, roots))
-                        .sum();
-                    if (err < minErr) {
-                        xyMinErr = xy;
-                        minErr = err;
-                    }
-                    if (j < MAX_NEWTON_STEPS) {
-                        Vec2 grad = posSources
-                            .stream()
-                            .map(src
-                                -> getData(src).getPositionProbabilityDxGradient(curXy, roots)
-                                .add(getData(src).getPositionProbabilityDyGradient(curXy, roots)))
-                            .reduce(new Vec2(0, 0), Vec2::add);
-                        Vec2 delta = grad.mul(-err / grad.len());
-                        if (!delta.isFinite()) {
-                            double dir = Math.random() * 2 * Math.PI;
-                            delta = new Vec2(
-                                Math.cos(dir) * NEWTON_DISTURBANCE_SIZE,
-                                Math.sin(dir) * NEWTON_DISTURBANCE_SIZE
-                            );
-                        }
-                        xy = xy.add(delta);
-                    }
-                }
-                roots.add(xyMinErr);
+            List<SqFalloffLocalizationData> falloffs = getSqFalloffData(posSources);
+            if (falloffs != null) {
+                cachedPos = SqFalloffLocalizationData.findMostProbablePosition(falloffs);
+            } else {
+                cachedPos = findPositionByNewton(getAllData(posSources));
             }
-            // Also contains saddle points and points where we ran out of steps even without
-            // reaching an extremum. We're going to take the maximum of the function at every
-            // combination, though, so we don't care.
-            Map<Vec2, Double> extrema = new HashMap<>();
-            roots.forEach(root -> {
-                extrema.put(root, posSources
-                    .stream()
-                    .mapToDouble(src -> getData(src).getPositionProbability(root))
-                    .sum()
-                );
-            });
-            cachedPos = Collections.max(extrema.entrySet(), Map.Entry.comparingByValue())
-                .getKey();
         }
         if (rot && cachedRot == null) {
             List<LocalizationSource> rotSources = sources
                 .stream()
                 .filter(LocalizationSource::canLocalizeRotation)
                 .collect(Collectors.toList());
-            List<Double> roots = new ArrayList<>();
-            for (int i = 0; i < MAX_NEWTON_ROOTS; ++i) {
-                double x = 0;
-                double xMinErr = x;
-                double minErr = Double.POSITIVE_INFINITY;
-                for (int j = 0; j < MAX_NEWTON_STEPS + 1; ++j) {
-                    double curX = x;
-                    double err = rotSources
-                        .stream()
-                        .mapToDouble(src -> getData(src).getRotationProbabilityDx(curX, roots))
-                        .sum();
-                    if (err < minErr) {
-                        xMinErr = x;
-                        minErr = err;
+            List<SqFalloffLocalizationData> falloffs = getSqFalloffData(rotSources);
+            if (falloffs != null) {
+                cachedRot = SqFalloffLocalizationData.findMostProbableRotation(falloffs);
+            } else {
+                cachedRot = findRotationByNewton(getAllData(rotSources));
+            }
+        }
+    }
+
+    /**
+     * Collects data from sources if all of it has a closed-form peak.
+     *
+     * @param sources the sources to collect from.
+     * @return The data collected from each source, or null if there are no sources or any datum
+     * is not a {@link SqFalloffLocalizationData}.
+     */
+    private List<SqFalloffLocalizationData> getSqFalloffData(List<LocalizationSource> sources) {
+        if (sources.isEmpty()) {
+            return null;
+        }
+        List<SqFalloffLocalizationData> falloffs = new ArrayList<>(sources.size());
+        for (LocalizationSource source : sources) {
+            LocalizationData data = getData(source);
+            if (!(data instanceof SqFalloffLocalizationData)) {
+                return null;
+            }
+            falloffs.add((SqFalloffLocalizationData)data);
+        }
+        return falloffs;
+    }
+
+    /**
+     * Collects data from sources.
+     *
+     * @param sources the sources to collect from.
+     * @return The data collected from each source, in order.
+     */
+    private List<LocalizationData> getAllData(List<LocalizationSource> sources) {
+        List<LocalizationData> data = new ArrayList<>(sources.size());
+        for (LocalizationSource source : sources) {
+            data.add(getData(source));
+        }
+        return data;
+    }
+
+    /**
+     * Finds the most probable position by climbing the probability sum with Newton's method.
+     * Where the sum is concave each step is the Newton step -H^-1 g toward the peak of its
+     * quadratic approximation, where g and H are the sum's gradient and Hessian. Elsewhere, as in
+     * the tails of the data far from their peaks, a Newton step would head for a minimum or
+     * saddle point instead, so the step is taken along the gradient. Steps are halved until the
+     * sum increases, so every climb ends at a peak. Climbs start from a grid of points spread over
+     * the field so that the highest of several peaks is found.
+     *
+     * @param data the data to combine.
+     * @return The highest peak found, or the origin if there are no data.
+     */
+    private Vec2 findPositionByNewton(List<LocalizationData> data) {
+        if (data.isEmpty()) {
+            return new Vec2(0, 0);
+        }
+        double[] derivatives = new double[LocalizationData.POSITION_DERIVATIVE_COUNT];
+        double[] sum = new double[LocalizationData.POSITION_DERIVATIVE_COUNT];
+        double bestX = 0;
+        double bestY = 0;
+        double bestProbability = Double.NEGATIVE_INFINITY;
+        for (int startX = -1; startX <= 1; ++startX) {
+            for (int startY = -1; startY <= 1; ++startY) {
+                double x = startX * ANALYTIC_START_SPACING;
+                double y = startY * ANALYTIC_START_SPACING;
+                sumPositionDerivatives(data, x, y, derivatives, sum);
+                double probability = sum[0];
+                for (int j = 0; j < MAX_NEWTON_STEPS; ++j) {
+                    double gx = sum[1];
+                    double gy = sum[2];
+                    double det = sum[3] * sum[5] - sum[4] * sum[4];
+                    double deltaX;
+                    double deltaY;
+                    if (sum[3] < 0 && det > 0) {
+                        deltaX = -(sum[5] * gx - sum[4] * gy) / det;
+                        deltaY = -(sum[3] * gy - sum[4] * gx) / det;
+                    } else {
+                        double gradLen = Math.sqrt(gx * gx + gy * gy);
+                        deltaX = gx / gradLen * GRADIENT_STEP_SIZE;
+                        deltaY = gy / gradLen * GRADIENT_STEP_SIZE;
                     }
-                    if (j < MAX_NEWTON_STEPS) {
-                        double slope = rotSources
-                            .stream()
-                            .mapToDouble(src -> getData(src).getRotationProbabilityDx2(curX, roots))
-                            .sum();
-                        double delta = -err / slope;
-                        if (!Double.isFinite(delta)) {
-                            // Randomly disturb
-                            delta = Math.signum(Math.random() - 1.0 / 2) * NEWTON_DISTURBANCE_SIZE;
+                    if (!Double.isFinite(deltaX) || !Double.isFinite(deltaY)) {
+                        // Flat
+                        break;
+                    }
+                    boolean improved = false;
+                    for (int k = 0; k < MAX_STEP_HALVINGS && !improved; ++k) {
+                        sumPositionDerivatives(data, x + deltaX, y + deltaY, derivatives, sum);
+                        if (sum[0] > probability) {
+                            improved = true;
+                        } else {
+                            deltaX /= 2;
+                            deltaY /= 2;
                         }
-                        x += delta;
                     }
+                    if (!improved) {
+                        // No step increases the sum, so this is as high as it gets
+                        break;
+                    }
+                    x += deltaX;
+                    y += deltaY;
+                    probability = sum[0];
+                }
+                if (probability > bestProbability) {
+                    bestX = x;
+                    bestY = y;
+                    bestProbability = probability;
                 }
-                roots.add(xMinErr);
             }
-            Map<Double, Double> extrema = new HashMap<>();
-            roots.forEach(x -> extrema.put(x, rotSources
-                .stream()
-                .mapToDouble(src -> getData(src).getRotationProbability(x))
-                .sum()
-            ));
-            cachedRot = Collections.max(extrema.entrySet(), Map.Entry.comparingByValue())
-                .getKey();
+        }
+        return new Vec2(bestX, bestY);
+    }
+
+    /**
+     * Sums the position probabilities and their derivatives of several data.
+     *
+     * @param data the data to sum.
+     * @param x the field x coordinate to compute the derivatives at.
+     * @param y the field y coordinate to compute the derivatives at.
+     * @param derivatives scratch space for each datum's derivatives.
+     * @param sum the array to write the sums to, in the order of
+     * {@link LocalizationData#getPositionDerivatives}.
+     */
+    private static void sumPositionDerivatives(
+        List<LocalizationData> data,
+        double x,
+        double y,
+        double[] derivatives,
+        double[] sum
+    ) {
+        Arrays.fill(sum, 0);
+        for (int i = 0; i < data.size(); ++i) {
+            data.get(i).getPositionDerivatives(x, y, derivatives);
+            for (int j = 0; j < LocalizationData.POSITION_DERIVATIVE_COUNT; ++j) {
+                sum[j] += derivatives[j];
+            }
+        }
+    }
+
+    /**
+     * Finds the most probable rotation by climbing the probability sum with Newton's method.
+     * Climbs as in {@link #findPositionByNewton}, in one dimension, from rotations spread over a
+     * full turn.
+     *
+     * @param data the data to combine.
+     * @return The highest peak found, or zero if there are no data.
+     */
+    private double findRotationByNewton(List<LocalizationData> data) {
+        if (data.isEmpty()) {
+            return 0;
+        }
+        double[] derivatives = new double[LocalizationData.ROTATION_DERIVATIVE_COUNT];
+        double[] sum = new double[LocalizationData.ROTATION_DERIVATIVE_COUNT];
+        double best = 0;
+        double bestProbability = Double.NEGATIVE_INFINITY;
+        for (int start = -ROTATION_STARTS_PER_HALF_TURN; start <= ROTATION_STARTS_PER_HALF_TURN;
+            ++start) {
+            double x = start * Math.PI / ROTATION_STARTS_PER_HALF_TURN;
+            sumRotationDerivatives(data, x, derivatives, sum);
+            double probability = sum[0];
+            for (int j = 0; j < MAX_NEWTON_STEPS; ++j) {
+                double delta = sum[2] < 0
+                    ? -sum[1] / sum[2]
+                    : Math.signum(sum[1]) * GRADIENT_STEP_SIZE;
+                if (!Double.isFinite(delta) || delta == 0) {
+                    break;
+                }
+                boolean improved = false;
+                for (int k = 0; k < MAX_STEP_HALVINGS && !improved; ++k) {
+                    sumRotationDerivatives(data, x + delta, derivatives, sum);
+                    if (sum[0] > probability) {
+                        improved = true;
+                    } else {
+                        delta /= 2;
+                    }
+                }
+                if (!improved) {
+                    break;
+                }
+                x += delta;
+                probability = sum[0];
+            }
+            if (probability > bestProbability) {
+                best = x;
+                bestProbability = probability;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Sums the rotation probabilities and their derivatives of several data.
+     *
+     * @param data the data to sum.
+     * @param rot the field orientation to compute the derivatives at in radians.
+     * @param derivatives scratch space for each datum's derivatives.
+     * @param sum the array to write the sums to, in the order of
+     * {@link LocalizationData#getRotationDerivatives}.
+     */
+    private static void sumRotationDerivatives(
+        List<LocalizationData> data,
+        double rot,
+        double[] derivatives,
+        double[] sum
+    ) {
+        Arrays.fill(sum, 0);
+        for (int i = 0; i < data.size(); ++i) {
+            data.get(i).getRotationDerivatives(rot, derivatives);
+            for (int j = 0; j < LocalizationData.ROTATION_DERIVATIVE_COUNT; ++j) {
+                sum[j] += derivatives[j];
+            }
         }
     }
 
@@ -0,0 +1,20 @@
+package org.firstinspires.ftc.teamcode.localization;
+
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
+
+/**
+ * Represents a source of relative motion, such as drive wheel encoders or dead wheels.
+ * Unlike a {@link LocalizationSource}, which suggests where the robot is, odometry only tells how
+ * far it has moved, with an error that accumulates over the distance traveled.
+ */
+public interface OdometrySource {
+    /**
+     * Collects the robot's motion since this method was last called.
+     *
+     * @return The displacement of the robot since the previous call, expressed in the robot's
+     * frame at the time of that call: the translation in meters and the change in heading in
+     * radians. Applying it to the robot's pose at the previous call with {@link Pose2d#mul} yields
+     * its current pose. The first call returns the motion since the source was constructed.
+     */
+    Pose2d collectDisplacement();
+}
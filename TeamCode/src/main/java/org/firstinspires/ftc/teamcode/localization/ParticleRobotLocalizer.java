@@ -0,0 +1,967 @@
+package org.firstinspires.ftc.teamcode.localization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.firstinspires.ftc.teamcode.Clock;
+import org.firstinspires.ftc.teamcode.Units;
+import org.firstinspires.ftc.teamcode.matrix.BatchMath;
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
+import org.firstinspires.ftc.teamcode.matrix.Pose2dBatch;
+import org.firstinspires.ftc.teamcode.matrix.Vec2;
+
+/**
+ * Tracks the robot's pose with a particle filter, a cloud of pose hypotheses weighted by how well
+ * they agree with the localization data.
+ * Unlike {@link ExtendedKalmanRobotLocalizer}, which keeps a single Gaussian estimate, the cloud
+ * can hold several separate guesses at once, such as the mirrored poses a symmetric field allows
+ * at the start of autonomous, until the data tell them apart. Each resolution after
+ * {@link #invalidateCache} is one tick of the filter:
+ * <ol>
+ * <li>Every particle moves by the displacement reported by the {@link OdometrySource}, with
+ * random error added, or wanders randomly if there is no odometry. Moving and weighting are split
+ * across threads, each moving and weighting its own range of particles.</li>
+ * <li>Every particle's weight is multiplied by the probability of its pose according to the data
+ * collected, which as elsewhere in this package is the sum of the probabilities across data,
+ * here divided by the number of data so that ticks with different numbers of data are comparable.
+ * The results for position and rotation are multiplied together.</li>
+ * <li>The estimate is the weighted mean of the particles near the heaviest one, so that a cloud
+ * with several modes reports one of them rather than a point between them. The velocity is the
+ * weighted mean of the motion of the whole cloud over the tick.</li>
+ * <li>If the weights have become uneven, the particles are resampled in proportion to them by
+ * low-variance resampling. Resampling only when needed keeps the cloud from losing one of several
+ * equally likely modes by chance.</li>
+ * </ol>
+ *
+ * <p>A cloud that has settled on the wrong pose, perhaps the mirror image of the right one, has no
+ * particles near the right pose to find it with. As in augmented Monte Carlo localization, the
+ * filter keeps a short-term and a long-term average of how probable the data find the cloud, and
+ * when the short-term average falls below the long-term one, resampling replaces a corresponding
+ * fraction of the particles with ones scattered over the field.
+ *
+ * <p>The number of particles drawn by resampling adapts in the manner of KLD-sampling: it is the
+ * number needed for the cloud to approximate the true distribution within a fixed error with high
+ * probability, which grows with the number of grid cells of pose space the cloud covers. A
+ * scattered cloud gets many particles and a converged one few. The count is also capped so that
+ * a tick fits within a time budget, using the measured time per particle of recent ticks.
+ *
+ * <p>Particles live in a {@link Pose2dBatch}, with headings kept in [-pi, pi]. Data are evaluated
+ * from several threads at once and so must be safe to read concurrently, as data that never change
+ * after construction are.
+ */
+public final class ParticleRobotLocalizer implements RobotLocalizer {
+    /**
+     * Half the width of the field in meters, over which particles are scattered.
+     */
+    private static final double FIELD_HALF_WIDTH =
+        Units.convert(72, Units.Distance.IN, Units.Distance.M);
+
+    /**
+     * The standard deviation in meters of each coordinate of the particles placed by
+     * {@link #setPose}.
+     */
+    private static final double KNOWN_POSITION_DEVIATION = 0.01;
+
+    /**
+     * The standard deviation in radians of the headings of the particles placed by
+     * {@link #setPose}.
+     */
+    private static final double KNOWN_HEADING_DEVIATION = 0.01;
+
+    /**
+     * The variance in square meters that odometry adds to each coordinate of a particle per meter
+     * traveled.
+     * Wheels slip by a few percent of the distance they roll.
+     */
+    private static final double ODOMETRY_TRANSLATION_VARIANCE_PER_METER = 2.5e-3;
+
+    /**
+     * The variance in square radians that odometry adds to the heading of a particle per radian
+     * turned.
+     */
+    private static final double ODOMETRY_HEADING_VARIANCE_PER_RADIAN = 2.5e-3;
+
+    /**
+     * The variance that odometry adds to each component of a particle per tick regardless of
+     * motion, in square meters or radians.
+     * Spreads out the copies of a particle made by resampling so that the cloud keeps exploring.
+     */
+    private static final double ODOMETRY_MIN_VARIANCE = 1e-6;
+
+    /**
+     * The variance in square meters per second that each coordinate of a particle wanders by
+     * when there is no odometry.
+     */
+    private static final double WANDER_TRANSLATION_VARIANCE_PER_SECOND = 0.25;
+
+    /**
+     * The variance in square radians per second that the heading of a particle wanders by when
+     * there is no odometry.
+     */
+    private static final double WANDER_HEADING_VARIANCE_PER_SECOND = 1;
+
+    /**
+     * The distance in meters from the heaviest particle within which particles are averaged into
+     * the estimate.
+     */
+    private static final double ESTIMATE_RADIUS = 0.3;
+
+    /**
+     * The difference in radians from the heading of the heaviest particle within which particles
+     * are averaged into the estimate.
+     */
+    private static final double ESTIMATE_HEADING_RADIUS = Math.PI / 4;
+
+    /**
+     * The fraction of the particle count below which the effective number of particles must fall
+     * for the particles to be resampled.
+     */
+    private static final double RESAMPLE_THRESHOLD = 0.5;
+
+    /**
+     * How much of each tick's mean data probability is blended into the long-term average.
+     */
+    private static final double SLOW_AVERAGE_RATE = 0.01;
+
+    /**
+     * How much of each tick's mean data probability is blended into the short-term average.
+     */
+    private static final double FAST_AVERAGE_RATE = 0.2;
+
+    /**
+     * The width in meters of the grid cells KLD-sampling counts the cloud's coverage in.
+     */
+    private static final double BIN_SIZE = 0.1;
+
+    /**
+     * The width in radians of the grid cells KLD-sampling counts the cloud's coverage in.
+     */
+    private static final double BIN_ANGLE = Math.PI / 18;
+
+    /**
+     * The bound on the Kullback-Leibler divergence between the cloud and the true distribution
+     * that KLD-sampling draws enough particles to meet.
+     */
+    private static final double KLD_ERROR = 0.05;
+
+    /**
+     * The upper 1st percentile of the standard normal distribution, so that KLD-sampling meets its
+     * bound with 99% probability.
+     */
+    private static final double KLD_QUANTILE = 2.326;
+
+    /**
+     * How much of the time per particle measured in each tick is blended into the running
+     * estimate the particle count is budgeted with.
+     */
+    private static final double TIMING_SMOOTHING = 0.25;
+
+    /**
+     * The number of bits of a grid cell coordinate packed into a cell key.
+     */
+    private static final int BIN_BITS = 21;
+
+    /**
+     * The mask of a grid cell coordinate packed into a cell key.
+     */
+    private static final long BIN_MASK = (1L << BIN_BITS) - 1;
+
+    /**
+     * The clock ticks are timed by.
+     */
+    private final Clock clock;
+
+    /**
+     * The random number generator particles are moved and resampled with.
+     */
+    private final Random random;
+
+    /**
+     * The fewest particles resampling draws.
+     */
+    private final int minParticles;
+
+    /**
+     * The time in seconds a tick should take.
+     */
+    private final double tickBudget;
+
+    /**
+     * The pool particles are weighted on, or null to weight them on the calling thread.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The list of sources of localization data to collect data from.
+     */
+    private final ArrayList<LocalizationSource> sources;
+
+    /**
+     * The data collected this tick from sources that can localize position.
+     */
+    private final ArrayList<LocalizationData> positionData;
+
+    /**
+     * The data collected this tick from sources that can localize rotation.
+     */
+    private final ArrayList<LocalizationData> rotationData;
+
+    /**
+     * The source of the robot's motion between ticks, or null to let particles wander.
+     */
+    private OdometrySource odometry;
+
+    /**
+     * The particles.
+     */
+    private Pose2dBatch particles;
+
+    /**
+     * The particles being drawn by resampling, which then replace {@link #particles}.
+     */
+    private Pose2dBatch resampled;
+
+    /**
+     * The weight of each particle, indexed like {@link #particles}.
+     */
+    private final double[] weights;
+
+    /**
+     * The tasks that move and weight a range of particles each, one per thread.
+     */
+    private final List<ParticleTask> tasks;
+
+    /**
+     * The displacement every particle moves by this tick, before random error.
+     */
+    private Pose2d displacement;
+
+    /**
+     * The standard deviation in meters of the error added to each coordinate of each particle's
+     * displacement this tick.
+     */
+    private double translationDeviation;
+
+    /**
+     * The standard deviation in radians of the error added to each particle's turn this tick.
+     */
+    private double headingDeviation;
+
+    /**
+     * The keys of the grid cells counted so far this tick, in an open-addressed hash table.
+     */
+    private final long[] binKeys;
+
+    /**
+     * The tick each entry of {@link #binKeys} was stored in, so the table need not be cleared.
+     */
+    private final int[] binStamps;
+
+    /**
+     * The number of the current tick in {@link #binStamps}.
+     */
+    private int binStamp;
+
+    /**
+     * The running estimate of the time in nanoseconds a tick takes per particle, or 0 if no tick
+     * has been timed yet.
+     */
+    private double nanosPerParticle;
+
+    /**
+     * The most particles resampling may draw for the next tick to fit within the budget.
+     */
+    private int particleCap;
+
+    /**
+     * The long-term average of the mean probability of the particles according to the data, or 0
+     * if there have been no data yet.
+     */
+    private double slowAverage;
+
+    /**
+     * The short-term average of the mean probability of the particles according to the data, or
+     * 0 if there have been no data yet.
+     */
+    private double fastAverage;
+
+    /**
+     * The time in nanoseconds of the last tick, or of construction if there has been none.
+     */
+    private long lastTime;
+
+    /**
+     * Whether the particles are current, meaning no tick is needed until
+     * {@link #invalidateCache}.
+     */
+    private boolean ticked;
+
+    /**
+     * The estimated pose as of the last tick, or null if none has been computed yet.
+     */
+    private Pose2d cachedPose;
+
+    /**
+     * The weighted mean field space velocity of the particles over the last tick, or zero if
+     * there has been no tick or no time passed during it.
+     */
+    private Pose2d cachedVelocity = Pose2d.IDENTITY;
+
+    /**
+     * Constructs a ParticleRobotLocalizer with particles scattered over the whole field.
+     *
+     * @param minParticles the fewest particles to keep, however concentrated they are and however
+     * long they take.
+     * @param maxParticles the most particles to keep, which are also scattered at first.
+     * @param tickBudget the time in seconds each tick should take.
+     * @param threads the number of threads to weight particles on, or 1 to weight them on the
+     * calling thread.
+     * @param clock the clock to time ticks by.
+     * @param random the random number generator to move and resample particles with, and to seed
+     * the generators of the threads with.
+     * @throws IllegalArgumentException if minParticles is less than 1, maxParticles is less than
+     * minParticles, tickBudget is not positive, or threads is less than 1.
+     */
+    public ParticleRobotLocalizer(
+        int minParticles,
+        int maxParticles,
+        double tickBudget,
+        int threads,
+        Clock clock,
+        Random random
+    ) {
+        if (minParticles < 1) {
+            throw new IllegalArgumentException(String.format(
+                "Minimum particle count %d is less than 1",
+                minParticles
+            ));
+        }
+        if (maxParticles < minParticles) {
+            throw new IllegalArgumentException(String.format(
+                "Maximum particle count %d is less than minimum %d",
+                maxParticles,
+                minParticles
+            ));
+        }
+        if (!(tickBudget > 0)) {
+            throw new IllegalArgumentException(String.format(
+                "Tick budget %f s is not positive",
+                tickBudget
+            ));
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException(String.format(
+                "Thread count %d is less than 1",
+                threads
+            ));
+        }
+        this.clock = clock;
+        this.random = random;
+        this.minParticles = minParticles;
+        this.tickBudget = tickBudget;
+        pool = threads == 1 ? null : new ForkJoinPool(threads);
+        sources = new ArrayList<>();
+        positionData = new ArrayList<>();
+        rotationData = new ArrayList<>();
+        particles = new Pose2dBatch(maxParticles);
+        resampled = new Pose2dBatch(maxParticles);
+        weights = new double[maxParticles];
+        tasks = new ArrayList<>(threads);
+        for (int i = 0; i < threads; ++i) {
+            // Each task draws from its own generator so that threads never contend for one
+            tasks.add(new ParticleTask(new Random(random.nextLong())));
+        }
+        int tableSize = Integer.highestOneBit(maxParticles) * 4;
+        binKeys = new long[tableSize];
+        binStamps = new int[tableSize];
+        particleCap = maxParticles;
+        lastTime = clock.nanoTime();
+        scatter();
+    }
+
+    /**
+     * Constructs a ParticleRobotLocalizer timed by the system clock, with particles scattered over
+     * the whole field.
+     *
+     * @param minParticles the fewest particles to keep.
+     * @param maxParticles the most particles to keep, which are also scattered at first.
+     * @param tickBudget the time in seconds each tick should take.
+     * @param threads the number of threads to weight particles on, or 1 to weight them on the
+     * calling thread.
+     * @throws IllegalArgumentException if minParticles is less than 1, maxParticles is less than
+     * minParticles, tickBudget is not positive, or threads is less than 1.
+     */
+    public ParticleRobotLocalizer(
+        int minParticles,
+        int maxParticles,
+        double tickBudget,
+        int threads
+    ) {
+        this(minParticles, maxParticles, tickBudget, threads, Clock.SYSTEM, new Random());
+    }
+
+    /**
+     * Stops the localizer's worker threads, if it has any.
+     * The localizer must not be used afterward.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Sets the source of the robot's motion between ticks.
+     *
+     * @param odometry the odometry to move particles by, or null to let them wander randomly.
+     */
+    public void setOdometry(OdometrySource odometry) {
+        this.odometry = odometry;
+    }
+
+    /**
+     * Scatters the most particles allowed uniformly over the field at every heading, forgetting
+     * where the robot was thought to be.
+     * Takes effect immediately, without waiting for {@link #invalidateCache}.
+     */
+    public void scatter() {
+        particles.clear();
+        for (int i = 0; i < particles.capacity(); ++i) {
+            particles.add(
+                (random.nextDouble() * 2 - 1) * FIELD_HALF_WIDTH,
+                (random.nextDouble() * 2 - 1) * FIELD_HALF_WIDTH,
+                (random.nextDouble() * 2 - 1) * Math.PI
+            );
+        }
+        Arrays.fill(weights, 0, particles.size(), 1.0 / particles.size());
+        cachedPose = null;
+    }
+
+    /**
+     * Gathers the particles tightly around a known pose, such as the robot's starting pose.
+     * Takes effect immediately, without waiting for {@link #invalidateCache}.
+     *
+     * @param pose the field space pose of the robot.
+     */
+    public void setPose(Pose2d pose) {
+        particles.clear();
+        for (int i = 0; i < minParticles; ++i) {
+            particles.add(
+                pose.getX() + random.nextGaussian() * KNOWN_POSITION_DEVIATION,
+                pose.getY() + random.nextGaussian() * KNOWN_POSITION_DEVIATION,
+                wrap(pose.getHeading() + random.nextGaussian() * KNOWN_HEADING_DEVIATION)
+            );
+        }
+        Arrays.fill(weights, 0, particles.size(), 1.0 / particles.size());
+        cachedPose = null;
+    }
+
+    /**
+     * Gets the number of particles.
+     *
+     * @return The number of particles kept by the last resampling.
+     */
+    public int getParticleCount() {
+        return particles.size();
+    }
+
+    @Override
+    public void invalidateCache() {
+        ticked = false;
+    }
+
+    @Override
+    public void registerSource(LocalizationSource source) {
+        sources.add(source);
+    }
+
+    @Override
+    public Pose2d resolvePose() {
+        if (!ticked) {
+            ticked = true;
+            tick();
+        }
+        if (cachedPose == null) {
+            cachedPose = estimate();
+        }
+        return cachedPose;
+    }
+
+    @Override
+    public Pose2d resolveVelocity() {
+        resolvePose();
+        return cachedVelocity;
+    }
+
+    @Override
+    public Vec2 resolvePosition() {
+        return resolvePose().getTranslation();
+    }
+
+    @Override
+    public double resolveRotation() {
+        return resolvePose().getHeading();
+    }
+
+    /**
+     * Runs a tick of the filter: moves, weights, and resamples the particles, and updates the
+     * estimate.
+     */
+    private void tick() {
+        long start = System.nanoTime();
+        long now = clock.nanoTime();
+        double dt = (now - lastTime) * 1e-9;
+        lastTime = now;
+        int count = particles.size();
+        planMotion(dt);
+
+        positionData.clear();
+        rotationData.clear();
+        for (int i = 0; i < sources.size(); ++i) {
+            LocalizationSource source = sources.get(i);
+            boolean position = source.canLocalizePosition();
+            boolean rotation = source.canLocalizeRotation();
+            if (!position && !rotation) {
+                continue;
+            }
+            LocalizationData data = source.collectData();
+            if (position) {
+                positionData.add(data);
+            }
+            if (rotation) {
+                rotationData.add(data);
+            }
+        }
+        update();
+        cachedVelocity = meanVelocity(dt);
+        boolean weighted = false;
+        if (!positionData.isEmpty() || !rotationData.isEmpty()) {
+            double total = BatchMath.sum(weights, count);
+            if (total > 0 && !Double.isInfinite(total)) {
+                // Weights summed to 1 before weighting, so the total is their mean probability
+                double sumSq = 0;
+                for (int i = 0; i < count; ++i) {
+                    weights[i] /= total;
+                    sumSq += weights[i] * weights[i];
+                }
+                weighted = true;
+                if (slowAverage == 0) {
+                    slowAverage = total;
+                    fastAverage = total;
+                } else {
+                    slowAverage += SLOW_AVERAGE_RATE * (total - slowAverage);
+                    fastAverage += FAST_AVERAGE_RATE * (total - fastAverage);
+                }
+                cachedPose = estimate();
+                double scatterFraction = Math.max(0, 1 - fastAverage / slowAverage);
+                if (1 / sumSq < RESAMPLE_THRESHOLD * count
+                    || count > particleCap
+                    || scatterFraction > 0) {
+                    resample(scatterFraction);
+                }
+            } else {
+                // The data contradict every particle, so they say nothing about which is right
+                Arrays.fill(weights, 0, count, 1.0 / count);
+            }
+        }
+        if (!weighted) {
+            // Weights evened out by resampling no longer single out a mode, so the last estimate
+            // is carried along by the particles' motion instead
+            cachedPose = cachedPose == null ? estimate() : cachedPose.mul(displacement);
+        }
+
+        double elapsed = System.nanoTime() - start;
+        double measured = elapsed / count;
+        nanosPerParticle = nanosPerParticle == 0
+            ? measured
+            : nanosPerParticle + TIMING_SMOOTHING * (measured - nanosPerParticle);
+        double affordable = tickBudget * 1e9 / nanosPerParticle;
+        particleCap = (int)Math.max(minParticles, Math.min(particles.capacity(), affordable));
+    }
+
+    /**
+     * Chooses how particles move this tick: by the displacement measured by odometry, with error
+     * that grows with the distance moved, or if there is no odometry by random wandering that
+     * grows with the time passed.
+     *
+     * @param dt the time in seconds since the last tick.
+     */
+    private void planMotion(double dt) {
+        if (odometry != null) {
+            displacement = odometry.collectDisplacement();
+            translationDeviation = Math.sqrt(ODOMETRY_MIN_VARIANCE
+                + ODOMETRY_TRANSLATION_VARIANCE_PER_METER
+                * Math.hypot(displacement.getX(), displacement.getY()));
+            headingDeviation = Math.sqrt(ODOMETRY_MIN_VARIANCE
+                + ODOMETRY_HEADING_VARIANCE_PER_RADIAN * Math.abs(displacement.getHeading()));
+        } else {
+            displacement = Pose2d.IDENTITY;
+            double time = Math.max(dt, 0);
+            translationDeviation = Math.sqrt(WANDER_TRANSLATION_VARIANCE_PER_SECOND * time);
+            headingDeviation = Math.sqrt(WANDER_HEADING_VARIANCE_PER_SECOND * time);
+        }
+    }
+
+    /**
+     * Moves every particle and multiplies its weight by the probability of its new pose according
+     * to this tick's data, splitting the particles evenly among the threads.
+     *
+     * @throws IllegalStateException if the calling thread is interrupted while waiting.
+     */
+    private void update() {
+        int count = particles.size();
+        if (pool == null) {
+            tasks.get(0).update(0, count);
+            return;
+        }
+        for (int i = 0; i < tasks.size(); ++i) {
+            ParticleTask task = tasks.get(i);
+            task.start = (int)((long)count * i / tasks.size());
+            task.end = (int)((long)count * (i + 1) / tasks.size());
+        }
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while updating particles", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Updating particles failed", e.getCause());
+        }
+    }
+
+    /**
+     * Finds the weighted mean of the field space motion the tasks gave the particles this tick,
+     * weighted as the particles were before this tick's data.
+     *
+     * @param dt the time in seconds since the last tick.
+     * @return The mean velocity in meters and radians per second, or zero if no time has passed.
+     */
+    private Pose2d meanVelocity(double dt) {
+        double totalWeight = 0;
+        double x = 0;
+        double y = 0;
+        double turn = 0;
+        for (int i = 0; i < tasks.size(); ++i) {
+            ParticleTask task = tasks.get(i);
+            totalWeight += task.motionWeight;
+            x += task.motionX;
+            y += task.motionY;
+            turn += task.motionTurn;
+        }
+        if (!(dt > 0) || !(totalWeight > 0)) {
+            return Pose2d.IDENTITY;
+        }
+        double scale = 1 / (totalWeight * dt);
+        return new Pose2d(x * scale, y * scale, turn * scale);
+    }
+
+    /**
+     * Estimates the robot's pose as the weighted mean of the particles near the heaviest one.
+     * Headings are averaged as unit vectors, so that headings on either side of pi average to pi
+     * rather than zero.
+     *
+     * @return The estimated field space pose.
+     */
+    private Pose2d estimate() {
+        int count = particles.size();
+        double[] xs = particles.getXs();
+        double[] ys = particles.getYs();
+        double[] headings = particles.getHeadings();
+        double[] coss = particles.getCoss();
+        double[] sins = particles.getSins();
+        int best = BatchMath.argMax(weights, count);
+        if (best < 0) {
+            best = 0;
+        }
+        double bestX = xs[best];
+        double bestY = ys[best];
+        double bestHeading = headings[best];
+        double totalWeight = 0;
+        double x = 0;
+        double y = 0;
+        double cos = 0;
+        double sin = 0;
+        for (int i = 0; i < count; ++i) {
+            double dx = xs[i] - bestX;
+            double dy = ys[i] - bestY;
+            double turn = Math.abs(wrap(headings[i] - bestHeading));
+            if (dx * dx + dy * dy > ESTIMATE_RADIUS * ESTIMATE_RADIUS
+                || turn > ESTIMATE_HEADING_RADIUS) {
+                continue;
+            }
+            double weight = weights[i];
+            totalWeight += weight;
+            x += weight * xs[i];
+            y += weight * ys[i];
+            cos += weight * coss[i];
+            sin += weight * sins[i];
+        }
+        if (!(totalWeight > 0)) {
+            return particles.get(best);
+        }
+        return new Pose2d(x / totalWeight, y / totalWeight, Math.atan2(sin, cos));
+    }
+
+    /**
+     * Replaces the particles with a sample drawn in proportion to their weights.
+     * Low-variance resampling takes evenly spaced points from a single random offset along the
+     * cumulative weights, so that a particle with weight w of the total is drawn either
+     * floor(w n) or ceil(w n) times, never by chance more or fewer.
+     *
+     * @param scatterFraction the probability with which each drawn particle is replaced by one
+     * scattered over the field.
+     */
+    private void resample(double scatterFraction) {
+        int count = particles.size();
+        double total = BatchMath.sum(weights, count);
+        int drawCount = chooseDrawCount(count, total);
+        double spacing = total / drawCount;
+        double offset = random.nextDouble() * spacing;
+        double[] xs = particles.getXs();
+        double[] ys = particles.getYs();
+        double[] headings = particles.getHeadings();
+        double[] coss = particles.getCoss();
+        double[] sins = particles.getSins();
+        resampled.setSize(drawCount);
+        double[] outX = resampled.getXs();
+        double[] outY = resampled.getYs();
+        double[] outH = resampled.getHeadings();
+        double[] outC = resampled.getCoss();
+        double[] outS = resampled.getSins();
+        int j = 0;
+        double cumulative = weights[0];
+        for (int i = 0; i < drawCount; ++i) {
+            double point = offset + i * spacing;
+            while (point > cumulative && j < count - 1) {
+                ++j;
+                cumulative += weights[j];
+            }
+            if (scatterFraction > 0 && random.nextDouble() < scatterFraction) {
+                resampled.set(
+                    i,
+                    (random.nextDouble() * 2 - 1) * FIELD_HALF_WIDTH,
+                    (random.nextDouble() * 2 - 1) * FIELD_HALF_WIDTH,
+                    (random.nextDouble() * 2 - 1) * Math.PI
+                );
+                continue;
+            }
+            outX[i] = xs[j];
+            outY[i] = ys[j];
+            outH[i] = headings[j];
+            outC[i] = coss[j];
+            outS[i] = sins[j];
+        }
+        Pose2dBatch swap = particles;
+        particles = resampled;
+        resampled = swap;
+        Arrays.fill(weights, 0, drawCount, 1.0 / drawCount);
+    }
+
+    /**
+     * Chooses how many particles resampling should draw.
+     * KLD-sampling draws particles until there are enough for the grid cells they cover. Low
+     * variance resampling must know the count beforehand, so instead the cells covered by a
+     * sample of the most particles the budget allows are counted, which if anything overestimates
+     * the particles needed.
+     *
+     * @param count the number of particles.
+     * @param total the sum of the particles' weights.
+     * @return The number of particles to draw, between the minimum and the budgeted cap.
+     */
+    private int chooseDrawCount(int count, double total) {
+        ++binStamp;
+        double spacing = total / particleCap;
+        double offset = random.nextDouble() * spacing;
+        double[] xs = particles.getXs();
+        double[] ys = particles.getYs();
+        double[] headings = particles.getHeadings();
+        int bins = 0;
+        int j = 0;
+        int lastCounted = -1;
+        double cumulative = weights[0];
+        for (int i = 0; i < particleCap; ++i) {
+            double point = offset + i * spacing;
+            while (point > cumulative && j < count - 1) {
+                ++j;
+                cumulative += weights[j];
+            }
+            // Copies of a particle share its cell, so only the first is counted
+            if (j != lastCounted) {
+                lastCounted = j;
+                if (addBin(xs[j], ys[j], headings[j])) {
+                    ++bins;
+                }
+            }
+        }
+        if (bins <= 1) {
+            return minParticles;
+        }
+        // The Wilson-Hilferty approximation of the chi-squared quantile with bins - 1 degrees of
+        // freedom, over twice the error bound
+        double a = 2.0 / (9 * (bins - 1));
+        double b = 1 - a + Math.sqrt(a) * KLD_QUANTILE;
+        double needed = Math.ceil((bins - 1) / (2 * KLD_ERROR) * b * b * b);
+        return (int)Math.max(minParticles, Math.min(particleCap, needed));
+    }
+
+    /**
+     * Records that a pose's grid cell is covered this tick.
+     *
+     * @param x the field x coordinate in meters.
+     * @param y the field y coordinate in meters.
+     * @param heading the heading in radians.
+     * @return Whether the cell had not been covered yet this tick.
+     */
+    private boolean addBin(double x, double y, double heading) {
+        long key = ((long)Math.floor(x / BIN_SIZE) & BIN_MASK) << (2 * BIN_BITS)
+            | ((long)Math.floor(y / BIN_SIZE) & BIN_MASK) << BIN_BITS
+            | (long)Math.floor(heading / BIN_ANGLE) & BIN_MASK;
+        int mask = binKeys.length - 1;
+        int slot = (int)((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (binStamps[slot] == binStamp) {
+            if (binKeys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        binStamps[slot] = binStamp;
+        binKeys[slot] = key;
+        return true;
+    }
+
+    /**
+     * Wraps an angle into [-pi, pi].
+     *
+     * @param angle the angle in radians.
+     * @return The equivalent angle in [-pi, pi].
+     */
+    private static double wrap(double angle) {
+        return Math.IEEEremainder(angle, 2 * Math.PI);
+    }
+
+    /**
+     * Moves and weights a range of particles, on whichever thread runs it.
+     */
+    private final class ParticleTask implements Callable<Void> {
+        /**
+         * The random number generator the task's particles are moved with.
+         */
+        private final Random random;
+
+        /**
+         * The index of the first particle to update.
+         */
+        private int start;
+
+        /**
+         * The index after the last particle to update.
+         */
+        private int end;
+
+        /**
+         * The sum of the weights of the particles the task moved this tick.
+         */
+        private double motionWeight;
+
+        /**
+         * The weighted sum of the field x distances in meters the task moved its particles this
+         * tick.
+         */
+        private double motionX;
+
+        /**
+         * The weighted sum of the field y distances in meters the task moved its particles this
+         * tick.
+         */
+        private double motionY;
+
+        /**
+         * The weighted sum of the turns in radians the task gave its particles this tick.
+         */
+        private double motionTurn;
+
+        /**
+         * Constructs a ParticleTask.
+         *
+         * @param random the random number generator to move particles with.
+         */
+        ParticleTask(Random random) {
+            this.random = random;
+        }
+
+        @Override
+        public Void call() {
+            update(start, end);
+            return null;
+        }
+
+        /**
+         * Moves a range of particles, then multiplies their weights by the probabilities of their
+         * poses. The weighted motion is summed for {@link #meanVelocity}.
+         * Data need not treat rotations a turn apart as the same, so the rotation probability is
+         * summed over the heading and the equivalent headings a turn either way. Otherwise a
+         * particle just past pi would seem far from a datum just short of it.
+         *
+         * @param from the index of the first particle to update.
+         * @param to the index after the last particle to update.
+         */
+        void update(int from, int to) {
+            double[] xs = particles.getXs();
+            double[] ys = particles.getYs();
+            double[] headings = particles.getHeadings();
+            double[] coss = particles.getCoss();
+            double[] sins = particles.getSins();
+            motionWeight = 0;
+            motionX = 0;
+            motionY = 0;
+            motionTurn = 0;
+            for (int i = from; i < to; ++i) {
+                double dx = displacement.getX() + random.nextGaussian() * translationDeviation;
+                double dy = displacement.getY() + random.nextGaussian() * translationDeviation;
+                double turn = displacement.getHeading() + random.nextGaussian() * headingDeviation;
+                double fieldX = coss[i] * dx - sins[i] * dy;
+                double fieldY = sins[i] * dx + coss[i] * dy;
+                double weight = weights[i];
+                motionWeight += weight;
+                motionX += weight * fieldX;
+                motionY += weight * fieldY;
+                motionTurn += weight * turn;
+                particles.set(i, xs[i] + fieldX, ys[i] + fieldY, wrap(headings[i] + turn));
+            }
+            if (positionData.isEmpty() && rotationData.isEmpty()) {
+                return;
+            }
+            for (int i = from; i < to; ++i) {
+                double weight = weights[i];
+                if (!positionData.isEmpty()) {
+                    Vec2 position = new Vec2(xs[i], ys[i]);
+                    double sum = 0;
+                    for (int k = 0; k < positionData.size(); ++k) {
+                        sum += positionData.get(k).getPositionProbability(position);
+                    }
+                    weight *= sum / positionData.size();
+                }
+                if (!rotationData.isEmpty()) {
+                    double sum = 0;
+                    for (int k = 0; k < rotationData.size(); ++k) {
+                        LocalizationData data = rotationData.get(k);
+                        double heading = headings[i];
+                        sum += data.getRotationProbability(heading - 2 * Math.PI)
+                            + data.getRotationProbability(heading)
+                            + data.getRotationProbability(heading + 2 * Math.PI);
+                    }
+                    weight *= sum / rotationData.size();
+                }
+                weights[i] = weight;
+            }
+        }
+    }
+}
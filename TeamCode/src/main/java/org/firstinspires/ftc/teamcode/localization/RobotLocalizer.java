@@ -1,6 +1,7 @@
 package org.firstinspires.ftc.teamcode.localization;
 
 import org.firstinspires.ftc.teamcode.matrix.Mat3;
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
 import org.firstinspires.ftc.teamcode.matrix.Vec2;
 
 /**
@@ -21,13 +22,25 @@ public interface RobotLocalizer {
      */
     void registerSource(LocalizationSource source);
 
+    /**
+     * Collects data from all localization sources to determine the robot's pose.
+     *
+     * @return The possibly cached pose of the robot in field space. To ensure the <i>current</i>
+     * pose is returned, call {@link invalidateCache}.
+     */
+    Pose2d resolvePose();
+
     /**
      * Collects data from all localization sources to determine the robot's transform.
+     * Prefer {@link #resolvePose}, which gives the same information in a form that is cheaper to
+     * invert and compose.
      *
      * @return The possibly cached transform of the robot in field space. To ensure the
      * <i>current</i> transform is returned, call {@link invalidateCache}.
      */
-    Mat3 resolveTransform();
+    default Mat3 resolveTransform() {
+        return resolvePose().toMat3();
+    }
 
     /**
      * Collects data from some localization sources to determine the robot's position.
@@ -48,4 +61,18 @@ public interface RobotLocalizer {
      * rotation is returned, call {@link invalidateCache}.
      */
     double resolveRotation();
+
+    /**
+     * Determines the robot's velocity from the same data as the pose.
+     * Localizers that only estimate where the robot is, not how it is moving, report that it is
+     * still.
+     *
+     * @return The possibly cached field space velocity of the robot, encoded as a pose whose
+     * translation is the translational velocity in meters per second and whose heading is the
+     * counterclockwise angular velocity in radians per second. To ensure the <i>current</i>
+     * velocity is returned, call {@link invalidateCache}.
+     */
+    default Pose2d resolveVelocity() {
+        return Pose2d.IDENTITY;
+    }
 }
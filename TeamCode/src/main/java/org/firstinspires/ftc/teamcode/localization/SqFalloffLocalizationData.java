@@ -1,5 +1,7 @@
 package org.firstinspires.ftc.teamcode.localization;
 
+import java.util.List;
+
 import org.firstinspires.ftc.teamcode.matrix.Mat3;
 import org.firstinspires.ftc.teamcode.matrix.Vec2;
 
@@ -15,9 +17,27 @@ public final class SqFalloffLocalizationData extends AbstractFinDiffLocalization
     private static final double EPSILON = 0.001;
 
     /**
-     * The best-guess transform of the robot according to this datum.
+     * The most steps taken toward each peak by {@link #findMostProbablePosition} and
+     * {@link #findMostProbableRotation}.
+     * Each step is a weighted mean, which converges in a handful of steps unless the data disagree
+     * enough to leave the peak nearly flat.
+     */
+    private static final int MAX_PEAK_STEPS = 100;
+
+    /**
+     * The step size in meters or radians below which a search for a peak is considered converged.
      */
-    private Mat3 transform;
+    private static final double PEAK_TOLERANCE = 1e-9;
+
+    /**
+     * The best-guess position of the robot according to this datum.
+     */
+    private Vec2 position;
+
+    /**
+     * The best-guess rotation of the robot in radians according to this datum.
+     */
+    private double rotation;
 
     /**
      * The trustworthiness of the data, directly proportional to the position and rotation
@@ -50,7 +70,8 @@ public final class SqFalloffLocalizationData extends AbstractFinDiffLocalization
         double rotationPrecision
     ) {
         super(EPSILON);
-        this.transform = transform;
+        position = transform.getTranslation();
+        rotation = transform.getDirection().getAngle();
         this.accuracy = accuracy;
         this.positionPrecision = positionPrecision;
         this.rotationPrecision = rotationPrecision;
@@ -58,13 +79,211 @@ public final class SqFalloffLocalizationData extends AbstractFinDiffLocalization
 
     @Override
     public double getPositionProbability(Vec2 pos) {
-        Vec2 diff = transform.getTranslation().mul(-1).add(pos);
+        Vec2 diff = position.mul(-1).add(pos);
         return accuracy / ((diff.dot(diff) * positionPrecision) + 1);
     }
 
     @Override
     public double getRotationProbability(double rot) {
-        double diff = rot - transform.getDirection().getAngle();
+        double diff = rot - rotation;
         return accuracy / (diff * diff * rotationPrecision + 1);
     }
+
+    @Override
+    public boolean hasAnalyticDerivatives() {
+        return true;
+    }
+
+    @Override
+    public void getPositionDerivatives(double x, double y, double[] out) {
+        // With q = 1 / (precision * d^2 + 1), the probability is accuracy * q and each derivative
+        // of q brings out another factor of -2 * precision * q times the offset along the axis
+        double dx = x - position.getX();
+        double dy = y - position.getY();
+        double q = 1 / (positionPrecision * (dx * dx + dy * dy) + 1);
+        double slope = -2 * accuracy * positionPrecision * q * q;
+        double curvature = 8 * accuracy * positionPrecision * positionPrecision * q * q * q;
+        out[0] = accuracy * q;
+        out[1] = slope * dx;
+        out[2] = slope * dy;
+        out[3] = slope + curvature * dx * dx;
+        out[4] = curvature * dx * dy;
+        out[5] = slope + curvature * dy * dy;
+    }
+
+    @Override
+    public void getRotationDerivatives(double rot, double[] out) {
+        double diff = rot - rotation;
+        double q = 1 / (rotationPrecision * diff * diff + 1);
+        double slope = -2 * accuracy * rotationPrecision * q * q;
+        double curvature = 8 * accuracy * rotationPrecision * rotationPrecision * q * q * q;
+        out[0] = accuracy * q;
+        out[1] = slope * diff;
+        out[2] = slope + curvature * diff * diff;
+    }
+
+    /**
+     * Finds the position that maximizes the sum of several data's position probabilities.
+     * The gradient of the sum is zero where the position is the mean of the data's positions
+     * weighted by accuracy * precision / (precision * distance^2 + 1)^2, so the peak is found by
+     * repeatedly moving to that weighted mean. Since each probability is a convex function of the
+     * squared distance, each move maximizes a lower bound of the sum that touches it at the
+     * current position, so the sum never decreases. A search is started from the mean weighted by
+     * accuracy * precision, which is the peak when the data agree, and from each datum's position,
+     * so that data disagreeing enough to make the sum multimodal still yield its highest peak.
+     *
+     * @param data the data to combine, which must have non-negative accuracies and precisions.
+     * @return The most probable position, found with a fixed amount of work per pair of data.
+     * @throws IllegalArgumentException if there are no data.
+     */
+    static Vec2 findMostProbablePosition(List<SqFalloffLocalizationData> data) {
+        if (data.isEmpty()) {
+            throw new IllegalArgumentException("Cannot combine an empty list of data");
+        }
+        int count = data.size();
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        double[] accuracies = new double[count];
+        double[] precisions = new double[count];
+        double weightSum = 0;
+        double weightedX = 0;
+        double weightedY = 0;
+        for (int i = 0; i < count; ++i) {
+            SqFalloffLocalizationData datum = data.get(i);
+            xs[i] = datum.position.getX();
+            ys[i] = datum.position.getY();
+            accuracies[i] = datum.accuracy;
+            precisions[i] = datum.positionPrecision;
+            double weight = datum.accuracy * datum.positionPrecision;
+            weightSum += weight;
+            weightedX += weight * xs[i];
+            weightedY += weight * ys[i];
+        }
+        double bestX = xs[0];
+        double bestY = ys[0];
+        double bestProbability = Double.NEGATIVE_INFINITY;
+        for (int start = -1; start < count; ++start) {
+            double x;
+            double y;
+            if (start < 0) {
+                if (!(weightSum > 0)) {
+                    continue;
+                }
+                x = weightedX / weightSum;
+                y = weightedY / weightSum;
+            } else {
+                x = xs[start];
+                y = ys[start];
+            }
+            for (int step = 0; step < MAX_PEAK_STEPS; ++step) {
+                double stepWeightSum = 0;
+                double stepX = 0;
+                double stepY = 0;
+                for (int i = 0; i < count; ++i) {
+                    double dx = xs[i] - x;
+                    double dy = ys[i] - y;
+                    double denominator = precisions[i] * (dx * dx + dy * dy) + 1;
+                    double weight = accuracies[i] * precisions[i] / (denominator * denominator);
+                    stepWeightSum += weight;
+                    stepX += weight * dx;
+                    stepY += weight * dy;
+                }
+                if (!(stepWeightSum > 0)) {
+                    // Every datum is flat here
+                    break;
+                }
+                stepX /= stepWeightSum;
+                stepY /= stepWeightSum;
+                x += stepX;
+                y += stepY;
+                if (Math.abs(stepX) + Math.abs(stepY) <= PEAK_TOLERANCE) {
+                    break;
+                }
+            }
+            double probability = 0;
+            for (int i = 0; i < count; ++i) {
+                double dx = xs[i] - x;
+                double dy = ys[i] - y;
+                probability += accuracies[i] / (precisions[i] * (dx * dx + dy * dy) + 1);
+            }
+            if (probability > bestProbability) {
+                bestX = x;
+                bestY = y;
+                bestProbability = probability;
+            }
+        }
+        return new Vec2(bestX, bestY);
+    }
+
+    /**
+     * Finds the rotation that maximizes the sum of several data's rotation probabilities.
+     * Found the same way as {@link #findMostProbablePosition}, in one dimension.
+     *
+     * @param data the data to combine, which must have non-negative accuracies and precisions.
+     * @return The most probable rotation in radians, found with a fixed amount of work per pair of
+     * data.
+     * @throws IllegalArgumentException if there are no data.
+     */
+    static double findMostProbableRotation(List<SqFalloffLocalizationData> data) {
+        if (data.isEmpty()) {
+            throw new IllegalArgumentException("Cannot combine an empty list of data");
+        }
+        int count = data.size();
+        double[] rotations = new double[count];
+        double[] accuracies = new double[count];
+        double[] precisions = new double[count];
+        double weightSum = 0;
+        double weightedRotation = 0;
+        for (int i = 0; i < count; ++i) {
+            SqFalloffLocalizationData datum = data.get(i);
+            rotations[i] = datum.rotation;
+            accuracies[i] = datum.accuracy;
+            precisions[i] = datum.rotationPrecision;
+            double weight = datum.accuracy * datum.rotationPrecision;
+            weightSum += weight;
+            weightedRotation += weight * rotations[i];
+        }
+        double best = rotations[0];
+        double bestProbability = Double.NEGATIVE_INFINITY;
+        for (int start = -1; start < count; ++start) {
+            double rot;
+            if (start < 0) {
+                if (!(weightSum > 0)) {
+                    continue;
+                }
+                rot = weightedRotation / weightSum;
+            } else {
+                rot = rotations[start];
+            }
+            for (int step = 0; step < MAX_PEAK_STEPS; ++step) {
+                double stepWeightSum = 0;
+                double stepRot = 0;
+                for (int i = 0; i < count; ++i) {
+                    double diff = rotations[i] - rot;
+                    double denominator = precisions[i] * diff * diff + 1;
+                    double weight = accuracies[i] * precisions[i] / (denominator * denominator);
+                    stepWeightSum += weight;
+                    stepRot += weight * diff;
+                }
+                if (!(stepWeightSum > 0)) {
+                    break;
+                }
+                stepRot /= stepWeightSum;
+                rot += stepRot;
+                if (Math.abs(stepRot) <= PEAK_TOLERANCE) {
+                    break;
+                }
+            }
+            double probability = 0;
+            for (int i = 0; i < count; ++i) {
+                double diff = rotations[i] - rot;
+                probability += accuracies[i] / (precisions[i] * diff * diff + 1);
+            }
+            if (probability > bestProbability) {
+                best = rot;
+                bestProbability = probability;
+            }
+        }
+        return best;
+    }
 }
@@ -0,0 +1,128 @@
+package org.firstinspires.ftc.teamcode.matrix;
+
+/**
+ * Utility class for reducing the arrays of values produced by {@link Vec2Batch} and
+ * {@link Pose2dBatch} operations.
+ * Every reduction considers only a prefix of the array so that buffers sized for the largest batch
+ * can be reused for smaller ones.
+ */
+public final class BatchMath {
+    /**
+     * BatchMath is a utility class with only static methods; it should not be instantiated.
+     */
+    private BatchMath() { }
+
+    /**
+     * Finds the smallest of a prefix of values.
+     *
+     * @param values the values to search.
+     * @param count the number of leading values to consider.
+     * @return The smallest value, or positive infinity if count is zero.
+     * @throws IllegalArgumentException if count is negative or exceeds the array length.
+     */
+    public static double min(double[] values, int count) {
+        checkCount(values, count);
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < count; ++i) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    /**
+     * Finds the largest of a prefix of values.
+     *
+     * @param values the values to search.
+     * @param count the number of leading values to consider.
+     * @return The largest value, or negative infinity if count is zero.
+     * @throws IllegalArgumentException if count is negative or exceeds the array length.
+     */
+    public static double max(double[] values, int count) {
+        checkCount(values, count);
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; ++i) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Sums a prefix of values.
+     *
+     * @param values the values to sum.
+     * @param count the number of leading values to consider.
+     * @return The sum of the values, or zero if count is zero.
+     * @throws IllegalArgumentException if count is negative or exceeds the array length.
+     */
+    public static double sum(double[] values, int count) {
+        checkCount(values, count);
+        double sum = 0;
+        for (int i = 0; i < count; ++i) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Finds the index of the smallest of a prefix of values.
+     *
+     * @param values the values to search.
+     * @param count the number of leading values to consider.
+     * @return The index of the first occurrence of the smallest value, or -1 if count is zero or
+     * every value is NaN.
+     * @throws IllegalArgumentException if count is negative or exceeds the array length.
+     */
+    public static int argMin(double[] values, int count) {
+        checkCount(values, count);
+        int best = -1;
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < count; ++i) {
+            double value = values[i];
+            if (value < min || best == -1 && value == min) {
+                min = value;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds the index of the largest of a prefix of values.
+     *
+     * @param values the values to search.
+     * @param count the number of leading values to consider.
+     * @return The index of the first occurrence of the largest value, or -1 if count is zero or
+     * every value is NaN.
+     * @throws IllegalArgumentException if count is negative or exceeds the array length.
+     */
+    public static int argMax(double[] values, int count) {
+        checkCount(values, count);
+        int best = -1;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; ++i) {
+            double value = values[i];
+            if (value > max || best == -1 && value == max) {
+                max = value;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Checks that a prefix length is valid for an array.
+     *
+     * @param values the array the prefix is of.
+     * @param count the length of the prefix.
+     * @throws IllegalArgumentException if count is negative or exceeds the array length.
+     */
+    private static void checkCount(double[] values, int count) {
+        if (count < 0 || count > values.length) {
+            throw new IllegalArgumentException(String.format(
+                "Count %d is outside of array of length %d",
+                count,
+                values.length
+            ));
+        }
+    }
+}
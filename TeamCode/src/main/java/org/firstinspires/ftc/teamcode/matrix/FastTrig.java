@@ -0,0 +1,296 @@
+package org.firstinspires.ftc.teamcode.matrix;
+
+/**
+ * Utility class of trigonometric functions that trade the last bits of accuracy for speed.
+ * Each function looks up the value at the nearest point of a table and corrects it with a short
+ * polynomial in the distance to that point, which is small enough that a few terms of the Taylor
+ * series are exact to double precision. The remaining error comes from rounding and is bounded
+ * in each function's documentation; the bounds were found by comparing against {@link StrictMath}
+ * on dense sweeps of each function's domain.
+ *
+ * <p>Callers choose between these and the exact functions of {@link Math} with a {@link Mode}, so
+ * the fast functions are only used where a caller opts in.
+ */
+public final class FastTrig {
+    /**
+     * The number of table entries per full turn for sine and cosine.
+     * A power of two so that indices wrap around with a mask.
+     */
+    private static final int SIN_TABLE_SIZE = 1024;
+
+    /**
+     * The angle in radians between neighboring entries of the sine table, rounded to 33
+     * significant bits so that multiplying it by an index of less than 2^20 is exact.
+     */
+    private static final double SIN_STEP_HIGH = 1.57079632673412561417e+00 / (SIN_TABLE_SIZE / 4);
+
+    /**
+     * The rest of the angle between neighboring entries of the sine table.
+     */
+    private static final double SIN_STEP_LOW = 6.07710050650619224932e-11 / (SIN_TABLE_SIZE / 4);
+
+    /**
+     * The number of sine table entries per radian.
+     */
+    private static final double SIN_STEPS_PER_RADIAN = SIN_TABLE_SIZE / (2 * Math.PI);
+
+    /**
+     * The sine of each multiple of the table step over a full turn.
+     * Cosines are read a quarter turn further along.
+     */
+    private static final double[] SIN_TABLE = new double[SIN_TABLE_SIZE];
+
+    /**
+     * The number of arctangent table entries between 0 and 1.
+     */
+    private static final int ATAN_TABLE_SIZE = 256;
+
+    /**
+     * The arctangent of each multiple of 1 / {@link #ATAN_TABLE_SIZE} from 0 to 1 inclusive.
+     */
+    private static final double[] ATAN_TABLE = new double[ATAN_TABLE_SIZE + 1];
+
+    /**
+     * The part of pi that {@link Math#PI} leaves out.
+     */
+    private static final double PI_LOW = 1.2246467991473532e-16;
+
+    static {
+        // Fill the first quarter turn so that no angle exceeds pi / 4, where rounding the angle
+        // barely moves its sine or cosine, then reflect it around the rest of the turn
+        int quarter = SIN_TABLE_SIZE / 4;
+        for (int i = 0; i <= quarter; ++i) {
+            double sin = i <= quarter / 2
+                ? StrictMath.sin(i * SIN_STEP_HIGH + i * SIN_STEP_LOW)
+                : StrictMath.cos((quarter - i) * SIN_STEP_HIGH + (quarter - i) * SIN_STEP_LOW);
+            SIN_TABLE[i] = sin;
+            SIN_TABLE[2 * quarter - i] = sin;
+            SIN_TABLE[(2 * quarter + i) & (SIN_TABLE_SIZE - 1)] = -sin;
+            SIN_TABLE[(4 * quarter - i) & (SIN_TABLE_SIZE - 1)] = -sin;
+        }
+        SIN_TABLE[2 * quarter] = 0;
+        for (int i = 0; i <= ATAN_TABLE_SIZE; ++i) {
+            ATAN_TABLE[i] = StrictMath.atan((double)i / ATAN_TABLE_SIZE);
+        }
+    }
+
+    /**
+     * FastTrig is a utility class with only static methods; it should not be instantiated.
+     */
+    private FastTrig() { }
+
+    /**
+     * Computes the sine of an angle.
+     *
+     * @param angle the angle in radians.
+     * @return The sine of the angle, within 2.3e-16 of the exact value for angles of magnitude up
+     * to 6000 radians, beyond which the error grows in proportion to the angle. NaN if the angle is
+     * NaN or infinite.
+     */
+    public static double sin(double angle) {
+        double steps = Math.floor(angle * SIN_STEPS_PER_RADIAN + 0.5);
+        double r = angle - steps * SIN_STEP_HIGH - steps * SIN_STEP_LOW;
+        int index = (int)((long)steps & (SIN_TABLE_SIZE - 1));
+        double sinA = SIN_TABLE[index];
+        double cosA = SIN_TABLE[(index + SIN_TABLE_SIZE / 4) & (SIN_TABLE_SIZE - 1)];
+        // sin(a + r) = sin(a) + sin(a) (cos(r) - 1) + cos(a) sin(r)
+        double rSq = r * r;
+        return sinA + (sinA * getCosMinusOne(rSq) + cosA * getSin(r, rSq));
+    }
+
+    /**
+     * Computes the cosine of an angle.
+     *
+     * @param angle the angle in radians.
+     * @return The cosine of the angle, with the same error as {@link #sin}.
+     */
+    public static double cos(double angle) {
+        double steps = Math.floor(angle * SIN_STEPS_PER_RADIAN + 0.5);
+        double r = angle - steps * SIN_STEP_HIGH - steps * SIN_STEP_LOW;
+        int index = (int)((long)steps & (SIN_TABLE_SIZE - 1));
+        double sinA = SIN_TABLE[index];
+        double cosA = SIN_TABLE[(index + SIN_TABLE_SIZE / 4) & (SIN_TABLE_SIZE - 1)];
+        // cos(a + r) = cos(a) + cos(a) (cos(r) - 1) - sin(a) sin(r)
+        double rSq = r * r;
+        return cosA + (cosA * getCosMinusOne(rSq) - sinA * getSin(r, rSq));
+    }
+
+    /**
+     * Computes the sine and cosine of an angle together, sharing the work of reducing it.
+     *
+     * @param angle the angle in radians.
+     * @param out an array of at least two elements, whose first two are set to the sine and the
+     * cosine of the angle with the same error as {@link #sin} and {@link #cos}.
+     */
+    public static void sinCos(double angle, double[] out) {
+        double steps = Math.floor(angle * SIN_STEPS_PER_RADIAN + 0.5);
+        double r = angle - steps * SIN_STEP_HIGH - steps * SIN_STEP_LOW;
+        int index = (int)((long)steps & (SIN_TABLE_SIZE - 1));
+        double sinA = SIN_TABLE[index];
+        double cosA = SIN_TABLE[(index + SIN_TABLE_SIZE / 4) & (SIN_TABLE_SIZE - 1)];
+        double rSq = r * r;
+        double cosRMinusOne = getCosMinusOne(rSq);
+        double sinR = getSin(r, rSq);
+        out[0] = sinA + (sinA * cosRMinusOne + cosA * sinR);
+        out[1] = cosA + (cosA * cosRMinusOne - sinA * sinR);
+    }
+
+    /**
+     * Computes the angle of a vector from the positive x axis.
+     *
+     * @param y the y component of the vector.
+     * @param x the x component of the vector.
+     * @return The angle in radians in the range [-pi, pi], within 4.5e-16 of the exact value.
+     * Vectors with a NaN, infinite, or both zero component give the same result as
+     * {@link Math#atan2}.
+     */
+    public static double atan2(double y, double x) {
+        double absX = Math.abs(x);
+        double absY = Math.abs(y);
+        if (!(absX < Double.POSITIVE_INFINITY && absY < Double.POSITIVE_INFINITY)
+            || absX == 0 && absY == 0) {
+            // Rare cases whose results depend on signed zeros and infinities
+            return Math.atan2(y, x);
+        }
+        // Find the angle within the first octant, then reflect it out. Reflections add the part of
+        // pi that Math.PI leaves out before the one rounding that matters
+        double angle;
+        if (absY > absX) {
+            double octant = getAtan(absX / absY);
+            angle = x < 0
+                ? Math.PI / 2 + (octant + PI_LOW / 2)
+                : Math.PI / 2 - (octant - PI_LOW / 2);
+        } else {
+            double octant = getAtan(absY / absX);
+            angle = x < 0 ? Math.PI - (octant - PI_LOW) : octant;
+        }
+        return Math.copySign(angle, y);
+    }
+
+    /**
+     * Computes the arccosine of a value.
+     *
+     * @param value the cosine of the angle to find.
+     * @return The angle in radians in the range [0, pi], within 8.9e-16 of the exact value, or NaN
+     * if the value is NaN or outside of [-1, 1].
+     */
+    public static double acos(double value) {
+        if (!(Math.abs(value) <= 1)) {
+            return Double.NaN;
+        }
+        // Half angle form, which unlike sqrt(1 - value^2) keeps its precision near -1 and 1
+        return 2 * atan2(Math.sqrt(1 - value), Math.sqrt(1 + value));
+    }
+
+    /**
+     * Computes the sine of an angle near zero.
+     *
+     * @param r the angle in radians, at most half of a sine table step in magnitude.
+     * @param rSq the square of the angle.
+     * @return The sine of the angle, exact but for rounding.
+     */
+    private static double getSin(double r, double rSq) {
+        // The next term is below 1e-20
+        return r - r * rSq * (1.0 / 6 - rSq * (1.0 / 120));
+    }
+
+    /**
+     * Computes the cosine of an angle near zero, less one.
+     *
+     * @param rSq the square of the angle, at most a quarter of a sine table step squared.
+     * @return The cosine of the angle less one, exact but for rounding.
+     */
+    private static double getCosMinusOne(double rSq) {
+        // The next term is below 1e-18, under a hundredth of the smallest value returned alongside
+        return -rSq * (0.5 - rSq * (1.0 / 24));
+    }
+
+    /**
+     * Computes the arctangent of a value between 0 and 1.
+     *
+     * @param t the value.
+     * @return The arctangent of the value in radians.
+     */
+    private static double getAtan(double t) {
+        int index = (int)(t * ATAN_TABLE_SIZE + 0.5);
+        double nearest = (double)index / ATAN_TABLE_SIZE;
+        // atan(t) = atan(nearest) + atan(u) for this u, which is at most half a step in magnitude
+        double u = (t - nearest) / (1 + t * nearest);
+        double uSq = u * u;
+        // The next term is below 2e-20
+        return ATAN_TABLE[index] + (u - u * uSq * (1.0 / 3 - uSq * (1.0 / 5)));
+    }
+
+    /**
+     * Selects whether trigonometric functions are computed exactly or quickly.
+     * Callers hold a mode and call its methods, so switching between implementations is a matter
+     * of which mode they are given.
+     */
+    public enum Mode {
+        /**
+         * The functions of {@link Math}.
+         */
+        EXACT,
+        /**
+         * The functions of {@link FastTrig}.
+         */
+        FAST;
+
+        /**
+         * Computes the sine of an angle.
+         *
+         * @param angle the angle in radians.
+         * @return The sine of the angle.
+         */
+        public double sin(double angle) {
+            return this == FAST ? FastTrig.sin(angle) : Math.sin(angle);
+        }
+
+        /**
+         * Computes the cosine of an angle.
+         *
+         * @param angle the angle in radians.
+         * @return The cosine of the angle.
+         */
+        public double cos(double angle) {
+            return this == FAST ? FastTrig.cos(angle) : Math.cos(angle);
+        }
+
+        /**
+         * Computes the sine and cosine of an angle together.
+         *
+         * @param angle the angle in radians.
+         * @param out an array of at least two elements, whose first two are set to the sine and the
+         * cosine of the angle.
+         */
+        public void sinCos(double angle, double[] out) {
+            if (this == FAST) {
+                FastTrig.sinCos(angle, out);
+            } else {
+                out[0] = Math.sin(angle);
+                out[1] = Math.cos(angle);
+            }
+        }
+
+        /**
+         * Computes the angle of a vector from the positive x axis.
+         *
+         * @param y the y component of the vector.
+         * @param x the x component of the vector.
+         * @return The angle in radians in the range [-pi, pi].
+         */
+        public double atan2(double y, double x) {
+            return this == FAST ? FastTrig.atan2(y, x) : Math.atan2(y, x);
+        }
+
+        /**
+         * Computes the arccosine of a value.
+         *
+         * @param value the cosine of the angle to find.
+         * @return The angle in radians in the range [0, pi].
+         */
+        public double acos(double value) {
+            return this == FAST ? FastTrig.acos(value) : Math.acos(value);
+        }
+    }
+}
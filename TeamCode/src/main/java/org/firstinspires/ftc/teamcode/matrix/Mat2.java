@@ -3,6 +3,9 @@ package org.firstinspires.ftc.teamcode.matrix;
 /**
  * Represents an immutable 2x2 matrix of double-precision floating point numbers.
  * Commonly used to express 2D rotations.
+ *
+ * <p>As with {@link Mat3}, methods ending in "Into" write their result into a caller-provided
+ * destination matrix, which may be the same instance as an operand.
  */
 public final class Mat2 {
     // CSOFF:MagicNumber
@@ -30,7 +33,20 @@ public final class Mat2 {
      * @return The created rotation matrix.
      */
     public static Mat2 fromAngle(double angle) {
-        return new Mat2(Math.cos(angle), -Math.sin(angle), Math.sin(angle), Math.cos(angle));
+        return fromAngle(angle, FastTrig.Mode.EXACT);
+    }
+
+    /**
+     * Creates a 2D rotation matrix for a given angle, computing its sine and cosine as chosen.
+     *
+     * @param angle an angle in radians. Positive values indicates counterclockwise rotation.
+     * @param mode how to compute the sine and cosine of the angle.
+     * @return The created rotation matrix.
+     */
+    public static Mat2 fromAngle(double angle, FastTrig.Mode mode) {
+        double sin = mode.sin(angle);
+        double cos = mode.cos(angle);
+        return new Mat2(cos, -sin, sin, cos);
     }
 
     /**
@@ -50,6 +66,23 @@ public final class Mat2 {
         );
     }
 
+    /**
+     * Writes the product of this and the given matrix into a destination matrix.
+     *
+     * @param other the matrix to postmultiply by.
+     * @param out the matrix to overwrite with the product. May be this matrix or other.
+     * @see #mul(Mat2)
+     */
+    public void mulInto(Mat2 other, Mat2 out) {
+        double a0 = mat[0], a1 = mat[1], a2 = mat[2], a3 = mat[3];
+        double b0 = other.mat[0], b1 = other.mat[1], b2 = other.mat[2], b3 = other.mat[3];
+        double[] o = out.mat;
+        o[0] = a0 * b0 + a1 * b2;
+        o[1] = a0 * b1 + a1 * b3;
+        o[2] = a2 * b0 + a3 * b2;
+        o[3] = a2 * b1 + a3 * b3;
+    }
+
     /**
      * Returns the product of this matrix and the given vector.
      * If the matrix represents a rotation, their product is the vector rotated about the origin by
@@ -100,12 +133,28 @@ public final class Mat2 {
         double d = det();
         return new Mat2(
             mat[3] / d,
-            -mat[2] / d,
             -mat[1] / d,
+            -mat[2] / d,
             mat[0] / d
         );
     }
 
+    /**
+     * Writes the inverse of the matrix into a destination matrix.
+     *
+     * @param out the matrix to overwrite with the inverse. May be this matrix.
+     * @see #inv()
+     */
+    public void invInto(Mat2 out) {
+        double m0 = mat[0], m1 = mat[1], m2 = mat[2], m3 = mat[3];
+        double invDet = 1 / (m0 * m3 - m1 * m2);
+        double[] o = out.mat;
+        o[0] = m3 * invDet;
+        o[1] = -m1 * invDet;
+        o[2] = -m2 * invDet;
+        o[3] = m0 * invDet;
+    }
+
     /**
      * Returns whether all matrix elements {@link Double#isFinite are finite}.
      *
@@ -3,6 +3,11 @@ package org.firstinspires.ftc.teamcode.matrix;
 /**
  * Represents an immutable 3x3 matrix of double-precision floating point numbers.
  * Commonly used to express 3D rotations or 2D transformations (combined translation and rotation).
+ *
+ * <p>Methods ending in "Into" write their result into a caller-provided destination matrix
+ * instead of allocating one, so hot loops can reuse scratch instances. They are the only way a
+ * Mat3 is ever modified; never pass a matrix that other code holds on to as a destination. The
+ * destination may be the same instance as an operand.
  */
 public final class Mat3 {
     // CSOFF:MagicNumber
@@ -34,6 +39,20 @@ public final class Mat3 {
         mat = new double[] {m00, m10, m20, m01, m11, m21, m02, m12, m22};
     }
 
+    /**
+     * Creates an identity matrix, for example to serve as a scratch destination for the "Into"
+     * methods.
+     *
+     * @return A new identity matrix.
+     */
+    public static Mat3 identity() {
+        return new Mat3(
+            1.0, 0.0, 0.0,
+            0.0, 1.0, 0.0,
+            0.0, 0.0, 1.0
+        );
+    }
+
     /**
      * Creates a Mat3 representing a transformation from a 2D rotation matrix and 2D translation.
      *
@@ -60,17 +79,38 @@ public final class Mat3 {
      * @return A new matrix that is the product of the multiplication.
      */
     public Mat3 mul(Mat3 other) {
-        return new Mat3(
-            row(0).dot(other.col(0)),
-            row(0).dot(other.col(1)),
-            row(0).dot(other.col(2)),
-            row(1).dot(other.col(0)),
-            row(1).dot(other.col(1)),
-            row(1).dot(other.col(2)),
-            row(2).dot(other.col(0)),
-            row(2).dot(other.col(1)),
-            row(2).dot(other.col(2))
-        );
+        Mat3 out = new Mat3(0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+        mulInto(other, out);
+        return out;
+    }
+
+    /**
+     * Writes the product of this matrix and the given matrix into a destination matrix.
+     *
+     * @param other the matrix to postmultiply by.
+     * @param out the matrix to overwrite with the product. May be this matrix or other.
+     * @see #mul(Mat3)
+     */
+    public void mulInto(Mat3 other, Mat3 out) {
+        double[] a = mat;
+        double[] b = other.mat;
+        // Read every element before writing any, so the destination may alias an operand
+        double a0 = a[0], a1 = a[1], a2 = a[2];
+        double a3 = a[3], a4 = a[4], a5 = a[5];
+        double a6 = a[6], a7 = a[7], a8 = a[8];
+        double b0 = b[0], b1 = b[1], b2 = b[2];
+        double b3 = b[3], b4 = b[4], b5 = b[5];
+        double b6 = b[6], b7 = b[7], b8 = b[8];
+        double[] o = out.mat;
+        o[0] = a0 * b0 + a1 * b3 + a2 * b6;
+        o[1] = a0 * b1 + a1 * b4 + a2 * b7;
+        o[2] = a0 * b2 + a1 * b5 + a2 * b8;
+        o[3] = a3 * b0 + a4 * b3 + a5 * b6;
+        o[4] = a3 * b1 + a4 * b4 + a5 * b7;
+        o[5] = a3 * b2 + a4 * b5 + a5 * b8;
+        o[6] = a6 * b0 + a7 * b3 + a8 * b6;
+        o[7] = a6 * b1 + a7 * b4 + a8 * b7;
+        o[8] = a6 * b2 + a7 * b5 + a8 * b8;
     }
 
     /**
@@ -83,10 +123,11 @@ public final class Mat3 {
      * @return A new vector that is the product of the multiplication.
      */
     public Vec2 mul(Vec2 other) {
-        Vec3 extended = new Vec3(other.getX(), other.getY(), 0.0);
+        double x = other.getX();
+        double y = other.getY();
         return new Vec2(
-            row(0).dot(extended),
-            row(1).dot(extended)
+            mat[0] * x + mat[1] * y,
+            mat[3] * x + mat[4] * y
         );
     }
 
@@ -100,10 +141,13 @@ public final class Mat3 {
      * @return A new vector that is the product of the multiplication.
      */
     public Vec3 mul(Vec3 other) {
+        double x = other.getX();
+        double y = other.getY();
+        double z = other.getZ();
         return new Vec3(
-            row(0).dot(other),
-            row(1).dot(other),
-            row(2).dot(other)
+            mat[0] * x + mat[1] * y + mat[2] * z,
+            mat[3] * x + mat[4] * y + mat[5] * z,
+            mat[6] * x + mat[7] * y + mat[8] * z
         );
     }
 
@@ -151,7 +195,38 @@ public final class Mat3 {
      * elements of the resulting matrix will be NaN.
      */
     public Mat3 inv() {
-        return cofactor().transpose().mul(1 / det());
+        Mat3 out = new Mat3(0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+        invInto(out);
+        return out;
+    }
+
+    /**
+     * Writes the inverse of this matrix into a destination matrix.
+     * Computed directly as the transposed cofactor matrix divided by the determinant.
+     *
+     * @param out the matrix to overwrite with the inverse. May be this matrix. If this matrix is
+     * non-invertable, its elements will be NaN.
+     * @see #inv()
+     */
+    public void invInto(Mat3 out) {
+        double m0 = mat[0], m1 = mat[1], m2 = mat[2];
+        double m3 = mat[3], m4 = mat[4], m5 = mat[5];
+        double m6 = mat[6], m7 = mat[7], m8 = mat[8];
+        // Cofactors of the first column, reused for the determinant
+        double c0 = m4 * m8 - m5 * m7;
+        double c3 = m5 * m6 - m3 * m8;
+        double c6 = m3 * m7 - m4 * m6;
+        double invDet = 1 / (m0 * c0 + m1 * c3 + m2 * c6);
+        double[] o = out.mat;
+        o[0] = c0 * invDet;
+        o[1] = (m2 * m7 - m1 * m8) * invDet;
+        o[2] = (m1 * m5 - m2 * m4) * invDet;
+        o[3] = c3 * invDet;
+        o[4] = (m0 * m8 - m2 * m6) * invDet;
+        o[5] = (m2 * m3 - m0 * m5) * invDet;
+        o[6] = c6 * invDet;
+        o[7] = (m1 * m6 - m0 * m7) * invDet;
+        o[8] = (m0 * m4 - m1 * m3) * invDet;
     }
 
     /**
@@ -192,6 +267,26 @@ public final class Mat3 {
         );
     }
 
+    /**
+     * Writes the transpose of this matrix into a destination matrix.
+     *
+     * @param out the matrix to overwrite with the transpose. May be this matrix.
+     * @see #transpose()
+     */
+    public void transposeInto(Mat3 out) {
+        double m1 = mat[1], m2 = mat[2], m5 = mat[5];
+        double[] o = out.mat;
+        o[0] = mat[0];
+        o[4] = mat[4];
+        o[8] = mat[8];
+        o[1] = mat[3];
+        o[3] = m1;
+        o[2] = mat[6];
+        o[6] = m2;
+        o[5] = mat[7];
+        o[7] = m5;
+    }
+
     /**
      * Returns the minor of this matrix at the given column and row.
      * The minor of a matrix at x,y is the matrix with column x and row y removed. This happens to
@@ -206,14 +301,14 @@ public final class Mat3 {
         checkDim(row, false);
         checkDim(col, true);
         int startCol = col == 0 ? 1 : 0;
-        int colDiff = col == 1 ? 2 : 1;
+        int endCol = col == 2 ? 1 : 2;
         int startRow = row == 0 ? 1 : 0;
-        int rowDiff = row == 1 ? 2 : 1;
+        int endRow = row == 2 ? 1 : 2;
         return new Mat2(
-            col(startCol).get(startRow),
-            col(startCol + colDiff).get(startRow),
-            col(startCol).get(startRow + rowDiff),
-            col(startCol + colDiff).get(startRow + rowDiff)
+            mat[startRow * 3 + startCol],
+            mat[startRow * 3 + endCol],
+            mat[endRow * 3 + startCol],
+            mat[endRow * 3 + endCol]
         );
     }
 
@@ -225,15 +320,15 @@ public final class Mat3 {
      */
     public Mat3 cofactor() {
         return new Mat3(
-            minor(0, 0).det(),
-            -minor(1, 0).det(),
-            minor(2, 0).det(),
-            -minor(0, 1).det(),
-            minor(1, 1).det(),
-            -minor(2, 1).det(),
-            minor(0, 2).det(),
-            -minor(1, 2).det(),
-            minor(2, 2).det()
+            mat[4] * mat[8] - mat[5] * mat[7],
+            mat[5] * mat[6] - mat[3] * mat[8],
+            mat[3] * mat[7] - mat[4] * mat[6],
+            mat[2] * mat[7] - mat[1] * mat[8],
+            mat[0] * mat[8] - mat[2] * mat[6],
+            mat[1] * mat[6] - mat[0] * mat[7],
+            mat[1] * mat[5] - mat[2] * mat[4],
+            mat[2] * mat[3] - mat[0] * mat[5],
+            mat[0] * mat[4] - mat[1] * mat[3]
         );
     }
 
@@ -267,7 +362,7 @@ public final class Mat3 {
      * represents a transformation.
      */
     public Vec2 getDirection() {
-        return minor(2, 2).mul(new Vec2(1, 0));
+        return new Vec2(mat[0], mat[3]);
     }
 
     /**
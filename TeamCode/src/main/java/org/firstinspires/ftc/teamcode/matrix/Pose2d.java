@@ -0,0 +1,271 @@
+package org.firstinspires.ftc.teamcode.matrix;
+
+/**
+ * Represents a rigid 2D transform (a rotation followed by a translation) by its translation and
+ * heading.
+ * This holds the same information as a transformation {@link Mat3}, but since the rotation block of
+ * a pose is always orthonormal its inverse and composition have closed forms that need no
+ * determinant or general matrix product. The sine and cosine of the heading are computed once on
+ * construction and carried through every operation, so chains of compositions and inverses call no
+ * trigonometric functions at all.
+ */
+public final class Pose2d {
+    /**
+     * The pose with no translation or rotation.
+     */
+    public static final Pose2d IDENTITY = new Pose2d(0, 0, 0, 1, 0);
+
+    /**
+     * The x component of the translation.
+     */
+    private final double x;
+
+    /**
+     * The y component of the translation.
+     */
+    private final double y;
+
+    /**
+     * The heading in radians, counterclockwise from the positive x axis.
+     */
+    private final double heading;
+
+    /**
+     * The cosine of the heading.
+     */
+    private final double cos;
+
+    /**
+     * The sine of the heading.
+     */
+    private final double sin;
+
+    /**
+     * Constructs a Pose2d.
+     *
+     * @param x the x component of the translation.
+     * @param y the y component of the translation.
+     * @param heading the heading in radians, counterclockwise from the positive x axis.
+     */
+    public Pose2d(double x, double y, double heading) {
+        this(x, y, heading, Math.cos(heading), Math.sin(heading));
+    }
+
+    /**
+     * Constructs a Pose2d from a translation and heading.
+     *
+     * @param translation the translation.
+     * @param heading the heading in radians, counterclockwise from the positive x axis.
+     */
+    public Pose2d(Vec2 translation, double heading) {
+        this(translation.getX(), translation.getY(), heading);
+    }
+
+    /**
+     * Constructs a Pose2d whose heading's sine and cosine are already known.
+     *
+     * @param x the x component of the translation.
+     * @param y the y component of the translation.
+     * @param heading the heading in radians.
+     * @param cos the cosine of the heading.
+     * @param sin the sine of the heading.
+     */
+    Pose2d(double x, double y, double heading, double cos, double sin) {
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+        this.cos = cos;
+        this.sin = sin;
+    }
+
+    /**
+     * Extracts the pose a transformation matrix represents.
+     * The rotation block's entries are kept as the pose's sine and cosine, so converting the result
+     * back with {@link #toMat3} reproduces the matrix exactly.
+     *
+     * @param transform a transformation matrix whose upper left 2x2 block is a rotation.
+     * @return A new pose with the matrix's translation and rotation. The heading is in the range
+     * [-pi, pi].
+     */
+    public static Pose2d fromMat3(Mat3 transform) {
+        double cos = transform.elem(0, 0);
+        double sin = transform.elem(0, 1);
+        return new Pose2d(
+            transform.elem(2, 0),
+            transform.elem(2, 1),
+            Math.atan2(sin, cos),
+            cos,
+            sin
+        );
+    }
+
+    /**
+     * Converts this pose to a transformation matrix.
+     *
+     * @return A new transformation matrix equivalent to {@link Mat3#fromTransform} of this pose's
+     * rotation and translation.
+     */
+    public Mat3 toMat3() {
+        return new Mat3(
+            cos, -sin, x,
+            sin, cos, y,
+            0, 0, 1
+        );
+    }
+
+    /**
+     * Gets the x component of the translation.
+     *
+     * @return The x component of the translation.
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Gets the y component of the translation.
+     *
+     * @return The y component of the translation.
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Gets the heading.
+     *
+     * @return The heading in radians, counterclockwise from the positive x axis. Headings are not
+     * wrapped, so composing poses may produce a value outside of [-pi, pi].
+     */
+    public double getHeading() {
+        return heading;
+    }
+
+    /**
+     * Gets the cosine of the heading.
+     *
+     * @return The cached cosine of the heading.
+     */
+    public double getCos() {
+        return cos;
+    }
+
+    /**
+     * Gets the sine of the heading.
+     *
+     * @return The cached sine of the heading.
+     */
+    public double getSin() {
+        return sin;
+    }
+
+    /**
+     * Gets the translation of this pose.
+     *
+     * @return A new vector holding the translation.
+     */
+    public Vec2 getTranslation() {
+        return new Vec2(x, y);
+    }
+
+    /**
+     * Gets a unit vector pointing in the direction of this pose.
+     *
+     * @return A new unit vector pointing along the heading, matching {@link Mat3#getDirection}.
+     */
+    public Vec2 getDirection() {
+        return new Vec2(cos, sin);
+    }
+
+    /**
+     * Composes this pose with another, applying the other first.
+     * This is the pose equivalent of multiplying the two transformation matrices in the same order.
+     *
+     * @param other the pose to apply before this one, expressed in this pose's frame.
+     * @return A new pose that is the composition of this pose and the given pose.
+     */
+    public Pose2d mul(Pose2d other) {
+        return new Pose2d(
+            x + cos * other.x - sin * other.y,
+            y + sin * other.x + cos * other.y,
+            heading + other.heading,
+            cos * other.cos - sin * other.sin,
+            sin * other.cos + cos * other.sin
+        );
+    }
+
+    /**
+     * Computes the inverse of this pose.
+     * The inverse of a rotation is its transpose, so no determinant is needed.
+     *
+     * @return A new pose that undoes this pose.
+     */
+    public Pose2d inv() {
+        return new Pose2d(
+            -cos * x - sin * y,
+            sin * x - cos * y,
+            -heading,
+            cos,
+            -sin
+        );
+    }
+
+    /**
+     * Expresses this pose in the frame of another.
+     * Equivalent to but cheaper than {@code other.inv().mul(this)}.
+     *
+     * @param other the pose whose frame to express this pose in.
+     * @return A new pose that, applied after the given pose, yields this pose.
+     */
+    public Pose2d relativeTo(Pose2d other) {
+        double dx = x - other.x;
+        double dy = y - other.y;
+        return new Pose2d(
+            other.cos * dx + other.sin * dy,
+            -other.sin * dx + other.cos * dy,
+            heading - other.heading,
+            other.cos * cos + other.sin * sin,
+            other.cos * sin - other.sin * cos
+        );
+    }
+
+    /**
+     * Transforms a point from this pose's frame into the outer frame, rotating then translating it.
+     * Unlike {@link Mat3#mul(Vec2)}, the translation is applied.
+     *
+     * @param point the point to transform.
+     * @return A new vector holding the transformed point.
+     */
+    public Vec2 transform(Vec2 point) {
+        return new Vec2(
+            x + cos * point.getX() - sin * point.getY(),
+            y + sin * point.getX() + cos * point.getY()
+        );
+    }
+
+    /**
+     * Transforms a point from the outer frame into this pose's frame.
+     * Equivalent to but cheaper than {@code inv().transform(point)}.
+     *
+     * @param point the point to transform.
+     * @return A new vector holding the point relative to this pose.
+     */
+    public Vec2 inverseTransform(Vec2 point) {
+        double dx = point.getX() - x;
+        double dy = point.getY() - y;
+        return new Vec2(cos * dx + sin * dy, -sin * dx + cos * dy);
+    }
+
+    /**
+     * Rotates a vector by this pose's heading without translating it.
+     *
+     * @param vector the vector to rotate.
+     * @return A new vector holding the rotated vector.
+     */
+    public Vec2 rotate(Vec2 vector) {
+        return new Vec2(
+            cos * vector.getX() - sin * vector.getY(),
+            sin * vector.getX() + cos * vector.getY()
+        );
+    }
+}
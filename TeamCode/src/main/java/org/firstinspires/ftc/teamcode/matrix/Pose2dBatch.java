@@ -0,0 +1,467 @@
+package org.firstinspires.ftc.teamcode.matrix;
+
+/**
+ * Holds a batch of poses in parallel arrays of translation components, headings, and the headings'
+ * cosines and sines.
+ * This is the structure-of-arrays counterpart of {@link Pose2d} in the way {@link Vec2Batch} is of
+ * {@link Vec2}, suited to evaluating many hypotheses of the robot's pose at once. As with a single
+ * pose, trigonometric functions are only called when a heading is set, never by the bulk
+ * operations.
+ */
+public final class Pose2dBatch {
+    /**
+     * The x components of the translations.
+     */
+    private final double[] xs;
+
+    /**
+     * The y components of the translations.
+     */
+    private final double[] ys;
+
+    /**
+     * The headings in radians.
+     */
+    private final double[] headings;
+
+    /**
+     * The cosines of the headings.
+     */
+    private final double[] coss;
+
+    /**
+     * The sines of the headings.
+     */
+    private final double[] sins;
+
+    /**
+     * The number of poses in the batch.
+     */
+    private int size;
+
+    /**
+     * Constructs an empty Pose2dBatch.
+     *
+     * @param capacity the maximum number of poses the batch can hold.
+     * @throws IllegalArgumentException if the capacity is negative.
+     */
+    public Pose2dBatch(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException(String.format(
+                "Capacity %d is negative",
+                capacity
+            ));
+        }
+        xs = new double[capacity];
+        ys = new double[capacity];
+        headings = new double[capacity];
+        coss = new double[capacity];
+        sins = new double[capacity];
+        size = 0;
+    }
+
+    /**
+     * Returns the maximum number of poses the batch can hold.
+     *
+     * @return The capacity of the batch.
+     */
+    public int capacity() {
+        return xs.length;
+    }
+
+    /**
+     * Returns the number of poses in the batch.
+     *
+     * @return The number of poses in the batch.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sets the number of poses in the batch.
+     * Poses newly brought into range keep whatever values were last stored at their indices.
+     *
+     * @param size the new number of poses.
+     * @throws IllegalArgumentException if the size is negative or exceeds the capacity.
+     */
+    public void setSize(int size) {
+        if (size < 0 || size > xs.length) {
+            throw new IllegalArgumentException(String.format(
+                "Size %d is outside of capacity %d",
+                size,
+                xs.length
+            ));
+        }
+        this.size = size;
+    }
+
+    /**
+     * Removes every pose from the batch.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Appends a pose to the batch.
+     *
+     * @param pose the pose to append.
+     * @return The index of the new pose.
+     * @throws IllegalStateException if the batch is full.
+     */
+    public int add(Pose2d pose) {
+        if (size == xs.length) {
+            throw new IllegalStateException(String.format(
+                "Batch is full at capacity %d",
+                xs.length
+            ));
+        }
+        ++size;
+        set(size - 1, pose);
+        return size - 1;
+    }
+
+    /**
+     * Appends a pose to the batch.
+     *
+     * @param x the x component of the translation.
+     * @param y the y component of the translation.
+     * @param heading the heading in radians.
+     * @return The index of the new pose.
+     * @throws IllegalStateException if the batch is full.
+     */
+    public int add(double x, double y, double heading) {
+        if (size == xs.length) {
+            throw new IllegalStateException(String.format(
+                "Batch is full at capacity %d",
+                xs.length
+            ));
+        }
+        ++size;
+        set(size - 1, x, y, heading);
+        return size - 1;
+    }
+
+    /**
+     * Replaces a pose in the batch.
+     *
+     * @param index the index of the pose to replace.
+     * @param pose the new pose.
+     */
+    public void set(int index, Pose2d pose) {
+        checkIndex(index);
+        xs[index] = pose.getX();
+        ys[index] = pose.getY();
+        headings[index] = pose.getHeading();
+        coss[index] = pose.getCos();
+        sins[index] = pose.getSin();
+    }
+
+    /**
+     * Replaces a pose in the batch.
+     *
+     * @param index the index of the pose to replace.
+     * @param x the new x component of the translation.
+     * @param y the new y component of the translation.
+     * @param heading the new heading in radians.
+     */
+    public void set(int index, double x, double y, double heading) {
+        checkIndex(index);
+        xs[index] = x;
+        ys[index] = y;
+        headings[index] = heading;
+        coss[index] = Math.cos(heading);
+        sins[index] = Math.sin(heading);
+    }
+
+    /**
+     * Copies a pose out of the batch.
+     *
+     * @param index the index of the pose.
+     * @return A new pose equal to the one stored at the index.
+     */
+    public Pose2d get(int index) {
+        checkIndex(index);
+        return new Pose2d(xs[index], ys[index], headings[index], coss[index], sins[index]);
+    }
+
+    /**
+     * Gets the x component of a pose's translation.
+     *
+     * @param index the index of the pose.
+     * @return The x component of the translation.
+     */
+    public double getX(int index) {
+        checkIndex(index);
+        return xs[index];
+    }
+
+    /**
+     * Gets the y component of a pose's translation.
+     *
+     * @param index the index of the pose.
+     * @return The y component of the translation.
+     */
+    public double getY(int index) {
+        checkIndex(index);
+        return ys[index];
+    }
+
+    /**
+     * Gets the heading of a pose.
+     *
+     * @param index the index of the pose.
+     * @return The heading in radians.
+     */
+    public double getHeading(int index) {
+        checkIndex(index);
+        return headings[index];
+    }
+
+    /**
+     * Returns the array backing the x components of the translations.
+     * Only the first {@link #size} entries are meaningful.
+     *
+     * @return The backing array, which is not copied.
+     */
+    public double[] getXs() {
+        return xs;
+    }
+
+    /**
+     * Returns the array backing the y components of the translations.
+     * Only the first {@link #size} entries are meaningful.
+     *
+     * @return The backing array, which is not copied.
+     */
+    public double[] getYs() {
+        return ys;
+    }
+
+    /**
+     * Returns the array backing the headings.
+     * Only the first {@link #size} entries are meaningful. Headings must be changed through
+     * {@link #set} so their cosines and sines stay in sync.
+     *
+     * @return The backing array, which is not copied.
+     */
+    public double[] getHeadings() {
+        return headings;
+    }
+
+    /**
+     * Returns the array backing the cosines of the headings.
+     * Only the first {@link #size} entries are meaningful.
+     *
+     * @return The backing array, which is not copied.
+     */
+    public double[] getCoss() {
+        return coss;
+    }
+
+    /**
+     * Returns the array backing the sines of the headings.
+     * Only the first {@link #size} entries are meaningful.
+     *
+     * @return The backing array, which is not copied.
+     */
+    public double[] getSins() {
+        return sins;
+    }
+
+    /**
+     * Composes a pose with every pose in the batch, applying the batch's poses first.
+     * Equivalent to {@code pose.mul(p)} for each pose p, which moves every pose from the given
+     * pose's frame into the outer frame.
+     *
+     * @param pose the pose to apply after each pose in the batch.
+     * @param out the batch to write the composed poses to, which may be this batch. Its size is
+     * set to the size of this batch.
+     */
+    public void premul(Pose2d pose, Pose2dBatch out) {
+        out.setSize(size);
+        double px = pose.getX();
+        double py = pose.getY();
+        double ph = pose.getHeading();
+        double pc = pose.getCos();
+        double ps = pose.getSin();
+        double[] outX = out.xs;
+        double[] outY = out.ys;
+        double[] outH = out.headings;
+        double[] outC = out.coss;
+        double[] outS = out.sins;
+        for (int i = 0; i < size; ++i) {
+            double x = xs[i];
+            double y = ys[i];
+            double c = coss[i];
+            double s = sins[i];
+            outX[i] = px + pc * x - ps * y;
+            outY[i] = py + ps * x + pc * y;
+            outH[i] = ph + headings[i];
+            outC[i] = pc * c - ps * s;
+            outS[i] = ps * c + pc * s;
+        }
+    }
+
+    /**
+     * Composes every pose in the batch with a pose, applying the given pose first.
+     * Equivalent to {@code p.mul(pose)} for each pose p, which applies the same robot space motion
+     * to every pose.
+     *
+     * @param pose the pose to apply before each pose in the batch.
+     * @param out the batch to write the composed poses to, which may be this batch. Its size is
+     * set to the size of this batch.
+     */
+    public void postmul(Pose2d pose, Pose2dBatch out) {
+        out.setSize(size);
+        double px = pose.getX();
+        double py = pose.getY();
+        double ph = pose.getHeading();
+        double pc = pose.getCos();
+        double ps = pose.getSin();
+        double[] outX = out.xs;
+        double[] outY = out.ys;
+        double[] outH = out.headings;
+        double[] outC = out.coss;
+        double[] outS = out.sins;
+        for (int i = 0; i < size; ++i) {
+            double c = coss[i];
+            double s = sins[i];
+            outX[i] = xs[i] + c * px - s * py;
+            outY[i] = ys[i] + s * px + c * py;
+            outH[i] = headings[i] + ph;
+            outC[i] = c * pc - s * ps;
+            outS[i] = s * pc + c * ps;
+        }
+    }
+
+    /**
+     * Expresses every pose in the batch in the frame of a given pose.
+     * Equivalent to {@link Pose2d#relativeTo} on each pose.
+     *
+     * @param pose the pose whose frame to express the poses in.
+     * @param out the batch to write the relative poses to, which may be this batch. Its size is
+     * set to the size of this batch.
+     */
+    public void relativeTo(Pose2d pose, Pose2dBatch out) {
+        out.setSize(size);
+        double px = pose.getX();
+        double py = pose.getY();
+        double ph = pose.getHeading();
+        double pc = pose.getCos();
+        double ps = pose.getSin();
+        double[] outX = out.xs;
+        double[] outY = out.ys;
+        double[] outH = out.headings;
+        double[] outC = out.coss;
+        double[] outS = out.sins;
+        for (int i = 0; i < size; ++i) {
+            double dx = xs[i] - px;
+            double dy = ys[i] - py;
+            double c = coss[i];
+            double s = sins[i];
+            outX[i] = pc * dx + ps * dy;
+            outY[i] = -ps * dx + pc * dy;
+            outH[i] = headings[i] - ph;
+            outC[i] = pc * c + ps * s;
+            outS[i] = pc * s - ps * c;
+        }
+    }
+
+    /**
+     * Transforms a point out of the frame of every pose in the batch.
+     * Equivalent to {@link Pose2d#transform} of the point by each pose.
+     *
+     * @param x the x component of the point.
+     * @param y the y component of the point.
+     * @param out the batch to write the transformed points to, indexed like this batch. Its size is
+     * set to the size of this batch.
+     */
+    public void transform(double x, double y, Vec2Batch out) {
+        out.setSize(size);
+        double[] outX = out.getXs();
+        double[] outY = out.getYs();
+        for (int i = 0; i < size; ++i) {
+            double c = coss[i];
+            double s = sins[i];
+            outX[i] = xs[i] + c * x - s * y;
+            outY[i] = ys[i] + s * x + c * y;
+        }
+    }
+
+    /**
+     * Transforms a point into the frame of every pose in the batch.
+     * Equivalent to {@link Pose2d#inverseTransform} of the point by each pose, which for example
+     * gives where a field landmark would appear to the robot under every pose hypothesis.
+     *
+     * @param x the x component of the point.
+     * @param y the y component of the point.
+     * @param out the batch to write the transformed points to, indexed like this batch. Its size is
+     * set to the size of this batch.
+     */
+    public void inverseTransform(double x, double y, Vec2Batch out) {
+        out.setSize(size);
+        double[] outX = out.getXs();
+        double[] outY = out.getYs();
+        for (int i = 0; i < size; ++i) {
+            double dx = x - xs[i];
+            double dy = y - ys[i];
+            double c = coss[i];
+            double s = sins[i];
+            outX[i] = c * dx + s * dy;
+            outY[i] = -s * dx + c * dy;
+        }
+    }
+
+    /**
+     * Computes the distance from the translation of every pose to a given point.
+     *
+     * @param x the x component of the point to measure to.
+     * @param y the y component of the point to measure to.
+     * @param out the array to write the distances to, indexed like the batch.
+     * @throws IllegalArgumentException if the output array is shorter than the batch.
+     */
+    public void distancesTo(double x, double y, double[] out) {
+        if (out.length < size) {
+            throw new IllegalArgumentException(String.format(
+                "Output of length %d is shorter than batch of size %d",
+                out.length,
+                size
+            ));
+        }
+        for (int i = 0; i < size; ++i) {
+            double dx = xs[i] - x;
+            double dy = ys[i] - y;
+            out[i] = Math.sqrt(dx * dx + dy * dy);
+        }
+    }
+
+    /**
+     * Copies the translation of every pose into a batch of points.
+     *
+     * @param out the batch to write the translations to, indexed like this batch. Its size is set
+     * to the size of this batch.
+     */
+    public void getTranslations(Vec2Batch out) {
+        out.setSize(size);
+        System.arraycopy(xs, 0, out.getXs(), 0, size);
+        System.arraycopy(ys, 0, out.getYs(), 0, size);
+    }
+
+    /**
+     * Bounds-checks a pose index, throwing an exception if out of range.
+     *
+     * @param index the index to check.
+     * @throws IndexOutOfBoundsException if the index does not refer to a pose in the batch.
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format(
+                "Index %d is outside of batch of size %d",
+                index,
+                size
+            ));
+        }
+    }
+}
@@ -108,7 +108,7 @@ public final class Vec2 {
      * @return The positive angle made with another vector in the range [0, pi].
      */
     public double angleWith(Vec2 other) {
-        return Math.acos(unit().dot(other.unit()));
+        return Math.acos(dot(other) / Math.sqrt(dot(this) * other.dot(other)));
     }
 
     /**
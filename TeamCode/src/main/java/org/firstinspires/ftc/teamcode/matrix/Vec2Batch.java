@@ -0,0 +1,350 @@
+package org.firstinspires.ftc.teamcode.matrix;
+
+/**
+ * Holds a batch of 2D points in parallel arrays of x and y components.
+ * Storing the components of many points contiguously rather than as separate {@link Vec2} objects
+ * lets bulk operations run as simple counted loops over primitive arrays that allocate nothing and
+ * that the JIT is free to unroll and vectorize. Operations write their results into a caller
+ * supplied destination, which may be this batch itself, so buffers can be reused across updates.
+ */
+public final class Vec2Batch {
+    /**
+     * The x components of the points.
+     */
+    private final double[] xs;
+
+    /**
+     * The y components of the points.
+     */
+    private final double[] ys;
+
+    /**
+     * The number of points in the batch.
+     */
+    private int size;
+
+    /**
+     * Constructs an empty Vec2Batch.
+     *
+     * @param capacity the maximum number of points the batch can hold.
+     * @throws IllegalArgumentException if the capacity is negative.
+     */
+    public Vec2Batch(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException(String.format(
+                "Capacity %d is negative",
+                capacity
+            ));
+        }
+        xs = new double[capacity];
+        ys = new double[capacity];
+        size = 0;
+    }
+
+    /**
+     * Returns the maximum number of points the batch can hold.
+     *
+     * @return The capacity of the batch.
+     */
+    public int capacity() {
+        return xs.length;
+    }
+
+    /**
+     * Returns the number of points in the batch.
+     *
+     * @return The number of points in the batch.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sets the number of points in the batch.
+     * Points newly brought into range keep whatever components were last stored at their indices.
+     *
+     * @param size the new number of points.
+     * @throws IllegalArgumentException if the size is negative or exceeds the capacity.
+     */
+    public void setSize(int size) {
+        if (size < 0 || size > xs.length) {
+            throw new IllegalArgumentException(String.format(
+                "Size %d is outside of capacity %d",
+                size,
+                xs.length
+            ));
+        }
+        this.size = size;
+    }
+
+    /**
+     * Removes every point from the batch.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Appends a point to the batch.
+     *
+     * @param x the x component of the point.
+     * @param y the y component of the point.
+     * @return The index of the new point.
+     * @throws IllegalStateException if the batch is full.
+     */
+    public int add(double x, double y) {
+        if (size == xs.length) {
+            throw new IllegalStateException(String.format(
+                "Batch is full at capacity %d",
+                xs.length
+            ));
+        }
+        xs[size] = x;
+        ys[size] = y;
+        return size++;
+    }
+
+    /**
+     * Appends a point to the batch.
+     *
+     * @param point the point to append.
+     * @return The index of the new point.
+     * @throws IllegalStateException if the batch is full.
+     */
+    public int add(Vec2 point) {
+        return add(point.getX(), point.getY());
+    }
+
+    /**
+     * Replaces a point in the batch.
+     *
+     * @param index the index of the point to replace.
+     * @param x the new x component.
+     * @param y the new y component.
+     */
+    public void set(int index, double x, double y) {
+        checkIndex(index);
+        xs[index] = x;
+        ys[index] = y;
+    }
+
+    /**
+     * Gets the x component of a point.
+     *
+     * @param index the index of the point.
+     * @return The x component of the point.
+     */
+    public double getX(int index) {
+        checkIndex(index);
+        return xs[index];
+    }
+
+    /**
+     * Gets the y component of a point.
+     *
+     * @param index the index of the point.
+     * @return The y component of the point.
+     */
+    public double getY(int index) {
+        checkIndex(index);
+        return ys[index];
+    }
+
+    /**
+     * Copies a point out of the batch.
+     *
+     * @param index the index of the point.
+     * @return A new vector holding the point.
+     */
+    public Vec2 get(int index) {
+        checkIndex(index);
+        return new Vec2(xs[index], ys[index]);
+    }
+
+    /**
+     * Returns the array backing the x components for use by bulk producers and consumers.
+     * Only the first {@link #size} entries are meaningful.
+     *
+     * @return The backing array of x components, which is not copied.
+     */
+    public double[] getXs() {
+        return xs;
+    }
+
+    /**
+     * Returns the array backing the y components for use by bulk producers and consumers.
+     * Only the first {@link #size} entries are meaningful.
+     *
+     * @return The backing array of y components, which is not copied.
+     */
+    public double[] getYs() {
+        return ys;
+    }
+
+    /**
+     * Transforms every point from a pose's frame into the outer frame.
+     * Equivalent to calling {@link Pose2d#transform} on each point.
+     *
+     * @param pose the pose to transform by.
+     * @param out the batch to write the transformed points to, which may be this batch. Its size is
+     * set to the size of this batch.
+     */
+    public void transform(Pose2d pose, Vec2Batch out) {
+        out.setSize(size);
+        double px = pose.getX();
+        double py = pose.getY();
+        double cos = pose.getCos();
+        double sin = pose.getSin();
+        double[] inX = xs;
+        double[] inY = ys;
+        double[] outX = out.xs;
+        double[] outY = out.ys;
+        for (int i = 0; i < size; ++i) {
+            double x = inX[i];
+            double y = inY[i];
+            outX[i] = px + cos * x - sin * y;
+            outY[i] = py + sin * x + cos * y;
+        }
+    }
+
+    /**
+     * Transforms every point from the outer frame into a pose's frame.
+     * Equivalent to calling {@link Pose2d#inverseTransform} on each point.
+     *
+     * @param pose the pose whose frame to transform into.
+     * @param out the batch to write the transformed points to, which may be this batch. Its size is
+     * set to the size of this batch.
+     */
+    public void inverseTransform(Pose2d pose, Vec2Batch out) {
+        out.setSize(size);
+        double px = pose.getX();
+        double py = pose.getY();
+        double cos = pose.getCos();
+        double sin = pose.getSin();
+        double[] inX = xs;
+        double[] inY = ys;
+        double[] outX = out.xs;
+        double[] outY = out.ys;
+        for (int i = 0; i < size; ++i) {
+            double dx = inX[i] - px;
+            double dy = inY[i] - py;
+            outX[i] = cos * dx + sin * dy;
+            outY[i] = -sin * dx + cos * dy;
+        }
+    }
+
+    /**
+     * Computes the distance from every point to a given point.
+     *
+     * @param x the x component of the point to measure to.
+     * @param y the y component of the point to measure to.
+     * @param out the array to write the distances to, indexed like the batch.
+     * @throws IllegalArgumentException if the output array is shorter than the batch.
+     */
+    public void distancesTo(double x, double y, double[] out) {
+        checkOutput(out);
+        double[] inX = xs;
+        double[] inY = ys;
+        for (int i = 0; i < size; ++i) {
+            double dx = inX[i] - x;
+            double dy = inY[i] - y;
+            out[i] = Math.sqrt(dx * dx + dy * dy);
+        }
+    }
+
+    /**
+     * Computes the distance from every point to a given point.
+     *
+     * @param point the point to measure to.
+     * @param out the array to write the distances to, indexed like the batch.
+     * @throws IllegalArgumentException if the output array is shorter than the batch.
+     */
+    public void distancesTo(Vec2 point, double[] out) {
+        distancesTo(point.getX(), point.getY(), out);
+    }
+
+    /**
+     * Computes the dot product of every point with a given vector.
+     *
+     * @param x the x component of the vector.
+     * @param y the y component of the vector.
+     * @param out the array to write the dot products to, indexed like the batch.
+     * @throws IllegalArgumentException if the output array is shorter than the batch.
+     */
+    public void dot(double x, double y, double[] out) {
+        checkOutput(out);
+        double[] inX = xs;
+        double[] inY = ys;
+        for (int i = 0; i < size; ++i) {
+            out[i] = inX[i] * x + inY[i] * y;
+        }
+    }
+
+    /**
+     * Computes the dot product of each point with the point at the same index of another batch.
+     *
+     * @param other the batch to take dot products with, which must be the same size as this one.
+     * @param out the array to write the dot products to, indexed like the batch.
+     * @throws IllegalArgumentException if the batches differ in size or the output array is
+     * shorter than the batch.
+     */
+    public void dot(Vec2Batch other, double[] out) {
+        if (other.size != size) {
+            throw new IllegalArgumentException(String.format(
+                "Batch sizes %d and %d differ",
+                size,
+                other.size
+            ));
+        }
+        checkOutput(out);
+        double[] inX = xs;
+        double[] inY = ys;
+        double[] otherX = other.xs;
+        double[] otherY = other.ys;
+        for (int i = 0; i < size; ++i) {
+            out[i] = inX[i] * otherX[i] + inY[i] * otherY[i];
+        }
+    }
+
+    /**
+     * Computes the length of every point.
+     *
+     * @param out the array to write the lengths to, indexed like the batch.
+     * @throws IllegalArgumentException if the output array is shorter than the batch.
+     */
+    public void norms(double[] out) {
+        distancesTo(0, 0, out);
+    }
+
+    /**
+     * Bounds-checks a point index, throwing an exception if out of range.
+     *
+     * @param index the index to check.
+     * @throws IndexOutOfBoundsException if the index does not refer to a point in the batch.
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format(
+                "Index %d is outside of batch of size %d",
+                index,
+                size
+            ));
+        }
+    }
+
+    /**
+     * Checks that an output array can hold a value for every point.
+     *
+     * @param out the array to check.
+     * @throws IllegalArgumentException if the array is shorter than the batch.
+     */
+    private void checkOutput(double[] out) {
+        if (out.length < size) {
+            throw new IllegalArgumentException(String.format(
+                "Output of length %d is shorter than batch of size %d",
+                out.length,
+                size
+            ));
+        }
+    }
+}
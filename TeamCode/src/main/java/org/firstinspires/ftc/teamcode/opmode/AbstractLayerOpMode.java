@@ -34,6 +34,13 @@ public abstract class AbstractLayerOpMode extends OpMode {
         if (!finished && controller.update()) {
             finished = true;
         }
+        controller.getProfiler().report(telemetry);
+    }
+
+    @Override
+    public final void stop() {
+        // Layers may hold threads that would otherwise outlive the opmode
+        controller.teardown();
     }
 
     /**
@@ -0,0 +1,169 @@
+package org.firstinspires.ftc.teamcode.profiling;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size histogram of durations in nanoseconds.
+ * Durations are counted in log-linear buckets: each power of two is split into
+ * {@link #SUB_BUCKETS} equal sub-buckets, so reported percentiles are within 1/16 (6.25%) of the
+ * true value. Recording never allocates, making this safe to use inside the control loop.
+ */
+public final class LatencyHistogram {
+    /**
+     * The base 2 logarithm of {@link #SUB_BUCKETS}.
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /**
+     * The number of linear sub-buckets each power of two is divided into.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The number of buckets needed to cover every non-negative long.
+     */
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * The number of recorded durations falling into each bucket.
+     */
+    private final long[] counts;
+
+    /**
+     * The total number of recorded durations.
+     */
+    private long totalCount;
+
+    /**
+     * The largest recorded duration in nanoseconds.
+     */
+    private long max;
+
+    /**
+     * Constructs an empty LatencyHistogram.
+     */
+    public LatencyHistogram() {
+        counts = new long[BUCKET_COUNT];
+        totalCount = 0;
+        max = 0;
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos - the duration in nanoseconds. Negative values are recorded as zero.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        ++counts[bucketOf(nanos)];
+        ++totalCount;
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return The number of durations recorded since construction or the last {@link #reset}.
+     */
+    public long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns the largest recorded duration.
+     *
+     * @return The exact largest recorded duration in nanoseconds, or 0 if none are recorded.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Estimates a percentile of the recorded durations.
+     *
+     * @param percentile - the percentile to compute in the range [0, 100].
+     * @return The upper bound in nanoseconds of the bucket containing the requested percentile,
+     * clamped to {@link #getMax}, or 0 if no durations are recorded.
+     */
+    public long getPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = (long)Math.ceil(percentile / 100 * totalCount);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Estimates the median recorded duration.
+     *
+     * @return The 50th percentile duration in nanoseconds.
+     * @see #getPercentile
+     */
+    public long getP50() {
+        return getPercentile(50);
+    }
+
+    /**
+     * Estimates the 99th percentile recorded duration.
+     *
+     * @return The 99th percentile duration in nanoseconds.
+     * @see #getPercentile
+     */
+    public long getP99() {
+        return getPercentile(99);
+    }
+
+    /**
+     * Clears all recorded durations.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        max = 0;
+    }
+
+    /**
+     * Finds the bucket a duration is counted in.
+     *
+     * @param nanos - the non-negative duration.
+     * @return The index of the bucket in {@link #counts}.
+     */
+    private static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int)nanos;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int mantissa = (int)(nanos >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + mantissa;
+    }
+
+    /**
+     * Computes the largest duration counted in a bucket.
+     *
+     * @param bucket - the index of the bucket.
+     * @return The inclusive upper bound of the bucket in nanoseconds.
+     */
+    private static long bucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = (bucket % SUB_BUCKETS) | SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,263 @@
+package org.firstinspires.ftc.teamcode.profiling;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+import org.firstinspires.ftc.teamcode.Units;
+import org.firstinspires.ftc.teamcode.layer.Layer;
+
+/**
+ * Collects call latencies for each layer in a {@link org.firstinspires.ftc.teamcode.RobotController}
+ * stack.
+ * The controller times every {@link Layer#update}, {@link Layer#acceptTask} and
+ * {@link Layer#isTaskDone} call it makes and records them here. Only layers directly in the
+ * controller's stack are profiled; the time of layers contained in another (such as by a
+ * {@link org.firstinspires.ftc.teamcode.layer.MultiplexLayer}) is attributed to the container.
+ */
+public final class LayerProfiler {
+    /**
+     * How often {@link #report} refreshes the telemetry summary in seconds.
+     */
+    private static final double REPORT_INTERVAL = 1.0;
+
+    /**
+     * The statistics of each profiled layer in stack order.
+     */
+    private final List<LayerStats> stats;
+
+    /**
+     * The statistics of each profiled layer keyed by layer identity.
+     */
+    private final Map<Layer, LayerStats> statsByLayer;
+
+    /**
+     * The telemetry items showing each layer's summary, or null if not yet reported.
+     */
+    private Telemetry.Item[] reportItems;
+
+    /**
+     * The timestamp in nanoseconds of the last telemetry refresh.
+     */
+    private long lastReportTime;
+
+    /**
+     * Constructs a LayerProfiler with no profiled layers.
+     */
+    public LayerProfiler() {
+        stats = new ArrayList<>();
+        statsByLayer = new IdentityHashMap<>();
+        reportItems = null;
+        lastReportTime = 0;
+    }
+
+    /**
+     * Begins profiling a layer, or returns its statistics if it is already profiled.
+     *
+     * @param layer - the layer to profile.
+     * @return The statistics object timings of the layer should be recorded into.
+     */
+    public LayerStats register(Layer layer) {
+        LayerStats layerStats = statsByLayer.get(layer);
+        if (layerStats == null) {
+            layerStats = new LayerStats(layer.getClass().getSimpleName());
+            stats.add(layerStats);
+            statsByLayer.put(layer, layerStats);
+            reportItems = null;
+        }
+        return layerStats;
+    }
+
+    /**
+     * Gets the statistics of a profiled layer.
+     *
+     * @param layer - the layer to query.
+     * @return The layer's statistics, or null if the layer is not directly in the profiled stack.
+     */
+    public LayerStats getStats(Layer layer) {
+        return statsByLayer.get(layer);
+    }
+
+    /**
+     * Gets the statistics of every profiled layer.
+     *
+     * @return The statistics of each profiled layer, in order from bottommost to topmost.
+     */
+    public List<LayerStats> getAllStats() {
+        return stats;
+    }
+
+    /**
+     * Clears the recorded timings of every profiled layer.
+     */
+    public void reset() {
+        for (int i = 0; i < stats.size(); ++i) {
+            stats.get(i).reset();
+        }
+    }
+
+    /**
+     * Shows a latency summary of each layer on telemetry, refreshing it at most once every
+     * {@link #REPORT_INTERVAL} seconds.
+     * Summary lines are retained telemetry items whose values are only rebuilt when the interval
+     * elapses, so calling this every loop is cheap.
+     *
+     * @param telemetry - the telemetry to report to.
+     */
+    public void report(Telemetry telemetry) {
+        long now = System.nanoTime();
+        if (reportItems != null && now - lastReportTime < (long)Units.convert(REPORT_INTERVAL,
+            Units.Time.SEC, Units.Time.NANO)) {
+            return;
+        }
+        lastReportTime = now;
+        if (reportItems == null) {
+            reportItems = new Telemetry.Item[stats.size()];
+            for (int i = 0; i < stats.size(); ++i) {
+                reportItems[i] = telemetry.addData(stats.get(i).getName(), "").setRetained(true);
+            }
+        }
+        for (int i = 0; i < stats.size(); ++i) {
+            reportItems[i].setValue(stats.get(i).summarize());
+        }
+    }
+
+    /**
+     * Latency histograms for the calls made on a single layer.
+     */
+    public static final class LayerStats {
+        /**
+         * The concrete class name of the profiled layer.
+         */
+        private final String name;
+
+        /**
+         * Durations of {@link Layer#update} calls.
+         */
+        private final LatencyHistogram update;
+
+        /**
+         * Durations of {@link Layer#acceptTask} calls.
+         */
+        private final LatencyHistogram acceptTask;
+
+        /**
+         * Durations of {@link Layer#isTaskDone} calls.
+         */
+        private final LatencyHistogram isTaskDone;
+
+        /**
+         * The number of scheduled update deadlines the layer missed.
+         */
+        private long overruns;
+
+        /**
+         * Constructs a LayerStats.
+         *
+         * @param name - the concrete class name of the profiled layer.
+         */
+        private LayerStats(String name) {
+            this.name = name;
+            update = new LatencyHistogram();
+            acceptTask = new LatencyHistogram();
+            isTaskDone = new LatencyHistogram();
+            overruns = 0;
+        }
+
+        /**
+         * Returns the name of the profiled layer.
+         *
+         * @return The concrete class name of the profiled layer.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the histogram of update durations.
+         *
+         * @return The histogram {@link Layer#update} call durations are recorded in.
+         */
+        public LatencyHistogram getUpdate() {
+            return update;
+        }
+
+        /**
+         * Returns the histogram of acceptTask durations.
+         *
+         * @return The histogram {@link Layer#acceptTask} call durations are recorded in.
+         */
+        public LatencyHistogram getAcceptTask() {
+            return acceptTask;
+        }
+
+        /**
+         * Returns the histogram of isTaskDone durations.
+         *
+         * @return The histogram {@link Layer#isTaskDone} call durations are recorded in.
+         */
+        public LatencyHistogram getIsTaskDone() {
+            return isTaskDone;
+        }
+
+        /**
+         * Records that the layer missed scheduled update deadlines.
+         *
+         * @param missed - the number of whole update periods that elapsed without an update.
+         * @see Layer#getUpdatePeriod
+         */
+        public void recordOverruns(long missed) {
+            overruns += missed;
+        }
+
+        /**
+         * Returns the number of missed update deadlines.
+         *
+         * @return The number of whole update periods that elapsed without the layer being updated.
+         * Always 0 for layers without an update period.
+         */
+        public long getOverruns() {
+            return overruns;
+        }
+
+        /**
+         * Clears all recorded durations and overruns.
+         */
+        public void reset() {
+            update.reset();
+            acceptTask.reset();
+            isTaskDone.reset();
+            overruns = 0;
+        }
+
+        /**
+         * Formats the p50/p99/max of each histogram in microseconds.
+         *
+         * @return A one-line summary of the layer's latencies.
+         */
+        public String summarize() {
+            return "upd " + summarize(update)
+                + " | acc " + summarize(acceptTask)
+                + " | done " + summarize(isTaskDone)
+                + (overruns > 0 ? " | overruns " + overruns : "");
+        }
+
+        /**
+         * Formats the p50/p99/max of a histogram in microseconds.
+         *
+         * @param histogram - the histogram to summarize.
+         * @return The histogram's percentiles separated by slashes.
+         */
+        private static String summarize(LatencyHistogram histogram) {
+            return String.format(
+                "%.0f/%.0f/%.0fus",
+                Units.convert(histogram.getP50(), Units.Time.NANO, Units.Time.MICRO),
+                Units.convert(histogram.getP99(), Units.Time.NANO, Units.Time.MICRO),
+                Units.convert(histogram.getMax(), Units.Time.NANO, Units.Time.MICRO)
+            );
+        }
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Classes for measuring how long the layer stack spends in each layer.
+ * Measurements are recorded into fixed-size histograms so profiling can stay enabled during
+ * matches without producing garbage in the control loop.
+ */
+package org.firstinspires.ftc.teamcode.profiling;
@@ -0,0 +1,211 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
+import org.firstinspires.ftc.teamcode.matrix.Vec2;
+
+/**
+ * Moves a simulated robot according to the speeds of its four mecanum wheel motors.
+ * Wheels are assumed not to slip, so the robot's velocity is the least squares solution of the
+ * mecanum forward kinematics: with wheel surface speeds \(v_{lf}, v_{rf}, v_{lb}, v_{rb}\) and
+ * \(k\) the sum of the half track width and half wheelbase,
+ * \[v_x = \frac{v_{lf} + v_{rf} + v_{lb} + v_{rb}}{4}\]
+ * \[v_y = \frac{-v_{lf} + v_{rf} + v_{lb} - v_{rb}}{4}\]
+ * \[\omega = \frac{-v_{lf} + v_{rf} - v_{lb} + v_{rb}}{4k}\]
+ * where \(x\) is forward, \(y\) is left, and \(\omega\) is counterclockwise. This inverts the wheel
+ * mixing in {@link org.firstinspires.ftc.teamcode.layer.drive.MecanumDrive}.
+ */
+public final class MecanumDrivetrainModel {
+    /**
+     * The left front wheel motor.
+     */
+    private final SimDcMotor leftFront;
+
+    /**
+     * The right front wheel motor.
+     */
+    private final SimDcMotor rightFront;
+
+    /**
+     * The left back wheel motor.
+     */
+    private final SimDcMotor leftBack;
+
+    /**
+     * The right back wheel motor.
+     */
+    private final SimDcMotor rightBack;
+
+    /**
+     * For each wheel in left front, right front, left back, right back order, 1 if turning its
+     * motor shaft forward drives the wheel forward, or -1 if the motor is mounted the other way
+     * around.
+     */
+    private final double[] mountingSigns;
+
+    /**
+     * The radius of the wheels in meters.
+     */
+    private final double wheelRadius;
+
+    /**
+     * The sum of half the track width and half the wheelbase in meters.
+     */
+    private final double spanRadius;
+
+    /**
+     * The field x coordinate of the robot in meters.
+     */
+    private double x;
+
+    /**
+     * The field y coordinate of the robot in meters.
+     */
+    private double y;
+
+    /**
+     * The field heading of the robot in radians, counterclockwise from the x axis.
+     */
+    private double heading;
+
+    /**
+     * The robot space forward speed in meters per second.
+     */
+    private double axialVelocity;
+
+    /**
+     * The robot space leftward speed in meters per second.
+     */
+    private double lateralVelocity;
+
+    /**
+     * The counterclockwise turning speed in radians per second.
+     */
+    private double angularVelocity;
+
+    /**
+     * Constructs a MecanumDrivetrainModel with the robot at rest at the field origin facing +x.
+     *
+     * @param leftFront - the left front wheel motor.
+     * @param rightFront - the right front wheel motor.
+     * @param leftBack - the left back wheel motor.
+     * @param rightBack - the right back wheel motor.
+     * @param mountingSigns - for each wheel in the above order, 1 if turning its motor shaft
+     * forward drives the wheel forward, or -1 otherwise.
+     * @param wheelRadius - the radius of the wheels in meters.
+     * @param spanRadius - the sum of half the track width and half the wheelbase in meters.
+     */
+    MecanumDrivetrainModel(
+        SimDcMotor leftFront,
+        SimDcMotor rightFront,
+        SimDcMotor leftBack,
+        SimDcMotor rightBack,
+        double[] mountingSigns,
+        double wheelRadius,
+        double spanRadius
+    ) {
+        this.leftFront = leftFront;
+        this.rightFront = rightFront;
+        this.leftBack = leftBack;
+        this.rightBack = rightBack;
+        this.mountingSigns = mountingSigns.clone();
+        this.wheelRadius = wheelRadius;
+        this.spanRadius = spanRadius;
+        setPose(0, 0, 0);
+    }
+
+    /**
+     * Teleports the robot and stops it.
+     * Motor shafts keep turning at their current speeds and will move the robot on the next step.
+     *
+     * @param x - the field x coordinate in meters.
+     * @param y - the field y coordinate in meters.
+     * @param heading - the field heading in radians, counterclockwise from the x axis.
+     */
+    public void setPose(double x, double y, double heading) {
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+        axialVelocity = 0;
+        lateralVelocity = 0;
+        angularVelocity = 0;
+    }
+
+    /**
+     * Moves the robot by a time step using the current wheel motor speeds.
+     * Must be called after the motors themselves have been stepped.
+     *
+     * @param dt - the length of the step in seconds.
+     */
+    void step(double dt) {
+        double lf = mountingSigns[0] * leftFront.getShaftAngularVelocity() * wheelRadius;
+        double rf = mountingSigns[1] * rightFront.getShaftAngularVelocity() * wheelRadius;
+        double lb = mountingSigns[2] * leftBack.getShaftAngularVelocity() * wheelRadius;
+        double rb = mountingSigns[3] * rightBack.getShaftAngularVelocity() * wheelRadius;
+        axialVelocity = (lf + rf + lb + rb) / 4;
+        lateralVelocity = (-lf + rf + lb - rb) / 4;
+        angularVelocity = (-lf + rf - lb + rb) / (4 * spanRadius);
+
+        // Integrate using the heading halfway through the step
+        double midHeading = heading + angularVelocity * dt / 2;
+        double cos = Math.cos(midHeading);
+        double sin = Math.sin(midHeading);
+        x += (axialVelocity * cos - lateralVelocity * sin) * dt;
+        y += (axialVelocity * sin + lateralVelocity * cos) * dt;
+        heading += angularVelocity * dt;
+    }
+
+    /**
+     * Returns the robot's true field pose.
+     *
+     * @return The field space pose of the robot.
+     */
+    public Pose2d getPose() {
+        return new Pose2d(x, y, heading);
+    }
+
+    /**
+     * Returns the robot's true field position.
+     *
+     * @return The field space position of the robot in meters.
+     */
+    public Vec2 getPosition() {
+        return new Vec2(x, y);
+    }
+
+    /**
+     * Returns the robot's true heading.
+     *
+     * @return The field heading in radians, counterclockwise from the x axis. Not wrapped, so
+     * turning twice around reads as 4 PI.
+     */
+    public double getHeading() {
+        return heading;
+    }
+
+    /**
+     * Returns the robot's forward speed.
+     *
+     * @return The robot space forward speed in meters per second.
+     */
+    public double getAxialVelocity() {
+        return axialVelocity;
+    }
+
+    /**
+     * Returns the robot's sideways speed.
+     *
+     * @return The robot space leftward speed in meters per second.
+     */
+    public double getLateralVelocity() {
+        return lateralVelocity;
+    }
+
+    /**
+     * Returns the robot's turning speed.
+     *
+     * @return The counterclockwise turning speed in radians per second.
+     */
+    public double getAngularVelocity() {
+        return angularVelocity;
+    }
+}
@@ -0,0 +1,139 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.CRServo;
+import com.qualcomm.robotcore.hardware.ServoController;
+
+/**
+ * A simulated continuous rotation servo.
+ * The servo turns at a speed proportional to its power; its accumulated rotation can be read back
+ * for inspection.
+ */
+public final class SimCRServo implements CRServo {
+    /**
+     * The speed of the servo at full power in revolutions per second.
+     */
+    private static final double MAX_SPEED = 2.5;
+
+    /**
+     * The name the servo is registered under in the hardware map.
+     */
+    private final String name;
+
+    /**
+     * The port number reported for the servo.
+     */
+    private final int port;
+
+    /**
+     * The direction power is given in.
+     */
+    private Direction direction;
+
+    /**
+     * The last commanded power in [-1, 1].
+     */
+    private double power;
+
+    /**
+     * The total rotation of the servo in revolutions, in the forward direction of the output.
+     */
+    private double rotation;
+
+    /**
+     * Constructs a SimCRServo at rest.
+     *
+     * @param name - the name the servo is registered under in the hardware map.
+     * @param port - the port number to report for the servo.
+     */
+    SimCRServo(String name, int port) {
+        this.name = name;
+        this.port = port;
+        direction = Direction.FORWARD;
+        power = 0;
+        rotation = 0;
+    }
+
+    /**
+     * Advances the servo's output by a time step.
+     *
+     * @param dt - the length of the step in seconds.
+     */
+    void step(double dt) {
+        rotation += (direction == Direction.REVERSE ? -1 : 1) * power * MAX_SPEED * dt;
+    }
+
+    /**
+     * Returns how far the servo has turned.
+     *
+     * @return The total rotation of the output in revolutions since construction.
+     */
+    public double getRotation() {
+        return rotation;
+    }
+
+    /**
+     * Returns the servo's controller.
+     *
+     * @return Always null; simulated servos are not attached to a controller.
+     */
+    @Override
+    public ServoController getController() {
+        return null;
+    }
+
+    @Override
+    public int getPortNumber() {
+        return port;
+    }
+
+    @Override
+    public void setDirection(Direction direction) {
+        this.direction = direction;
+    }
+
+    @Override
+    public Direction getDirection() {
+        return direction;
+    }
+
+    @Override
+    public void setPower(double power) {
+        this.power = Math.max(-1, Math.min(1, power));
+    }
+
+    @Override
+    public double getPower() {
+        return power;
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return Manufacturer.Other;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "Simulated Continuous Rotation Servo";
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return "sim; port " + port + "; " + name;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {
+        setDirection(Direction.FORWARD);
+        setPower(0);
+    }
+
+    @Override
+    public void close() {
+        setPower(0);
+    }
+}
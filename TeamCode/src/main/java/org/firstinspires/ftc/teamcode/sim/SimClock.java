@@ -0,0 +1,48 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.firstinspires.ftc.teamcode.Clock;
+import org.firstinspires.ftc.teamcode.Units;
+
+/**
+ * A clock that only advances when told to.
+ */
+public final class SimClock implements Clock {
+    /**
+     * The current time in nanoseconds.
+     */
+    private long now;
+
+    /**
+     * Constructs a SimClock starting at time zero.
+     */
+    public SimClock() {
+        now = 0;
+    }
+
+    @Override
+    public long nanoTime() {
+        return now;
+    }
+
+    /**
+     * Returns the elapsed simulated time.
+     *
+     * @return The time in seconds since the clock was constructed.
+     */
+    public double getTime() {
+        return Units.convert(now, Units.Time.NANO, Units.Time.SEC);
+    }
+
+    /**
+     * Moves the clock forward.
+     *
+     * @param dt - the time to advance by in seconds. Must not be negative.
+     * @throws IllegalArgumentException - dt is negative.
+     */
+    public void advance(double dt) {
+        if (dt < 0) {
+            throw new IllegalArgumentException("Cannot advance a clock by negative time " + dt);
+        }
+        now += Math.round(Units.convert(dt, Units.Time.SEC, Units.Time.NANO));
+    }
+}
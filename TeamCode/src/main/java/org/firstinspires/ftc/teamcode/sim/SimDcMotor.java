@@ -0,0 +1,506 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import java.util.Random;
+
+import com.qualcomm.robotcore.hardware.DcMotorController;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.PIDCoefficients;
+import com.qualcomm.robotcore.hardware.PIDFCoefficients;
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit;
+
+/**
+ * A simulated DC motor with an encoder.
+ * The shaft speed follows the commanded speed with a first order lag, the way a real motor
+ * accelerates, and the shaft position is integrated from it. Commands are interpreted according to
+ * the run mode as on a real hub: power in {@link RunMode#RUN_WITHOUT_ENCODER}, power or
+ * {@link #setVelocity} in {@link RunMode#RUN_USING_ENCODER}, and a proportional move to the target
+ * position in {@link RunMode#RUN_TO_POSITION}. The direction reverses both commands and encoder
+ * readings, also as on a real hub.
+ */
+public final class SimDcMotor implements DcMotorEx {
+    /**
+     * The time constant in seconds of the shaft speed approaching the commanded speed.
+     */
+    private static final double TIME_CONSTANT = 0.05;
+
+    /**
+     * The time constant in seconds of the shaft speed decaying with no power in
+     * {@link ZeroPowerBehavior#FLOAT}.
+     */
+    private static final double FLOAT_TIME_CONSTANT = 0.5;
+
+    /**
+     * The current drawn in amps at full power with the shaft held still.
+     */
+    private static final double STALL_CURRENT = 9.2;
+
+    /**
+     * The proportional gain in RUN_TO_POSITION, in ticks per second of speed per tick of error.
+     */
+    private static final double POSITION_GAIN = 10;
+
+    /**
+     * The name the motor is registered under in the hardware map.
+     */
+    private final String name;
+
+    /**
+     * The port number reported for the motor.
+     */
+    private final int port;
+
+    /**
+     * The source of speed noise, or null if the motor is noiseless.
+     */
+    private final Random random;
+
+    /**
+     * The standard deviation of the multiplicative noise applied to the commanded speed each step.
+     */
+    private final double speedNoise;
+
+    /**
+     * The configured motor type, supplying ticks per revolution and free speed.
+     */
+    private MotorConfigurationType motorType;
+
+    /**
+     * The direction commands and encoder readings are given in.
+     */
+    private Direction direction;
+
+    /**
+     * The current run mode.
+     */
+    private RunMode mode;
+
+    /**
+     * What the motor does when its power is zero.
+     */
+    private ZeroPowerBehavior zeroPowerBehavior;
+
+    /**
+     * The last commanded power in [-1, 1].
+     */
+    private double power;
+
+    /**
+     * The commanded speed in ticks per second set through {@link #setVelocity}, or NaN if the motor
+     * is commanded by power.
+     */
+    private double commandedVelocity;
+
+    /**
+     * The target position in ticks for RUN_TO_POSITION.
+     */
+    private int targetPosition;
+
+    /**
+     * How close in ticks the encoder must be to the target position for the motor not to be busy.
+     */
+    private int targetPositionTolerance;
+
+    /**
+     * Whether the motor is enabled.
+     */
+    private boolean enabled;
+
+    /**
+     * The current above which the motor reports being over current, in amps, or 0 if disabled.
+     */
+    private double currentAlert;
+
+    /**
+     * The PIDF coefficients for RUN_USING_ENCODER.
+     */
+    private PIDFCoefficients velocityCoefficients;
+
+    /**
+     * The PIDF coefficients for RUN_TO_POSITION.
+     */
+    private PIDFCoefficients positionCoefficients;
+
+    /**
+     * The shaft position in ticks, in the forward direction of the shaft.
+     */
+    private double shaftPosition;
+
+    /**
+     * The shaft speed in ticks per second, in the forward direction of the shaft.
+     */
+    private double shaftVelocity;
+
+    /**
+     * The shaft position at the last encoder reset.
+     */
+    private double encoderZero;
+
+    /**
+     * Constructs a SimDcMotor at rest.
+     *
+     * @param name - the name the motor is registered under in the hardware map.
+     * @param port - the port number to report for the motor.
+     * @param motorType - the motor type supplying ticks per revolution and maximum RPM.
+     * @param random - the source of speed noise, or null for a noiseless motor.
+     * @param speedNoise - the standard deviation of the multiplicative noise applied to the
+     * commanded speed each step.
+     */
+    SimDcMotor(
+        String name,
+        int port,
+        MotorConfigurationType motorType,
+        Random random,
+        double speedNoise
+    ) {
+        this.name = name;
+        this.port = port;
+        this.motorType = motorType;
+        this.random = random;
+        this.speedNoise = speedNoise;
+        direction = Direction.FORWARD;
+        mode = RunMode.RUN_WITHOUT_ENCODER;
+        zeroPowerBehavior = ZeroPowerBehavior.BRAKE;
+        power = 0;
+        commandedVelocity = Double.NaN;
+        targetPosition = 0;
+        targetPositionTolerance = 10;
+        enabled = true;
+        currentAlert = 0;
+        velocityCoefficients = new PIDFCoefficients(10, 3, 0, 0);
+        positionCoefficients = new PIDFCoefficients(POSITION_GAIN, 0, 0, 0);
+        shaftPosition = 0;
+        shaftVelocity = 0;
+        encoderZero = 0;
+    }
+
+    /**
+     * Advances the motor's shaft by a time step.
+     *
+     * @param dt - the length of the step in seconds.
+     */
+    void step(double dt) {
+        double target = getDirectionSign() * getCommandedSpeed();
+        if (random != null && speedNoise > 0) {
+            target *= 1 + speedNoise * random.nextGaussian();
+        }
+        boolean floating = enabled && power == 0 && Double.isNaN(commandedVelocity)
+            && zeroPowerBehavior == ZeroPowerBehavior.FLOAT && mode != RunMode.RUN_TO_POSITION;
+        double timeConstant = floating ? FLOAT_TIME_CONSTANT : TIME_CONSTANT;
+        double lastVelocity = shaftVelocity;
+        shaftVelocity += (target - shaftVelocity) * (1 - Math.exp(-dt / timeConstant));
+        shaftPosition += (lastVelocity + shaftVelocity) / 2 * dt;
+    }
+
+    /**
+     * Computes the speed the motor is currently being driven toward.
+     *
+     * @return The commanded speed in ticks per second, in this motor's direction.
+     */
+    private double getCommandedSpeed() {
+        double maxSpeed = getMaxTicksPerSecond();
+        if (!enabled) {
+            return 0;
+        }
+        switch (mode) {
+            case STOP_AND_RESET_ENCODER:
+                return 0;
+            case RUN_TO_POSITION: {
+                double error = targetPosition - getCurrentPosition();
+                if (Math.abs(error) <= targetPositionTolerance) {
+                    return 0;
+                }
+                double limit = Math.abs(power) * maxSpeed;
+                return Math.max(-limit, Math.min(limit, error * positionCoefficients.p));
+            }
+            case RUN_USING_ENCODER:
+                if (!Double.isNaN(commandedVelocity)) {
+                    return Math.max(-maxSpeed, Math.min(maxSpeed, commandedVelocity));
+                }
+                return power * maxSpeed;
+            default:
+                return power * maxSpeed;
+        }
+    }
+
+    /**
+     * Returns the sign applied to commands and readings by the motor's direction.
+     *
+     * @return 1 for a forward motor, -1 for a reversed one.
+     */
+    private double getDirectionSign() {
+        return direction == Direction.REVERSE ? -1 : 1;
+    }
+
+    /**
+     * Returns the free speed of the motor.
+     *
+     * @return The speed at full power in ticks per second.
+     */
+    double getMaxTicksPerSecond() {
+        return motorType.getTicksPerRev() * motorType.getMaxRPM() / 60;
+    }
+
+    /**
+     * Returns the shaft speed in the shaft's own forward direction, ignoring {@link #direction}.
+     *
+     * @return The shaft speed in radians per second.
+     */
+    double getShaftAngularVelocity() {
+        return shaftVelocity / motorType.getTicksPerRev() * 2 * Math.PI;
+    }
+
+    @Override
+    public MotorConfigurationType getMotorType() {
+        return motorType;
+    }
+
+    @Override
+    public void setMotorType(MotorConfigurationType motorType) {
+        this.motorType = motorType;
+    }
+
+    /**
+     * Returns the motor's controller.
+     *
+     * @return Always null; simulated motors are not attached to a controller.
+     */
+    @Override
+    public DcMotorController getController() {
+        return null;
+    }
+
+    @Override
+    public int getPortNumber() {
+        return port;
+    }
+
+    @Override
+    public void setZeroPowerBehavior(ZeroPowerBehavior zeroPowerBehavior) {
+        this.zeroPowerBehavior = zeroPowerBehavior;
+    }
+
+    @Override
+    public ZeroPowerBehavior getZeroPowerBehavior() {
+        return zeroPowerBehavior;
+    }
+
+    @Override
+    @Deprecated
+    public void setPowerFloat() {
+        setZeroPowerBehavior(ZeroPowerBehavior.FLOAT);
+        setPower(0);
+    }
+
+    @Override
+    public boolean getPowerFloat() {
+        return zeroPowerBehavior == ZeroPowerBehavior.FLOAT && power == 0;
+    }
+
+    @Override
+    public void setTargetPosition(int position) {
+        targetPosition = position;
+    }
+
+    @Override
+    public int getTargetPosition() {
+        return targetPosition;
+    }
+
+    @Override
+    public boolean isBusy() {
+        return mode == RunMode.RUN_TO_POSITION
+            && Math.abs(targetPosition - getCurrentPosition()) > targetPositionTolerance;
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        return (int)Math.round(getDirectionSign() * (shaftPosition - encoderZero));
+    }
+
+    @Override
+    public void setMode(RunMode mode) {
+        this.mode = mode;
+        if (mode == RunMode.STOP_AND_RESET_ENCODER) {
+            encoderZero = shaftPosition;
+            power = 0;
+            commandedVelocity = Double.NaN;
+        }
+    }
+
+    @Override
+    public RunMode getMode() {
+        return mode;
+    }
+
+    @Override
+    public void setDirection(Direction direction) {
+        this.direction = direction;
+    }
+
+    @Override
+    public Direction getDirection() {
+        return direction;
+    }
+
+    @Override
+    public void setPower(double power) {
+        this.power = Math.max(-1, Math.min(1, power));
+        commandedVelocity = Double.NaN;
+    }
+
+    @Override
+    public double getPower() {
+        return power;
+    }
+
+    @Override
+    public void setMotorEnable() {
+        enabled = true;
+    }
+
+    @Override
+    public void setMotorDisable() {
+        enabled = false;
+    }
+
+    @Override
+    public boolean isMotorEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setVelocity(double angularRate) {
+        commandedVelocity = angularRate;
+        power = Math.max(-1, Math.min(1, angularRate / getMaxTicksPerSecond()));
+    }
+
+    @Override
+    public void setVelocity(double angularRate, AngleUnit unit) {
+        setVelocity(unit.toRadians(angularRate) / (2 * Math.PI) * motorType.getTicksPerRev());
+    }
+
+    @Override
+    public double getVelocity() {
+        return getDirectionSign() * shaftVelocity;
+    }
+
+    @Override
+    public double getVelocity(AngleUnit unit) {
+        return unit.fromRadians(getVelocity() / motorType.getTicksPerRev() * 2 * Math.PI);
+    }
+
+    @Override
+    @Deprecated
+    public void setPIDCoefficients(RunMode mode, PIDCoefficients pidCoefficients) {
+        setPIDFCoefficients(mode, new PIDFCoefficients(pidCoefficients));
+    }
+
+    @Override
+    public void setPIDFCoefficients(RunMode mode, PIDFCoefficients pidfCoefficients) {
+        if (mode == RunMode.RUN_TO_POSITION) {
+            positionCoefficients = new PIDFCoefficients(pidfCoefficients);
+        } else {
+            velocityCoefficients = new PIDFCoefficients(pidfCoefficients);
+        }
+    }
+
+    @Override
+    public void setVelocityPIDFCoefficients(double p, double i, double d, double f) {
+        setPIDFCoefficients(RunMode.RUN_USING_ENCODER, new PIDFCoefficients(p, i, d, f));
+    }
+
+    @Override
+    public void setPositionPIDFCoefficients(double p) {
+        setPIDFCoefficients(RunMode.RUN_TO_POSITION, new PIDFCoefficients(p, 0, 0, 0));
+    }
+
+    @Override
+    @Deprecated
+    public PIDCoefficients getPIDCoefficients(RunMode mode) {
+        PIDFCoefficients coefficients = getPIDFCoefficients(mode);
+        return new PIDCoefficients(coefficients.p, coefficients.i, coefficients.d);
+    }
+
+    @Override
+    public PIDFCoefficients getPIDFCoefficients(RunMode mode) {
+        return new PIDFCoefficients(
+            mode == RunMode.RUN_TO_POSITION ? positionCoefficients : velocityCoefficients
+        );
+    }
+
+    @Override
+    public void setTargetPositionTolerance(int tolerance) {
+        targetPositionTolerance = tolerance;
+    }
+
+    @Override
+    public int getTargetPositionTolerance() {
+        return targetPositionTolerance;
+    }
+
+    /**
+     * Returns the current drawn by the motor.
+     * Modeled as proportional to the gap between the applied power and the fraction of free speed
+     * the shaft is turning at, which is the voltage not cancelled by back EMF.
+     *
+     * @param unit - the unit to return the current in.
+     * @return The drawn current.
+     */
+    @Override
+    public double getCurrent(CurrentUnit unit) {
+        double applied = enabled ? getDirectionSign() * getCommandedSpeed() / getMaxTicksPerSecond()
+            : 0;
+        double speedFraction = shaftVelocity / getMaxTicksPerSecond();
+        return unit.convert(Math.abs(applied - speedFraction) * STALL_CURRENT, CurrentUnit.AMPS);
+    }
+
+    @Override
+    public double getCurrentAlert(CurrentUnit unit) {
+        return unit.convert(currentAlert, CurrentUnit.AMPS);
+    }
+
+    @Override
+    public void setCurrentAlert(double current, CurrentUnit unit) {
+        currentAlert = CurrentUnit.AMPS.convert(current, unit);
+    }
+
+    @Override
+    public boolean isOverCurrent() {
+        return currentAlert > 0 && getCurrent(CurrentUnit.AMPS) > currentAlert;
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return Manufacturer.Other;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "Simulated DC Motor";
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return "sim; port " + port + "; " + name;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {
+        setDirection(Direction.FORWARD);
+        setPower(0);
+        setMode(RunMode.RUN_WITHOUT_ENCODER);
+    }
+
+    @Override
+    public void close() {
+        setPower(0);
+    }
+}
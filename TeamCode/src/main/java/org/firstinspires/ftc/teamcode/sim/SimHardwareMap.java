@@ -0,0 +1,78 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.HardwareDevice;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import java.util.List;
+
+/**
+ * A HardwareMap that looks devices up without touching the Android runtime.
+ * The SDK's lookups go through device classes whose static initializers read Android app state, so
+ * they fail on a desktop JVM; this map resolves names directly against the devices put into it.
+ */
+public final class SimHardwareMap extends HardwareMap {
+    /**
+     * Constructs an empty SimHardwareMap.
+     */
+    SimHardwareMap() {
+        super(null, null);
+    }
+
+    /**
+     * Returns the device registered under the given name with the given type.
+     *
+     * @param classOrInterface - the type of device to look up.
+     * @param deviceName - the name the device is registered under.
+     * @return The device.
+     * @throws IllegalArgumentException if no device of the given type has that name.
+     */
+    @Override
+    public <T> T get(Class<? extends T> classOrInterface, String deviceName) {
+        T result = tryGet(classOrInterface, deviceName);
+        if (result == null) {
+            throw new IllegalArgumentException(String.format(
+                "Unable to find a hardware device with name \"%s\" and type %s",
+                deviceName,
+                classOrInterface.getSimpleName()
+            ));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the device registered under the given name with the given type, if there is one.
+     *
+     * @param classOrInterface - the type of device to look up.
+     * @param deviceName - the name the device is registered under.
+     * @return The device, or null if no device of the given type has that name.
+     */
+    @Override
+    public <T> T tryGet(Class<? extends T> classOrInterface, String deviceName) {
+        synchronized (lock) {
+            List<HardwareDevice> devices = allDevicesMap.get(deviceName.trim());
+            if (devices == null) {
+                return null;
+            }
+            for (HardwareDevice device : devices) {
+                if (classOrInterface.isInstance(device)) {
+                    @SuppressWarnings("unchecked")
+                    T result = (T)device;
+                    return result;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Returns the device registered under the given name.
+     *
+     * @param deviceName - the name the device is registered under.
+     * @return The device.
+     * @throws IllegalArgumentException if no device has that name.
+     */
+    @Override
+    public HardwareDevice get(String deviceName) {
+        return get(HardwareDevice.class, deviceName);
+    }
+}
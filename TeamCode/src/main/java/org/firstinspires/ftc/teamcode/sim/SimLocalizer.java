@@ -0,0 +1,64 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.firstinspires.ftc.teamcode.localization.LocalizationSource;
+import org.firstinspires.ftc.teamcode.localization.RobotLocalizer;
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
+import org.firstinspires.ftc.teamcode.matrix.Vec2;
+
+/**
+ * A localizer reporting the true pose of a simulated robot.
+ * Lets layers that need a localizer, such as
+ * {@link org.firstinspires.ftc.teamcode.layer.pathfinding.PathfindingLayer}, be run in simulation
+ * without also simulating sensors. Registered sources are ignored, and the reported velocity is
+ * the drivetrain's true velocity.
+ */
+public final class SimLocalizer implements RobotLocalizer {
+    /**
+     * The drivetrain whose pose is reported.
+     */
+    private final MecanumDrivetrainModel drivetrain;
+
+    /**
+     * Constructs a SimLocalizer.
+     *
+     * @param drivetrain - the drivetrain whose pose to report.
+     */
+    SimLocalizer(MecanumDrivetrainModel drivetrain) {
+        this.drivetrain = drivetrain;
+    }
+
+    @Override
+    public void invalidateCache() { }
+
+    @Override
+    public void registerSource(LocalizationSource source) { }
+
+    @Override
+    public Pose2d resolvePose() {
+        return drivetrain.getPose();
+    }
+
+    @Override
+    public Vec2 resolvePosition() {
+        return drivetrain.getPosition();
+    }
+
+    @Override
+    public double resolveRotation() {
+        return drivetrain.getHeading();
+    }
+
+    @Override
+    public Pose2d resolveVelocity() {
+        double heading = drivetrain.getHeading();
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        double axial = drivetrain.getAxialVelocity();
+        double lateral = drivetrain.getLateralVelocity();
+        return new Pose2d(
+            axial * cos - lateral * sin,
+            axial * sin + lateral * cos,
+            drivetrain.getAngularVelocity()
+        );
+    }
+}
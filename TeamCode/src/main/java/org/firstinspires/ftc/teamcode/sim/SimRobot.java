@@ -0,0 +1,300 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.firstinspires.ftc.teamcode.RobotController;
+import org.firstinspires.ftc.teamcode.layer.Layer;
+
+/**
+ * A simulated robot that layer stacks can be set up and run against off the robot.
+ * Devices are added by name before a controller is created; {@link #step} then advances every
+ * device, the drivetrain, and the clock together. All randomness is drawn from a single seeded
+ * generator, so two SimRobots built the same way with the same seed and driven by the same layers
+ * produce identical runs.
+ */
+public final class SimRobot {
+    /**
+     * The encoder ticks per output revolution of simulated motors, matching a 20:1 HD Hex motor.
+     */
+    private static final double MOTOR_TICKS_PER_REV = 560;
+
+    /**
+     * The maximum output speed of simulated motors in revolutions per minute.
+     */
+    private static final double MOTOR_MAX_RPM = 300;
+
+    /**
+     * The gear ratio of simulated motors.
+     */
+    private static final double MOTOR_GEARING = 20;
+
+    /**
+     * The radius of the drivetrain wheels in meters; must match MecanumDrive.
+     */
+    private static final double WHEEL_RADIUS = 0.0425;
+
+    /**
+     * The sum of half the track width and half the wheelbase in meters; must match MecanumDrive.
+     */
+    private static final double WHEEL_SPAN_RADIUS = 0.171;
+
+    /**
+     * The clock the robot's controllers are scheduled against.
+     */
+    private final SimClock clock;
+
+    /**
+     * The source of all randomness in the simulation.
+     */
+    private final Random random;
+
+    /**
+     * The standard deviation of the multiplicative speed noise of new motors.
+     */
+    private final double speedNoise;
+
+    /**
+     * The hardware map holding the simulated devices.
+     */
+    private final SimHardwareMap hardwareMap;
+
+    /**
+     * Every motor added to the robot, in the order added.
+     */
+    private final ArrayList<SimDcMotor> motors;
+
+    /**
+     * Every continuous rotation servo added to the robot, in the order added.
+     */
+    private final ArrayList<SimCRServo> crServos;
+
+    /**
+     * The first gamepad.
+     */
+    private final Gamepad gamepad0;
+
+    /**
+     * The second gamepad.
+     */
+    private final Gamepad gamepad1;
+
+    /**
+     * The drivetrain model, or null if no drivetrain has been added.
+     */
+    private MecanumDrivetrainModel drivetrain;
+
+    /**
+     * The localizer reporting the drivetrain's pose, or null if no drivetrain has been added.
+     */
+    private SimLocalizer localizer;
+
+    /**
+     * Constructs a SimRobot with noiseless motors.
+     *
+     * @param seed - the seed of the simulation's random number generator.
+     */
+    public SimRobot(long seed) {
+        this(seed, 0);
+    }
+
+    /**
+     * Constructs a SimRobot with no devices at time zero.
+     *
+     * @param seed - the seed of the simulation's random number generator.
+     * @param speedNoise - the standard deviation of the multiplicative noise applied to each
+     * motor's commanded speed every step.
+     */
+    public SimRobot(long seed, double speedNoise) {
+        if (speedNoise < 0) {
+            throw new IllegalArgumentException(String.format(
+                "Speed noise %f is negative",
+                speedNoise
+            ));
+        }
+        clock = new SimClock();
+        random = new Random(seed);
+        this.speedNoise = speedNoise;
+        hardwareMap = new SimHardwareMap();
+        motors = new ArrayList<>();
+        crServos = new ArrayList<>();
+        gamepad0 = new Gamepad();
+        gamepad1 = new Gamepad();
+        drivetrain = null;
+        localizer = null;
+    }
+
+    /**
+     * Adds a motor to the hardware map.
+     *
+     * @param name - the name to register the motor under.
+     * @return The new motor.
+     */
+    public SimDcMotor addMotor(String name) {
+        MotorConfigurationType motorType = new MotorConfigurationType();
+        motorType.setTicksPerRev(MOTOR_TICKS_PER_REV);
+        motorType.setMaxRPM(MOTOR_MAX_RPM);
+        motorType.setGearing(MOTOR_GEARING);
+        // Draw a seed per motor so that adding a device does not change the noise of the others
+        SimDcMotor motor = new SimDcMotor(
+            name,
+            motors.size(),
+            motorType,
+            speedNoise == 0 ? null : new Random(random.nextLong()),
+            speedNoise
+        );
+        motors.add(motor);
+        hardwareMap.put(name, motor);
+        return motor;
+    }
+
+    /**
+     * Adds a continuous rotation servo to the hardware map.
+     *
+     * @param name - the name to register the servo under.
+     * @return The new servo.
+     */
+    public SimCRServo addCRServo(String name) {
+        SimCRServo servo = new SimCRServo(name, crServos.size());
+        crServos.add(servo);
+        hardwareMap.put(name, servo);
+        return servo;
+    }
+
+    /**
+     * Adds the four motors used by
+     * {@link org.firstinspires.ftc.teamcode.layer.drive.MecanumDrive} and a drivetrain model
+     * moving the robot with them.
+     *
+     * @return The new drivetrain model.
+     */
+    public MecanumDrivetrainModel addMecanumDrivetrain() {
+        if (drivetrain != null) {
+            throw new IllegalStateException("The robot already has a drivetrain.");
+        }
+        SimDcMotor leftFront = addMotor("left_front_drive");
+        SimDcMotor rightFront = addMotor("right_front_drive");
+        SimDcMotor leftBack = addMotor("left_back_drive");
+        SimDcMotor rightBack = addMotor("right_back_drive");
+        // MecanumDrive reverses every motor except the left back one, so those are mounted so
+        // that turning the shaft forward drives the wheel backward
+        drivetrain = new MecanumDrivetrainModel(
+            leftFront,
+            rightFront,
+            leftBack,
+            rightBack,
+            new double[] { -1, -1, 1, -1 },
+            WHEEL_RADIUS,
+            WHEEL_SPAN_RADIUS
+        );
+        localizer = new SimLocalizer(drivetrain);
+        return drivetrain;
+    }
+
+    /**
+     * Creates a controller running on the simulation clock and sets it up with the given layers.
+     *
+     * @param layerStack - the layer stack to use.
+     * @return The set up controller.
+     */
+    public RobotController createController(List<Layer> layerStack) {
+        RobotController controller = new RobotController(clock);
+        controller.setup(hardwareMap, localizer, layerStack, gamepad0, gamepad1);
+        return controller;
+    }
+
+    /**
+     * Advances every device and the drivetrain by a time step, then advances the clock.
+     *
+     * @param dt - the length of the step in seconds.
+     */
+    public void step(double dt) {
+        for (int i = 0; i < motors.size(); ++i) {
+            motors.get(i).step(dt);
+        }
+        for (int i = 0; i < crServos.size(); ++i) {
+            crServos.get(i).step(dt);
+        }
+        if (drivetrain != null) {
+            drivetrain.step(dt);
+        }
+        clock.advance(dt);
+    }
+
+    /**
+     * Alternately updates a controller and steps the simulation until the controller's layers are
+     * done or the given number of ticks has run.
+     *
+     * @param controller - the controller to update.
+     * @param maxTicks - the maximum number of ticks to run.
+     * @param dt - the simulated time between ticks in seconds.
+     * @return The number of ticks run.
+     */
+    public int run(RobotController controller, int maxTicks, double dt) {
+        for (int tick = 0; tick < maxTicks; ++tick) {
+            if (controller.update()) {
+                return tick + 1;
+            }
+            step(dt);
+        }
+        return maxTicks;
+    }
+
+    /**
+     * Returns the simulation clock.
+     *
+     * @return The clock controllers created by this robot are scheduled against.
+     */
+    public SimClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Returns the hardware map.
+     *
+     * @return The hardware map holding the simulated devices.
+     */
+    public SimHardwareMap getHardwareMap() {
+        return hardwareMap;
+    }
+
+    /**
+     * Returns the first gamepad, whose fields can be set to simulate driver input.
+     *
+     * @return The first gamepad.
+     */
+    public Gamepad getGamepad0() {
+        return gamepad0;
+    }
+
+    /**
+     * Returns the second gamepad, whose fields can be set to simulate driver input.
+     *
+     * @return The second gamepad.
+     */
+    public Gamepad getGamepad1() {
+        return gamepad1;
+    }
+
+    /**
+     * Returns the drivetrain model.
+     *
+     * @return The drivetrain model, or null if no drivetrain has been added.
+     */
+    public MecanumDrivetrainModel getDrivetrain() {
+        return drivetrain;
+    }
+
+    /**
+     * Returns the localizer reporting the drivetrain's true pose.
+     *
+     * @return The localizer, or null if no drivetrain has been added.
+     */
+    public SimLocalizer getLocalizer() {
+        return localizer;
+    }
+}
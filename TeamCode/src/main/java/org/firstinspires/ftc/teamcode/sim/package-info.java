@@ -0,0 +1,13 @@
+/**
+ * Headless stand-ins for the robot hardware, for running layer stacks on a desktop JVM.
+ * A {@link SimRobot} owns a {@link SimClock}, a {@link SimHardwareMap} populated with simulated
+ * motors and servos, two gamepads, and a {@link MecanumDrivetrainModel} that moves the robot
+ * according to its drive motors. Layers are set up against it exactly as on the robot, but time
+ * only advances when the simulation is stepped, so runs are as fast as the CPU allows and repeat
+ * exactly for a given seed.
+ *
+ * <p>Only the devices our layers use are simulated. Cameras are not, so layers opening a
+ * VisionPortal (such as {@link org.firstinspires.ftc.teamcode.layer.ShooterIntakeLayer}) cannot be
+ * run in simulation.
+ */
+package org.firstinspires.ftc.teamcode.sim;
@@ -7,17 +7,17 @@ import org.firstinspires.ftc.teamcode.task.Task;
  */
 public class AutoShooterTask implements Task {
 
-    private final boolean shoot;
+    private boolean shoot;
 
-    private final boolean shooterEject;
+    private boolean shooterEject;
 
-    private final boolean intake;
+    private boolean intake;
 
-    private final boolean eject;
+    private boolean eject;
 
-    private final boolean experimentalRed;
+    private boolean experimentalRed;
 
-    private final boolean experimentalBlue;
+    private boolean experimentalBlue;
     
     public AutoShooterTask(boolean shoot, boolean shooterEject, boolean intake, boolean eject, boolean experimentalRed, boolean experimentalBlue) {
         this.shoot = shoot;
@@ -28,6 +28,20 @@ public class AutoShooterTask implements Task {
         this.experimentalBlue = experimentalBlue;
     }
 
+    /**
+     * Replaces the commands of the task, so that a mapping emitting one every tick can reuse a
+     * single instance. The shooter layer reads the task when it accepts it, so it may be changed
+     * once the layer below has accepted it.
+     */
+    public void set(boolean shoot, boolean shooterEject, boolean intake, boolean eject, boolean experimentalRed, boolean experimentalBlue) {
+        this.shoot = shoot;
+        this.shooterEject = shooterEject;
+        this.intake = intake;
+        this.eject = eject;
+        this.experimentalRed = experimentalRed;
+        this.experimentalBlue = experimentalBlue;
+    }
+
     public final boolean getShoot() {
         return this.shoot;
     }
@@ -2,6 +2,12 @@ package org.firstinspires.ftc.teamcode.task;
 
 /**
  * Holds a snapshot of input from all connected gamepads.
+ * Each gamepad's buttons are packed into a bitmask and its axes into a float array; the field-style
+ * views ({@code gamepad0.buttons.a}, {@code gamepad0.joysticks.left.x}, ...) are refreshed from the
+ * packed state whenever it is written. Snapshots may be reused: the
+ * {@link org.firstinspires.ftc.teamcode.layer.input.GamepadInputGenerator} owns two and alternates
+ * between them, so a received task stays valid until the generator has been updated twice more.
+ * Consumers must not write to the view fields or keep tasks beyond that.
  */
 public class GamepadInputTask implements Task {
     /**
@@ -27,6 +33,18 @@ public class GamepadInputTask implements Task {
         this.gamepad1 = gamepad1;
     }
 
+    /**
+     * Returns whether any gamepad's input changed from the snapshot it was compared with.
+     *
+     * @param axisDeadband - the amount an axis must move by to count as changed.
+     * @return Whether either connected gamepad reports a change.
+     * @see GamepadInput#isChanged
+     */
+    public boolean isChanged(float axisDeadband) {
+        return (gamepad0 != null && gamepad0.isChanged(axisDeadband))
+            || (gamepad1 != null && gamepad1.isChanged(axisDeadband));
+    }
+
     /**
      * Carries information about the axes of a joystick on a gamepad.
      */
@@ -35,24 +53,18 @@ public class GamepadInputTask implements Task {
          * The horizontal axis of the joystick.
          * Positive values correspond to the rightward direction.
          */
-        public final float x;
+        public float x;
 
         /**
          * The vertical axis of the joystick.
          * Positive values correspond to the upward direction.
          */
-        public final float y;
+        public float y;
 
         /**
-         * Constructs a Joystick.
-         *
-         * @param x - the joystick's horizontal axis input.
-         * @param y - the joystick's vertical axis input.
+         * Constructs a Joystick centered on both axes.
          */
-        private Joystick(float x, float y) {
-            this.x = x;
-            this.y = y;
-        }
+        private Joystick() { }
     }
 
     /**
@@ -89,23 +101,17 @@ public class GamepadInputTask implements Task {
         /**
          * Whether the left button of the pair is pressed.
          */
-        public final boolean left;
+        public boolean left;
 
         /**
          * Whether the right button of the pair is pressed.
          */
-        public final boolean right;
+        public boolean right;
 
         /**
-         * Constructs a ButtonPair.
-         *
-         * @param left - whether the left button of the pair is pressed.
-         * @param right - whether the right button of the pair is pressed.
+         * Constructs a ButtonPair with neither button pressed.
          */
-        private ButtonPair(boolean left, boolean right) {
-            this.left = left;
-            this.right = right;
-        }
+        private ButtonPair() { }
     }
 
     /**
@@ -116,37 +122,27 @@ public class GamepadInputTask implements Task {
         /**
          * Whether the up button of the dpad is pressed.
          */
-        public final boolean up;
+        public boolean up;
 
         /**
          * Whether the right button of the dpad is pressed.
          */
-        public final boolean right;
+        public boolean right;
 
         /**
          * Whether the down button of the dpad is pressed.
          */
-        public final boolean down;
+        public boolean down;
 
         /**
          * Whether the left button of the dpad is pressed.
          */
-        public final boolean left;
+        public boolean left;
 
         /**
-         * Constructs a DirectionalPad.
-         *
-         * @param up - whether the up button of the dpad is pressed.
-         * @param right - whether the right button of the dpad is pressed.
-         * @param down - whether the down button of the dpad is pressed.
-         * @param left - whether the left button of the dpad is pressed.
+         * Constructs a DirectionalPad with no buttons pressed.
          */
-        private DirectionalPad(boolean up, boolean right, boolean down, boolean left) {
-            this.up = up;
-            this.right = right;
-            this.down = down;
-            this.left = left;
-        }
+        private DirectionalPad() { }
     }
 
     /**
@@ -156,39 +152,128 @@ public class GamepadInputTask implements Task {
         /**
          * Whether the A gamepad button is pressed.
          */
-        public final boolean a;
+        public boolean a;
 
         /**
          * Whether the B gamepad button is pressed.
          */
-        public final boolean b;
+        public boolean b;
 
         /**
          * Whether the X gamepad button is pressed.
          */
-        public final boolean x;
+        public boolean x;
 
         /**
          * Whether the Y gamepad button is pressed.
          */
-        public final boolean y;
+        public boolean y;
 
         /**
-         * Constructs a Buttons.
+         * Constructs a Buttons with no buttons pressed.
+         */
+        private Buttons() { }
+    }
+
+    /**
+     * A digital input on a gamepad.
+     */
+    public enum Button {
+        /**
+         * The A button.
+         */
+        A,
+        /**
+         * The B button.
+         */
+        B,
+        /**
+         * The X button.
+         */
+        X,
+        /**
+         * The Y button.
+         */
+        Y,
+        /**
+         * The up dpad button.
+         */
+        DPAD_UP,
+        /**
+         * The right dpad button.
+         */
+        DPAD_RIGHT,
+        /**
+         * The down dpad button.
+         */
+        DPAD_DOWN,
+        /**
+         * The left dpad button.
+         */
+        DPAD_LEFT,
+        /**
+         * The left bumper.
+         */
+        BUMPER_LEFT,
+        /**
+         * The right bumper.
+         */
+        BUMPER_RIGHT,
+        /**
+         * The left trigger, pressed when its value is at least {@link GamepadInput#TRIGGER_MIN}.
+         */
+        TRIGGER_LEFT,
+        /**
+         * The right trigger, pressed when its value is at least {@link GamepadInput#TRIGGER_MIN}.
+         */
+        TRIGGER_RIGHT;
+
+        /**
+         * Returns the bit representing this button in a button bitmask.
          *
-         * @param a - whether the A gamepad button is pressed.
-         * @param b - whether the B gamepad button is pressed.
-         * @param x - whether the X gamepad button is pressed.
-         * @param y - whether the Y gamepad button is pressed.
-         */
-        private Buttons(boolean a, boolean b, boolean x, boolean y) {
-            this.a = a;
-            this.b = b;
-            this.x = x;
-            this.y = y;
+         * @return A mask with only this button's bit set.
+         * @see GamepadInput#getButtonMask
+         */
+        public int getMask() {
+            return 1 << ordinal();
         }
     }
 
+    /**
+     * An analog input on a gamepad.
+     */
+    public enum Axis {
+        /**
+         * The horizontal axis of the left joystick.
+         */
+        JOYSTICK_LEFT_X,
+        /**
+         * The vertical axis of the left joystick.
+         */
+        JOYSTICK_LEFT_Y,
+        /**
+         * The horizontal axis of the right joystick.
+         */
+        JOYSTICK_RIGHT_X,
+        /**
+         * The vertical axis of the right joystick.
+         */
+        JOYSTICK_RIGHT_Y,
+        /**
+         * The left trigger.
+         */
+        TRIGGER_LEFT,
+        /**
+         * The right trigger.
+         */
+        TRIGGER_RIGHT;
+
+        /**
+         * The number of axes, cached since {@link #values} allocates.
+         */
+        static final int COUNT = values().length;
+    }
+
     /**
      * Carries information about a single connected gamepad.
      */
@@ -198,7 +283,7 @@ public class GamepadInputTask implements Task {
          * For the sake of symmetry with the PiE API, triggers are considered digital buttons
          * and not as real-valued inputs.
          */
-        private static final float TRIGGER_MIN = 0.3f;
+        public static final float TRIGGER_MIN = 0.3f;
 
         /**
          * The pair of joysticks on the gamepad.
@@ -225,6 +310,48 @@ public class GamepadInputTask implements Task {
          */
         public final Buttons buttons;
 
+        /**
+         * The value of each axis, indexed by {@link Axis#ordinal}.
+         */
+        private final float[] axes;
+
+        /**
+         * The change in each axis since the compared snapshot, indexed by {@link Axis#ordinal}.
+         */
+        private final float[] axisDeltas;
+
+        /**
+         * The pressed buttons, with bits given by {@link Button#getMask}.
+         */
+        private int buttonMask;
+
+        /**
+         * The buttons pressed since the compared snapshot.
+         */
+        private int pressedMask;
+
+        /**
+         * The buttons released since the compared snapshot.
+         */
+        private int releasedMask;
+
+        /**
+         * Constructs a GamepadInput with every axis centered and no buttons pressed, to be filled in
+         * by {@link #set}.
+         */
+        public GamepadInput() {
+            joysticks = new Joysticks(new Joystick(), new Joystick());
+            bumpers = new ButtonPair();
+            triggers = new ButtonPair();
+            dpad = new DirectionalPad();
+            buttons = new Buttons();
+            axes = new float[Axis.COUNT];
+            axisDeltas = new float[Axis.COUNT];
+            buttonMask = 0;
+            pressedMask = 0;
+            releasedMask = 0;
+        }
+
         /**
          * Constructs a GamepadInput.
          *
@@ -263,14 +390,228 @@ public class GamepadInputTask implements Task {
             boolean buttonX,
             boolean buttonY
         ) {
-            joysticks = new Joysticks(
-                new Joystick(joystickLeftX, joystickLeftY),
-                new Joystick(joystickRightX, joystickRightY)
+            this();
+            set(
+                joystickLeftX,
+                joystickLeftY,
+                bumperLeft,
+                triggerLeft,
+                joystickRightX,
+                joystickRightY,
+                bumperRight,
+                triggerRight,
+                dpadUp,
+                dpadRight,
+                dpadDown,
+                dpadLeft,
+                buttonA,
+                buttonB,
+                buttonX,
+                buttonY
             );
-            bumpers = new ButtonPair(bumperLeft, bumperRight);
-            triggers = new ButtonPair(triggerLeft >= TRIGGER_MIN, triggerRight >= TRIGGER_MIN);
-            dpad = new DirectionalPad(dpadUp, dpadRight, dpadDown, dpadLeft);
-            buttons = new Buttons(buttonA, buttonB, buttonX, buttonY);
+        }
+
+        /**
+         * Overwrites the captured input, then refreshes the field-style views from it.
+         *
+         * @param joystickLeftX - the horizontal axis of the left joystick.
+         * @param joystickLeftY - the vertical axis of the left joystick.
+         * @param bumperLeft - whether the left bumper is pressed.
+         * @param triggerLeft - the value of the left trigger.
+         * @param joystickRightX - the horizontal axis of the right joystick.
+         * @param joystickRightY - the vertical axis of the right joystick.
+         * @param bumperRight - whether the right bumper is pressed.
+         * @param triggerRight - the value of the right trigger.
+         * @param dpadUp - whether the up dpad button is pressed.
+         * @param dpadRight - whether the right dpad button is pressed.
+         * @param dpadDown - whether the down dpad button is pressed.
+         * @param dpadLeft - whether the left dpad button is pressed.
+         * @param buttonA - whether the A gamepad button is pressed.
+         * @param buttonB - whether the B gamepad button is pressed.
+         * @param buttonX - whether the X gamepad button is pressed.
+         * @param buttonY - whether the Y gamepad button is pressed.
+         */
+        public void set(
+            float joystickLeftX,
+            float joystickLeftY,
+            boolean bumperLeft,
+            float triggerLeft,
+            float joystickRightX,
+            float joystickRightY,
+            boolean bumperRight,
+            float triggerRight,
+            boolean dpadUp,
+            boolean dpadRight,
+            boolean dpadDown,
+            boolean dpadLeft,
+            boolean buttonA,
+            boolean buttonB,
+            boolean buttonX,
+            boolean buttonY
+        ) {
+            axes[Axis.JOYSTICK_LEFT_X.ordinal()] = joystickLeftX;
+            axes[Axis.JOYSTICK_LEFT_Y.ordinal()] = joystickLeftY;
+            axes[Axis.JOYSTICK_RIGHT_X.ordinal()] = joystickRightX;
+            axes[Axis.JOYSTICK_RIGHT_Y.ordinal()] = joystickRightY;
+            axes[Axis.TRIGGER_LEFT.ordinal()] = triggerLeft;
+            axes[Axis.TRIGGER_RIGHT.ordinal()] = triggerRight;
+            int mask = 0;
+            mask |= buttonA ? Button.A.getMask() : 0;
+            mask |= buttonB ? Button.B.getMask() : 0;
+            mask |= buttonX ? Button.X.getMask() : 0;
+            mask |= buttonY ? Button.Y.getMask() : 0;
+            mask |= dpadUp ? Button.DPAD_UP.getMask() : 0;
+            mask |= dpadRight ? Button.DPAD_RIGHT.getMask() : 0;
+            mask |= dpadDown ? Button.DPAD_DOWN.getMask() : 0;
+            mask |= dpadLeft ? Button.DPAD_LEFT.getMask() : 0;
+            mask |= bumperLeft ? Button.BUMPER_LEFT.getMask() : 0;
+            mask |= bumperRight ? Button.BUMPER_RIGHT.getMask() : 0;
+            mask |= triggerLeft >= TRIGGER_MIN ? Button.TRIGGER_LEFT.getMask() : 0;
+            mask |= triggerRight >= TRIGGER_MIN ? Button.TRIGGER_RIGHT.getMask() : 0;
+            buttonMask = mask;
+            refreshViews();
+        }
+
+        /**
+         * Computes the button edges and axis deltas of this snapshot relative to an earlier one.
+         * Must be called after {@link #set}; until then every edge and delta reads as zero.
+         *
+         * @param previous - the earlier snapshot of the same gamepad, or null to compare against a
+         * gamepad at rest.
+         */
+        public void compareWith(GamepadInput previous) {
+            int previousMask = previous == null ? 0 : previous.buttonMask;
+            pressedMask = buttonMask & ~previousMask;
+            releasedMask = previousMask & ~buttonMask;
+            for (int i = 0; i < axes.length; ++i) {
+                axisDeltas[i] = axes[i] - (previous == null ? 0 : previous.axes[i]);
+            }
+        }
+
+        /**
+         * Returns whether the input changed from the compared snapshot.
+         * Axis movements within the deadband are ignored so stick noise does not count as a change,
+         * except that an axis returning exactly to rest always does.
+         *
+         * @param axisDeadband - the amount an axis must move by to count as changed.
+         * @return Whether any button was pressed or released, or any axis moved by more than the
+         * deadband.
+         * @see #compareWith
+         */
+        public boolean isChanged(float axisDeadband) {
+            if ((pressedMask | releasedMask) != 0) {
+                return true;
+            }
+            for (int i = 0; i < axes.length; ++i) {
+                if (Math.abs(axisDeltas[i]) > axisDeadband
+                    || (axes[i] == 0 && axisDeltas[i] != 0)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns whether a button went down since the compared snapshot.
+         *
+         * @param button - the button to check.
+         * @return Whether the button is pressed now but was not in the compared snapshot.
+         * @see #compareWith
+         */
+        public boolean pressed(Button button) {
+            return (pressedMask & button.getMask()) != 0;
+        }
+
+        /**
+         * Returns whether a button came up since the compared snapshot.
+         *
+         * @param button - the button to check.
+         * @return Whether the button was pressed in the compared snapshot but is not now.
+         * @see #compareWith
+         */
+        public boolean released(Button button) {
+            return (releasedMask & button.getMask()) != 0;
+        }
+
+        /**
+         * Returns which buttons went down since the compared snapshot.
+         *
+         * @return A bitmask of the newly pressed buttons, with bits given by
+         * {@link Button#getMask}.
+         */
+        public int getPressedMask() {
+            return pressedMask;
+        }
+
+        /**
+         * Returns which buttons came up since the compared snapshot.
+         *
+         * @return A bitmask of the newly released buttons, with bits given by
+         * {@link Button#getMask}.
+         */
+        public int getReleasedMask() {
+            return releasedMask;
+        }
+
+        /**
+         * Returns how far an axis moved since the compared snapshot.
+         *
+         * @param axis - the axis to read.
+         * @return The current value of the axis minus its value in the compared snapshot.
+         */
+        public float getAxisDelta(Axis axis) {
+            return axisDeltas[axis.ordinal()];
+        }
+
+        /**
+         * Returns which buttons are pressed.
+         *
+         * @return A bitmask of the pressed buttons, with bits given by {@link Button#getMask}.
+         */
+        public int getButtonMask() {
+            return buttonMask;
+        }
+
+        /**
+         * Returns whether a button is pressed.
+         *
+         * @param button - the button to check.
+         * @return Whether the button is held down in this snapshot.
+         */
+        public boolean isPressed(Button button) {
+            return (buttonMask & button.getMask()) != 0;
+        }
+
+        /**
+         * Returns the value of an axis.
+         *
+         * @param axis - the axis to read.
+         * @return The axis value, in [-1, 1] for joysticks and [0, 1] for triggers.
+         */
+        public float getAxis(Axis axis) {
+            return axes[axis.ordinal()];
+        }
+
+        /**
+         * Copies the packed state into the field-style views.
+         */
+        private void refreshViews() {
+            joysticks.left.x = axes[Axis.JOYSTICK_LEFT_X.ordinal()];
+            joysticks.left.y = axes[Axis.JOYSTICK_LEFT_Y.ordinal()];
+            joysticks.right.x = axes[Axis.JOYSTICK_RIGHT_X.ordinal()];
+            joysticks.right.y = axes[Axis.JOYSTICK_RIGHT_Y.ordinal()];
+            bumpers.left = isPressed(Button.BUMPER_LEFT);
+            bumpers.right = isPressed(Button.BUMPER_RIGHT);
+            triggers.left = isPressed(Button.TRIGGER_LEFT);
+            triggers.right = isPressed(Button.TRIGGER_RIGHT);
+            dpad.up = isPressed(Button.DPAD_UP);
+            dpad.right = isPressed(Button.DPAD_RIGHT);
+            dpad.down = isPressed(Button.DPAD_DOWN);
+            dpad.left = isPressed(Button.DPAD_LEFT);
+            buttons.a = isPressed(Button.A);
+            buttons.b = isPressed(Button.B);
+            buttons.x = isPressed(Button.X);
+            buttons.y = isPressed(Button.Y);
         }
     }
 }
@@ -38,6 +38,22 @@ public class HolonomicDriveTask implements Task {
         this.yaw = yaw;
     }
 
+    /**
+     * Replaces the accelerations of the task.
+     * Lets a layer emitting a drive task every tick reuse one instance. Drive layers read the task
+     * when they accept it, so it may be changed once the layer below has accepted it.
+     *
+     * @param axial - the relative acceleration to apply in the direction the robot is facing.
+     * @param lateral - the relative acceleration to apply in the direction perpendicular to the one
+     * the robot is facing.
+     * @param yaw - the relative acceleration to use to turn the robot.
+     */
+    public void set(double axial, double lateral, double yaw) {
+        this.axial = axial;
+        this.lateral = lateral;
+        this.yaw = yaw;
+    }
+
     /**
      * Returns the relative acceleration to apply in the direction the robot is facing.
      *
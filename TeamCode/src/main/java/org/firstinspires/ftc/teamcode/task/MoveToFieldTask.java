@@ -1,23 +1,42 @@
 package org.firstinspires.ftc.teamcode.task;
 
 import org.firstinspires.ftc.teamcode.matrix.Mat3;
+import org.firstinspires.ftc.teamcode.matrix.Pose2d;
 
 /**
- * Instructs the robot to pathfind to a field space transform while avoiding obstacles.
+ * Instructs the robot to pathfind to a field space pose while avoiding obstacles.
  */
 public final class MoveToFieldTask implements Task {
     /**
-     * The goal field space transform.
+     * The goal field space pose.
      */
-    private Mat3 transform;
+    private Pose2d pose;
 
     /**
      * Constructs a MoveToFieldTask.
      *
+     * @param pose the goal field space pose.
+     */
+    public MoveToFieldTask(Pose2d pose) {
+        this.pose = pose;
+    }
+
+    /**
+     * Constructs a MoveToFieldTask from a transformation matrix.
+     *
      * @param transform the goal field space transform.
      */
     public MoveToFieldTask(Mat3 transform) {
-        this.transform = transform;
+        this(Pose2d.fromMat3(transform));
+    }
+
+    /**
+     * Returns the goal pose.
+     *
+     * @return The goal field space pose.
+     */
+    public Pose2d getGoalPose() {
+        return pose;
     }
 
     /**
@@ -26,6 +45,6 @@ public final class MoveToFieldTask implements Task {
      * @return The goal field space transform.
      */
     public Mat3 getGoalTransform() {
-        return transform;
+        return pose.toMat3();
     }
 }